@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import openDLX.asm.MemoryBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Assembling of large generated DLX programs by the tokenizer and the
+ * parser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AssemblerBenchmark
+{
+	/// number of generated loop blocks of 8 instructions
+	@Param({"100", "1000"})
+	public int blocks;
+
+	private String source;
+
+	@Setup
+	public void prepare()
+	{
+		source = BenchmarkPrograms.generateSource(blocks);
+	}
+
+	@Benchmark
+	public MemoryBuffer assemble() throws Exception
+	{
+		return BenchmarkPrograms.assemble(BenchmarkPrograms.reader(source));
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+
+import openDLX.OpenDLXSimulator;
+import openDLX.SimulationContext;
+import openDLX.asm.DLXAssembler;
+import openDLX.asm.MemoryBuffer;
+import openDLX.exception.PipelineException;
+
+/**
+ * Prepares the bundled programs for the benchmarks. DLX programs
+ * (apps/dlx_apps/*.s) are assembled into a temporary binary, MIPS programs
+ * are given by their configuration (apps/mips_apps/[program]/[program].cfg)
+ * and have to be built with their Makefile before.
+ */
+public class BenchmarkPrograms
+{
+	/**
+	 * @param program Path of a DLX assembler file or of a MIPS configuration, relative to the openDLX directory.
+	 * @return The simulator configuration of the program.
+	 */
+	public static Properties loadConfig(String program) throws Exception
+	{
+		Properties config;
+		if(program.endsWith(".s"))
+		{
+			MemoryBuffer mb = assemble(new BufferedReader(new FileReader(program)));
+			File bin = createTempFile(".bin");
+			FileOutputStream out = new FileOutputStream(bin);
+			try
+			{
+				out.write(mb.toByteArray());
+			}
+			finally
+			{
+				out.close();
+			}
+
+			config = new Properties();
+			config.setProperty("file", bin.getPath());
+			config.setProperty("code_start_addr", "0x0");
+			config.setProperty("entry_point", Integer.toString(mb.getEntryPoint()));
+			config.setProperty("isa_type", "DLX");
+			config.setProperty("use_forwarding", "true");
+			config.setProperty("use_load_stall_bubble", "true");
+			config.setProperty("cycles", "1000000");
+		}
+		else
+		{
+			if(!new File(program).isFile())
+			{
+				throw new FileNotFoundException("Cannot find configuration " + program);
+			}
+			config = OpenDLXSimulator.loadConfig(program);
+			if(!new File(config.getProperty("file")).isFile())
+			{
+				throw new FileNotFoundException("Cannot find binary " + config.getProperty("file") + ", build it with the Makefile of " + new File(program).getParent());
+			}
+		}
+		// do not overwrite the output of the program in the apps directory
+		config.setProperty("print_file", createTempFile(".out").getPath());
+		return config;
+	}
+
+	/**
+	 * Creates a simulator for the configuration that does not print to the
+	 * console and does not share state with other simulators.
+	 */
+	public static OpenDLXSimulator createSimulator(Properties config) throws PipelineException
+	{
+		SimulationContext context = new SimulationContext();
+		context.discardConsole();
+		// the simulator adds default parameters to its configuration
+		return new OpenDLXSimulator((Properties)config.clone(), context);
+	}
+
+	public static MemoryBuffer assemble(BufferedReader reader) throws Exception
+	{
+		return new DLXAssembler().assemble(reader);
+	}
+
+	/**
+	 * Generates a DLX program of the given number of loop blocks, every block
+	 * has a label, arithmetic, memory, and branch instructions.
+	 */
+	public static String generateSource(int blocks)
+	{
+		StringBuilder sb = new StringBuilder(blocks * 200);
+		sb.append(".data\n");
+		sb.append("buffer: .space 256\n");
+		sb.append(".text\n");
+		sb.append(".global main\n");
+		sb.append("main:\n");
+		for(int i = 0; i < blocks; i++)
+		{
+			sb.append("block").append(i).append(":    addi r1,r0,").append(i & 0x7fff).append("   ; loop counter\n");
+			sb.append("loop").append(i).append(":\n");
+			sb.append("          lw r2,buffer(r0)\n");
+			sb.append("          add r3,r2,r1\n");
+			sb.append("          sgt r4,r3,r2\n");
+			sb.append("          sw buffer(r0),r3\n");
+			sb.append("          subi r1,r1,1\n");
+			sb.append("          bnez r1,loop").append(i).append('\n');
+			sb.append("          nop\n");
+			sb.append("          nop\n");
+		}
+		sb.append("          trap 0\n");
+		return sb.toString();
+	}
+
+	public static BufferedReader reader(String source)
+	{
+		return new BufferedReader(new StringReader(source));
+	}
+
+	private static File createTempFile(String suffix) throws IOException
+	{
+		File file = File.createTempFile("openDLX_bench", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import openDLX.branchPrediction.BranchTargetBuffer;
+import openDLX.datatypes.BranchPredictorState;
+import openDLX.datatypes.BranchPredictorType;
+import openDLX.datatypes.BranchTargetBufferLookupResult;
+import openDLX.datatypes.uint32;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Lookups in a branch target buffer of 64 entries, half of them hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BranchTargetBufferBenchmark
+{
+	private static final int BTB_SIZE = 64;
+
+	private BranchTargetBuffer btb;
+	private uint32[] branch_pcs;
+	private int next;
+
+	@Setup
+	public void prepare() throws Exception
+	{
+		btb = new BranchTargetBuffer(BTB_SIZE, BranchPredictorType.D_2BIT_SATURATION, BranchPredictorState.PREDICT_WEAKLY_NOT_TAKEN, false);
+		branch_pcs = new uint32[2 * BTB_SIZE];
+		for(int i = 0; i < branch_pcs.length; i++)
+		{
+			branch_pcs[i] = new uint32(0x1000 + i * 4);
+			if((i & 1) == 0)
+			{
+				btb.updateOnBranch(branch_pcs[i], new uint32(0x100), true);
+			}
+		}
+	}
+
+	@Benchmark
+	public BranchTargetBufferLookupResult lookupBranch()
+	{
+		next = (next + 1) % branch_pcs.length;
+		return btb.lookupBranch(branch_pcs[next]);
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import openDLX.ALU;
+import openDLX.ALUOperation;
+import openDLX.Decode;
+import openDLX.SimulationContext;
+import openDLX.asm.MemoryBuffer;
+import openDLX.datatypes.ALUFunction;
+import openDLX.datatypes.Instruction;
+import openDLX.datatypes.uint32;
+import openDLX.exception.PipelineException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding of the instruction words of the bundled DLX programs and the ALU
+ * operations they use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecodeExecuteBenchmark
+{
+	private static final String[] PROGRAMS = {
+		"apps/dlx_apps/example_2_instr_memory.s",
+		"apps/dlx_apps/example_5_output_integer.s",
+		"apps/dlx_apps/example_7_jumps.s",
+		"apps/dlx_apps/test_forwarding.s"
+	};
+
+	private static final ALUFunction[] OPERATIONS = {
+		ALUFunction.ADD, ALUFunction.ADDU, ALUFunction.SUB, ALUFunction.AND, ALUFunction.OR,
+		ALUFunction.SLL, ALUFunction.SRA, ALUFunction.SLT, ALUFunction.SGT, ALUFunction.SEQ,
+		ALUFunction.MULT, ALUFunction.DIV
+	};
+
+	private Decode decode;
+	private ALU alu;
+	private uint32[] words;
+	private uint32[] operands;
+	private ALUOperation[] handlers;
+	private int[] int_operands;
+	private int next_word;
+	private int next_op;
+
+	@Setup
+	public void prepare() throws Exception
+	{
+		Properties config = new Properties();
+		config.setProperty("isa_type", "DLX");
+		config.setProperty("use_forwarding", "true");
+		config.setProperty("use_load_stall_bubble", "true");
+		SimulationContext context = new SimulationContext();
+		context.registerArchitectureConfig(config);
+		decode = new Decode(null, context);
+		alu = new ALU(context);
+
+		List<uint32> instrs = new ArrayList<uint32>();
+		for(String program : PROGRAMS)
+		{
+			MemoryBuffer mb = BenchmarkPrograms.assemble(new BufferedReader(new FileReader(program)));
+			for(int addr = mb.getEntryPoint(); addr < mb.getTextEnd(); addr += 4)
+			{
+				instrs.add(new uint32(mb.readWord(addr)));
+			}
+		}
+		words = instrs.toArray(new uint32[instrs.size()]);
+
+		operands = new uint32[64];
+		Random rand = new Random(42);
+		for(int i = 0; i < operands.length; i++)
+		{
+			// non zero, such that divisions do not trap
+			operands[i] = new uint32(rand.nextInt() | 1);
+		}
+
+		handlers = new ALUOperation[OPERATIONS.length];
+		for(int i = 0; i < handlers.length; i++)
+		{
+			handlers[i] = ALUOperation.forFunction(OPERATIONS[i]);
+		}
+		int_operands = new int[operands.length];
+		for(int i = 0; i < operands.length; i++)
+		{
+			int_operands[i] = operands[i].getValue();
+		}
+	}
+
+	@Benchmark
+	public Instruction decodeInstr() throws PipelineException
+	{
+		uint32 word = words[next_word];
+		next_word = (next_word + 1) % words.length;
+		return decode.decodeInstr(word);
+	}
+
+	@Benchmark
+	public uint32[] aluDoOperation() throws PipelineException
+	{
+		int i = next_op;
+		next_op = (next_op + 1) % (OPERATIONS.length * operands.length);
+		return alu.doOperation(OPERATIONS[i % OPERATIONS.length], operands[i % operands.length], operands[(i + 7) % operands.length]);
+	}
+
+	@Benchmark
+	public long aluOperation() throws PipelineException
+	{
+		int i = next_op;
+		next_op = (next_op + 1) % (OPERATIONS.length * operands.length);
+		return handlers[i % handlers.length].calculate(alu, int_operands[i % int_operands.length], int_operands[(i + 7) % int_operands.length]);
+	}
+}
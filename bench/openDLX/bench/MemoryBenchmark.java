@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import openDLX.datatypes.CacheType;
+import openDLX.datatypes.DCacheWritePolicy;
+import openDLX.datatypes.uint32;
+import openDLX.exception.MemoryException;
+import openDLX.memory.CacheLRU;
+import openDLX.memory.MainMemory;
+import openDLX.util.PagedMemory;
+import openDLX.util.Statistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Accesses to the paged main memory and to a 4-way LRU data cache of 1 KiB
+ * (16 byte lines).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MemoryBenchmark
+{
+	private static final int LINE_SIZE = 16;
+	private static final int LINE_NUMBER = 64;
+	private static final int ASSOCIATIVITY = 4;
+	private static final int CACHE_SIZE = LINE_SIZE * LINE_NUMBER;
+	private static final int MEMORY_SIZE = 1 << 20;
+
+	private PagedMemory paged_memory;
+	private CacheLRU cache;
+	private int[] addresses;
+	private uint32 hit_addr;
+	/// addresses of a footprint of twice the cache size, every access of them misses in the LRU cache
+	private uint32[] miss_addrs;
+	/// addresses of the ways of one set, every access of them hits but reorders the LRU stack
+	private uint32[] set_addrs;
+	private int next;
+
+	@Setup
+	public void prepare() throws Exception
+	{
+		File raw = File.createTempFile("openDLX_bench", ".bin");
+		raw.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(raw);
+		try
+		{
+			out.write(new byte[2 * CACHE_SIZE]);
+		}
+		finally
+		{
+			out.close();
+		}
+		MainMemory mem = new MainMemory(raw.getPath(), 0, (short)1);
+		cache = new CacheLRU(CacheType.DCACHE, LINE_SIZE, LINE_NUMBER, ASSOCIATIVITY, DCacheWritePolicy.WRITE_THROUGH, mem, new Statistics());
+
+		hit_addr = new uint32(0x40);
+		cache.read_u32(hit_addr);
+
+		miss_addrs = new uint32[2 * LINE_NUMBER];
+		for(int i = 0; i < miss_addrs.length; i++)
+		{
+			miss_addrs[i] = new uint32(i * LINE_SIZE);
+		}
+
+		// the lines of one set are CACHE_SIZE / ASSOCIATIVITY bytes apart
+		set_addrs = new uint32[ASSOCIATIVITY];
+		for(int i = 0; i < ASSOCIATIVITY; i++)
+		{
+			set_addrs[i] = new uint32(i * (CACHE_SIZE / ASSOCIATIVITY));
+			cache.read_u32(set_addrs[i]);
+		}
+
+		paged_memory = new PagedMemory();
+		Random rand = new Random(42);
+		addresses = new int[4096];
+		for(int i = 0; i < addresses.length; i++)
+		{
+			addresses[i] = rand.nextInt(MEMORY_SIZE);
+			paged_memory.writeByte(addresses[i], (byte)i);
+		}
+	}
+
+	@Benchmark
+	public uint32 cacheReadHit() throws MemoryException
+	{
+		return cache.read_u32(hit_addr);
+	}
+
+	@Benchmark
+	public uint32 cacheReadMiss() throws MemoryException
+	{
+		next = (next + 1) % miss_addrs.length;
+		return cache.read_u32(miss_addrs[next]);
+	}
+
+	@Benchmark
+	public uint32 cacheLRUUpdate() throws MemoryException
+	{
+		// 0, 2, 1, 3, ... changes the order of the LRU stack on every access
+		next = (next + 1) % (2 * ASSOCIATIVITY);
+		return cache.read_u32(set_addrs[(next * 2 + next / ASSOCIATIVITY) % ASSOCIATIVITY]);
+	}
+
+	@Benchmark
+	public byte pagedMemoryReadByte() throws MemoryException
+	{
+		next = (next + 1) % addresses.length;
+		return paged_memory.readByte(addresses[next]);
+	}
+
+	@Benchmark
+	public void pagedMemoryWriteByte() throws MemoryException
+	{
+		next = (next + 1) % addresses.length;
+		paged_memory.writeByte(addresses[next], (byte)next);
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.bench;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import openDLX.OpenDLXSimulator;
+import openDLX.exception.PipelineException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Simulation of the bundled programs by the whole pipeline.
+ * 
+ * simulateCycle gives the simulated clock cycles per second, a program that
+ * finished is restarted with a new simulator. For the short DLX examples the
+ * restart dominates, simulateProgram gives the time of one complete run
+ * including the creation of the simulator and the final checks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SimulatorBenchmark
+{
+	@Param({
+		"apps/dlx_apps/example_1_instr_simple.s",
+		"apps/dlx_apps/example_2_instr_memory.s",
+		"apps/dlx_apps/example_3_labels.s",
+		"apps/dlx_apps/example_4_output_text.s",
+		"apps/dlx_apps/example_5_output_integer.s",
+		"apps/dlx_apps/example_7_jumps.s",
+		"apps/dlx_apps/test_forwarding.s",
+		"apps/mips_apps/bsort/bsort.cfg",
+		"apps/mips_apps/bsort/bsort_cache.cfg",
+		"apps/mips_apps/loop/loop.cfg"
+	})
+	public String program;
+
+	private Properties config;
+	private OpenDLXSimulator sim;
+
+	@Setup(Level.Trial)
+	public void loadProgram() throws Exception
+	{
+		config = BenchmarkPrograms.loadConfig(program);
+	}
+
+	@Setup(Level.Iteration)
+	public void createSimulator() throws PipelineException
+	{
+		sim = BenchmarkPrograms.createSimulator(config);
+	}
+
+	@Benchmark
+	public void simulateCycle() throws PipelineException
+	{
+		if(sim.isFinished())
+		{
+			sim = BenchmarkPrograms.createSimulator(config);
+		}
+		sim.step();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public OpenDLXSimulator simulateProgram() throws PipelineException
+	{
+		OpenDLXSimulator run = BenchmarkPrograms.createSimulator(config);
+		while(!run.isFinished())
+		{
+			run.step();
+		}
+		return run;
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.check;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+import openDLX.ALU;
+import openDLX.ALUOperation;
+import openDLX.SimulationContext;
+import openDLX.datatypes.ALUFunction;
+import openDLX.datatypes.uint32;
+
+/**
+ * Differential check of the ALU operation handlers: every ALU function is
+ * computed by its ALUOperation and by ALU.calculate() for edge-case operands
+ * and a seeded random sweep. Results and thrown exceptions have to be equal.
+ * 
+ * Usage: ALUOperationCheck [seed] [random operand pairs per function]
+ * 
+ * The exit code is 1 if any result differs.
+ */
+public class ALUOperationCheck
+{
+	private static final int[] EDGE_VALUES = {
+		0, 1, -1, 2, -2,
+		// shift amounts beyond the word width
+		31, 32, 33, 63, 64, 255,
+		0x7FFF, 0x8000, 0xFFFF, 0x10000,
+		Integer.MAX_VALUE, Integer.MIN_VALUE,
+		Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1,
+		0x12345678, 0x87654321
+	};
+	
+	// the traps and system calls are delegated to the ALU and call the trap
+	// and print handlers, so there is nothing to compare
+	private static final EnumSet<ALUFunction> DELEGATED = EnumSet.of(
+			ALUFunction.TRAP, ALUFunction.SYSCALL,
+			ALUFunction.TEQ, ALUFunction.TGE, ALUFunction.TGEU,
+			ALUFunction.TLT, ALUFunction.TLTU, ALUFunction.TNE);
+	
+	private static final int MAX_REPORTED_MISMATCHES = 20;
+	
+	private final ALU alu = new ALU(new SimulationContext());
+	private long checked = 0;
+	private long mismatches = 0;
+	
+	public static void main(String[] args)
+	{
+		long seed = (args.length > 0) ? Long.decode(args[0]) : 1;
+		int random_pairs = (args.length > 1) ? Integer.decode(args[1]) : 100000;
+		
+		ALUOperationCheck check = new ALUOperationCheck();
+		Random random = new Random(seed);
+		
+		for(ALUFunction function : ALUFunction.values())
+		{
+			if(DELEGATED.contains(function))
+			{
+				continue;
+			}
+			
+			for(int a : EDGE_VALUES)
+			{
+				for(int b : EDGE_VALUES)
+				{
+					check.compare(function, a, b);
+				}
+			}
+			
+			for(int i = 0; i < random_pairs; i++)
+			{
+				int a = random.nextInt();
+				// every third operand is a small value, to cover shift amounts
+				// and divisors of a few bits
+				int b = ((i % 3) == 0) ? (random.nextInt(128) - 32) : random.nextInt();
+				check.compare(function, a, b);
+			}
+		}
+		
+		System.out.println("ALU operations: " + check.checked + " operand pairs checked (seed " + seed + "), " + check.mismatches + " mismatches");
+		if(check.mismatches != 0)
+		{
+			System.exit(1);
+		}
+	}
+	
+	private void compare(ALUFunction function, int a, int b)
+	{
+		long expected = 0;
+		long actual = 0;
+		Exception expected_exception = null;
+		Exception actual_exception = null;
+		
+		try
+		{
+			expected = alu.calculate(function, a, b);
+		}
+		catch(Exception e)
+		{
+			expected_exception = e;
+		}
+		
+		try
+		{
+			actual = ALUOperation.forFunction(function).calculate(alu, a, b);
+		}
+		catch(Exception e)
+		{
+			actual_exception = e;
+		}
+		
+		checked++;
+		
+		boolean equal;
+		if((expected_exception != null) || (actual_exception != null))
+		{
+			equal = (expected_exception != null) && (actual_exception != null)
+					&& (expected_exception.getClass() == actual_exception.getClass())
+					&& String.valueOf(expected_exception.getMessage()).equals(String.valueOf(actual_exception.getMessage()));
+		}
+		else
+		{
+			equal = (expected == actual);
+		}
+		
+		if(!equal)
+		{
+			mismatches++;
+			if(mismatches <= MAX_REPORTED_MISMATCHES)
+			{
+				System.out.println(function + " " + uint32.toHexString(a) + ", " + uint32.toHexString(b) + ": ALU "
+						+ describe(expected, expected_exception) + ", ALUOperation " + describe(actual, actual_exception));
+			}
+		}
+	}
+	
+	private static String describe(long result, Exception exception)
+	{
+		if(exception != null)
+		{
+			return exception.getClass().getSimpleName() + "(" + exception.getMessage() + ")";
+		}
+		return "0x" + Long.toHexString(result);
+	}
+}
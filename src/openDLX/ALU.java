@@ -34,10 +34,10 @@ public class ALU
 	private PrintHandler print_handler=null;
 	private DLXTrapHandler trap_handler=null;
 	
-	public ALU()
+	public ALU(SimulationContext context)
 	{
-		print_handler = PrintHandler.getInstance();
-		trap_handler = DLXTrapHandler.getInstance();
+		print_handler = context.getPrintHandler();
+		trap_handler = context.getTrapHandler();
 	}
 	
 	/* calculates result of ALU operation. If a 32bit result is calculated, it is available to both 32bit outputs. 
@@ -45,326 +45,428 @@ public class ALU
 	 */
 	public uint32[] doOperation(ALUFunction operation, uint32 A, uint32 B) throws PipelineException
 	{
-		uint32 resultLO = new uint32(0);
-		uint32 resultHI = new uint32(0);
+		long result = calculate(operation, A.getValue(), B.getValue());
+		uint32[] results = new uint32[2];
+		results[0] = new uint32(getResultLO(result));
+		results[1] = new uint32(getResultHI(result));
+		return results;
+	}
+
+	/**
+	 * Primitive variant of doOperation(), the lower 32bit of the result are
+	 * in the lower half of the returned value, the upper 32bit in the upper
+	 * half (for 32bit results both halves are equal).
+	 * Use getResultLO() and getResultHI() to split the result.
+	 */
+	public long calculate(ALUFunction operation, int A, int B) throws PipelineException
+	{
+		int resultLO = 0;
+		int resultHI = 0;
 		
 		switch(operation)
 		{
 		case ADD:
 			// TODO missing trap on overflow
 		case ADDU:
-			resultLO.setValue(A.getValue() + B.getValue());
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " + " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = A + B;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " + " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case AND:
-			resultLO.setValue(A.getValue() & B.getValue());
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " & " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = A & B;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " & " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case BA:
-			resultLO.setValue((A.getValue()&0xF0000000)|((int)B.getValue()<<2));
-			logger.debug("(" + B.getValue() + "(" + B.getValueAsHexString() + ")" + " << 2) + " + (A.getValue()&0xF0000000) + "(" + Integer.toHexString(A.getValue()&0xF0000000) + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = (A&0xF0000000)|((int)B<<2);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("(" + B + "(" + uint32.toHexString(B) + ")" + " << 2) + " + (A&0xF0000000) + "(" + Integer.toHexString(A&0xF0000000) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case BR:
-			short tgt_offset = (short)B.getValue();
-			resultLO.setValue(A.getValue()+(int)(tgt_offset << 2));
-			logger.debug("(" + B.getValue() + "(" + B.getValueAsHexString() + ")" + " << 2) + " + A.getValue() + "(" + A.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short tgt_offset = (short)B;
+			resultLO = A+(int)(tgt_offset << 2);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("(" + B + "(" + uint32.toHexString(B) + ")" + " << 2) + " + A + "(" + uint32.toHexString(A) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case DIV:
 		{	
-			if(B.getValue() == 0)
+			if(B == 0)
 			{
 				throw new ExecuteStageException("Division by zero.");
 			}
 			// takes usually multiple cycles (3 according to the isa)
-			int q = A.getValue() / B.getValue();
-			int r = A.getValue() % B.getValue();
-			resultLO.setValue(q);
-			resultHI.setValue(r);
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " / " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " =  LO (q): " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")" + " HI (r): " + resultHI.getValue() + "(" + resultHI.getValueAsHexString() + ")");
+			int q = A / B;
+			int r = A % B;
+			resultLO = q;
+			resultHI = r;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " / " + B + "(" + uint32.toHexString(B) + ")" + " =  LO (q): " + resultLO + "(" + uint32.toHexString(resultLO) + ")" + " HI (r): " + resultHI + "(" + uint32.toHexString(resultHI) + ")");
+			}
 			break;
 		}
 		case DIVU:
 		{	
-			if(B.getValue() == 0)
+			if(B == 0)
 			{
 				throw new ExecuteStageException("Division by zero.");
 			}
 			// takes usually multiple cycles (3 according to the isa)
 			// chop of sign bit
-			int q = (A.getValue()&0x7FFFFFFF) / (B.getValue()&0x7FFFFFFF);
-			int r = (A.getValue()&0x7FFFFFFF) % (B.getValue()&0x7FFFFFFF);
-			resultLO.setValue(q);
-			resultHI.setValue(r);
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " / " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " =  LO (q): " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")" + " HI (r): " + resultHI.getValue() + "(" + resultHI.getValueAsHexString() + ")");
+			int q = (A&0x7FFFFFFF) / (B&0x7FFFFFFF);
+			int r = (A&0x7FFFFFFF) % (B&0x7FFFFFFF);
+			resultLO = q;
+			resultHI = r;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " / " + B + "(" + uint32.toHexString(B) + ")" + " =  LO (q): " + resultLO + "(" + uint32.toHexString(resultLO) + ")" + " HI (r): " + resultHI + "(" + uint32.toHexString(resultHI) + ")");
+			}
 			break;
 		}
 		case LUI:
-			resultLO.setValue(((int)B.getValue() << 16));
-			logger.debug(B.getValue() + "(" + B.getValueAsHexString() + ")" + " << " + 16 + "(0x10)" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = ((int)B << 16);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(B + "(" + uint32.toHexString(B) + ")" + " << " + 16 + "(0x10)" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case MULT:
 		{
 			// takes usually multiple cycles (3 according to the isa)
-			long mult = (long)A.getValue() * (long)B.getValue();
-			resultLO.setValue((int)(mult & 0xFFFFFFFF));
-			resultHI.setValue((int)((mult >>> 32) & 0xFFFFFFFF));
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " * " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + mult + " HI: " + resultHI.getValue() + "(" + resultHI.getValueAsHexString() + ")" + " LO: " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			long mult = (long)A * (long)B;
+			resultLO = (int)(mult & 0xFFFFFFFF);
+			resultHI = (int)((mult >>> 32) & 0xFFFFFFFF);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " * " + B + "(" + uint32.toHexString(B) + ")" + " = " + mult + " HI: " + resultHI + "(" + uint32.toHexString(resultHI) + ")" + " LO: " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			break;
 		}
 		case MULTU:
 		{
 			// takes usually multiple cycles (3 according to the isa)
 			// chop of sign bit
-			long mult = (long)(A.getValue()&0x7FFFFFFF) * ((long)B.getValue()&0x7FFFFFFF);
-			resultLO.setValue((int)(mult & 0xFFFFFFFF));
-			resultHI.setValue((int)((mult >>> 32) & 0xFFFFFFFF));
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " * " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + mult + " HI: " + resultHI.getValue() + "(" + resultHI.getValueAsHexString() + ")" + " LO: " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			long mult = (long)(A&0x7FFFFFFF) * ((long)B&0x7FFFFFFF);
+			resultLO = (int)(mult & 0xFFFFFFFF);
+			resultHI = (int)((mult >>> 32) & 0xFFFFFFFF);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " * " + B + "(" + uint32.toHexString(B) + ")" + " = " + mult + " HI: " + resultHI + "(" + uint32.toHexString(resultHI) + ")" + " LO: " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			break;
 		}
 		case OR:
-			resultLO.setValue(A.getValue() | B.getValue());
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " | " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = A | B;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " | " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case NOR:
-			resultLO.setValue(~(A.getValue() | B.getValue()));
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " NOR " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = ~(A | B);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " NOR " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SLL:
 		{
-			short s = (short) (B.getValue() & 0x1F);
-			resultLO.setValue(A.getValue() << s);
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " << " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (B & 0x1F);
+			resultLO = A << s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " << " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		}
 		case SLLV:
 		{
-			short s = (short) (A.getValue() & 0x1F);
-			resultLO.setValue(B.getValue() << s);
-			logger.debug(B.getValue() + "(" + B.getValueAsHexString() + ")" + " << " + A.getValue() + "(" + A.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (A & 0x1F);
+			resultLO = B << s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(B + "(" + uint32.toHexString(B) + ")" + " << " + A + "(" + uint32.toHexString(A) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		}
 		case SEQ:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			if(A.getValue() == B.getValue())
+			if(A == B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SEQ " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SEQ " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SEQU:
 			// NOTICE: this ALU function is only needed for the DLX ISA
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) == (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) == (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SEQU " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SEQU " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SNE:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			if(A.getValue() != B.getValue())
+			if(A != B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SNE " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SNE " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SNEU:
 			// NOTICE: this ALU function is only needed for the DLX ISA
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) != (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) != (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SNEU " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SNEU " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SGE:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			if(A.getValue() >= B.getValue())
+			if(A >= B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SGE " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SGE " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SGEU:
 			// NOTICE: this ALU function is only needed for the DLX ISA
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) >= (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) >= (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SGEU " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SGEU " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SGT:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			if(A.getValue() > B.getValue())
+			if(A > B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SGT " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SGT " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SGTU:
 			// NOTICE: this ALU function is only needed for the DLX ISA
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) > (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) > (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SGT " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SGT " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SLE:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			if(A.getValue() <= B.getValue())
+			if(A <= B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SLE " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SLE " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SLEU:
 			// NOTICE: this ALU function is only needed for the DLX ISA
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) <= (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) <= (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SLEU " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SLEU " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SLT:
-			if(A.getValue() < B.getValue())
+			if(A < B)
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SLT " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SLT " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SLTU:
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) < (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) < (B&0x7FFFFFFF))
 			{
-				resultLO.setValue(1);
+				resultLO = 1;
 			}
 			else
 			{
-				resultLO.setValue(0);
+				resultLO = 0;
+			}
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " SLT " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
 			}
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " SLT " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SRL:
 		{
-			short s = (short) (B.getValue() & 0x1F);
-			resultLO.setValue(A.getValue() >>> s);
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " >>> " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (B & 0x1F);
+			resultLO = A >>> s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " >>> " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		}
 		case SRA:
 		{
-			short s = (short) (B.getValue() & 0x1F);
-			resultLO.setValue(A.getValue() >> s);
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " >> " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (B & 0x1F);
+			resultLO = A >> s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " >> " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		}
 		case SRLV:
 		{
-			short s = (short) (A.getValue() & 0x1F);
-			resultLO.setValue(B.getValue() >>> s);
-			logger.debug(B.getValue() + "(" + B.getValueAsHexString() + ")" + " >>> " + A.getValue() + "(" + A.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (A & 0x1F);
+			resultLO = B >>> s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(B + "(" + uint32.toHexString(B) + ")" + " >>> " + A + "(" + uint32.toHexString(A) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		}
 		case SRAV:
 		{
-			short s = (short) (A.getValue() & 0x1F);
-			resultLO.setValue(B.getValue() >> s);
-			logger.debug(B.getValue() + "(" + B.getValueAsHexString() + ")" + " >> " + A.getValue() + "(" + A.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			short s = (short) (A & 0x1F);
+			resultLO = B >> s;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(B + "(" + uint32.toHexString(B) + ")" + " >> " + A + "(" + uint32.toHexString(A) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
@@ -372,97 +474,103 @@ public class ALU
 		case SUB:
 			// TODO missing trap on overflow
 		case SUBU:
-			resultLO.setValue(A.getValue() - B.getValue());
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " - " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = A - B;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " - " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case XOR:
-			resultLO.setValue(A.getValue() ^ B.getValue());
-			logger.debug(A.getValue() + "(" + A.getValueAsHexString() + ")" + " XOR " + B.getValue() + "(" + B.getValueAsHexString() + ")" + " = " + resultLO.getValue() + "(" + resultLO.getValueAsHexString() + ")");
+			resultLO = A ^ B;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug(A + "(" + uint32.toHexString(A) + ")" + " XOR " + B + "(" + uint32.toHexString(B) + ")" + " = " + resultLO + "(" + uint32.toHexString(resultLO) + ")");
+			}
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case NOP:
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case SYSCALL:
 			// NOTICE: this ALU function is only needed for the MIPS ISA
-			doSyscall(A.getValue(),B.getValue());
+			doSyscall(A,B);
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TRAP:
 			// NOTICE: this ALU function is only needed for the DLX ISA
-			uint32 trapResult = doDLXTrap(B.getValue(),A.getValue());
+			int trapResult = doDLXTrap(B,A);
 			
-			resultLO.setValue(trapResult);
+			resultLO = trapResult;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TEQ:
-			if(A.getValue() == B.getValue())
+			if(A == B)
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TGE:
-			if(A.getValue() >= B.getValue())
+			if(A >= B)
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TGEU:
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) >= (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) >= (B&0x7FFFFFFF))
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TLT:
-			if(A.getValue() < B.getValue())
+			if(A < B)
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TLTU:
 			// chop of sign bit
-			if((A.getValue()&0x7FFFFFFF) < (B.getValue()&0x7FFFFFFF))
+			if((A&0x7FFFFFFF) < (B&0x7FFFFFFF))
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
 		case TNE:
-			if(A.getValue() != B.getValue())
+			if(A != B)
 			{
 				doTrap();
 			}
 			
-			resultLO.setValue(0);
+			resultLO = 0;
 			// duplicate results
 			resultHI = resultLO;
 			break;
@@ -470,15 +578,22 @@ public class ALU
 			throw new ExecuteStageException("Unknown ALU operation");
 		}
 		
-		uint32[] results = new uint32[2];
-		results[0] = resultLO;
-		results[1] = resultHI;
-		return results;
+		return (((long)resultHI) << 32) | (resultLO & 0xFFFFFFFFL);
+	}
+
+	public static int getResultLO(long result)
+	{
+		return (int)result;
+	}
+
+	public static int getResultHI(long result)
+	{
+		return (int)(result >>> 32);
 	}
 	
-	private uint32 doDLXTrap(int trap_id, int parameter) throws PipelineException 
+	private int doDLXTrap(int trap_id, int parameter) throws PipelineException 
 	{
-		uint32 return_result = new uint32(trap_id);
+		int return_result = trap_id;
 		
 		switch(trap_id)
 		{
@@ -502,7 +617,7 @@ public class ALU
 		case PipelineConstants.DLX_TRAP_READ:
 		{
 			uint32 trap_result = trap_handler.read(parameter);
-			return_result.setValue(trap_result);
+			return_result = trap_result.getValue();
 			break;
 		}
 		case PipelineConstants.DLX_TRAP_WRITE:
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import openDLX.datatypes.ALUFunction;
+import openDLX.exception.ExecuteStageException;
+import openDLX.exception.PipelineException;
+
+/**
+ * Handler of an ALU function, it is selected once when an instruction is
+ * decoded (see Instruction.setALUFunction()) instead of switching over the
+ * ALU function for every execution. The result is encoded as by
+ * ALU.calculate(), use ALU.getResultLO() and ALU.getResultHI() to split it.
+ * 
+ * The functions without side effects are computed by the handlers, the
+ * traps and system calls are delegated to the ALU, since they need its
+ * trap and print handlers.
+ */
+public abstract class ALUOperation
+{
+	private static final ALUOperation[] operations = new ALUOperation[ALUFunction.values().length];
+
+	static
+	{
+		for(ALUFunction function : ALUFunction.values())
+		{
+			operations[function.ordinal()] = create(function);
+		}
+	}
+
+	/**
+	 * @param alu The ALU, it performs the operations with side effects.
+	 * @param A The value of ALU port A.
+	 * @param B The value of ALU port B.
+	 * @return The 64bit result, both halves are equal for 32bit results.
+	 */
+	public abstract long calculate(ALU alu, int A, int B) throws PipelineException;
+
+	public static ALUOperation forFunction(ALUFunction function)
+	{
+		return operations[function.ordinal()];
+	}
+
+	/**
+	 * Duplicates a 32bit result into both halves.
+	 */
+	private static long result(int result)
+	{
+		return (((long)result) << 32) | (result & 0xFFFFFFFFL);
+	}
+
+	private static long result(int resultLO, int resultHI)
+	{
+		return (((long)resultHI) << 32) | (resultLO & 0xFFFFFFFFL);
+	}
+
+	private static ALUOperation create(final ALUFunction function)
+	{
+		// the shift operators of Java only use the lower 5 bit of the shift amount as the ALU
+		switch(function)
+		{
+		case ADD:
+			// TODO missing trap on overflow
+		case ADDU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A + B); } };
+		case AND:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A & B); } };
+		case BA:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result((A & 0xF0000000) | (B << 2)); } };
+		case BR:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A + (((short)B) << 2)); } };
+		case DIV:
+			return new ALUOperation()
+			{
+				public long calculate(ALU alu, int A, int B) throws ExecuteStageException
+				{
+					if(B == 0)
+					{
+						throw new ExecuteStageException("Division by zero.");
+					}
+					return result(A / B, A % B);
+				}
+			};
+		case DIVU:
+			return new ALUOperation()
+			{
+				public long calculate(ALU alu, int A, int B) throws ExecuteStageException
+				{
+					if(B == 0)
+					{
+						throw new ExecuteStageException("Division by zero.");
+					}
+					// chop of sign bit
+					return result((A & 0x7FFFFFFF) / (B & 0x7FFFFFFF), (A & 0x7FFFFFFF) % (B & 0x7FFFFFFF));
+				}
+			};
+		case LUI:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(B << 16); } };
+		case MULT:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return (long)A * (long)B; } };
+		case MULTU:
+			// chop of sign bit
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return (long)(A & 0x7FFFFFFF) * (long)(B & 0x7FFFFFFF); } };
+		case NOP:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return 0; } };
+		case NOR:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(~(A | B)); } };
+		case OR:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A | B); } };
+		case SLL:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A << B); } };
+		case SLLV:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(B << A); } };
+		case SRL:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A >>> B); } };
+		case SRLV:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(B >>> A); } };
+		case SRA:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A >> B); } };
+		case SRAV:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(B >> A); } };
+		case SEQ:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(seq(A, B)); } };
+		case SEQU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sequ(A, B)); } };
+		case SNE:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sne(A, B)); } };
+		case SNEU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sneu(A, B)); } };
+		case SLE:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sle(A, B)); } };
+		case SLEU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sleu(A, B)); } };
+		case SGE:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sge(A, B)); } };
+		case SGEU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sgeu(A, B)); } };
+		case SGT:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sgt(A, B)); } };
+		case SGTU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sgtu(A, B)); } };
+		case SLT:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(slt(A, B)); } };
+		case SLTU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(sltu(A, B)); } };
+		case SUB:
+			// TODO missing trap on overflow
+		case SUBU:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A - B); } };
+		case XOR:
+			return new ALUOperation() { public long calculate(ALU alu, int A, int B) { return result(A ^ B); } };
+		default:
+			// traps and system calls
+			return new ALUOperation()
+			{
+				public long calculate(ALU alu, int A, int B) throws PipelineException
+				{
+					return alu.calculate(function, A, B);
+				}
+			};
+		}
+	}
+
+	/*
+	 * The set operations, the unsigned variants chop of the sign bit.
+	 */
+	public static int seq(int a, int b)
+	{
+		return (a == b) ? 1 : 0;
+	}
+
+	public static int sequ(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) == (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+
+	public static int sne(int a, int b)
+	{
+		return (a != b) ? 1 : 0;
+	}
+
+	public static int sneu(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) != (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+
+	public static int sge(int a, int b)
+	{
+		return (a >= b) ? 1 : 0;
+	}
+
+	public static int sgeu(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) >= (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+
+	public static int sgt(int a, int b)
+	{
+		return (a > b) ? 1 : 0;
+	}
+
+	public static int sgtu(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) > (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+
+	public static int sle(int a, int b)
+	{
+		return (a <= b) ? 1 : 0;
+	}
+
+	public static int sleu(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) <= (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+
+	public static int slt(int a, int b)
+	{
+		return (a < b) ? 1 : 0;
+	}
+
+	public static int sltu(int a, int b)
+	{
+		return ((a & 0x7FFFFFFF) < (b & 0x7FFFFFFF)) ? 1 : 0;
+	}
+}
@@ -31,41 +31,46 @@ public class BranchControl
 	private static Logger logger = Logger.getLogger("EXECUTE/BCTRL");
 	
 	public boolean checkBranch(Instruction inst, uint32 A, uint32 B)
+	{
+		return checkBranch(inst, A.getValue(), B.getValue());
+	}
+
+	public boolean checkBranch(Instruction inst, int A, int B)
 	{
 		boolean jump = false;
 		switch(inst.getBranchCondition())
 		{
 		case BEQ:
-			if(A.getValue() == B.getValue())
+			if(A == B)
 			{
 				jump = true;
 			}
 			break;
 		case BNE:
-			if(A.getValue() != B.getValue())
+			if(A != B)
 			{
 				jump = true;
 			}
 			break;
 		case BGEZ:
-			if(A.getValue() >= 0)
+			if(A >= 0)
 			{
 				jump = true;
 			}
 		case BGTZ:
-			if(A.getValue() > 0)
+			if(A > 0)
 			{
 				jump = true;
 			}
 			break;
 		case BLEZ:
-			if(A.getValue() <= 0)
+			if(A <= 0)
 			{
 				jump = true;
 			}
 			break;
 		case BLTZ:
-			if(A.getValue() < 0)
+			if(A < 0)
 			{
 				jump = true;
 			}
@@ -76,9 +81,9 @@ public class BranchControl
 		default:
 			jump = false;
 		}
-		if(inst.getBranch())
+		if(inst.getBranch() && logger.isDebugEnabled())
 		{
-			logger.debug("A: " + A.getValueAsHexString() + " " + inst.getBranchCondition() + " B: " + B.getValueAsHexString() + " jump: " + jump);
+			logger.debug("A: " + uint32.toHexString(A) + " " + inst.getBranchCondition() + " B: " + uint32.toHexString(B) + " jump: " + jump);
 		}
 		return jump;
 	}
@@ -57,10 +57,17 @@ public class BranchPredictionModule
 	private Queue<ExecuteBranchPredictionData> execute_branchprediction_latch;
 	/// Input latch for the branch predictor module (table lookup part)
 	private Queue<FetchDecodeData> fetch_branchprediction_latch;
+	/// Output latch of the branch predictor module to the fetch stage
+	private PipelineLatch<BranchPredictionModuleFetchData> branchprediction_fetch_latch;
+	/// Output latch of the branch predictor module to the execute stage
+	private PipelineLatch<BranchPredictionModuleExecuteData> branchprediction_execute_latch;
+	/// Output data object, reused in every cycle
+	private final BranchPredictionModuleOutputData bpmod = new BranchPredictionModuleOutputData(null, null);
 
 	/**
 	 * @brief Constructor
 	 * @param config Configuration object, containing the branch predictor configuration.
+	 * @param context The simulation context, that provides the statistics.
 	 * Currently the configuration entries:\n
 	 * - btb_size - determine the size of the branch target buffer
 	 * - btb_predictor - set the used predictor type (BranchPredictorType)
@@ -70,7 +77,7 @@ public class BranchPredictionModule
 	 * \sa BranchPredictorType, BranchPredictorState
 	 * @throws PipelineException 
 	 */
-	public BranchPredictionModule(Properties config) throws PipelineException
+	public BranchPredictionModule(Properties config, SimulationContext context) throws PipelineException
 	{
 		// obtain settings for the BTB
 		int btb_size = 1;
@@ -86,7 +93,10 @@ public class BranchPredictionModule
 			btb_predictor = getBranchPredictorTypeFromString(config.getProperty("btb_predictor"));
 		}
 		// also set the architecture variable (just for completeness) 
-		ArchCfg.branch_predictor_type = btb_predictor;
+		if(context.isDefault())
+		{
+			ArchCfg.branch_predictor_type = btb_predictor;
+		}
 		
 		// get the predictor initial state, default value is PREDICT_NOT_TAKEN
 		// Notice each predictor may have a different set of supported predictor states. 
@@ -113,7 +123,7 @@ public class BranchPredictionModule
 		btb = new BranchTargetBuffer(btb_size, btb_predictor, btb_predictor_initial_state, btb_predictor_reset_on_overwrite);
 		
 		// get statistics object and set btb config
-		stat = Statistics.getInstance();
+		stat = context.getStatistics();
 		stat.setBTBConfig(btb_size, btb_predictor);
 		
 	}
@@ -270,6 +280,17 @@ public class BranchPredictionModule
 		fetch_branchprediction_latch = fetchBranchPredictionLatch;
 	}
 
+	/**
+	 * Sets the output latches of the branch prediction module, the lookup results are written into their spare records
+	 * @param branchpredictionFetchLatch The output latch to the fetch stage (speculative jumps)
+	 * @param branchpredictionExecuteLatch The output latch to the execute stage (verification of the prediction)
+	 */
+	public void setOutputLatches(PipelineLatch<BranchPredictionModuleFetchData> branchpredictionFetchLatch, PipelineLatch<BranchPredictionModuleExecuteData> branchpredictionExecuteLatch)
+	{
+		branchprediction_fetch_latch = branchpredictionFetchLatch;
+		branchprediction_execute_latch = branchpredictionExecuteLatch;
+	}
+
 	public BranchPredictionModuleOutputData doCycle() throws BranchPredictionException
 	{
 
@@ -295,13 +316,42 @@ public class BranchPredictionModule
 		boolean jump = ebd.getJumpTaken();
 		
 		if(inst.getBranch())
+		{
+			resolveBranch(branch_pc, branch_tgt, jump);
+		}
+	}
+	
+	/**
+	 * Counts the prediction of an executed branch and updates the prediction tables.
+	 * @param branch_pc The address of the branch.
+	 * @param branch_tgt The target of the branch.
+	 * @param jump true if the branch was taken.
+	 * @throws BranchPredictionException 
+	 */
+	public void resolveBranch(uint32 branch_pc, uint32 branch_tgt, boolean jump) throws BranchPredictionException
+	{
+		if(logger.isInfoEnabled())
 		{
 			logger.info("Jump from " + branch_pc.getValueAsHexString() + " to " + branch_tgt.getValueAsHexString() + " that is |" + ((jump)?("taken"):("not taken")) + "| was predicted: |" + ((btb.checkPrediction(branch_pc, branch_tgt, jump)?("correctly"):("not correctly"))) + "| BTB said: |" + btb.lookupBranch(branch_pc) + "| BTB entry: |" + btb.getIndexForBranchPc(branch_pc) + "| predictor state: |" + btb.getPredictorState(branch_pc) + "|");
-			stat.countBranchInformation(branch_pc, btb.getIndexForBranchPc(branch_pc), branch_tgt, jump, btb.lookupBranch(branch_pc), btb.checkPrediction(branch_pc, branch_tgt, jump));
-			stat.countPredictions(btb.checkPrediction(branch_pc, branch_tgt, jump));
-			stat.countBTBAccesses(btb.lookupBranch(branch_pc));
-			btb.updateOnBranch(branch_pc, branch_tgt, jump);
 		}
+		stat.countBranchInformation(branch_pc, btb.getIndexForBranchPc(branch_pc), branch_tgt, jump, btb.lookupBranch(branch_pc), btb.checkPrediction(branch_pc, branch_tgt, jump));
+		stat.countPredictions(btb.checkPrediction(branch_pc, branch_tgt, jump));
+		stat.countBTBAccesses(btb.lookupBranch(branch_pc));
+		btb.updateOnBranch(branch_pc, branch_tgt, jump);
+	}
+	
+	/**
+	 * Updates the prediction tables without counting statistics, e.g. to warm
+	 * up the branch target buffer after a functional simulation.
+	 */
+	public void train(int branch_pc, int branch_tgt, boolean jump) throws BranchPredictionException
+	{
+		btb.updateOnBranch(new uint32(branch_pc), new uint32(branch_tgt), jump);
+	}
+	
+	public BranchTargetBuffer getBranchTargetBuffer()
+	{
+		return btb;
 	}
 	
 	public BranchPredictionModuleOutputData lookupTables()
@@ -310,28 +360,34 @@ public class BranchPredictionModule
 		
 		uint32 pc = fdd.getPc();
 		boolean do_speculative_jump = false;
-		uint32 branch_tgt = new uint32(0);
+		int branch_tgt = 0;
 		
 		BranchTargetBufferLookupResult result = btb.lookupBranch(pc);
 		
 		if(result == BranchTargetBufferLookupResult.HIT_PREDICT_TAKEN)
 		{
 			do_speculative_jump = true;
-			branch_tgt = btb.getBranchTarget(pc);
+			branch_tgt = btb.getBranchTarget(pc).getValue();
 		}
 		
 		if((result == BranchTargetBufferLookupResult.HIT_PREDICT_NOT_TAKEN) || (result == BranchTargetBufferLookupResult.HIT_PREDICT_TAKEN))
 		{
-			logger.debug("instruction at: " + pc.getValueAsHexString() + " found in BTB and is predicted as " + ((do_speculative_jump)?("taken to addr: " + branch_tgt.getValueAsHexString()):("not taken")));
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("instruction at: " + pc.getValueAsHexString() + " found in BTB and is predicted as " + ((do_speculative_jump)?("taken to addr: " + uint32.toHexString(branch_tgt)):("not taken")));
+			}
 		}
-		else if(result == BranchTargetBufferLookupResult.MISS)
+		else if((result == BranchTargetBufferLookupResult.MISS) && logger.isDebugEnabled())
 		{
 			logger.debug("instruction at: " + pc.getValueAsHexString() + " was not found in BTB");
 		}
 		
-		BranchPredictionModuleFetchData bpmfd = new BranchPredictionModuleFetchData(do_speculative_jump, pc, branch_tgt);
-		BranchPredictionModuleExecuteData bpmed = new BranchPredictionModuleExecuteData(do_speculative_jump, pc, branch_tgt);
-		return new BranchPredictionModuleOutputData(bpmfd, bpmed);
+		BranchPredictionModuleFetchData bpmfd = branchprediction_fetch_latch.next();
+		bpmfd.set(do_speculative_jump, pc.getValue(), branch_tgt);
+		BranchPredictionModuleExecuteData bpmed = branchprediction_execute_latch.next();
+		bpmed.set(do_speculative_jump, pc.getValue(), branch_tgt);
+		bpmod.set(bpmfd, bpmed);
+		return bpmod;
 	}
 
 }
@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import openDLX.branchPrediction.BranchTargetBuffer;
+import openDLX.datatypes.BranchPredictionModuleExecuteData;
+import openDLX.datatypes.BranchPredictionModuleFetchData;
+import openDLX.datatypes.DecodeExecuteData;
+import openDLX.datatypes.ExecuteBranchPredictionData;
+import openDLX.datatypes.ExecuteFetchData;
+import openDLX.datatypes.ExecuteMemoryData;
+import openDLX.datatypes.FetchDecodeData;
+import openDLX.datatypes.Instruction;
+import openDLX.datatypes.MemoryWritebackData;
+import openDLX.datatypes.OpcodeNORMAL;
+import openDLX.datatypes.WriteBackData;
+import openDLX.datatypes.uint32;
+import openDLX.exception.PipelineException;
+import openDLX.memory.Cache;
+
+/**
+ * Saves the complete state of a simulation into a binary checkpoint file and
+ * restores it, such that a simulation can be resumed at the cycle the
+ * checkpoint was taken.
+ * 
+ * The checkpoint contains the register set, the allocated pages of the main
+ * memory, the program counter, the cycles the pipeline still waits for
+ * memory requests, the content of all pipeline latches, the
+ * cache lines and replacement state of the instruction and data cache, the
+ * branch target buffer, the statistics counters, and the clock cycle.
+ * 
+ * The checkpoint has to be restored into a simulator that was created for
+ * the same program and pipeline organization (ISA, forwarding, load stall
+ * bubbles). The caches and the branch target buffer are only restored if
+ * their organization matches the one of the checkpoint, otherwise they start
+ * cold. Thus a checkpoint taken after booting a program can be shared by
+ * simulations of different cache and branch prediction configurations.
+ * 
+ * The same state, except for the main memory, is transferred in memory to
+ * forked simulators, which share the pages of the main memory instead.
+ */
+public class Checkpoint
+{
+	private static Logger logger = Logger.getLogger("CHECKPOINT");
+	
+	private static final int MAGIC = 0x4F444C58; // "ODLX"
+	private static final int VERSION = 3;
+	
+	private static final byte INST_NONE = 0;
+	private static final byte INST_RAW = 1;
+	private static final byte INST_DECODED = 2;
+	// flag of the kind, the instruction word is the pipeline bubble instance
+	private static final byte INST_BUBBLE = 0x10;
+
+	private Checkpoint()
+	{
+	}
+
+	/**
+	 * Writes the state of the pipeline into a checkpoint file.
+	 * @param file_name The checkpoint file.
+	 * @param pipeline The pipeline to be saved.
+	 * @param clock_cycle The current clock cycle of the simulation.
+	 * @throws PipelineException If the checkpoint file cannot be written.
+	 */
+	public static void save(String file_name, PipelineContainer pipeline, int clock_cycle) throws PipelineException
+	{
+		DataOutputStream out = null;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file_name), 65536));
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			saveState(out, pipeline, clock_cycle, true);
+			
+			out.close();
+			out = null;
+		}
+		catch(IOException e)
+		{
+			throw new PipelineException("Cannot write checkpoint " + file_name + ": " + e.getMessage());
+		}
+		finally
+		{
+			closeQuietly(out);
+		}
+		
+		logger.info("Saved checkpoint " + file_name + " at cycle " + clock_cycle);
+	}
+
+	/**
+	 * Restores the state of the pipeline from a checkpoint file.
+	 * @param file_name The checkpoint file.
+	 * @param pipeline The pipeline to be restored, it has to be created for the same program and pipeline organization.
+	 * @return The clock cycle at which the checkpoint was taken.
+	 * @throws PipelineException If the checkpoint file cannot be read or does not match the pipeline.
+	 */
+	public static int restore(String file_name, PipelineContainer pipeline) throws PipelineException
+	{
+		DataInputStream in = null;
+		int clock_cycle;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file_name), 65536));
+			
+			if(in.readInt() != MAGIC)
+			{
+				throw new PipelineException("File " + file_name + " is not an openDLX checkpoint.");
+			}
+			int version = in.readInt();
+			if(version != VERSION)
+			{
+				throw new PipelineException("Unsupported checkpoint version: " + version);
+			}
+			clock_cycle = restoreState(in, pipeline, true);
+		}
+		catch(IOException e)
+		{
+			throw new PipelineException("Cannot read checkpoint " + file_name + ": " + e.getMessage());
+		}
+		finally
+		{
+			closeQuietly(in);
+		}
+		
+		logger.info("Restored checkpoint " + file_name + " of cycle " + clock_cycle);
+		return clock_cycle;
+	}
+
+	/**
+	 * Copies the state of a pipeline into the pipeline of a forked simulator,
+	 * except for the main memory, that is forked by the caller.
+	 * @param source The pipeline to be copied.
+	 * @param clock_cycle The current clock cycle of the simulation.
+	 * @param target The pipeline of the fork, it has to have the same pipeline organization.
+	 * @throws PipelineException If the organization of the pipelines differs.
+	 */
+	public static void transfer(PipelineContainer source, int clock_cycle, PipelineContainer target) throws PipelineException
+	{
+		try
+		{
+			ByteArrayOutputStream state = new ByteArrayOutputStream();
+			saveState(new DataOutputStream(state), source, clock_cycle, false);
+			restoreState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())), target, false);
+		}
+		catch(IOException e)
+		{
+			throw new PipelineException("Cannot transfer the pipeline state: " + e.getMessage());
+		}
+	}
+
+	private static void saveState(DataOutputStream out, PipelineContainer pipeline, int clock_cycle, boolean main_memory) throws IOException, PipelineException
+	{
+		out.writeUTF(getPipelineOrganization(pipeline));
+		out.writeInt(clock_cycle);
+		
+		pipeline.getRegisterSet().saveState(out);
+		out.writeInt(pipeline.getFetchStage().getPcValue());
+		out.writeInt(pipeline.getMemoryWaitCycles());
+		saveLatches(out, pipeline);
+		if(main_memory)
+		{
+			pipeline.getMainMemory().saveState(out);
+		}
+		
+		saveCache(out, pipeline.getInstructionMemory().getCache());
+		saveCache(out, pipeline.getDataMemory().getCache());
+		
+		BranchTargetBuffer btb = pipeline.getBranchPredictionModule().getBranchTargetBuffer();
+		ByteArrayOutputStream btb_state = new ByteArrayOutputStream();
+		btb.saveState(new DataOutputStream(btb_state));
+		saveSection(out, btb.getOrganization(), btb_state);
+		
+		pipeline.getContext().getStatistics().saveState(out);
+	}
+
+	/**
+	 * @return The clock cycle of the saved state.
+	 */
+	private static int restoreState(DataInputStream in, PipelineContainer pipeline, boolean main_memory) throws IOException, PipelineException
+	{
+		String organization = in.readUTF();
+		if(!organization.equals(getPipelineOrganization(pipeline)))
+		{
+			throw new PipelineException("Checkpoint was taken for pipeline " + organization + ", but the pipeline is " + getPipelineOrganization(pipeline));
+		}
+		int clock_cycle = in.readInt();
+		
+		pipeline.getRegisterSet().restoreState(in);
+		pipeline.getFetchStage().setPc(in.readInt());
+		pipeline.setMemoryWaitCycles(in.readInt());
+		restoreLatches(in, pipeline);
+		if(main_memory)
+		{
+			pipeline.getMainMemory().restoreState(in);
+		}
+		
+		restoreCache(in, pipeline.getInstructionMemory().getCache());
+		restoreCache(in, pipeline.getDataMemory().getCache());
+		
+		BranchTargetBuffer btb = pipeline.getBranchPredictionModule().getBranchTargetBuffer();
+		if(restoreSection(in, btb.getOrganization()))
+		{
+			btb.restoreState(in);
+		}
+		
+		pipeline.getContext().getStatistics().restoreState(in);
+		return clock_cycle;
+	}
+
+	private static String getPipelineOrganization(PipelineContainer pipeline)
+	{
+		SimulationContext context = pipeline.getContext();
+		return context.getIsaType() + " forwarding: " + context.getUseForwarding() + " load stall bubble: " + context.getUseLoadStallBubble() + " execute fetch latch: " + pipeline.getExecuteFetchLatch().getDepth();
+	}
+
+	private static void saveCache(DataOutputStream out, Cache cache) throws IOException
+	{
+		ByteArrayOutputStream cache_state = new ByteArrayOutputStream();
+		String organization = "";
+		if(cache != null)
+		{
+			cache.saveState(new DataOutputStream(cache_state));
+			organization = cache.getOrganization();
+		}
+		saveSection(out, organization, cache_state);
+	}
+
+	private static void restoreCache(DataInputStream in, Cache cache) throws IOException
+	{
+		if(restoreSection(in, (cache != null) ? cache.getOrganization() : ""))
+		{
+			cache.restoreState(in);
+		}
+	}
+
+	/**
+	 * Writes a length-prefixed section, that can be skipped on restore.
+	 */
+	private static void saveSection(DataOutputStream out, String organization, ByteArrayOutputStream state) throws IOException
+	{
+		out.writeUTF(organization);
+		out.writeInt(state.size());
+		state.writeTo(out);
+	}
+
+	/**
+	 * Reads the header of a section written by saveSection().
+	 * @return True if the section matches the organization and has to be read, false if it was skipped.
+	 */
+	private static boolean restoreSection(DataInputStream in, String organization) throws IOException
+	{
+		String saved_organization = in.readUTF();
+		int length = in.readInt();
+		if(saved_organization.equals(organization))
+		{
+			return (length > 0);
+		}
+		logger.info("Skipping checkpoint state of " + saved_organization + ", it does not match " + organization);
+		in.skipBytes(length);
+		return false;
+	}
+
+	private static void saveLatches(DataOutputStream out, PipelineContainer pipeline) throws IOException
+	{
+		for(FetchDecodeData fdd : pipeline.getFetchDecodeLatch())
+		{
+			out.writeBoolean(fdd.isBubble());
+			out.writeInt(fdd.getInstrValue());
+			out.writeInt(fdd.getPcValue());
+		}
+		for(DecodeExecuteData ded : pipeline.getDecodeExecuteLatch())
+		{
+			saveInstruction(out, ded.getInst());
+			out.writeInt(ded.getPcValue());
+			out.writeInt(ded.getAluInAValue());
+			out.writeInt(ded.getAluInBValue());
+			out.writeInt(ded.getBranchCtrlInAValue());
+			out.writeInt(ded.getBranchCtrlInBValue());
+			out.writeInt(ded.getStoreValueValue());
+		}
+		for(BranchPredictionModuleFetchData bpmfd : pipeline.getBranchPredictionFetchLatch())
+		{
+			out.writeBoolean(bpmfd.getDoSpeculativeJump());
+			out.writeInt(bpmfd.getPcValue());
+			out.writeInt(bpmfd.getBranchTgtValue());
+		}
+		for(BranchPredictionModuleExecuteData bpmed : pipeline.getBranchPredictionExecuteLatch())
+		{
+			out.writeBoolean(bpmed.getDoSpeculativeJump());
+			out.writeInt(bpmed.getPcValue());
+			out.writeInt(bpmed.getBranchTgtValue());
+		}
+		for(ExecuteMemoryData emd : pipeline.getExecuteMemoryLatch())
+		{
+			saveInstruction(out, emd.getInst());
+			out.writeInt(emd.getPcValue());
+			out.writeInt(emd.getAluOutLO());
+			out.writeInt(emd.getAluOutHI());
+			out.writeInt(emd.getStoreValueValue());
+			out.writeBoolean(emd.getJump());
+		}
+		for(ExecuteFetchData efd : pipeline.getExecuteFetchLatch())
+		{
+			saveInstruction(out, efd.getInst());
+			out.writeInt(efd.getPcValue());
+			out.writeInt(efd.getNewPcValue());
+			out.writeBoolean(efd.getJump());
+			out.writeBoolean(efd.getMispredictedBranch());
+		}
+		for(ExecuteBranchPredictionData ebd : pipeline.getExecuteBranchPredictionLatch())
+		{
+			saveInstruction(out, ebd.getInst());
+			out.writeInt(ebd.getBranchPcValue());
+			out.writeInt(ebd.getBranchTgtValue());
+			out.writeBoolean(ebd.getJumpTaken());
+		}
+		for(MemoryWritebackData mwd : pipeline.getMemoryWriteBackLatch())
+		{
+			saveInstruction(out, mwd.getInst());
+			out.writeInt(mwd.getPcValue());
+			out.writeInt(mwd.getAluOutLO());
+			out.writeInt(mwd.getAluOutHI());
+			out.writeInt(mwd.getLdResultValue());
+			out.writeBoolean(mwd.getJump());
+		}
+		for(WriteBackData wbd : pipeline.getWriteBackLatch())
+		{
+			saveInstruction(out, wbd.getInst());
+			out.writeInt(wbd.getPcValue());
+			out.writeInt(wbd.getAluOutLO());
+			out.writeInt(wbd.getAluOutHI());
+			out.writeInt(wbd.getLdResultValue());
+		}
+	}
+
+	private static void restoreLatches(DataInputStream in, PipelineContainer pipeline) throws IOException, PipelineException
+	{
+		Decode decode = pipeline.getDecodeStage();
+		
+		for(FetchDecodeData fdd : pipeline.getFetchDecodeLatch())
+		{
+			boolean bubble = in.readBoolean();
+			int instr = in.readInt();
+			int pc = in.readInt();
+			if(bubble)
+			{
+				fdd.flush();
+			}
+			else
+			{
+				fdd.set(instr, pc);
+			}
+		}
+		for(DecodeExecuteData ded : pipeline.getDecodeExecuteLatch())
+		{
+			ded.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+		}
+		for(BranchPredictionModuleFetchData bpmfd : pipeline.getBranchPredictionFetchLatch())
+		{
+			bpmfd.set(in.readBoolean(), in.readInt(), in.readInt());
+		}
+		for(BranchPredictionModuleExecuteData bpmed : pipeline.getBranchPredictionExecuteLatch())
+		{
+			bpmed.set(in.readBoolean(), in.readInt(), in.readInt());
+		}
+		for(ExecuteMemoryData emd : pipeline.getExecuteMemoryLatch())
+		{
+			emd.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean());
+		}
+		for(ExecuteFetchData efd : pipeline.getExecuteFetchLatch())
+		{
+			efd.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readBoolean(), in.readBoolean());
+		}
+		for(ExecuteBranchPredictionData ebd : pipeline.getExecuteBranchPredictionLatch())
+		{
+			ebd.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readBoolean());
+		}
+		for(MemoryWritebackData mwd : pipeline.getMemoryWriteBackLatch())
+		{
+			mwd.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean());
+		}
+		for(WriteBackData wbd : pipeline.getWriteBackLatch())
+		{
+			wbd.set(restoreInstruction(in, decode), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+		}
+	}
+
+	/**
+	 * Instructions are saved by their instruction word and decoded again on
+	 * restore. Flushed instructions are kept undecoded, as the latches
+	 * hold them after a flush. The decode stage identifies the pipeline
+	 * bubble by its instance, so bubbles are flagged, and a fetched word
+	 * that equals the bubble word stays an ordinary instruction word.
+	 */
+	private static void saveInstruction(DataOutputStream out, Instruction inst) throws IOException
+	{
+		if(inst == null)
+		{
+			out.writeByte(INST_NONE);
+			out.writeInt(0);
+		}
+		else
+		{
+			byte kind = (inst.getOpNormal() == OpcodeNORMAL.UNKNOWN) ? INST_RAW : INST_DECODED;
+			if(inst.getInstr() == PipelineConstants.PIPELINE_BUBBLE_INSTR)
+			{
+				kind |= INST_BUBBLE;
+			}
+			out.writeByte(kind);
+			out.writeInt(inst.getInstr().getValue());
+		}
+	}
+
+	private static Instruction restoreInstruction(DataInputStream in, Decode decode) throws IOException, PipelineException
+	{
+		byte kind = in.readByte();
+		int word = in.readInt();
+		
+		uint32 instr = ((kind & INST_BUBBLE) != 0) ? PipelineConstants.PIPELINE_BUBBLE_INSTR : new uint32(word);
+		
+		switch(kind & ~INST_BUBBLE)
+		{
+		case INST_NONE:
+			return null;
+		case INST_RAW:
+			return new Instruction(instr);
+		case INST_DECODED:
+			return decode.decodeInstr(instr);
+		default:
+			throw new PipelineException("Invalid instruction entry in checkpoint: " + kind);
+		}
+	}
+
+	private static void closeQuietly(Closeable stream)
+	{
+		if(stream != null)
+		{
+			try
+			{
+				stream.close();
+			}
+			catch(IOException e)
+			{
+				logger.warn("Cannot close checkpoint file: " + e.getMessage());
+			}
+		}
+	}
+}
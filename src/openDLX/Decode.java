@@ -30,6 +30,7 @@ import openDLX.exception.CacheException;
 import openDLX.exception.DecodeStageException;
 import openDLX.exception.PipelineDataTypeException;
 import openDLX.exception.UnknownInstructionException;
+import openDLX.util.Statistics;
 
 
 public class Decode
@@ -38,15 +39,22 @@ public class Decode
 	private Instruction current_inst;
 	private RegisterSet reg_set;
 	private Queue<FetchDecodeData> fetch_decode_latch;
+	private PipelineLatch<DecodeExecuteData> decode_execute_latch;
+	private final DecodeOutputData dod = new DecodeOutputData(null);
+	private final DecodeCache decode_cache = new DecodeCache(PipelineConstants.DECODE_CACHE_ENTRIES);
+	private SimulationContext context;
+	private Statistics stat;
 	
 	private final boolean throwExceptionForUntestedInstructions = true;
 	
-	public Decode(RegisterSet reg_set)
+	public Decode(RegisterSet reg_set, SimulationContext context)
 	{
 		this.reg_set = reg_set;
+		this.context = context;
+		stat = context.getStatistics();
 	}
 
-	Instruction decodeInstr(uint32 instr) throws UnknownInstructionException, CacheException, PipelineDataTypeException
+	public Instruction decodeInstr(uint32 instr) throws UnknownInstructionException, CacheException, PipelineDataTypeException
 	{
 		current_inst = new Instruction(instr);
 		
@@ -306,7 +314,7 @@ public class Decode
 
 		// bits 31..29 010
 		case 0x10:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use COP0 for implementation of SUBI (because is normal opcode like ADDI and is one row below ADDI)
@@ -333,7 +341,7 @@ public class Decode
 			}
 			break;
 		case 0x11:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use COP1 for implementation of SUBIU (because is normal opcode like ADDIU and is one row below ADDIU)
@@ -360,7 +368,7 @@ public class Decode
 			}
 			break;
 		case 0x12:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use COP2 for implementation of SGTI
@@ -387,7 +395,7 @@ public class Decode
 			}
 			break;
 		case 0x13:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use COP1X for implementation of SGTIU
@@ -726,7 +734,7 @@ public class Decode
 			}
 			break;
 		case 0x31:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use LWC1 for implementation of SEQI
@@ -753,7 +761,7 @@ public class Decode
 			}
 			break;
 		case 0x32:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use LWC2 for implementation of SNEI
@@ -796,7 +804,7 @@ public class Decode
 			}
 			break;
 		case 0x35:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use LDC1 for implementation of SLEI
@@ -823,7 +831,7 @@ public class Decode
 			}
 			break;
 		case 0x36:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use LDC2 for implementation of SGEI
@@ -868,7 +876,7 @@ public class Decode
 			}
 			break;
 		case 0x39:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use SWC1 for implementation of SEQIU
@@ -895,7 +903,7 @@ public class Decode
 			}
 			break;
 		case 0x3A:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use SWC2 for implementation of SNEIU
@@ -933,7 +941,7 @@ public class Decode
 			}
 			break;
 		case 0x3D:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use SDC1 for implementation of SLEIU
@@ -960,7 +968,7 @@ public class Decode
 			}
 			break;
 		case 0x3E:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// use SDC2 for implementation of SGEIU
@@ -987,7 +995,7 @@ public class Decode
 			}
 			break;
 		case 0x3F:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				if(current_inst.getInstr() == PipelineConstants.PIPELINE_BUBBLE_INSTR)
@@ -1190,7 +1198,7 @@ public class Decode
 			}
 			break;
 		case 0x0C:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				op = (OpcodeSPECIAL.SYSCALL);
@@ -1314,7 +1322,7 @@ public class Decode
 
 		// bits 5..3 011
 		case 0x18:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				op = (OpcodeSPECIAL.MULT);
@@ -1346,7 +1354,7 @@ public class Decode
 			}
 			break;
 		case 0x19:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				op = (OpcodeSPECIAL.MULTU);
@@ -1385,7 +1393,7 @@ public class Decode
 			
 			break;
 		case 0x1A:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				op = (OpcodeSPECIAL.DIV);
@@ -1425,7 +1433,7 @@ public class Decode
 			
 			break;
 		case 0x1B:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case MIPS:
 				op = (OpcodeSPECIAL.DIVU);
@@ -1590,7 +1598,7 @@ public class Decode
 
 		// bits 5..3 101
 		case 0x28:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SGT in DLX ISA
@@ -1611,7 +1619,7 @@ public class Decode
 			}
 			break;
 		case 0x29:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SGTU in DLX ISA
@@ -1769,7 +1777,7 @@ public class Decode
 			current_inst.setALUPortB(ALUPort.RT);
 			break;
 		case 0x35:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SEQ in DLX ISA
@@ -1807,7 +1815,7 @@ public class Decode
 			}
 			break;
 		case 0x37:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SNE in DLX ISA
@@ -1830,7 +1838,7 @@ public class Decode
 
 		// bits 5..3 111
 		case 0x38:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SLE in DLX ISA
@@ -1851,7 +1859,7 @@ public class Decode
 			}
 			break;
 		case 0x39:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SGE in DLX ISA
@@ -1872,7 +1880,7 @@ public class Decode
 			}
 			break;
 		case 0x3A:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SEQU in DLX ISA
@@ -1893,7 +1901,7 @@ public class Decode
 			}
 			break;
 		case 0x3B:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SNEU in DLX ISA
@@ -1914,7 +1922,7 @@ public class Decode
 			}
 			break;
 		case 0x3C:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SLEU in DLX ISA
@@ -1935,7 +1943,7 @@ public class Decode
 			}
 			break;
 		case 0x3D:
-			switch(ArchCfg.isa_type)
+			switch(context.getIsaType())
 			{
 			case DLX:
 				// using unused opcode of MIPS for SGEU in DLX ISA
@@ -2320,124 +2328,162 @@ public class Decode
 		fetch_decode_latch = fetchDecodeLatch;
 	}
 
-	public DecodeOutputData doCycle() throws DecodeStageException, CacheException, PipelineDataTypeException 
+	public void setOutputLatch(PipelineLatch<DecodeExecuteData> decodeExecuteLatch)
 	{
-		uint32 alu_in_a;
-		uint32 alu_in_b;
-		FetchDecodeData fdd = fetch_decode_latch.element();
-		uint32 decode_instr = fdd.getInstr();
-		uint32 pc = fdd.getPc();
-		Instruction inst = decodeInstr(decode_instr);
-		logger.debug("PC: " + pc.getValueAsHexString()
-				+ " instruction decoded as " + inst.getString());
+		decode_execute_latch = decodeExecuteLatch;
+	}
+
+	/**
+	 * Decodes an instruction word, previously decoded words are taken from the decode cache.
+	 * @param instr The raw instruction word.
+	 * @return The decoded instruction, it must not be modified.
+	 */
+	Instruction decodeCached(uint32 instr) throws UnknownInstructionException, CacheException, PipelineDataTypeException
+	{
+		Instruction inst = decode_cache.lookup(instr);
+		if(inst != null)
+		{
+			stat.countDecodeCacheHit();
+		}
+		else
+		{
+			stat.countDecodeCacheMiss();
+			inst = decodeInstr(instr);
+			decode_cache.insert(instr, inst);
+		}
+		return inst;
+	}
 
-		// determination of input for ALU port A
+	/**
+	 * Determines the input for ALU port A.
+	 * @param pc The address of the instruction.
+	 */
+	int readALUPortA(Instruction inst, int pc) throws DecodeStageException
+	{
 		switch (inst.getALUPortA())
 		{
 		case RS:
-			alu_in_a = reg_set.read(inst.getRs());
-			break;
+			return reg_set.read(inst.getRs().getValue());
 		case RT:
-			alu_in_a = reg_set.read(inst.getRt());
-			break;
+			return reg_set.read(inst.getRt().getValue());
 		case LO:
-			alu_in_a = reg_set.read_SP(SpecialRegisters.LO);
-			break;
+			return reg_set.readSpecial(SpecialRegisters.LO);
 		case HI:
-			alu_in_a = reg_set.read_SP(SpecialRegisters.HI);
-			break;
+			return reg_set.readSpecial(SpecialRegisters.HI);
 		case PC:
 			// increment the pc, because relative jumps assume the pc of the next instruction
-			alu_in_a = new uint32(pc.getValue()+4);
-			break;
+			return pc+4;
 		case ZERO:
-			alu_in_a = new uint32(0);
-			break;
+			return 0;
 		default:
-			alu_in_a = new uint32(0);
 			throw new DecodeStageException("Wrong ALU Port A");
 		}
+	}
 
-		// determination of input for ALU port B
+	/**
+	 * Determines the input for ALU port B.
+	 */
+	int readALUPortB(Instruction inst) throws DecodeStageException
+	{
 		switch (inst.getALUPortB())
 		{
 		case RT:
-			alu_in_b = reg_set.read(inst.getRt());
-			break;
+			return reg_set.read(inst.getRt().getValue());
 		case IDX:
-			alu_in_b = new uint32(inst.getInstrIndex().getValue());
-			break;
+			return inst.getInstrIndex().getValue();
 		case IMM:
 			if(inst.getImmExtend()==ImmExtend.ZERO)
 			{
-				alu_in_b = new uint32((inst.getOffset().getValue())&0xFFFF);
+				return (inst.getOffset().getValue())&0xFFFF;
 			}
 			else if(inst.getImmExtend()==ImmExtend.SIGN)
 			{
-				alu_in_b = new uint32((inst.getOffset().getValue()));
+				return inst.getOffset().getValue();
 			}
-			else if((ArchCfg.isa_type == ISAType.DLX) && (inst.getOpSpecial() == OpcodeSPECIAL.TRAP))
+			else if((context.getIsaType() == ISAType.DLX) && (inst.getOpSpecial() == OpcodeSPECIAL.TRAP))
 			{
-				alu_in_b = new uint32(inst.getRs().getValue());
+				return inst.getRs().getValue();
 			}
 			else
 			{
-				alu_in_b = new uint32(0);
 				throw new DecodeStageException("Wrong IMM at ALU Port B");
 			}
-			break;
 		case SA:
-			alu_in_b = new uint32(inst.getSa().getValue());
-			break;
+			return inst.getSa().getValue();
 		case ZERO:
-			alu_in_b = new uint32(0);
-			break;
+			return 0;
 		default:
-			alu_in_b = new uint32(0);
 			throw new DecodeStageException("Wrong ALU Port B");
 		}
+	}
 
-		uint32 branch_ctrl_in_a;
-		uint32 branch_ctrl_in_b;
-		// determination of input for BRANCH CONTROL port A
+	/**
+	 * Determines the input for BRANCH CONTROL port A.
+	 */
+	int readBranchCtrlPortA(Instruction inst) throws DecodeStageException
+	{
 		switch(inst.getBrachControlPortA())
 		{
 		case RS:
-			branch_ctrl_in_a = reg_set.read(inst.getRs());
-			break;
+			return reg_set.read(inst.getRs().getValue());
 		case ZERO:
-			branch_ctrl_in_a = new uint32(0);
-			break;
+			return 0;
 		default:
-			branch_ctrl_in_a = new uint32(0);
 			throw new DecodeStageException("Wrong Branch Port A");
 		}
+	}
 
-		// determination of input for BRANCH CONTROL port B
+	/**
+	 * Determines the input for BRANCH CONTROL port B.
+	 */
+	int readBranchCtrlPortB(Instruction inst) throws DecodeStageException
+	{
 		switch(inst.getBrachControlPortB())
 		{
 		case RT:
-			branch_ctrl_in_b = reg_set.read(inst.getRt());
-			break;
+			return reg_set.read(inst.getRt().getValue());
 		case ZERO:
-			branch_ctrl_in_b = new uint32(0);
-			break;
+			return 0;
 		default:
-			branch_ctrl_in_b = new uint32(0);
 			throw new DecodeStageException("Wrong Branch Port B");
 		}
+	}
 
-
-		// determination of the store value
-		uint32 store_value = new uint32(0);
+	/**
+	 * Determines the value written by a store instruction.
+	 */
+	int readStoreValue(Instruction inst)
+	{
 		if (inst.getStore())
 		{
-			store_value = reg_set.read(inst.getRt());
+			return reg_set.read(inst.getRt().getValue());
 		}
+		return 0;
+	}
+
+	public DecodeOutputData doCycle() throws DecodeStageException, CacheException, PipelineDataTypeException 
+	{
+		FetchDecodeData fdd = fetch_decode_latch.element();
+		uint32 decode_instr = fdd.getInstr();
+		int pc = fdd.getPcValue();
+		Instruction inst = decodeCached(decode_instr);
+		if(logger.isDebugEnabled())
+		{
+			logger.debug("PC: " + uint32.toHexString(pc)
+					+ " instruction decoded as " + inst.getString());
+		}
+
+		int alu_in_a = readALUPortA(inst, pc);
+		int alu_in_b = readALUPortB(inst);
+		int branch_ctrl_in_a = readBranchCtrlPortA(inst);
+		int branch_ctrl_in_b = readBranchCtrlPortB(inst);
+		int store_value = readStoreValue(inst);
 
-		DecodeExecuteData ded = new DecodeExecuteData(inst, pc, alu_in_a, alu_in_b, branch_ctrl_in_a, branch_ctrl_in_b, store_value);
+		DecodeExecuteData ded = decode_execute_latch.next();
+		ded.set(inst, pc, alu_in_a, alu_in_b, branch_ctrl_in_a, branch_ctrl_in_b, store_value);
+		dod.setDed(ded);
 		
-		return new DecodeOutputData(ded);
+		return dod;
 	}
 
 }
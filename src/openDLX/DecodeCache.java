@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import openDLX.datatypes.*;
+
+/**
+ * Direct mapped cache of decoded instructions, indexed and tagged by the raw
+ * instruction word. Since an entry is only found for exactly the same word,
+ * code that is modified at run time is decoded again and the cache never
+ * needs to be invalidated.
+ * The cached instructions are shared between all pipeline stages that 
+ * process the same word, hence they must not be modified after decoding.
+ */
+public class DecodeCache
+{
+	private final int[] words;
+	private final Instruction[] entries;
+	private final int index_mask;
+	// the pipeline bubble is identified by its instance, not by its value
+	private Instruction bubble;
+
+	/**
+	 * @param entries Number of cache entries, has to be a power of two.
+	 */
+	public DecodeCache(int entries)
+	{
+		if((entries <= 0) || ((entries & (entries - 1)) != 0))
+		{
+			throw new IllegalArgumentException("Number of decode cache entries has to be a power of two: " + entries);
+		}
+		this.words = new int[entries];
+		this.entries = new Instruction[entries];
+		index_mask = entries - 1;
+	}
+
+	private int getIndex(int word)
+	{
+		// fold opcode, register and function fields into the index
+		return (word ^ (word >>> 11) ^ (word >>> 21)) & index_mask;
+	}
+
+	/**
+	 * @param instr The raw instruction word.
+	 * @return The decoded instruction or null, if the word is not cached.
+	 */
+	public Instruction lookup(uint32 instr)
+	{
+		if(instr == PipelineConstants.PIPELINE_BUBBLE_INSTR)
+		{
+			return bubble;
+		}
+		int word = instr.getValue();
+		int idx = getIndex(word);
+		if((entries[idx] != null) && (words[idx] == word))
+		{
+			return entries[idx];
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a decoded instruction, an older entry with the same index is replaced.
+	 * @param instr The raw instruction word.
+	 * @param inst The instruction decoded from instr.
+	 */
+	public void insert(uint32 instr, Instruction inst)
+	{
+		if(instr == PipelineConstants.PIPELINE_BUBBLE_INSTR)
+		{
+			bubble = inst;
+			return;
+		}
+		int word = instr.getValue();
+		int idx = getIndex(word);
+		words[idx] = word;
+		entries[idx] = inst;
+	}
+
+	public void clear()
+	{
+		for(int i = 0; i < entries.length; i++)
+		{
+			entries[i] = null;
+		}
+		bubble = null;
+	}
+}
@@ -23,34 +23,45 @@ package openDLX;
 
 import java.util.Queue;
 
-import org.apache.log4j.Logger;
-
 import openDLX.datatypes.*;
 import openDLX.exception.MemoryException;
 import openDLX.memory.InstructionMemory;
+import openDLX.util.EventLog;
 import openDLX.util.Statistics;
 
 public class Fetch {
 
-
-	private static Logger logger = Logger.getLogger("FETCH");
-	private Statistics stat = Statistics.getInstance();
+	private SimulationContext context;
+	private Statistics stat;
+	private final EventLog events;
 	
-	private uint32 program_counter;
+	private int program_counter;
 	private InstructionMemory imem;
 	private Queue<ExecuteFetchData> execute_fetch_latch;
 	private Queue<BranchPredictionModuleFetchData> branchprediction_fetch_latch;
+	private PipelineLatch<FetchDecodeData> fetch_decode_latch;
+	// output buffers, reused in every cycle
+	private final boolean[] flush = new boolean[PipelineConstants.STAGES];
+	private final FetchOutputData fod = new FetchOutputData(null, flush);
+	// set if the pc of the current cycle was already determined by getRequestDelay()
+	private boolean pc_updated = false;
 	
-	public Fetch(uint32 init_pc, InstructionMemory imem)
+	public Fetch(uint32 init_pc, InstructionMemory imem, SimulationContext context)
 	{
-		program_counter = new uint32(init_pc);
+		program_counter = init_pc.getValue();
 		this.imem = imem;
+		this.context = context;
+		stat = context.getStatistics();
+		events = context.getEventLog();
 	}
 	
-	private void setPc(uint32 pc)
+	public void setPc(int pc)
 	{
-		program_counter.setValue(pc.getValue());
-		logger.debug("Set Pc to: " + program_counter.getValueAsHexString());
+		program_counter = pc;
+		if(events.isEnabled())
+		{
+			events.record(EventType.FETCH_SET_PC, program_counter, 0, 0);
+		}
 	}
 	
 	public uint32 getPc()
@@ -58,21 +69,26 @@ public class Fetch {
 		return new uint32(program_counter);
 	}
 	
-	private uint32 doFetch() throws MemoryException
+	public int getPcValue()
 	{
-		uint32 instr = null;
-		if(imem.getRequestDelay(program_counter)==0)
-		{
-			instr = imem.read_u32(program_counter);
-			stat.countFetch();
-		}
-		return new uint32(instr);
+		return program_counter;
+	}
+	
+	private int doFetch() throws MemoryException
+	{
+		// delayed fetches are served after the simulator stalled the pipeline (see getRequestDelay())
+		int instr = imem.read_u32(new uint32(program_counter)).getValue();
+		stat.countFetch();
+		return instr;
 	}
 	
 	public void increasePC()
 	{
-		program_counter.setValue(program_counter.getValue()+4);
-		logger.debug("Pc is now at: " + program_counter.getValueAsHexString());
+		program_counter += 4;
+		if(events.isEnabled())
+		{
+			events.record(EventType.FETCH_INCREASE_PC, program_counter, 0, 0);
+		}
 	}
 
 	public void setInputLatches(Queue<ExecuteFetchData> executeFetchLatch, Queue<BranchPredictionModuleFetchData> branchpredictionFetchLatch)
@@ -81,12 +97,54 @@ public class Fetch {
 		branchprediction_fetch_latch = branchpredictionFetchLatch;
 	}
 
+	public void setOutputLatch(PipelineLatch<FetchDecodeData> fetchDecodeLatch)
+	{
+		fetch_decode_latch = fetchDecodeLatch;
+	}
+
+	/**
+	 * Determines the address fetched in the current cycle and returns the
+	 * number of cycles the instruction memory needs to serve the fetch.
+	 * The address only depends on the input latches, thus it is not
+	 * determined again by the following doCycle().
+	 * @return The delay of the fetch in cycles.
+	 */
+	public int getRequestDelay() throws MemoryException
+	{
+		updatePc();
+		pc_updated = true;
+		return imem.getRequestDelay(new uint32(program_counter));
+	}
+
 	public FetchOutputData doCycle() throws MemoryException
+	{
+		if(pc_updated)
+		{
+			pc_updated = false;
+		}
+		else
+		{
+			updatePc();
+		}
+
+		int instr = doFetch();
+		if(events.isEnabled())
+		{
+			events.record(EventType.FETCH_INSTRUCTION, program_counter, 0, instr);
+		}
+		
+		FetchDecodeData fdd = fetch_decode_latch.next();
+		fdd.set(instr, program_counter);
+		fod.setFdd(fdd);
+		
+		return fod;
+	}
+
+	private void updatePc()
 	{
 		ExecuteFetchData efd = execute_fetch_latch.element();
 		BranchPredictionModuleFetchData bpmfd = branchprediction_fetch_latch.element();
 		
-		boolean[] flush = new boolean[PipelineConstants.STAGES];
 		for(byte i = 0; i < PipelineConstants.STAGES; i++)
 		{
 			flush[i] = false;
@@ -94,29 +152,35 @@ public class Fetch {
 
 		if(bpmfd.getDoSpeculativeJump())
 		{
-			logger.debug("speculatively jumping from " + bpmfd.getPc().getValueAsHexString() + " to " + bpmfd.getBranchTgt().getValueAsHexString());
+			if(events.isEnabled())
+			{
+				events.record(EventType.FETCH_SPECULATIVE_JUMP, bpmfd.getPcValue(), bpmfd.getBranchTgtValue(), 0);
+			}
 			// the branch predictor predicted a branch, set the pc to the predicted target
-			setPc(bpmfd.getBranchTgt());
+			setPc(bpmfd.getBranchTgtValue());
 		}
 		
-		if((ArchCfg.isa_type == ISAType.MIPS) || (ArchCfg.use_load_stall_bubble == true))
+		if((context.getIsaType() == ISAType.MIPS) || (context.getUseLoadStallBubble() == true))
 		{
 			if(efd.getMispredictedBranch() == true)
 			{
-				logger.debug("mispredicted branch at pc " + efd.getPc().getValueAsHexString() + " the branch was actually " + ((efd.getJump())?("taken to " + efd.getNewPc().getValueAsHexString()):("not taken next instr is " + new uint32(efd.getPc().getValue()+8).getValueAsHexString())));
+				if(events.isEnabled())
+				{
+					events.record(EventType.FETCH_MISPREDICTED_BRANCH, efd.getPcValue(), (efd.getJump())?(efd.getNewPcValue()):(efd.getPcValue()+8), 0);
+				}
 				flush[PipelineConstants.DECODE_STAGE] = true;
 				if(efd.getJump() == true)
 				{
-					setPc(efd.getNewPc());
+					setPc(efd.getNewPcValue());
 				}
 				else
 				{
-					setPc(new uint32(efd.getPc().getValue()+8));
+					setPc(efd.getPcValue()+8);
 				}
 
 //				if(efd.getJump() == true)
 //				{
-//					setPc(efd.getNewPc());
+//					setPc(efd.getNewPcValue());
 //					// according to the MIPS specification one instruction is executed in the branch delay 
 //					// slot, this instruction will be already in the execute stage (i.e. in the latch before the execute stage). 
 //					// Consequently the instruction in the decode stage has to be kicked out.
@@ -130,36 +194,25 @@ public class Fetch {
 			{
 				if(efd.getJump() == true)
 				{
-					setPc(efd.getNewPc());
+					setPc(efd.getNewPcValue());
 				}
 				else
 				{
-					setPc(new uint32(efd.getPc().getValue()+8));
+					setPc(efd.getPcValue()+8);
 				}
 			}
 		}
 		
 		if((efd.getInst().getBranch()) && (efd.getJump() == false) && (efd.getInst().getBranchLikely()))
 		{
-			logger.debug("likely branch was not taken, flushing branch delay slot");
+			if(events.isEnabled())
+			{
+				events.record(EventType.FETCH_LIKELY_NOT_TAKEN, efd.getPcValue(), 0, 0);
+			}
 			// for likely branches if they are not taken the instruction in the branch delay slot hat to be nullified, e.g. by flushing it.
 			// notice: this is independent of the branch prediction
 			flush[PipelineConstants.EXECUTE_STAGE] = true;
 		}
-
-		uint32 instr = doFetch();
-		if(instr != null)
-		{
-			logger.debug("PC: " + getPc().getValueAsHexString() + " fetched instruction " + instr.getValueAsHexString());
-		}
-		else
-		{
-			// stalling
-		}
-		
-		FetchDecodeData fdd = new FetchDecodeData(instr, getPc());
-		
-		return new FetchOutputData(fdd, flush);
 	}
         
         
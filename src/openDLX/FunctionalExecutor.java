@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import openDLX.datatypes.*;
+import openDLX.dbt.BlockRuntime;
+import openDLX.dbt.BlockTranslator;
+import openDLX.dbt.TranslatedBlock;
+import openDLX.exception.PipelineException;
+import openDLX.exception.UnknownInstructionException;
+import openDLX.memory.DataMemory;
+import openDLX.memory.InstructionMemory;
+import openDLX.memory.MainMemory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Simulates the instruction set without pipeline latches, forwarding and
+ * timing. It is used to quickly skip the initialization of a program before
+ * the cycle accurate simulation of the pipeline continues.
+ * 
+ * The executor works on the register set, the decode cache and the main
+ * memory of the pipeline, traps and prints are handled by the ALU as in
+ * the pipeline. Caches are bypassed, instead the last memory accesses and
+ * branches are recorded and replayed by warmUp() to bring caches and the
+ * branch target buffer into a realistic state before the switch-over.
+ * 
+ * The executor implements the architectural behavior of an interlocked
+ * pipeline: one branch delay slot and no load delay slot. This is the
+ * behavior of the MIPS pipeline and of the DLX pipeline with forwarding
+ * and load stall bubbles. The other DLX pipelines expose their hazards to
+ * the program, such that its result depends on the timing, hence they are
+ * not supported.
+ * 
+ * Frequently executed blocks of instructions are translated into JVM
+ * classes by the BlockTranslator, if enabled by setTranslationThreshold().
+ * A block is entered behind a branch delay slot or behind an instruction
+ * that cannot be translated, when it was entered as often as given by the
+ * threshold it is translated. The translated blocks implement the same
+ * behavior, including the events recorded for the warm up. If a store
+ * overwrites translated code, all translations are discarded.
+ */
+public class FunctionalExecutor implements BlockRuntime
+{
+	private static Logger logger = Logger.getLogger("FASTFORWARD");
+	
+	// kinds of the events recorded for the warm up
+	private static final byte EVENT_FETCH = 0;
+	private static final byte EVENT_LOAD = 1;
+	private static final byte EVENT_STORE = 2;
+	private static final byte EVENT_BRANCH_NOT_TAKEN = 3;
+	private static final byte EVENT_BRANCH_TAKEN = 4;
+	
+	private PipelineContainer pipeline;
+	private MainMemory mem;
+	private Decode decode;
+	private Memory memory;
+	private WriteBack writeback;
+	private ALU alu;
+	private BranchControl branch_control = new BranchControl();
+	
+	private int pc;
+	// the target of a taken branch, that is executed after the delay slot
+	private boolean branch_pending = false;
+	private int branch_target;
+	private long instructions = 0;
+	private boolean caught_break = false;
+	// the results of the instruction executed last
+	private int alu_result;
+	private boolean code_modified = false;
+	private boolean delay_slot_nullified = false;
+	
+	// translation of frequently executed blocks, disabled if translator is null
+	private static final int BLOCK_LOOKUP_SIZE = 4096;
+	private BlockTranslator translator = null;
+	private int translation_threshold;
+	private final int[] registers;
+	private final HashMap<Integer,TranslatedBlock> blocks = new HashMap<Integer,TranslatedBlock>();
+	private final HashMap<Integer,Integer> block_entries = new HashMap<Integer,Integer>();
+	// direct mapped lookup of the translated blocks by their entry address
+	private final TranslatedBlock[] block_lookup = new TranslatedBlock[BLOCK_LOOKUP_SIZE];
+	// address range of the translated code
+	private int code_start = 0;
+	private int code_end = 0;
+	// true if the next instruction may start a block
+	private boolean block_start = true;
+	private boolean after_branch = false;
+	
+	// ring buffer of the most recent events
+	private final byte[] event_kind;
+	private final int[] event_addr;
+	private final int[] event_tgt;
+	private int event_pos = 0;
+	private long event_count = 0;
+	
+	/**
+	 * @param pipeline The pipeline, its fetch stage provides the start address.
+	 * @param warmup_events Number of memory accesses and branches that are replayed by warmUp().
+	 * @throws PipelineException If the configured pipeline is not interlocked.
+	 */
+	public FunctionalExecutor(PipelineContainer pipeline, int warmup_events) throws PipelineException
+	{
+		if(!isSupported(pipeline.getContext()))
+		{
+			throw new PipelineException("Fast forwarding is only supported for interlocked pipelines, i.e. MIPS or DLX with forwarding and load stall bubbles.");
+		}
+		this.pipeline = pipeline;
+		mem = pipeline.getMainMemory();
+		decode = pipeline.getDecodeStage();
+		memory = new Memory(new DataMemory(mem), pipeline.getContext());
+		alu = new ALU(pipeline.getContext());
+		writeback = pipeline.getWriteBackStage();
+		pc = pipeline.getFetchStage().getPcValue();
+		registers = pipeline.getRegisterSet().getRegisters();
+		
+		event_kind = new byte[Math.max(warmup_events, 1)];
+		event_addr = new int[event_kind.length];
+		event_tgt = new int[event_kind.length];
+	}
+	
+	/**
+	 * Enables the translation of blocks into JVM classes.
+	 * @param threshold Number of times a block is entered before it is translated, 0 disables the translation.
+	 */
+	public void setTranslationThreshold(int threshold)
+	{
+		translation_threshold = threshold;
+		translator = (threshold > 0) ? new BlockTranslator() : null;
+		discardTranslations();
+	}
+	
+	public static boolean isSupported(SimulationContext context)
+	{
+		return (context.getIsaType() == ISAType.MIPS) || ((context.getIsaType() == ISAType.DLX) && context.getUseForwarding() && context.getUseLoadStallBubble());
+	}
+	
+	/**
+	 * Executes instructions until the given number of instructions is executed,
+	 * the given address is reached or the program finishes. The executor never
+	 * stops in a branch delay slot.
+	 * @param max_instructions Maximum number of instructions to be executed.
+	 * @param stop_at_pc true if the execution stops at stop_pc.
+	 * @param stop_pc The address at which the execution stops.
+	 * @return The number of executed instructions.
+	 */
+	public long run(long max_instructions, boolean stop_at_pc, int stop_pc) throws PipelineException
+	{
+		long start = instructions;
+		while(!caught_break)
+		{
+			if(!branch_pending)
+			{
+				if(((instructions - start) >= max_instructions) || (stop_at_pc && (pc == stop_pc)))
+				{
+					break;
+				}
+				if(block_start && (translator != null))
+				{
+					TranslatedBlock block = lookupBlock(pc);
+					// a block is only executed if it ends before the stop condition
+					if((block != null) && (block.getLength() <= max_instructions - (instructions - start)) && !(stop_at_pc && block.containsAfterEntry(stop_pc)))
+					{
+						pc = block.execute(this, registers);
+						continue;
+					}
+				}
+			}
+			step();
+		}
+		return instructions - start;
+	}
+	
+	private void step() throws PipelineException
+	{
+		// FETCH
+		uint32 instr = mem.read_u32(new uint32(pc));
+		fetch(pc);
+		
+		// DECODE, EXECUTE, MEMORY, WRITE BACK
+		Instruction inst = decode.decodeCached(instr);
+		boolean jump = executeInstruction(inst, pc);
+		
+		boolean delay_slot = after_branch;
+		int next_pc = pc + 4;
+		if(branch_pending)
+		{
+			// the current instruction was in the delay slot of a taken branch
+			next_pc = branch_target;
+			branch_pending = false;
+		}
+		after_branch = false;
+		if(inst.getBranch())
+		{
+			record((jump)?(EVENT_BRANCH_TAKEN):(EVENT_BRANCH_NOT_TAKEN), pc, alu_result);
+			after_branch = true;
+			if(jump)
+			{
+				branch_pending = true;
+				branch_target = alu_result;
+			}
+			else if(inst.getBranchLikely())
+			{
+				// a not taken likely branch nullifies its delay slot
+				next_pc = pc + 8;
+				after_branch = false;
+			}
+		}
+		pc = next_pc;
+		block_start = delay_slot || (inst.getBranch() && !after_branch) || !BlockTranslator.isTranslatable(inst);
+	}
+	
+	/**
+	 * Executes the decode, execute, memory and write back of an instruction.
+	 * The result of the ALU is kept in alu_result.
+	 * @return true if the instruction is a taken branch.
+	 */
+	private boolean executeInstruction(Instruction inst, int inst_pc) throws PipelineException
+	{
+		// DECODE
+		int alu_in_a = decode.readALUPortA(inst, inst_pc);
+		int alu_in_b = decode.readALUPortB(inst);
+		int branch_ctrl_in_a = decode.readBranchCtrlPortA(inst);
+		int branch_ctrl_in_b = decode.readBranchCtrlPortB(inst);
+		int store_value = decode.readStoreValue(inst);
+		
+		// EXECUTE
+		long alu_out = inst.getALUOperation().calculate(alu, alu_in_a, alu_in_b);
+		int alu_outLO = ALU.getResultLO(alu_out);
+		int alu_outHI = ALU.getResultHI(alu_out);
+		boolean jump = branch_control.checkBranch(inst, branch_ctrl_in_a, branch_ctrl_in_b);
+		
+		// MEMORY
+		int ld_result = 0;
+		if(inst.getLoad())
+		{
+			ld_result = load(inst, inst_pc, alu_outLO);
+		}
+		else if(inst.getStore())
+		{
+			code_modified = store(inst, inst_pc, alu_outLO, store_value);
+		}
+		
+		// WRITE BACK
+		caught_break = writeback.checkBreak(inst, alu_outLO);
+		writeback.writeResults(inst, inst_pc, alu_outLO, alu_outHI, ld_result, jump);
+		
+		alu_result = alu_outLO;
+		return jump;
+	}
+	
+	public void fetch(int inst_pc)
+	{
+		record(EVENT_FETCH, inst_pc, 0);
+		instructions++;
+	}
+	
+	public int load(Instruction inst, int inst_pc, int addr) throws PipelineException
+	{
+		int ld_result = memory.load(inst, inst_pc, addr);
+		record(EVENT_LOAD, addr, 0);
+		return ld_result;
+	}
+	
+	public boolean store(Instruction inst, int inst_pc, int addr, int value) throws PipelineException
+	{
+		memory.store(inst, inst_pc, addr, value);
+		record(EVENT_STORE, addr, 0);
+		
+		int word_addr = addr & ~0x3;
+		if((word_addr >= code_start) && (word_addr < code_end))
+		{
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("Store to " + uint32.toHexString(addr) + " overwrites translated code.");
+			}
+			discardTranslations();
+			return true;
+		}
+		return false;
+	}
+	
+	public boolean execute(Instruction inst, int inst_pc) throws PipelineException
+	{
+		code_modified = false;
+		executeInstruction(inst, inst_pc);
+		return code_modified;
+	}
+	
+	public int branch(Instruction inst, int inst_pc) throws PipelineException
+	{
+		boolean jump = executeInstruction(inst, inst_pc);
+		record((jump)?(EVENT_BRANCH_TAKEN):(EVENT_BRANCH_NOT_TAKEN), inst_pc, alu_result);
+		// a not taken likely branch nullifies its delay slot
+		delay_slot_nullified = !jump && inst.getBranchLikely();
+		return (jump)?(alu_result):(inst_pc + 8);
+	}
+	
+	public boolean isDelaySlotNullified()
+	{
+		return delay_slot_nullified;
+	}
+	
+	/**
+	 * Returns the translated block that starts at the given address, blocks
+	 * are translated when they were entered translation_threshold times.
+	 * @return The block or null if it is not translated.
+	 */
+	private TranslatedBlock lookupBlock(int entry) throws PipelineException
+	{
+		int idx = (entry >>> 2) & (BLOCK_LOOKUP_SIZE - 1);
+		TranslatedBlock block = block_lookup[idx];
+		if((block != null) && (block.getEntry() == entry))
+		{
+			return block;
+		}
+		
+		block = blocks.get(entry);
+		if(block == null)
+		{
+			Integer entered = block_entries.get(entry);
+			int count = (entered == null) ? 1 : (entered + 1);
+			block_entries.put(entry, count);
+			if(count != translation_threshold)
+			{
+				return null;
+			}
+			block = translate(entry);
+			if(block == null)
+			{
+				return null;
+			}
+			blocks.put(entry, block);
+		}
+		block_lookup[idx] = block;
+		return block;
+	}
+	
+	/**
+	 * Collects the instructions of the block starting at the given address
+	 * and translates them.
+	 * @return The block or null if the first instruction cannot be translated.
+	 */
+	private TranslatedBlock translate(int entry) throws PipelineException
+	{
+		ArrayList<Instruction> insts = new ArrayList<Instruction>();
+		int addr = entry;
+		while(insts.size() < BlockTranslator.MAX_BLOCK_LENGTH)
+		{
+			Instruction inst = decodeAt(addr);
+			if((inst == null) || !BlockTranslator.isTranslatable(inst))
+			{
+				break;
+			}
+			if(inst.getBranch())
+			{
+				// a branch ends the block, it is only translated together with its delay slot
+				Instruction delay_slot = decodeAt(addr + 4);
+				if((delay_slot != null) && BlockTranslator.isTranslatable(delay_slot) && !delay_slot.getBranch())
+				{
+					insts.add(inst);
+					insts.add(delay_slot);
+				}
+				break;
+			}
+			insts.add(inst);
+			addr += 4;
+		}
+		if(insts.isEmpty())
+		{
+			return null;
+		}
+		
+		TranslatedBlock block = translator.translate(entry, insts.toArray(new Instruction[insts.size()]));
+		if(code_start == code_end)
+		{
+			code_start = entry;
+			code_end = entry;
+		}
+		code_start = Math.min(code_start, entry);
+		code_end = Math.max(code_end, entry + 4 * insts.size());
+		return block;
+	}
+	
+	private Instruction decodeAt(int addr) throws PipelineException
+	{
+		try
+		{
+			return decode.decodeCached(mem.read_u32(new uint32(addr)));
+		}
+		catch(UnknownInstructionException e)
+		{
+			return null;
+		}
+	}
+	
+	private void discardTranslations()
+	{
+		blocks.clear();
+		block_entries.clear();
+		for(int i = 0; i < block_lookup.length; i++)
+		{
+			block_lookup[i] = null;
+		}
+		code_start = 0;
+		code_end = 0;
+	}
+	
+	private void record(byte kind, int addr, int tgt)
+	{
+		event_kind[event_pos] = kind;
+		event_addr[event_pos] = addr;
+		event_tgt[event_pos] = tgt;
+		event_pos++;
+		if(event_pos == event_kind.length)
+		{
+			event_pos = 0;
+		}
+		event_count++;
+	}
+	
+	/**
+	 * Replays the recorded instruction fetches, data accesses, and branches on
+	 * the caches and the branch target buffer of the pipeline. Since the memory
+	 * already contains the final values, stores write back the current value.
+	 */
+	public void warmUp() throws PipelineException
+	{
+		InstructionMemory imem = pipeline.getInstructionMemory();
+		DataMemory dmem = pipeline.getDataMemory();
+		BranchPredictionModule bpm = pipeline.getBranchPredictionModule();
+		
+		int events = (int)Math.min(event_count, (long)event_kind.length);
+		int pos = (event_pos - events + event_kind.length) % event_kind.length;
+		for(int i = 0; i < events; i++)
+		{
+			uint32 word_addr = new uint32(event_addr[pos] & ~0x3);
+			switch(event_kind[pos])
+			{
+			case EVENT_FETCH:
+				imem.read_u32(word_addr);
+				break;
+			case EVENT_LOAD:
+				dmem.read_u32(word_addr, false);
+				break;
+			case EVENT_STORE:
+				dmem.write_u32(word_addr, mem.read_u32(word_addr));
+				break;
+			case EVENT_BRANCH_NOT_TAKEN:
+				bpm.train(event_addr[pos], event_tgt[pos], false);
+				break;
+			case EVENT_BRANCH_TAKEN:
+				bpm.train(event_addr[pos], event_tgt[pos], true);
+				break;
+			}
+			pos++;
+			if(pos == event_kind.length)
+			{
+				pos = 0;
+			}
+		}
+		logger.info("Warmed up caches and branch prediction with " + events + " events.");
+	}
+	
+	/**
+	 * @return The address of the next instruction to be executed.
+	 */
+	public int getPc()
+	{
+		return pc;
+	}
+	
+	public long getInstructions()
+	{
+		return instructions;
+	}
+	
+	public boolean getCaughtBreak()
+	{
+		return caught_break;
+	}
+	
+	/**
+	 * @return The number of translated blocks.
+	 */
+	public int getTranslatedBlocks()
+	{
+		return (translator != null) ? translator.getTranslatedBlocks() : 0;
+	}
+}
@@ -34,14 +34,17 @@ import org.apache.log4j.Logger;
 public class Memory
 {
 	private static Logger logger = Logger.getLogger("MEMORY");
-	private Statistics stat = Statistics.getInstance(); 
+	private Statistics stat;
 	private DataMemory dmem;
 	private Queue<ExecuteMemoryData> execute_memory_latch;
+	private PipelineLatch<MemoryWritebackData> memory_writeback_latch;
+	private final MemoryOutputData mod = new MemoryOutputData(null);
 	private final boolean throwExceptionForUntestedAccesses = true;
 
-	public Memory(DataMemory dmem)
+	public Memory(DataMemory dmem, SimulationContext context)
 	{
 		this.dmem = dmem;
+		stat = context.getStatistics();
 	}
 
 	public void setInputLatch(Queue<ExecuteMemoryData> executeMemoryLatch)
@@ -49,186 +52,272 @@ public class Memory
 		execute_memory_latch = executeMemoryLatch;
 	}
 
-	public MemoryOutputData doCycle() throws MemoryStageException, MemoryException
+	public void setOutputLatch(PipelineLatch<MemoryWritebackData> memoryWritebackLatch)
 	{
-		ExecuteMemoryData emd = execute_memory_latch.element();
-		uint32[] alu_out = emd.getAluOut();
-		uint32 alu_outLO = alu_out[0];
-		// uint32 alu_outHI = alu_out[1];
-		uint32 store_value = emd.getStoreValue();
-		Instruction inst = emd.getInst();
-		uint32 pc = emd.getPc();
-		boolean jump = emd.getJump();
-
-		uint32 ld_result = new uint32(0);
+		memory_writeback_latch = memoryWritebackLatch;
+	}
 
-		if (inst.getLoad())
+	/**
+	 * Performs the data memory access of a load instruction.
+	 * @param inst The load instruction.
+	 * @param pc The address of the load instruction.
+	 * @param alu_outLO The effective address.
+	 * @return The loaded value.
+	 */
+	int load(Instruction inst, int pc, int alu_outLO) throws MemoryStageException, MemoryException
+	{
+		// the memory hierarchy is accessed by uint32 addresses
+		uint32 addr = new uint32(alu_outLO);
+		int ld_result = 0;
+		switch(inst.getMemoryWidth())
 		{
-			if(dmem.getRequestDelay(RequestType.DATA_RD, alu_outLO)==0)
+		case BYTE:
+			ld_result = (int)dmem.read_u8(addr, true).getValue();
+			if(logger.isDebugEnabled())
 			{
-				switch(inst.getMemoryWidth())
-				{
-				case BYTE:
-					ld_result.setValue((int)dmem.read_u8(alu_outLO, true).getValue());
-					logger.debug("PC: " + pc.getValueAsHexString() + " load from addr: " + alu_outLO.getValueAsHexString() + " value: " + ld_result.getValueAsHexString());
-					break;
-				case UBYTE:
-					ld_result.setValue(dmem.read_u8(alu_outLO, true).getValue()&0xFF);
-					logger.debug("PC: " + pc.getValueAsHexString() + " load from addr: " + alu_outLO.getValueAsHexString() + " value: " + ld_result.getValueAsHexString());
-					break;
-				case WORD:
-					ld_result.setValue(dmem.read_u32(alu_outLO, true).getValue());
-					logger.debug("PC: " + pc.getValueAsHexString() + " load from addr: " + alu_outLO.getValueAsHexString() + " value: " + ld_result.getValueAsHexString());
-					break;
-				case UWORD:
-					ld_result.setValue(dmem.read_u32(alu_outLO, true).getValue());
-					logger.debug("PC: " + pc.getValueAsHexString() + " load from addr: " + alu_outLO.getValueAsHexString() + " value: " + ld_result.getValueAsHexString());
-					if(throwExceptionForUntestedAccesses)
-					{
-						throw new MemoryStageException("Untested memory width: " + inst.getMemoryWidth());
-					}
-					break;
-				default:
-					logger.error("wrong memory width: " + inst.getMemoryWidth()); 
-					throw new MemoryStageException("Wrong memory width: " + inst.getMemoryWidth());
-				}
-				stat.countMemRead();
+				logger.debug("PC: " + uint32.toHexString(pc) + " load from addr: " + uint32.toHexString(alu_outLO) + " value: " + uint32.toHexString(ld_result));
+			}
+			break;
+		case UBYTE:
+			ld_result = dmem.read_u8(addr, true).getValue()&0xFF;
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " load from addr: " + uint32.toHexString(alu_outLO) + " value: " + uint32.toHexString(ld_result));
+			}
+			break;
+		case WORD:
+			ld_result = dmem.read_u32(addr, true).getValue();
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " load from addr: " + uint32.toHexString(alu_outLO) + " value: " + uint32.toHexString(ld_result));
 			}
-			else
+			break;
+		case UWORD:
+			ld_result = dmem.read_u32(addr, true).getValue();
+			if(logger.isDebugEnabled())
 			{
-				// stall
+				logger.debug("PC: " + uint32.toHexString(pc) + " load from addr: " + uint32.toHexString(alu_outLO) + " value: " + uint32.toHexString(ld_result));
 			}
+			if(throwExceptionForUntestedAccesses)
+			{
+				throw new MemoryStageException("Untested memory width: " + inst.getMemoryWidth());
+			}
+			break;
+		default:
+			logger.error("wrong memory width: " + inst.getMemoryWidth()); 
+			throw new MemoryStageException("Wrong memory width: " + inst.getMemoryWidth());
 		}
-		else if (inst.getStore())
+		return ld_result;
+	}
+
+	/**
+	 * Performs the data memory access of a store instruction.
+	 * @param inst The store instruction.
+	 * @param pc The address of the store instruction.
+	 * @param alu_outLO The effective address.
+	 * @param store_value The value to be stored.
+	 */
+	void store(Instruction inst, int pc, int alu_outLO, int store_value) throws MemoryStageException, MemoryException
+	{
+		// the memory hierarchy is accessed by uint32 addresses
+		uint32 addr = new uint32(alu_outLO);
+		uint32 value = new uint32(store_value);
+		switch(inst.getMemoryWidth())
 		{
-			if(dmem.getRequestDelay(RequestType.DATA_WR, alu_outLO)==0)
+		case BYTE:
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " store value: " + uint32.toHexString(store_value) + " to addr: " + uint32.toHexString(alu_outLO));
+			}
+			dmem.write_u8(addr, value);
+			break;
+		case UBYTE:
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " store value: " + uint32.toHexString(store_value) + " to addr: " + uint32.toHexString(alu_outLO));
+			}
+			dmem.write_u8(addr, value);
+			break;
+		case WORD:
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " store value: " + uint32.toHexString(store_value) + " to addr: " + uint32.toHexString(alu_outLO));
+			}
+			dmem.write_u32(addr, value);
+			break;
+		case UWORD:
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " store value: " + uint32.toHexString(store_value) + " to addr: " + uint32.toHexString(alu_outLO));
+			}
+			dmem.write_u32(addr, value);
+			break;
+		case WORD_RIGHT_PART:
+			// refer to page A-153 of the MIPS IV Instruction Set Rev. 3.2
+			switch(alu_outLO&0x3)
 			{
-				switch(inst.getMemoryWidth())
+			case 0:
+				dmem.write_u32(addr, value);
+				
+				logger.warn("Verify operation of SWR (0)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (0)!");
+				}
+				break;
+			case 1:
+				dmem.write_u8(addr, new uint8((store_value)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO+1), new uint8((store_value>>8)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO+2), new uint8((store_value>>16)&0xFF));
+				
+				logger.warn("Verify operation of SWR (1)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (1)!");
+				}
+				break;
+			case 2:
+				dmem.write_u8(addr, new uint8((store_value)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO+1), new uint8((store_value>>8)&0xFF));
+				
+				logger.warn("Verify operation of SWR (3)!");
+				if(throwExceptionForUntestedAccesses)
 				{
-				case BYTE:
-					logger.debug("PC: " + pc.getValueAsHexString() + " store value: " + store_value.getValueAsHexString() + " to addr: " + alu_outLO.getValueAsHexString());
-					dmem.write_u8(alu_outLO, store_value);
-					break;
-				case UBYTE:
-					logger.debug("PC: " + pc.getValueAsHexString() + " store value: " + store_value.getValueAsHexString() + " to addr: " + alu_outLO.getValueAsHexString());
-					dmem.write_u8(alu_outLO, store_value);
-					break;
-				case WORD:
-					logger.debug("PC: " + pc.getValueAsHexString() + " store value: " + store_value.getValueAsHexString() + " to addr: " + alu_outLO.getValueAsHexString());
-					dmem.write_u32(alu_outLO, store_value);
-					break;
-				case UWORD:
-					logger.debug("PC: " + pc.getValueAsHexString() + " store value: " + store_value.getValueAsHexString() + " to addr: " + alu_outLO.getValueAsHexString());
-					dmem.write_u32(alu_outLO, store_value);
-					break;
-				case WORD_RIGHT_PART:
-					// refer to page A-153 of the MIPS IV Instruction Set Rev. 3.2
-					switch(alu_outLO.getValue()&0x3)
-					{
-					case 0:
-						dmem.write_u32(alu_outLO, store_value);
-						
-						logger.warn("Verify operation of SWR (0)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (0)!");
-						}
-						break;
-					case 1:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue())&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()+1), new uint8((store_value.getValue()>>8)&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()+2), new uint8((store_value.getValue()>>16)&0xFF));
-						
-						logger.warn("Verify operation of SWR (1)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (1)!");
-						}
-						break;
-					case 2:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue())&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()+1), new uint8((store_value.getValue()>>8)&0xFF));
-						
-						logger.warn("Verify operation of SWR (3)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (2)!");
-						}
-						break;
-					case 3:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue())&0xFF));
-						
-						logger.warn("Verify operation of SWR (3)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (3)!");
-						}
-						break;
-					}
-					break;
-				case WORD_LEFT_PART:
-					// refer to page A-150 of the MIPS IV Instruction Set Rev. 3.2
-					switch(alu_outLO.getValue()&0x3)
-					{
-					case 0:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue()>>24)&0xFF));
-						
-						logger.warn("Verify operation of SWL (0)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (0)!");
-						}
-						break;
-					case 1:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue()>>24)&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()-1), new uint8((store_value.getValue()>>16)&0xFF));
-						
-						logger.warn("Verify operation of SWL (1)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (1)!");
-						}
-						break;
-					case 2:
-						dmem.write_u8(alu_outLO, new uint8((store_value.getValue()>>24)&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()-1), new uint8((store_value.getValue()>>16)&0xFF));
-						dmem.write_u8(new uint32(alu_outLO.getValue()-2), new uint8((store_value.getValue()>>8)&0xFF));
-						
-						logger.warn("Verify operation of SWL (2)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (2)!");
-						}
-						break;
-					case 3:
-						dmem.write_u32(new uint32(alu_outLO.getValue()-3), store_value);
-						
-						logger.warn("Verify operation of SWL (3)!");
-						if(throwExceptionForUntestedAccesses)
-						{
-							throw new MemoryStageException("Verify operation of SWR (2)!");
-						}
-						break;
-					}
-					break;
-				default:
-					logger.error("Wrong memory width: " + inst.getMemoryWidth()); 
-					throw new MemoryStageException("Wrong memory width: " + inst.getMemoryWidth());
+					throw new MemoryStageException("Verify operation of SWR (2)!");
 				}
-				stat.countMemWrite();
+				break;
+			case 3:
+				dmem.write_u8(addr, new uint8((store_value)&0xFF));
+				
+				logger.warn("Verify operation of SWR (3)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (3)!");
+				}
+				break;
 			}
-			else
+			break;
+		case WORD_LEFT_PART:
+			// refer to page A-150 of the MIPS IV Instruction Set Rev. 3.2
+			switch(alu_outLO&0x3)
 			{
-				// stall
+			case 0:
+				dmem.write_u8(addr, new uint8((store_value>>24)&0xFF));
+				
+				logger.warn("Verify operation of SWL (0)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (0)!");
+				}
+				break;
+			case 1:
+				dmem.write_u8(addr, new uint8((store_value>>24)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO-1), new uint8((store_value>>16)&0xFF));
+				
+				logger.warn("Verify operation of SWL (1)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (1)!");
+				}
+				break;
+			case 2:
+				dmem.write_u8(addr, new uint8((store_value>>24)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO-1), new uint8((store_value>>16)&0xFF));
+				dmem.write_u8(new uint32(alu_outLO-2), new uint8((store_value>>8)&0xFF));
+				
+				logger.warn("Verify operation of SWL (2)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (2)!");
+				}
+				break;
+			case 3:
+				dmem.write_u32(new uint32(alu_outLO-3), value);
+				
+				logger.warn("Verify operation of SWL (3)!");
+				if(throwExceptionForUntestedAccesses)
+				{
+					throw new MemoryStageException("Verify operation of SWR (2)!");
+				}
+				break;
 			}
+			break;
+		default:
+			logger.error("Wrong memory width: " + inst.getMemoryWidth()); 
+			throw new MemoryStageException("Wrong memory width: " + inst.getMemoryWidth());
+		}
+	}
+
+	/**
+	 * Returns the number of cycles the data memory needs to serve the access
+	 * of the instruction in the input latch, or 0 if it does not access the
+	 * data memory.
+	 */
+	public int getRequestDelay() throws MemoryException
+	{
+		ExecuteMemoryData emd = execute_memory_latch.element();
+		Instruction inst = emd.getInst();
+		if(inst.getLoad())
+		{
+			return dmem.getRequestDelay(RequestType.DATA_RD, new uint32(emd.getAluOutLO()));
+		}
+		else if(inst.getStore())
+		{
+			return dmem.getRequestDelay(RequestType.DATA_WR, new uint32(emd.getAluOutLO()));
+		}
+		return 0;
+	}
+
+	/**
+	 * Performs the data memory access of an instruction. Delayed accesses are
+	 * served after the simulator stalled the pipeline (see getRequestDelay()).
+	 * @param inst The instruction.
+	 * @param pc The address of the instruction.
+	 * @param alu_outLO The effective address.
+	 * @param store_value The value stored by store instructions.
+	 * @return The loaded value, or 0 for all other instructions.
+	 */
+	public int access(Instruction inst, int pc, int alu_outLO, int store_value) throws MemoryStageException, MemoryException
+	{
+		int ld_result = 0;
+
+		if (inst.getLoad())
+		{
+			ld_result = load(inst, pc, alu_outLO);
+			stat.countMemRead();
+		}
+		else if (inst.getStore())
+		{
+			store(inst, pc, alu_outLO, store_value);
+			stat.countMemWrite();
 		}
 		else
 		{
-			logger.debug("PC: " + pc.getValueAsHexString() + " nothing to do");
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("PC: " + uint32.toHexString(pc) + " nothing to do");
+			}
 		}
 
-		MemoryWritebackData mwd = new MemoryWritebackData(inst, pc, alu_out, ld_result, jump);
+		return ld_result;
+	}
+
+	public MemoryOutputData doCycle() throws MemoryStageException, MemoryException
+	{
+		ExecuteMemoryData emd = execute_memory_latch.element();
+		int alu_outLO = emd.getAluOutLO();
+		int alu_outHI = emd.getAluOutHI();
+		int store_value = emd.getStoreValueValue();
+		Instruction inst = emd.getInst();
+		int pc = emd.getPcValue();
+		boolean jump = emd.getJump();
+
+		int ld_result = access(inst, pc, alu_outLO, store_value);
+
+		MemoryWritebackData mwd = memory_writeback_latch.next();
+		mwd.set(inst, pc, alu_outLO, alu_outHI, ld_result, jump);
+		mod.setMwd(mwd);
 
-		return new MemoryOutputData(mwd);
+		return mod;
 	}
 }
@@ -25,26 +25,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Properties;
-import java.util.Queue;
 
 import openDLX.datatypes.ArchCfg;
 import openDLX.datatypes.BranchPredictionModuleExecuteData;
 import openDLX.datatypes.BranchPredictionModuleFetchData;
-import openDLX.datatypes.BranchPredictionModuleOutputData;
 import openDLX.datatypes.DecodeExecuteData;
-import openDLX.datatypes.DecodeOutputData;
 import openDLX.datatypes.ExecuteBranchPredictionData;
 import openDLX.datatypes.ExecuteFetchData;
 import openDLX.datatypes.ExecuteMemoryData;
 import openDLX.datatypes.ExecuteOutputData;
+import openDLX.datatypes.EventType;
 import openDLX.datatypes.FetchDecodeData;
 import openDLX.datatypes.FetchOutputData;
 import openDLX.datatypes.ISAType;
 import openDLX.datatypes.Instruction;
-import openDLX.datatypes.MemoryOutputData;
 import openDLX.datatypes.MemoryWritebackData;
 import openDLX.datatypes.SpecialRegisters;
 import openDLX.datatypes.WriteBackData;
@@ -54,14 +49,18 @@ import openDLX.datatypes.uint8;
 import openDLX.exception.DecodeStageException;
 import openDLX.exception.MemoryException;
 import openDLX.exception.PipelineException;
-import openDLX.gui.GUI_CONST;
+import openDLX.exception.TraceException;
 import openDLX.memory.DataMemory;
 import openDLX.memory.InstructionMemory;
 import openDLX.memory.MainMemory;
+import openDLX.trace.TraceWriter;
 import openDLX.util.ClockCycleLog;
+import openDLX.util.EventLog;
 import openDLX.util.DLXTrapHandler;
 import openDLX.util.LoggerConfigurator;
 import openDLX.util.PrintHandler;
+import openDLX.util.SimulatorMetrics;
+import openDLX.util.StageProfiler;
 import openDLX.util.Statistics;
 
 import org.apache.log4j.Level;
@@ -71,6 +70,7 @@ public class OpenDLXSimulator
 {
 
     private static Logger logger = Logger.getLogger("openDLX");
+    private SimulationContext context;
     private PipelineContainer pipeline;
     private Properties config;
     private Statistics stat;
@@ -78,6 +78,13 @@ public class OpenDLXSimulator
     private int clock_cycle;
     private int sim_cycles;
     private boolean finished;
+    private String checkpoint_save_file = null;
+    private int checkpoint_save_cycle;
+    private TraceWriter trace_writer = null;
+    private SimulatorMetrics metrics = null;
+    private StageProfiler stage_profiler = null;
+    private boolean memory_stalls = false;
+    private boolean skip_memory_stalls = false;
 
     /**
      * @param args
@@ -106,54 +113,99 @@ public class OpenDLXSimulator
 
     public OpenDLXSimulator(String cfg_file) throws PipelineException
     {
-        config = new Properties();
+        this(cfg_file, SimulationContext.getDefault());
+    }
 
-        try
-        {
-            config.load(new FileInputStream(cfg_file));
-        }
-        catch (FileNotFoundException e)
-        {
-            e.printStackTrace();
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
+    /**
+     * Creates a simulator that keeps its statistics and configuration in
+     * the given context, such that it can run concurrently to other
+     * simulators with different contexts.
+     *
+     * @param cfg_file The configuration file.
+     * @param context The context of the simulator.
+     * @throws PipelineException
+     */
+    public OpenDLXSimulator(String cfg_file, SimulationContext context) throws PipelineException
+    {
+        this(loadConfig(cfg_file), context);
+    }
+
+    public OpenDLXSimulator(File args) throws PipelineException
+    {
+        this(args, SimulationContext.getDefault());
+    }
+
+    public OpenDLXSimulator(File args, SimulationContext context) throws PipelineException
+    {
+        this(loadConfig(args.getAbsolutePath()), context);
+    }
+
+    /**
+     * Creates a simulator from an already loaded configuration, missing
+     * parameters are set to their defaults.
+     *
+     * @param config The configuration, it is extended by the default parameters.
+     * @param context The context of the simulator.
+     * @throws PipelineException
+     */
+    public OpenDLXSimulator(Properties config, SimulationContext context) throws PipelineException
+    {
+        this(config, context, null);
+    }
+
+    /**
+     * @param parent The simulator that is forked, or null to load the program.
+     */
+    private OpenDLXSimulator(Properties config, SimulationContext context, OpenDLXSimulator parent) throws PipelineException
+    {
+        this.context = context;
+        this.config = config;
 
         setDefaultConfigParameters(config);
 
-        ArchCfg.registerArchitectureConfig(config);
+        context.registerArchitectureConfig(config);
 
-        System.out.println("Configuration is: " + config.toString());
+        context.getConsole().println("Configuration is: " + config.toString());
 
-        LoggerConfigurator.getInstance().configureLogger(config.getProperty("log4j"), config.getProperty("log_file"));
+        if (context.isDefault())
+        {
+            // simulators with their own context leave the process wide logging to the caller
+            LoggerConfigurator.getInstance().configureLogger(config.getProperty("log4j"), config.getProperty("log_file"));
+        }
 
         logger.info("Configuration is: " + config.toString());
-        logger.info("loading:" + config.getProperty("file"));
-
         pipeline = new PipelineContainer();
-        pipeline.setMainMemory(new MainMemory(config.getProperty("file"), stringToUint32(config.getProperty("code_start_addr")).getValue(), (short) stringToUint32(config.getProperty("memory_latency")).getValue()));
-        pipeline.setInstructionMemory(new InstructionMemory(pipeline.getMainMemory(), config));
-        pipeline.setDataMemory(new DataMemory(pipeline.getMainMemory(), config));
-        pipeline.setFetchStage(new Fetch(new uint32(stringToUint32(config.getProperty("entry_point"))), pipeline.getInstructionMemory()));
+        pipeline.setContext(context);
+        if (parent != null)
+        {
+            logger.info("forking at cycle " + parent.clock_cycle);
+            pipeline.setMainMemory(parent.pipeline.getMainMemory().fork());
+        }
+        else
+        {
+            logger.info("loading:" + config.getProperty("file"));
+            pipeline.setMainMemory(new MainMemory(config.getProperty("file"), stringToUint32(config.getProperty("code_start_addr")).getValue(), (short) stringToUint32(config.getProperty("memory_latency")).getValue()));
+        }
+        pipeline.setInstructionMemory(new InstructionMemory(pipeline.getMainMemory(), config, context.getStatistics()));
+        pipeline.setDataMemory(new DataMemory(pipeline.getMainMemory(), config, context.getStatistics()));
+        pipeline.setFetchStage(new Fetch(new uint32(stringToUint32(config.getProperty("entry_point"))), pipeline.getInstructionMemory(), context));
         pipeline.setRegisterSet(new RegisterSet());
-        pipeline.setDecodeStage(new Decode(pipeline.getRegisterSet()));
-        pipeline.setExecuteStage(new Execute());
-        pipeline.setBranchPredictionModule(new BranchPredictionModule(config));
-        pipeline.setMemoryStage(new Memory(pipeline.getDataMemory()));
-        pipeline.setWriteBackStage(new WriteBack(pipeline.getRegisterSet()));
+        pipeline.setDecodeStage(new Decode(pipeline.getRegisterSet(), context));
+        pipeline.setExecuteStage(new Execute(context));
+        pipeline.setBranchPredictionModule(new BranchPredictionModule(config, context));
+        pipeline.setMemoryStage(new Memory(pipeline.getDataMemory(), context));
+        pipeline.setWriteBackStage(new WriteBack(pipeline.getRegisterSet(), context));
 
-        if (ArchCfg.isa_type == ISAType.MIPS)
+        if (context.getIsaType() == ISAType.MIPS)
         {
             // set the output file for usage of printf
-            PrintHandler print_handler = PrintHandler.getInstance();
+            PrintHandler print_handler = context.getPrintHandler();
             print_handler.setOutFileName(config.getProperty("print_file"));
         }
-        else if (ArchCfg.isa_type == ISAType.DLX)
+        else if (context.getIsaType() == ISAType.DLX)
         {
             // set handler for printf and file management
-            DLXTrapHandler trap_handler = DLXTrapHandler.getInstance();
+            DLXTrapHandler trap_handler = context.getTrapHandler();
             trap_handler.setMemory(pipeline.getMainMemory());
 
             // not used, since DLX does not need a config file
@@ -161,50 +213,94 @@ public class OpenDLXSimulator
         }
 
         // Obtain the statistics object
-        stat = Statistics.getInstance();
+        stat = context.getStatistics();
         stat.setConfig(config);
 
         // Latches:
-        pipeline.setFetchDecodeLatch(new LinkedList<FetchDecodeData>());
-        pipeline.setDecodeExecuteLatch(new LinkedList<DecodeExecuteData>());
-        pipeline.setBranchPredictionFetchLatch(new LinkedList<BranchPredictionModuleFetchData>());
-        pipeline.setBranchPredictionExecuteLatch(new LinkedList<BranchPredictionModuleExecuteData>());
-        pipeline.setExecuteMemoryLatch(new LinkedList<ExecuteMemoryData>());
-        pipeline.setExecuteFetchLatch(new LinkedList<ExecuteFetchData>());
-        pipeline.setExecuteBranchPredictionLatch(new LinkedList<ExecuteBranchPredictionData>());
-        pipeline.setMemoryWriteBackLatch(new LinkedList<MemoryWritebackData>());
-        pipeline.setWriteBackLatch(new LinkedList<WriteBackData>());
+        createPipelineLatches();
 
-        pipeline.getFetchStage().setInputLatches(pipeline.getExecuteFetchLatch(), pipeline.getBranchPredictionFetchLatch());
+        pipeline.getRegisterSet().setStackPointer(new uint32(0));
 
-        pipeline.getDecodeStage().setInputLatch(pipeline.getFetchDecodeLatch());
+        initializePipelineLatches();
 
-        pipeline.getExecuteStage().setInputLatches(pipeline.getDecodeExecuteLatch(), pipeline.getBranchPredictionExecuteLatch());
-        pipeline.getExecuteStage().setForwardingLatches(pipeline.getExecuteMemoryLatch(), pipeline.getMemoryWriteBackLatch(), pipeline.getWriteBackLatch());
+        if (config.containsKey("trace_file"))
+        {
+            boolean compress = !config.containsKey("trace_compress") || (Integer.decode(config.getProperty("trace_compress")) != 0);
+            trace_writer = new TraceWriter(config.getProperty("trace_file"), compress);
+            pipeline.getWriteBackStage().setTraceWriter(trace_writer);
+        }
 
-        pipeline.getBranchPredictionModule().setInputLatches(pipeline.getExecuteBranchPredictionLatch(), pipeline.getFetchDecodeLatch());
+        sim_cycles = new Integer(config.getProperty("cycles"));
+        caught_break = false;
+        // the pipeline occupancy is only recorded on request, e.g. by the GUI
+        int cycle_log_window = ClockCycleLog.DEFAULT_WINDOW;
+        if (config.containsKey("clock_cycle_log_window"))
+        {
+            cycle_log_window = Integer.decode(config.getProperty("clock_cycle_log_window"));
+        }
+        context.getClockCycleLog().configure(config.containsKey("clock_cycle_log") && (Integer.decode(config.getProperty("clock_cycle_log")) != 0),
+                cycle_log_window, config.getProperty("clock_cycle_log_spill"));
 
-        pipeline.getMemoryStage().setInputLatch(pipeline.getExecuteMemoryLatch());
+        // the typed events of the stages and caches are rendered by the logger "EVENTS"
+        int event_log_size = EventLog.DEFAULT_CAPACITY;
+        if (config.containsKey("event_log_size"))
+        {
+            event_log_size = Integer.decode(config.getProperty("event_log_size"));
+        }
+        EventLog event_log = context.getEventLog();
+        event_log.configure(config.containsKey("event_log") && (Integer.decode(config.getProperty("event_log")) != 0),
+                event_log_size, !config.containsKey("event_log_render") || (Integer.decode(config.getProperty("event_log_render")) != 0));
+        if (pipeline.getInstructionMemory().getCache() != null)
+        {
+            pipeline.getInstructionMemory().getCache().setEventLog(event_log);
+        }
+        if (pipeline.getDataMemory().getCache() != null)
+        {
+            pipeline.getDataMemory().getCache().setEventLog(event_log);
+        }
 
-        pipeline.getWriteBackStage().setInputLatch(pipeline.getMemoryWriteBackLatch());
+        // the host time of the pipeline stages is only measured on request, it is reported with the statistics
+        if (config.containsKey("stage_profile") && (Integer.decode(config.getProperty("stage_profile")) != 0))
+        {
+            int sample_interval = StageProfiler.DEFAULT_SAMPLE_INTERVAL;
+            if (config.containsKey("stage_profile_sample_interval"))
+            {
+                sample_interval = Integer.decode(config.getProperty("stage_profile_sample_interval"));
+            }
+            stage_profiler = new StageProfiler(sample_interval);
+        }
+        stat.setStageProfiler(stage_profiler);
 
-        pipeline.getRegisterSet().setStackPointer(new uint32(0));
+        // delayed memory requests stall the whole pipeline, this is only checked if the main memory has a latency
+        memory_stalls = (pipeline.getMainMemory().getLatency() != 0);
+        // the cycles of a stall are skipped at once, unless "memory_stall_skip" is 0
+        skip_memory_stalls = memory_stalls && (!config.containsKey("memory_stall_skip") || (Integer.decode(config.getProperty("memory_stall_skip")) != 0));
 
-        initializePipelineLatches();
+        prepareSimulation(parent);
 
-        sim_cycles = new Integer(config.getProperty("cycles"));
-        caught_break = false;
-        ClockCycleLog.log.clear();
-        ClockCycleLog.code.clear();
+        // the throughput and the run control are exposed over JMX if "jmx_metrics" is set
+        if (config.containsKey("jmx_metrics") && (Integer.decode(config.getProperty("jmx_metrics")) != 0))
+        {
+            metrics = new SimulatorMetrics(sim_cycles);
+            metrics.publish(stat);
+            metrics.register(new File(config.getProperty("file")).getName());
+        }
     }
 
-    public OpenDLXSimulator(File args) throws PipelineException
+    /**
+     * Loads the configuration file, errors are reported and result in an
+     * empty configuration.
+     *
+     * @param cfg_file The configuration file.
+     * @return The loaded configuration.
+     */
+    public static Properties loadConfig(String cfg_file)
     {
-        config = new Properties();
+        Properties config = new Properties();
 
         try
         {
-            config.load(new FileInputStream(args.getAbsolutePath()));
+            config.load(new FileInputStream(cfg_file));
         }
         catch (FileNotFoundException e)
         {
@@ -214,115 +310,288 @@ public class OpenDLXSimulator
         {
             e.printStackTrace();
         }
+        return config;
+    }
 
+    /**
+     * Takes over the state of the forked simulator, or restores the
+     * checkpoint given by "checkpoint_restore" or fast forwards the program.
+     * If "checkpoint_save" is given, a checkpoint is written before the
+     * cycle "checkpoint_save_cycle" (default 0) is simulated.
+     *
+     * @param parent The simulator that is forked, or null.
+     * @throws PipelineException
+     */
+    private void prepareSimulation(OpenDLXSimulator parent) throws PipelineException
+    {
+        if (config.containsKey("checkpoint_save"))
+        {
+            checkpoint_save_file = config.getProperty("checkpoint_save");
+            checkpoint_save_cycle = 0;
+            if (config.containsKey("checkpoint_save_cycle"))
+            {
+                checkpoint_save_cycle = Integer.decode(config.getProperty("checkpoint_save_cycle"));
+            }
+        }
 
-        setDefaultConfigParameters(config);
-
-        ArchCfg.registerArchitectureConfig(config);
+        if (parent != null)
+        {
+            Checkpoint.transfer(parent.pipeline, parent.clock_cycle, pipeline);
+            clock_cycle = parent.clock_cycle;
+            caught_break = parent.caught_break;
+            finished = parent.finished;
+        }
+        else if (config.containsKey("checkpoint_restore"))
+        {
+            restoreCheckpoint(config.getProperty("checkpoint_restore"));
+        }
+        else
+        {
+            fastForward();
+        }
+    }
 
-        System.out.println("Configuration is: " + config.toString());
+    /**
+     * Creates a copy of the simulator at the current cycle, e.g. to continue
+     * a warmed up simulation with different configurations. The copy shares
+     * the unmodified pages of the main memory with this simulator, the other
+     * state is copied like for a checkpoint. Thus the pipeline organization
+     * has to stay the same, while caches and branch prediction of a
+     * different organization start cold. Output files like "trace_file"
+     * should be overridden for the fork, "jmx_metrics" is only taken from
+     * the overrides.
+     *
+     * The simulator must not be stepped while it is forked, afterwards the
+     * simulators can be run by different threads if their contexts differ.
+     *
+     * @param overrides The configuration parameters that differ for the fork, or null.
+     * @param context The context of the fork.
+     * @return The forked simulator.
+     * @throws PipelineException
+     */
+    public OpenDLXSimulator fork(Properties overrides, SimulationContext context) throws PipelineException
+    {
+        Properties fork_config = new Properties();
+        fork_config.putAll(config);
+        // the state is taken from this simulator
+        fork_config.remove("checkpoint_restore");
+        // forks are not registered over JMX, unless the overrides ask for it
+        fork_config.remove("jmx_metrics");
+        if (overrides != null)
+        {
+            fork_config.putAll(overrides);
+        }
+        return new OpenDLXSimulator(fork_config, context, this);
+    }
 
-        LoggerConfigurator.getInstance().configureLogger(config.getProperty("log4j"), config.getProperty("log_file"));
+    /**
+     * Writes the complete simulator state into a checkpoint file.
+     *
+     * @param file_name The checkpoint file.
+     * @throws PipelineException
+     */
+    public void saveCheckpoint(String file_name) throws PipelineException
+    {
+        Checkpoint.save(file_name, pipeline, clock_cycle);
+        context.getConsole().println("Saved checkpoint " + file_name + " at cycle " + clock_cycle + ".");
+    }
 
-        logger.info("Configuration is: " + config.toString());
-        logger.info("loading:" + config.getProperty("file"));
+    /**
+     * Resumes the simulation at the state of a checkpoint file, that was
+     * written for the same program and pipeline configuration.
+     *
+     * @param file_name The checkpoint file.
+     * @throws PipelineException
+     */
+    public void restoreCheckpoint(String file_name) throws PipelineException
+    {
+        clock_cycle = Checkpoint.restore(file_name, pipeline);
+        caught_break = false;
+        finished = false;
+        context.getConsole().println("Restored checkpoint " + file_name + " at cycle " + clock_cycle + ".");
+    }
 
+    /**
+     * Executes the program functionally until the address given by
+     * "fast_forward_until" or the number of instructions given by
+     * "fast_forward_instructions" is reached. Afterwards caches and branch
+     * prediction are warmed up, the statistics are reset and the cycle
+     * accurate simulation continues at the reached address.
+     *
+     * @throws PipelineException
+     */
+    private void fastForward() throws PipelineException
+    {
+        if (!config.containsKey("fast_forward_until") && !config.containsKey("fast_forward_instructions"))
+        {
+            return;
+        }
 
-        sim_cycles = new Integer(config.getProperty("cycles"));
+        long max_instructions = Long.MAX_VALUE;
+        if (config.containsKey("fast_forward_instructions"))
+        {
+            max_instructions = Long.decode(config.getProperty("fast_forward_instructions"));
+        }
 
-        pipeline = new PipelineContainer();
-        pipeline.setMainMemory(new MainMemory(config.getProperty("file"), stringToUint32(config.getProperty("code_start_addr")).getValue(), (short) stringToUint32(config.getProperty("memory_latency")).getValue()));
-        pipeline.setInstructionMemory(new InstructionMemory(pipeline.getMainMemory(), config));
-        pipeline.setDataMemory(new DataMemory(pipeline.getMainMemory(), config));
-        pipeline.setFetchStage(new Fetch(new uint32(stringToUint32(config.getProperty("entry_point"))), pipeline.getInstructionMemory()));
-        pipeline.setRegisterSet(new RegisterSet());
-        pipeline.setDecodeStage(new Decode(pipeline.getRegisterSet()));
-        pipeline.setExecuteStage(new Execute());
-        pipeline.setBranchPredictionModule(new BranchPredictionModule(config));
-        pipeline.setMemoryStage(new Memory(pipeline.getDataMemory()));
-        pipeline.setWriteBackStage(new WriteBack(pipeline.getRegisterSet()));
+        boolean stop_at_pc = config.containsKey("fast_forward_until");
+        int stop_pc = 0;
+        if (stop_at_pc)
+        {
+            stop_pc = stringToUint32(config.getProperty("fast_forward_until")).getValue();
+        }
 
-        if (ArchCfg.isa_type == ISAType.MIPS)
+        int warmup_events = 65536;
+        if (config.containsKey("fast_forward_warmup"))
         {
-            // set the output file for usage of printf
-            PrintHandler print_handler = PrintHandler.getInstance();
-            print_handler.setOutFileName(config.getProperty("print_file"));
+            warmup_events = Integer.decode(config.getProperty("fast_forward_warmup"));
         }
-        else if (ArchCfg.isa_type == ISAType.DLX)
+
+        // frequently executed blocks are translated into JVM classes, unless "fast_forward_translation_threshold" is 0
+        int translation_threshold = 16;
+        if (config.containsKey("fast_forward_translation_threshold"))
         {
-            // set handler for printf and file management
-            DLXTrapHandler trap_handler = DLXTrapHandler.getInstance();
-            trap_handler.setMemory(pipeline.getMainMemory());
+            translation_threshold = Integer.decode(config.getProperty("fast_forward_translation_threshold"));
+        }
 
-            // not used, since DLX does not need a config file
-            //trap_handler.setOutFileName(config.getProperty("print_file"));
+        FunctionalExecutor executor = new FunctionalExecutor(pipeline, warmup_events);
+        executor.setTranslationThreshold(translation_threshold);
+        long start = System.currentTimeMillis();
+        long instructions = executor.run(max_instructions, stop_at_pc, stop_pc);
+        long duration = System.currentTimeMillis() - start;
+
+        logger.info("Fast forwarded " + instructions + " instructions in " + duration + " ms to PC " + uint32.toHexString(executor.getPc()) + ", translated " + executor.getTranslatedBlocks() + " blocks");
+        context.getConsole().println("Fast forwarded " + instructions + " instructions to PC " + uint32.toHexString(executor.getPc()) + ".");
+
+        if (executor.getCaughtBreak())
+        {
+            caught_break = true;
+        }
+        else
+        {
+            executor.warmUp();
+            pipeline.getFetchStage().setPc(executor.getPc());
         }
 
-        // Obtain the statistics object
-        stat = Statistics.getInstance();
-        stat.setConfig(config);
+        // only count the cycle accurate part of the simulation
+        stat.resetCounters();
+    }
 
-        // Latches:
-        pipeline.setFetchDecodeLatch(new LinkedList<FetchDecodeData>());
-        pipeline.setDecodeExecuteLatch(new LinkedList<DecodeExecuteData>());
-        pipeline.setBranchPredictionFetchLatch(new LinkedList<BranchPredictionModuleFetchData>());
-        pipeline.setBranchPredictionExecuteLatch(new LinkedList<BranchPredictionModuleExecuteData>());
-        pipeline.setExecuteMemoryLatch(new LinkedList<ExecuteMemoryData>());
-        pipeline.setExecuteFetchLatch(new LinkedList<ExecuteFetchData>());
-        pipeline.setExecuteBranchPredictionLatch(new LinkedList<ExecuteBranchPredictionData>());
-        pipeline.setMemoryWriteBackLatch(new LinkedList<MemoryWritebackData>());
-        pipeline.setWriteBackLatch(new LinkedList<WriteBackData>());
+    /**
+     * Creates the fixed-slot latches and connects them to the pipeline stages.
+     *
+     * @throws PipelineException
+     */
+    private void createPipelineLatches() throws PipelineException
+    {
+        if (context.getIsaType() == ISAType.MIPS)
+        {
+            pipeline.createLatches(1);
+        }
+        else if (context.getIsaType() == ISAType.DLX)
+        {
+            if (context.getUseForwarding() == false)
+            {
+                // THE DLX pipeline has a delay of 2 cycles between execute and fetch.
+                // Such that 3 bubbles are between the branch instruction and its target instruction.
+                pipeline.createLatches(2);
+            }
+            else
+            {
+                pipeline.createLatches(1);
+            }
+        }
+        else
+        {
+            throw new PipelineException("Unknown ISA: " + context.getIsaType());
+        }
 
         pipeline.getFetchStage().setInputLatches(pipeline.getExecuteFetchLatch(), pipeline.getBranchPredictionFetchLatch());
+        pipeline.getFetchStage().setOutputLatch(pipeline.getFetchDecodeLatch());
 
         pipeline.getDecodeStage().setInputLatch(pipeline.getFetchDecodeLatch());
+        pipeline.getDecodeStage().setOutputLatch(pipeline.getDecodeExecuteLatch());
 
         pipeline.getExecuteStage().setInputLatches(pipeline.getDecodeExecuteLatch(), pipeline.getBranchPredictionExecuteLatch());
         pipeline.getExecuteStage().setForwardingLatches(pipeline.getExecuteMemoryLatch(), pipeline.getMemoryWriteBackLatch(), pipeline.getWriteBackLatch());
+        pipeline.getExecuteStage().setOutputLatches(pipeline.getExecuteMemoryLatch(), pipeline.getExecuteFetchLatch(), pipeline.getExecuteBranchPredictionLatch());
 
         pipeline.getBranchPredictionModule().setInputLatches(pipeline.getExecuteBranchPredictionLatch(), pipeline.getFetchDecodeLatch());
+        pipeline.getBranchPredictionModule().setOutputLatches(pipeline.getBranchPredictionFetchLatch(), pipeline.getBranchPredictionExecuteLatch());
 
         pipeline.getMemoryStage().setInputLatch(pipeline.getExecuteMemoryLatch());
+        pipeline.getMemoryStage().setOutputLatch(pipeline.getMemoryWriteBackLatch());
 
         pipeline.getWriteBackStage().setInputLatch(pipeline.getMemoryWriteBackLatch());
-
-        pipeline.getRegisterSet().setStackPointer(new uint32(0));
-
-        initializePipelineLatches();
-        ClockCycleLog.log.clear();
-        ClockCycleLog.code.clear();
+        pipeline.getWriteBackStage().setOutputLatch(pipeline.getWriteBackLatch());
     }
 
     public void step() throws PipelineException
     {
         if (clock_cycle < sim_cycles && !caught_break)
         {
-            logger.debug("-------------------");
-            logger.debug("Cycle " + clock_cycle + " start");
-            logger.debug("-------------------");
+            if ((checkpoint_save_file != null) && (clock_cycle == checkpoint_save_cycle))
+            {
+                saveCheckpoint(checkpoint_save_file);
+            }
 
-            caught_break = simulateCycle();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("-------------------");
+                logger.debug("Cycle " + clock_cycle + " start");
+                logger.debug("-------------------");
+            }
+
+            EventLog event_log = context.getEventLog();
+            if (event_log.isEnabled())
+            {
+                event_log.setCycle(clock_cycle);
+            }
 
-            logger.debug("-------------------");
-            logger.debug("Cycle " + clock_cycle + " end");
-            logger.debug("-------------------");
-            stat.countCycle();
+            if (skip_memory_stalls && (pipeline.getMemoryWaitCycles() > 1) && !context.getClockCycleLog().isEnabled())
+            {
+                skipMemoryStallCycles();
+            }
+            else
+            {
+                caught_break = simulateCycle();
+                stat.countCycle();
+            }
 
-            HashMap<uint32, String> h = new HashMap<>();
-            h.put(getPipeline().getFetchDecodeLatch().element().getPc(), GUI_CONST.FETCH);
-            h.put(getPipeline().getDecodeExecuteLatch().element().getPc(), GUI_CONST.DECODE);
-            h.put(getPipeline().getExecuteMemoryLatch().element().getPc(), GUI_CONST.EXECUTE);
-            h.put(getPipeline().getMemoryWriteBackLatch().element().getPc(), GUI_CONST.MEMORY);
-            h.put(getPipeline().getWriteBackLatch().element().getPc(), GUI_CONST.WRITEBACK);
-            ClockCycleLog.log.add(h);
-            ClockCycleLog.code.add(getPipeline().getFetchDecodeLatch().element().getPc());
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("-------------------");
+                logger.debug("Cycle " + clock_cycle + " end");
+                logger.debug("-------------------");
+            }
+
+            if ((metrics != null) && ((clock_cycle & SimulatorMetrics.PUBLISH_INTERVAL_MASK) == 0))
+            {
+                metrics.publish(stat);
+                if (metrics.checkControl())
+                {
+                    stopSimulation(false);
+                }
+            }
+
+            ClockCycleLog cycle_log = context.getClockCycleLog();
+            if (cycle_log.isEnabled())
+            {
+                cycle_log.add(pipeline.getFetchDecodeLatch().element().getPcValue(),
+                        pipeline.getDecodeExecuteLatch().element().getPcValue(),
+                        pipeline.getExecuteMemoryLatch().element().getPcValue(),
+                        pipeline.getMemoryWriteBackLatch().element().getPcValue(),
+                        pipeline.getWriteBackLatch().element().getPcValue());
+            }
         }
         else if (caught_break)
         {
-            LoggerConfigurator.getInstance().setLogLevel(Level.DEBUG);
+            if (context.isDefault())
+            {
+                LoggerConfigurator.getInstance().setLogLevel(Level.DEBUG);
+            }
 
             logger.info("Caught break instruction - stopping simulation.");
-            System.out.println("Caught break instruction after " + stat.getCycles() + " cycles. Stopped simulation.");
+            context.getConsole().println("Caught break instruction after " + stat.getCycles() + " cycles. Stopped simulation.");
 
             // -print out selected memory
             // -check assumptions of configuration file
@@ -331,10 +600,13 @@ public class OpenDLXSimulator
         }
         else
         {
-            LoggerConfigurator.getInstance().setLogLevel(Level.DEBUG);
+            if (context.isDefault())
+            {
+                LoggerConfigurator.getInstance().setLogLevel(Level.DEBUG);
+            }
 
             logger.info("Run to maximum cycle count ("+sim_cycles+")- stopping.");
-            System.out.println("Run to maximum cycle count (" + sim_cycles + ") stopping.");
+            context.getConsole().println("Run to maximum cycle count (" + sim_cycles + ") stopping.");
 
             finalizeSimulation(config, stat);
             finished = true;
@@ -343,6 +615,40 @@ public class OpenDLXSimulator
         clock_cycle++;
     }
 
+    /**
+     * Advances the clock over the cycles in which the whole pipeline only
+     * waits for pending memory requests. These cycles do not change the
+     * pipeline state, thus skipping them yields the same cycle counts as
+     * simulating them one by one. The skip ends before the maximum cycle
+     * count, before the cycle of a checkpoint to be saved, and at the cycle
+     * in which the JMX metrics are published.
+     */
+    private void skipMemoryStallCycles()
+    {
+        // the last wait cycle serves the requests and has to be simulated
+        int skip = Math.min(pipeline.getMemoryWaitCycles() - 1, sim_cycles - clock_cycle);
+        if ((checkpoint_save_file != null) && (checkpoint_save_cycle > clock_cycle))
+        {
+            skip = Math.min(skip, checkpoint_save_cycle - clock_cycle);
+        }
+        if (metrics != null)
+        {
+            // step() publishes the metrics at the last skipped cycle, it must not pass a publish interval
+            int next_publish_cycle = (clock_cycle + SimulatorMetrics.PUBLISH_INTERVAL_MASK) & ~SimulatorMetrics.PUBLISH_INTERVAL_MASK;
+            skip = Math.min(skip, next_publish_cycle - clock_cycle + 1);
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Skipping " + skip + " memory stall cycles");
+        }
+
+        pipeline.setMemoryWaitCycles(pipeline.getMemoryWaitCycles() - skip);
+        stat.countSkippedCycles(skip);
+        // the last skipped cycle is counted by step()
+        clock_cycle += skip - 1;
+    }
+
     /**
      * Simulates one cycle of the pipeline
      *
@@ -354,130 +660,101 @@ public class OpenDLXSimulator
     {
         boolean caught_break = false;
 
-        Queue<FetchDecodeData> fetch_decode_latch = pipeline.getFetchDecodeLatch();
-        Queue<DecodeExecuteData> decode_execute_latch = pipeline.getDecodeExecuteLatch();
-        Queue<BranchPredictionModuleFetchData> branchprediction_fetch_latch = pipeline.getBranchPredictionFetchLatch();
-        Queue<BranchPredictionModuleExecuteData> branchprediction_execute_latch = pipeline.getBranchPredictionExecuteLatch();
-        Queue<ExecuteMemoryData> execute_memory_latch = pipeline.getExecuteMemoryLatch();
-        Queue<ExecuteFetchData> execute_fetch_latch = pipeline.getExecuteFetchLatch();
-        Queue<ExecuteBranchPredictionData> execute_branchprediction_latch = pipeline.getExecuteBranchPredictionLatch();
-        Queue<MemoryWritebackData> memory_writeback_latch = pipeline.getMemoryWriteBackLatch();
-        Queue<WriteBackData> writeback_latch = pipeline.getWriteBackLatch();
+        PipelineLatch<FetchDecodeData> fetch_decode_latch = pipeline.getFetchDecodeLatch();
+        PipelineLatch<DecodeExecuteData> decode_execute_latch = pipeline.getDecodeExecuteLatch();
+        PipelineLatch<ExecuteMemoryData> execute_memory_latch = pipeline.getExecuteMemoryLatch();
+        PipelineLatch<MemoryWritebackData> memory_writeback_latch = pipeline.getMemoryWriteBackLatch();
+        PipelineLatch<WriteBackData> writeback_latch = pipeline.getWriteBackLatch();
 
         // Pipeline stage output data objects:
         FetchOutputData fod;
-        DecodeOutputData dod;
-        BranchPredictionModuleOutputData bpmod;
         ExecuteOutputData eod;
-        MemoryOutputData mod;
         WritebackOutputData wod;
 
-        // there is only one entry in the latch!
-        if (fetch_decode_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in fetch/decode latch: " + fetch_decode_latch.size());
-        }
-        if (decode_execute_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in decode/execute latch: " + decode_execute_latch.size());
-        }
-        if (branchprediction_fetch_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in branchprediction/fetch latch: " + branchprediction_fetch_latch.size());
-        }
-        if (branchprediction_execute_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in branchprediction/execute latch: " + branchprediction_execute_latch.size());
-        }
-        if (execute_memory_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in execute/memory latch: " + execute_memory_latch.size());
-        }
-
-        if (ArchCfg.isa_type == ISAType.MIPS)
-        {
-            if (execute_fetch_latch.size() != 1)
-            {
-                throw new PipelineException("Wrong number of entries in execute/fetch latch: " + execute_fetch_latch.size());
-            }
-        }
-        else if (ArchCfg.isa_type == ISAType.DLX)
-        {
-            if (ArchCfg.use_forwarding == false)
-            {
-                // THE DLX pipeline has a delay of 2 cycles between execute and fetch.
-                // Such that 3 bubbles are between the branch instruction and its target instruction.
-                if (execute_fetch_latch.size() != 2)
-                {
-                    throw new PipelineException("Wrong number of entries in execute/fetch latch: " + execute_fetch_latch.size());
-                }
-            }
-            else
-            {
-                if (execute_fetch_latch.size() != 1)
-                {
-                    throw new PipelineException("Wrong number of entries in execute/fetch latch: " + execute_fetch_latch.size());
-                }
-            }
-        }
-        else
-        {
-            throw new PipelineException("Unknown ISA: " + ArchCfg.isa_type);
-        }
-
+        // The number of entries in the latches is fixed by construction
+        // (see PipelineContainer.createLatches()). Every stage writes its
+        // output into the spare record of its output latch, the latches are
+        // shifted at the end of the cycle.
 
-        if (execute_branchprediction_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in execute/branchprediction latch: " + execute_branchprediction_latch.size());
-        }
-        if (memory_writeback_latch.size() != 1)
-        {
-            throw new PipelineException("Wrong number of entries in memory/writeback latch: " + memory_writeback_latch.size());
-        }
-        if (writeback_latch.size() != 1)
+        if (memory_stalls && stallForMemory())
         {
-            throw new PipelineException("Wrong number of entries in writeback latch: " + writeback_latch.size());
+            return false;
         }
 
         boolean stall = false;
+        boolean profile = (stage_profiler != null) && stage_profiler.beginCycle();
 
         // FETCH STAGE
         // flush the decode on jump
         // flush the execute when a conditional "likely" branch is not taken
         fod = pipeline.getFetchStage().doCycle();
         // FETCH STAGE
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.FETCH);
+        }
 
         // LATCH
         if (fod.getFlush()[PipelineConstants.DECODE_STAGE])
         {
-            logger.debug("Flushed DECODE PC: " + fetch_decode_latch.element().getPc().getValueAsHexString() + " " + fetch_decode_latch.element().getInstr().getValueAsHexString());
+            if (context.getEventLog().isEnabled())
+            {
+                context.getEventLog().record(EventType.FLUSH_DECODE, fetch_decode_latch.element().getPcValue(), 0, fetch_decode_latch.element().getInstrValue());
+            }
             fetch_decode_latch.element().flush();
         }
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.LATCHES);
+        }
 
         // DECODE STAGE
-        dod = pipeline.getDecodeStage().doCycle();
+        pipeline.getDecodeStage().doCycle();
         // DECODE STAGE
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.DECODE);
+        }
 
         // LATCH
         if (fod.getFlush()[PipelineConstants.EXECUTE_STAGE])
         {
-            logger.debug("Flushed EXECUTE PC: " + decode_execute_latch.element().getPc().getValueAsHexString() + " " + decode_execute_latch.element().getInst().toString());
+            if (context.getEventLog().isEnabled())
+            {
+                context.getEventLog().record(EventType.FLUSH_EXECUTE, decode_execute_latch.element().getPcValue(), 0, decode_execute_latch.element().getInst().getInstr().getValue());
+            }
             decode_execute_latch.element().flush();
         }
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.LATCHES);
+        }
 
         // EXECUTE STAGE
         eod = pipeline.getExecuteStage().doCycle();
         // EXECUTE STAGE
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.EXECUTE);
+        }
 
         // LATCH
 
         // BRANCH PREDICTOR MODULE: lookup for jump target and update prediction tables
-        bpmod = pipeline.getBranchPredictionModule().doCycle();
+        pipeline.getBranchPredictionModule().doCycle();
         // BRANCH PREDICTOR MODULE: lookup for jump target and update prediction tables
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.BRANCH_PREDICTION);
+        }
 
         // MEMORY STAGE
-        mod = pipeline.getMemoryStage().doCycle();
+        pipeline.getMemoryStage().doCycle();
         // MEMORY STAGE
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.MEMORY);
+        }
 
         // LATCH
 
@@ -485,6 +762,10 @@ public class OpenDLXSimulator
         wod = pipeline.getWriteBackStage().doCycle();
         caught_break = wod.getCaughtBreak();
         // WRITE BACK STAGE
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.WRITEBACK);
+        }
 
         if (!stall)
         {
@@ -492,51 +773,74 @@ public class OpenDLXSimulator
             // the a bubble needs to be inserted, since no forwarding is possible in the load delay slot
             if (eod.getStall()[PipelineConstants.FETCH_STAGE] && eod.getStall()[PipelineConstants.DECODE_STAGE] && eod.getStall()[PipelineConstants.EXECUTE_STAGE])
             {
-                logger.debug("Stalling IF, ID, and EX because of load dependency for PC: " + decode_execute_latch.element().getPc().getValueAsHexString());
+                if (context.getEventLog().isEnabled())
+                {
+                    context.getEventLog().record(EventType.LOAD_STALL, decode_execute_latch.element().getPcValue(), 0, 0);
+                }
                 // leave FETCH, DECODE, and EXECUTE untouched
 
                 // let the other latches running
-                memory_writeback_latch.remove();
-                writeback_latch.remove();
-
-                memory_writeback_latch.add(mod.getMwd());
-                writeback_latch.add(wod.getWbd());
+                memory_writeback_latch.shift();
+                writeback_latch.shift();
 
                 // kick out the memory load instruction (since it was executed)
                 execute_memory_latch.element().flush();
             }
             else
             {
-                // remove input from latches
-                fetch_decode_latch.remove();
-                decode_execute_latch.remove();
-                branchprediction_fetch_latch.remove();
-                branchprediction_execute_latch.remove();
-                execute_memory_latch.remove();
-                execute_fetch_latch.remove();
-                execute_branchprediction_latch.remove();
-                memory_writeback_latch.remove();
-                writeback_latch.remove();
-
-                // push output into latches
-                fetch_decode_latch.add(fod.getFdd());
-                decode_execute_latch.add(dod.getDed());
-                branchprediction_fetch_latch.add(bpmod.getBpmfd());
-                branchprediction_execute_latch.add(bpmod.getBpmed());
-                execute_memory_latch.add(eod.getEmd());
-                execute_fetch_latch.add(eod.getEfd());
-                execute_branchprediction_latch.add(eod.getEbd());
-                memory_writeback_latch.add(mod.getMwd());
-                writeback_latch.add(wod.getWbd());
+                // make the output of all stages visible in the latches
+                pipeline.shiftLatches();
 
                 // increase PC synchronously and if only if the FETCH is not stalled
                 pipeline.getFetchStage().increasePC();
             }
         }
 
+        if (profile)
+        {
+            stage_profiler.mark(StageProfiler.LATCHES);
+        }
+
         return caught_break;
     }
 
+    /**
+     * Checks whether the pipeline has to wait for the instruction fetch and
+     * the data access of the current cycle. The whole pipeline is stalled
+     * until both requests are served, thus the stall cycles do not change
+     * any pipeline state.
+     *
+     * @return true if the pipeline is stalled in the current cycle, else
+     * false.
+     */
+    private boolean stallForMemory() throws PipelineException
+    {
+        int wait = pipeline.getMemoryWaitCycles();
+        if (wait == 0)
+        {
+            // both requests are issued at the beginning of the cycle
+            wait = Math.max(pipeline.getFetchStage().getRequestDelay(), pipeline.getMemoryStage().getRequestDelay());
+            if (wait == 0)
+            {
+                return false;
+            }
+        }
+        else if (wait == 1)
+        {
+            // the requests are served in this cycle
+            pipeline.setMemoryWaitCycles(0);
+            return false;
+        }
+        else
+        {
+            wait--;
+        }
+
+        pipeline.setMemoryWaitCycles(wait);
+        stat.countMemoryStallCycle();
+        return true;
+    }
+
     public int getSimCycles()
     {
         return this.sim_cycles;
@@ -549,22 +853,18 @@ public class OpenDLXSimulator
 
     private void initializePipelineLatches()
     {
-        Queue<ExecuteFetchData> efl = pipeline.getExecuteFetchLatch();
-        Queue<FetchDecodeData> fdl = pipeline.getFetchDecodeLatch();
-        Queue<DecodeExecuteData> del = pipeline.getDecodeExecuteLatch();
-        Queue<BranchPredictionModuleFetchData> bpmfl = pipeline.getBranchPredictionFetchLatch();
-        Queue<BranchPredictionModuleExecuteData> bpmel = pipeline.getBranchPredictionExecuteLatch();
-        Queue<ExecuteMemoryData> eml = pipeline.getExecuteMemoryLatch();
-        Queue<ExecuteBranchPredictionData> ebl = pipeline.getExecuteBranchPredictionLatch();
-        Queue<MemoryWritebackData> mwl = pipeline.getMemoryWriteBackLatch();
-        Queue<WriteBackData> wbl = pipeline.getWriteBackLatch();
-
-        Decode d = new Decode(null);
-
-        uint32 zero = new uint32(0x0);
-        uint32[] zeros = new uint32[2];
-        zeros[0] = zero;
-        zeros[1] = zero;
+        PipelineLatch<ExecuteFetchData> efl = pipeline.getExecuteFetchLatch();
+        PipelineLatch<FetchDecodeData> fdl = pipeline.getFetchDecodeLatch();
+        PipelineLatch<DecodeExecuteData> del = pipeline.getDecodeExecuteLatch();
+        PipelineLatch<BranchPredictionModuleFetchData> bpmfl = pipeline.getBranchPredictionFetchLatch();
+        PipelineLatch<BranchPredictionModuleExecuteData> bpmel = pipeline.getBranchPredictionExecuteLatch();
+        PipelineLatch<ExecuteMemoryData> eml = pipeline.getExecuteMemoryLatch();
+        PipelineLatch<ExecuteBranchPredictionData> ebl = pipeline.getExecuteBranchPredictionLatch();
+        PipelineLatch<MemoryWritebackData> mwl = pipeline.getMemoryWriteBackLatch();
+        PipelineLatch<WriteBackData> wbl = pipeline.getWriteBackLatch();
+
+        Decode d = new Decode(null, context);
+
         Instruction bubble;
         try
         {
@@ -573,59 +873,40 @@ public class OpenDLXSimulator
         catch (PipelineException e)
         {
             e.printStackTrace();
-            bubble = new Instruction(zero);
+            bubble = new Instruction(new uint32(0x0));
         }
 
-        // add 1 bubbles into fetch stage (used for jumps)
-        ExecuteFetchData efd = new ExecuteFetchData(bubble, zero, zero, false, false);
-
-        efl.add(efd);
-        if ((ArchCfg.isa_type == ISAType.DLX) && (ArchCfg.use_forwarding == false))
+        // fill the bubbles into fetch stage (used for jumps)
+        // THE DLX pipeline without forwarding has a delay of 2 cycles between execute and fetch,
+        // i.e. the latch holds 2 entries.
+        for (int i = 0; i < efl.getDepth(); i++)
         {
-            // THE DLX pipeline has a delay of 2 cycles between execute and fetch.
-            // Such that 3 bubbles are between the branch instruction and its target instruction.
-            efl.add(efd);
+            efl.get(i).set(bubble, 0, 0, false, false);
         }
 
         // add 1 bubble into decode stage
-        FetchDecodeData fdd = new FetchDecodeData(zero, zero);
-
-        fdl.add(fdd);
+        fdl.element().flush();
 
         // add 1 bubble into execute stage
-        DecodeExecuteData ded = new DecodeExecuteData(bubble, zero, zero, zero, zero, zero, zero);
-
-        del.add(ded);
+        del.element().set(bubble, 0, 0, 0, 0, 0, 0);
 
         // add 1 bubble into branch predictor decision
-        BranchPredictionModuleFetchData bpmfd = new BranchPredictionModuleFetchData(false, zero, zero);
-
-        bpmfl.add(bpmfd);
+        bpmfl.element().set(false, 0, 0);
 
         // add 1 bubble into branch predictor decision
-        BranchPredictionModuleExecuteData bpmed = new BranchPredictionModuleExecuteData(false, zero, zero);
-
-        bpmel.add(bpmed);
+        bpmel.element().set(false, 0, 0);
 
         // add 1 bubble into memory stage
-        ExecuteMemoryData emd = new ExecuteMemoryData(bubble, zero, zeros, zero, false);
-
-        eml.add(emd);
+        eml.element().set(bubble, 0, 0, 0, 0, false);
 
         // add 1 bubble into the branch prediction module
-        ExecuteBranchPredictionData ebd = new ExecuteBranchPredictionData(bubble, zero, zero, false);
-
-        ebl.add(ebd);
+        ebl.element().set(bubble, 0, 0, false);
 
         // add 1 bubble into write back stage
-        MemoryWritebackData mwd = new MemoryWritebackData(bubble, zero, zeros, zero, false);
-
-        mwl.add(mwd);
+        mwl.element().set(bubble, 0, 0, 0, 0, false);
 
         // add 1 bubble into write back out buffer stage
-        WriteBackData wbd = new WriteBackData(bubble, zero, zeros, zero);
-
-        wbl.add(wbd);
+        wbl.element().set(bubble, 0, 0, 0, 0);
     }
 
     private void finalizeSimulation(Properties config, Statistics stat)
@@ -656,11 +937,26 @@ public class OpenDLXSimulator
 
         checkSpecialRegisterValues(config, pipeline.getRegisterSet());
 
+        closeTrace();
+        context.getClockCycleLog().close();
+        context.getEventLog().flush();
+        closeMetrics();
+
         // print out the stats from the simulation run
         stat.printStats();
+
+        // print out the hit rates of all analysed cache geometries
+        if (pipeline.getInstructionMemory().getStackDistanceProfiler() != null)
+        {
+            pipeline.getInstructionMemory().getStackDistanceProfiler().printReport();
+        }
+        if (pipeline.getDataMemory().getStackDistanceProfiler() != null)
+        {
+            pipeline.getDataMemory().getStackDistanceProfiler().printReport();
+        }
     }
 
-    private void setDefaultConfigParameters(Properties config) throws PipelineException
+    public static void setDefaultConfigParameters(Properties config) throws PipelineException
     {
         if (!config.containsKey("file"))
         {
@@ -801,6 +1097,11 @@ public class OpenDLXSimulator
         return pipeline;
     }
 
+    public SimulationContext getContext()
+    {
+        return context;
+    }
+
     public boolean isFinished()
     {
         return finished;
@@ -821,7 +1122,42 @@ public class OpenDLXSimulator
         {
             logger.info("Simulation stopped by user.");
         }
+        closeTrace();
+        context.getClockCycleLog().close();
+        context.getEventLog().flush();
+        closeMetrics();
         finished = true;
     }
 
+    /**
+     * Removes the JMX metrics of the simulator, e.g. when it is replaced
+     * before the simulation finished.
+     */
+    public void closeMetrics()
+    {
+        if (metrics != null)
+        {
+            metrics.publish(stat);
+            metrics.unregister();
+            metrics = null;
+        }
+    }
+
+    private void closeTrace()
+    {
+        if (trace_writer != null)
+        {
+            try
+            {
+                trace_writer.close();
+            }
+            catch (TraceException e)
+            {
+                logger.error(e.getMessage());
+            }
+            pipeline.getWriteBackStage().setTraceWriter(null);
+            trace_writer = null;
+        }
+    }
+
 }
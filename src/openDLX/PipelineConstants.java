@@ -112,6 +112,9 @@ public interface PipelineConstants
 	public static final uint32 PIPELINE_BUBBLE_INSTR = new uint32(0xffffffff);
 	public static final uint32 PIPELINE_BUBBLE_ADDR = new uint32(0xffffffff);
 	
+	// number of entries of the decode stage's instruction cache (power of two)
+	public static final int DECODE_CACHE_ENTRIES = 1024;
+	
 	public static final int ADDR_WIDTH = 32;
 	// DO NOT CHANGE THE WORD SIZE. IT HAS TO BE 4
 	public static final int WORD_SIZE = 4;
@@ -21,13 +21,13 @@
  ******************************************************************************/
 package openDLX;
 
-import java.util.Queue;
 import openDLX.datatypes.*;
 import openDLX.memory.DataMemory;
 import openDLX.memory.InstructionMemory;
 import openDLX.memory.MainMemory;
 
 public class PipelineContainer {
+	private SimulationContext context;
 	private MainMemory mem;
 	private InstructionMemory imem;
 	private DataMemory dmem;
@@ -38,16 +38,60 @@ public class PipelineContainer {
 	private BranchPredictionModule branch_prediction_module;
 	private Memory memory;
 	private WriteBack writeback;
-	private Queue<FetchDecodeData> fetch_decode_latch;
-	private Queue<DecodeExecuteData> decode_execute_latch;
-	private Queue<BranchPredictionModuleFetchData> branchprediction_fetch_latch;
-	private Queue<BranchPredictionModuleExecuteData> branchprediction_execute_latch;
-	private Queue<ExecuteMemoryData> execute_memory_latch;
-	private Queue<ExecuteFetchData> execute_fetch_latch;
-	private Queue<ExecuteBranchPredictionData> execute_branchprediction_latch;
-	private Queue<MemoryWritebackData> memory_writeback_latch;
-	private Queue<WriteBackData> writeback_latch;
+	private PipelineLatch<FetchDecodeData> fetch_decode_latch;
+	private PipelineLatch<DecodeExecuteData> decode_execute_latch;
+	private PipelineLatch<BranchPredictionModuleFetchData> branchprediction_fetch_latch;
+	private PipelineLatch<BranchPredictionModuleExecuteData> branchprediction_execute_latch;
+	private PipelineLatch<ExecuteMemoryData> execute_memory_latch;
+	private PipelineLatch<ExecuteFetchData> execute_fetch_latch;
+	private PipelineLatch<ExecuteBranchPredictionData> execute_branchprediction_latch;
+	private PipelineLatch<MemoryWritebackData> memory_writeback_latch;
+	private PipelineLatch<WriteBackData> writeback_latch;
+	// remaining cycles of the memory requests the pipeline is waiting for
+	private int memory_wait_cycles = 0;
 	
+	/**
+	 * Creates the fixed-slot latches between the pipeline stages, every latch
+	 * holds one entry, except the execute/fetch latch that holds
+	 * executeFetchLatchDepth entries.
+	 * @param executeFetchLatchDepth Number of cycles between the execute and the fetch stage.
+	 */
+	public void createLatches(int executeFetchLatchDepth) {
+		fetch_decode_latch = new PipelineLatch<FetchDecodeData>(new FetchDecodeData[] {new FetchDecodeData(), new FetchDecodeData()});
+		decode_execute_latch = new PipelineLatch<DecodeExecuteData>(new DecodeExecuteData[] {new DecodeExecuteData(), new DecodeExecuteData()});
+		branchprediction_fetch_latch = new PipelineLatch<BranchPredictionModuleFetchData>(new BranchPredictionModuleFetchData[] {new BranchPredictionModuleFetchData(), new BranchPredictionModuleFetchData()});
+		branchprediction_execute_latch = new PipelineLatch<BranchPredictionModuleExecuteData>(new BranchPredictionModuleExecuteData[] {new BranchPredictionModuleExecuteData(), new BranchPredictionModuleExecuteData()});
+		execute_memory_latch = new PipelineLatch<ExecuteMemoryData>(new ExecuteMemoryData[] {new ExecuteMemoryData(), new ExecuteMemoryData()});
+		ExecuteFetchData[] efd_slots = new ExecuteFetchData[executeFetchLatchDepth + 1];
+		for(int i = 0; i < efd_slots.length; i++) {
+			efd_slots[i] = new ExecuteFetchData();
+		}
+		execute_fetch_latch = new PipelineLatch<ExecuteFetchData>(efd_slots);
+		execute_branchprediction_latch = new PipelineLatch<ExecuteBranchPredictionData>(new ExecuteBranchPredictionData[] {new ExecuteBranchPredictionData(), new ExecuteBranchPredictionData()});
+		memory_writeback_latch = new PipelineLatch<MemoryWritebackData>(new MemoryWritebackData[] {new MemoryWritebackData(), new MemoryWritebackData()});
+		writeback_latch = new PipelineLatch<WriteBackData>(new WriteBackData[] {new WriteBackData(), new WriteBackData()});
+	}
+	/**
+	 * Cycle boundary: makes the records written by all stages visible to their consumers.
+	 */
+	public void shiftLatches() {
+		fetch_decode_latch.shift();
+		decode_execute_latch.shift();
+		branchprediction_fetch_latch.shift();
+		branchprediction_execute_latch.shift();
+		execute_memory_latch.shift();
+		execute_fetch_latch.shift();
+		execute_branchprediction_latch.shift();
+		memory_writeback_latch.shift();
+		writeback_latch.shift();
+	}
+	
+	public SimulationContext getContext() {
+		return context;
+	}
+	public void setContext(SimulationContext context) {
+		this.context = context;
+	}
 	public MainMemory getMainMemory() {
 		return mem;
 	}
@@ -108,61 +152,72 @@ public class PipelineContainer {
 	public void setWriteBackStage(WriteBack writeback) {
 		this.writeback = writeback;
 	}
-	public Queue<FetchDecodeData> getFetchDecodeLatch() {
+	public PipelineLatch<FetchDecodeData> getFetchDecodeLatch() {
 		return fetch_decode_latch;
 	}
-	public void setFetchDecodeLatch(Queue<FetchDecodeData> fetch_decode_latch) {
+	public void setFetchDecodeLatch(PipelineLatch<FetchDecodeData> fetch_decode_latch) {
 		this.fetch_decode_latch = fetch_decode_latch;
 	}
-	public Queue<DecodeExecuteData> getDecodeExecuteLatch() {
+	public PipelineLatch<DecodeExecuteData> getDecodeExecuteLatch() {
 		return decode_execute_latch;
 	}
-	public void setDecodeExecuteLatch(Queue<DecodeExecuteData> decode_execute_latch) {
+	public void setDecodeExecuteLatch(PipelineLatch<DecodeExecuteData> decode_execute_latch) {
 		this.decode_execute_latch = decode_execute_latch;
 	}
-	public Queue<BranchPredictionModuleFetchData> getBranchPredictionFetchLatch() {
+	public PipelineLatch<BranchPredictionModuleFetchData> getBranchPredictionFetchLatch() {
 		return branchprediction_fetch_latch;
 	}
 	public void setBranchPredictionFetchLatch(
-			Queue<BranchPredictionModuleFetchData> branchprediction_fetch_latch) {
+			PipelineLatch<BranchPredictionModuleFetchData> branchprediction_fetch_latch) {
 		this.branchprediction_fetch_latch = branchprediction_fetch_latch;
 	}
-	public Queue<BranchPredictionModuleExecuteData> getBranchPredictionExecuteLatch() {
+	public PipelineLatch<BranchPredictionModuleExecuteData> getBranchPredictionExecuteLatch() {
 		return branchprediction_execute_latch;
 	}
 	public void setBranchPredictionExecuteLatch(
-			Queue<BranchPredictionModuleExecuteData> branchprediction_execute_latch) {
+			PipelineLatch<BranchPredictionModuleExecuteData> branchprediction_execute_latch) {
 		this.branchprediction_execute_latch = branchprediction_execute_latch;
 	}
-	public Queue<ExecuteMemoryData> getExecuteMemoryLatch() {
+	public PipelineLatch<ExecuteMemoryData> getExecuteMemoryLatch() {
 		return execute_memory_latch;
 	}
-	public void setExecuteMemoryLatch(Queue<ExecuteMemoryData> execute_memory_latch) {
+	public void setExecuteMemoryLatch(PipelineLatch<ExecuteMemoryData> execute_memory_latch) {
 		this.execute_memory_latch = execute_memory_latch;
 	}
-	public Queue<ExecuteFetchData> getExecuteFetchLatch() {
+	public PipelineLatch<ExecuteFetchData> getExecuteFetchLatch() {
 		return execute_fetch_latch;
 	}
-	public void setExecuteFetchLatch(Queue<ExecuteFetchData> execute_fetch_latch) {
+	public void setExecuteFetchLatch(PipelineLatch<ExecuteFetchData> execute_fetch_latch) {
 		this.execute_fetch_latch = execute_fetch_latch;
 	}
-	public Queue<ExecuteBranchPredictionData> getExecuteBranchPredictionLatch() {
+	public PipelineLatch<ExecuteBranchPredictionData> getExecuteBranchPredictionLatch() {
 		return execute_branchprediction_latch;
 	}
 	public void setExecuteBranchPredictionLatch(
-			Queue<ExecuteBranchPredictionData> execute_branchprediction_latch) {
+			PipelineLatch<ExecuteBranchPredictionData> execute_branchprediction_latch) {
 		this.execute_branchprediction_latch = execute_branchprediction_latch;
 	}
-	public Queue<MemoryWritebackData> getMemoryWriteBackLatch() {
+	public PipelineLatch<MemoryWritebackData> getMemoryWriteBackLatch() {
 		return memory_writeback_latch;
 	}
-	public void setMemoryWriteBackLatch(Queue<MemoryWritebackData> memory_writeback_latch) {
+	public void setMemoryWriteBackLatch(PipelineLatch<MemoryWritebackData> memory_writeback_latch) {
 		this.memory_writeback_latch = memory_writeback_latch;
 	}
-	public Queue<WriteBackData> getWriteBackLatch() {
+	public PipelineLatch<WriteBackData> getWriteBackLatch() {
 		return writeback_latch;
 	}
-	public void setWriteBackLatch(Queue<WriteBackData> writeback_latch) {
+	public void setWriteBackLatch(PipelineLatch<WriteBackData> writeback_latch) {
 		this.writeback_latch = writeback_latch;
 	}
+	/**
+	 * Returns the number of cycles until the pending instruction and data
+	 * memory requests are served, 0 if no request is pending and 1 if they
+	 * are served in the current cycle.
+	 */
+	public int getMemoryWaitCycles() {
+		return memory_wait_cycles;
+	}
+	public void setMemoryWaitCycles(int memory_wait_cycles) {
+		this.memory_wait_cycles = memory_wait_cycles;
+	}
 }
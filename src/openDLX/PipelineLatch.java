@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fixed-slot, double-buffered pipeline latch.
+ * 
+ * The latch owns depth+1 preallocated records. The oldest depth records are
+ * visible to the consuming stage through the usual Queue read methods
+ * (element(), peek(), iterator()), while the producing stage fills the spare
+ * record obtained by next(). At the cycle boundary shift() rotates the
+ * slots, so the written record becomes the youngest entry and the consumed
+ * one becomes the new spare. Hence no record is allocated while simulating
+ * and the number of entries can never diverge from the depth of the latch.
+ * 
+ * Adding or removing entries through the Queue interface is not supported.
+ */
+public class PipelineLatch<T> extends AbstractQueue<T>
+{
+	private final T[] slots;
+	private final int depth;
+	private int head;
+
+	/**
+	 * @param slots The preallocated records, the latch depth is slots.length-1
+	 */
+	public PipelineLatch(T[] slots)
+	{
+		if(slots.length < 2)
+		{
+			throw new IllegalArgumentException("A pipeline latch requires at least two slots.");
+		}
+		this.slots = slots;
+		this.depth = slots.length - 1;
+		this.head = 0;
+	}
+
+	/**
+	 * @return The spare record that is written by the producing stage in the current cycle.
+	 */
+	public T next()
+	{
+		return slots[(head + depth) % slots.length];
+	}
+
+	/**
+	 * Makes the record returned by next() the youngest entry of the latch and
+	 * releases the oldest entry as new spare record.
+	 */
+	public void shift()
+	{
+		head++;
+		if(head == slots.length)
+		{
+			head = 0;
+		}
+	}
+
+	/**
+	 * @param i Position of the entry, 0 is the oldest entry.
+	 * @return The entry at the given position.
+	 */
+	public T get(int i)
+	{
+		if((i < 0) || (i >= depth))
+		{
+			throw new IndexOutOfBoundsException("Latch entry " + i + " does not exist, depth is: " + depth);
+		}
+		return slots[(head + i) % slots.length];
+	}
+
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	@Override
+	public T element()
+	{
+		return slots[head];
+	}
+
+	@Override
+	public T peek()
+	{
+		return slots[head];
+	}
+
+	@Override
+	public int size()
+	{
+		return depth;
+	}
+
+	@Override
+	public boolean offer(T e)
+	{
+		throw new UnsupportedOperationException("Entries of a fixed-slot latch are written via next().");
+	}
+
+	@Override
+	public T poll()
+	{
+		throw new UnsupportedOperationException("Entries of a fixed-slot latch are released via shift().");
+	}
+
+	@Override
+	public Iterator<T> iterator()
+	{
+		return new Iterator<T>()
+		{
+			private int pos = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return pos < depth;
+			}
+
+			@Override
+			public T next()
+			{
+				if(pos >= depth)
+				{
+					throw new NoSuchElementException();
+				}
+				return get(pos++);
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -21,6 +21,10 @@
  ******************************************************************************/
 package openDLX;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 import openDLX.datatypes.*;
 
@@ -28,59 +32,85 @@ public class RegisterSet
 {
 	private static Logger logger = Logger.getLogger("REGISTERSET");
 	private final byte register_count = 32;
-	private uint32[] gp_registers;
-	private uint32 HI;
-	private uint32 LO;
+	private int[] gp_registers;
+	private int HI;
+	private int LO;
 	
 	public RegisterSet()
 	{
-		gp_registers = new uint32[register_count];
-		HI = new uint32();
-		LO = new uint32();
+		gp_registers = new int[register_count];
 		clearRegisters();
 	}
 	
 	public uint32 read(uint8 reg)
 	{
-		return new uint32(gp_registers[reg.getValue()].getValue());
+		return new uint32(gp_registers[reg.getValue()]);
+	}
+
+	public int read(int reg)
+	{
+		return gp_registers[reg];
+	}
+	
+	/**
+	 * @return The general purpose registers, they are directly accessed by translated blocks.
+	 */
+	int[] getRegisters()
+	{
+		return gp_registers;
 	}
 	
 	public void write(uint8 reg, uint32 value)
 	{
-		if(reg.getValue() == 0)
+		write(reg.getValue(), value.getValue());
+	}
+
+	public void write(int reg, int value)
+	{
+		if(reg == 0)
 		{
 			logger.error("Cannot write register 0");
 		}
 		else
 		{
-			gp_registers[reg.getValue()].setValue(value);
+			gp_registers[reg] = value;
 		}
 	}
 	
 	public uint32 read_SP(SpecialRegisters reg)
 	{
-		uint32 value = new uint32();
+		return new uint32(readSpecial(reg));
+	}
+
+	public int readSpecial(SpecialRegisters reg)
+	{
+		int value = 0;
 		switch(reg)
 		{
 		case HI:
-			value.setValue(HI);
+			value = HI;
 			break;
 		case LO:
-			value.setValue(LO);
+			value = LO;
 			break;
 		}
 		return value;
 	}
 	
 	public void write_SP(SpecialRegisters reg, uint32 value)
+	{
+		writeSpecial(reg, value.getValue());
+	}
+
+	public void writeSpecial(SpecialRegisters reg, int value)
 	{
 		switch(reg)
 		{
 		case HI:
-			HI.setValue(value);
+			HI = value;
 			break;
 		case LO:
-			LO.setValue(value);
+			LO = value;
 			break;
 		}
 	}
@@ -89,22 +119,25 @@ public class RegisterSet
 	{
 		for(byte i = 0; i < register_count; i++)
 		{
-			uint32 val = new uint32(0);
-			gp_registers[i] = val;
+			gp_registers[i] = 0;
 		}
-		HI = new uint32(0);
-		LO = new uint32(0);
+		HI = 0;
+		LO = 0;
 	}
 
 	public void printContent()
 	{
+		if(!logger.isDebugEnabled())
+		{
+			return;
+		}
 		logger.debug("   |  0             1             2             3             4             5             6             7            |");
 		logger.debug("---+-----------------------------------------------------------------------------------------------------------------+");
-		logger.debug(" 0 | " + ArchCfg.getRegisterDescription(0) + " " + gp_registers[0].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(1) + " " + gp_registers[1].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(2) + " " + gp_registers[2].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(3) + " " + gp_registers[3].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(4) + " " + gp_registers[4].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(5) + " " + gp_registers[5].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(6) + " " + gp_registers[6].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(7) + " " + gp_registers[7].getValueAsHexString() + " |");
-		logger.debug(" 8 | " + ArchCfg.getRegisterDescription(8) + " " + gp_registers[8].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(9) + " " + gp_registers[9].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(10) + " " + gp_registers[10].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(11) + " " + gp_registers[11].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(12) + " " + gp_registers[12].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(13) + " " + gp_registers[13].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(14) + " " + gp_registers[14].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(15) + " " + gp_registers[15].getValueAsHexString() + " |");
-		logger.debug("16 | " + ArchCfg.getRegisterDescription(16) + " " + gp_registers[16].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(17) + " " + gp_registers[17].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(18) + " " + gp_registers[18].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(19) + " " + gp_registers[19].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(20) + " " + gp_registers[20].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(21) + " " + gp_registers[21].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(22) + " " + gp_registers[22].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(23) + " " + gp_registers[23].getValueAsHexString() + " |");
-		logger.debug("24 | " + ArchCfg.getRegisterDescription(24) + " " + gp_registers[24].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(25) + " " + gp_registers[25].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(26) + " " + gp_registers[26].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(27) + " " + gp_registers[27].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(28) + " " + gp_registers[28].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(29) + " " + gp_registers[29].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(30) + " " + gp_registers[30].getValueAsHexString() + " " + ArchCfg.getRegisterDescription(31) + " " + gp_registers[31].getValueAsHexString() + " |");
-		logger.debug("SP | HI " + HI.getValueAsHexString() + " LO " + LO.getValueAsHexString() + "                                                                                     |");
+		logger.debug(" 0 | " + ArchCfg.getRegisterDescription(0) + " " + uint32.toHexString(gp_registers[0]) + " " + ArchCfg.getRegisterDescription(1) + " " + uint32.toHexString(gp_registers[1]) + " " + ArchCfg.getRegisterDescription(2) + " " + uint32.toHexString(gp_registers[2]) + " " + ArchCfg.getRegisterDescription(3) + " " + uint32.toHexString(gp_registers[3]) + " " + ArchCfg.getRegisterDescription(4) + " " + uint32.toHexString(gp_registers[4]) + " " + ArchCfg.getRegisterDescription(5) + " " + uint32.toHexString(gp_registers[5]) + " " + ArchCfg.getRegisterDescription(6) + " " + uint32.toHexString(gp_registers[6]) + " " + ArchCfg.getRegisterDescription(7) + " " + uint32.toHexString(gp_registers[7]) + " |");
+		logger.debug(" 8 | " + ArchCfg.getRegisterDescription(8) + " " + uint32.toHexString(gp_registers[8]) + " " + ArchCfg.getRegisterDescription(9) + " " + uint32.toHexString(gp_registers[9]) + " " + ArchCfg.getRegisterDescription(10) + " " + uint32.toHexString(gp_registers[10]) + " " + ArchCfg.getRegisterDescription(11) + " " + uint32.toHexString(gp_registers[11]) + " " + ArchCfg.getRegisterDescription(12) + " " + uint32.toHexString(gp_registers[12]) + " " + ArchCfg.getRegisterDescription(13) + " " + uint32.toHexString(gp_registers[13]) + " " + ArchCfg.getRegisterDescription(14) + " " + uint32.toHexString(gp_registers[14]) + " " + ArchCfg.getRegisterDescription(15) + " " + uint32.toHexString(gp_registers[15]) + " |");
+		logger.debug("16 | " + ArchCfg.getRegisterDescription(16) + " " + uint32.toHexString(gp_registers[16]) + " " + ArchCfg.getRegisterDescription(17) + " " + uint32.toHexString(gp_registers[17]) + " " + ArchCfg.getRegisterDescription(18) + " " + uint32.toHexString(gp_registers[18]) + " " + ArchCfg.getRegisterDescription(19) + " " + uint32.toHexString(gp_registers[19]) + " " + ArchCfg.getRegisterDescription(20) + " " + uint32.toHexString(gp_registers[20]) + " " + ArchCfg.getRegisterDescription(21) + " " + uint32.toHexString(gp_registers[21]) + " " + ArchCfg.getRegisterDescription(22) + " " + uint32.toHexString(gp_registers[22]) + " " + ArchCfg.getRegisterDescription(23) + " " + uint32.toHexString(gp_registers[23]) + " |");
+		logger.debug("24 | " + ArchCfg.getRegisterDescription(24) + " " + uint32.toHexString(gp_registers[24]) + " " + ArchCfg.getRegisterDescription(25) + " " + uint32.toHexString(gp_registers[25]) + " " + ArchCfg.getRegisterDescription(26) + " " + uint32.toHexString(gp_registers[26]) + " " + ArchCfg.getRegisterDescription(27) + " " + uint32.toHexString(gp_registers[27]) + " " + ArchCfg.getRegisterDescription(28) + " " + uint32.toHexString(gp_registers[28]) + " " + ArchCfg.getRegisterDescription(29) + " " + uint32.toHexString(gp_registers[29]) + " " + ArchCfg.getRegisterDescription(30) + " " + uint32.toHexString(gp_registers[30]) + " " + ArchCfg.getRegisterDescription(31) + " " + uint32.toHexString(gp_registers[31]) + " |");
+		logger.debug("SP | HI " + uint32.toHexString(HI) + " LO " + uint32.toHexString(LO) + "                                                                                     |");
 		logger.debug("---+-----------------------------------------------------------------------------------------------------------------+");
 	}
 	
@@ -115,7 +148,27 @@ public class RegisterSet
 
 	public void setStackPointer(uint32 sp)
 	{
-		gp_registers[29] = sp;
+		gp_registers[29] = sp.getValue();
+	}
+
+	public void saveState(DataOutput out) throws IOException
+	{
+		for(byte i = 0; i < register_count; i++)
+		{
+			out.writeInt(gp_registers[i]);
+		}
+		out.writeInt(HI);
+		out.writeInt(LO);
+	}
+
+	public void restoreState(DataInput in) throws IOException
+	{
+		for(byte i = 0; i < register_count; i++)
+		{
+			gp_registers[i] = in.readInt();
+		}
+		HI = in.readInt();
+		LO = in.readInt();
 	}
         
 }
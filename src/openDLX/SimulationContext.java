@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import openDLX.datatypes.ArchCfg;
+import openDLX.datatypes.ISAType;
+import openDLX.util.ClockCycleLog;
+import openDLX.util.DLXTrapHandler;
+import openDLX.util.EventLog;
+import openDLX.util.PrintHandler;
+import openDLX.util.Statistics;
+
+/**
+ * Holds the state that is shared by the components of one simulator: the
+ * architecture configuration, the statistics, the trap and print handlers,
+ * the clock cycle log, and the event log.
+ * 
+ * Every simulator that is created with its own context is independent of
+ * all other simulators, thus several simulators can run concurrently in one
+ * JVM. The default context uses the singletons (e.g.
+ * Statistics.getInstance()) and mirrors the architecture configuration into
+ * ArchCfg, it is used by the GUI.
+ */
+public class SimulationContext
+{
+	private static final SimulationContext default_context = new SimulationContext(Statistics.getInstance(), DLXTrapHandler.getInstance(), PrintHandler.getInstance(), new ClockCycleLog());
+
+	private final Statistics stat;
+	private final DLXTrapHandler trap_handler;
+	private final PrintHandler print_handler;
+	private final ClockCycleLog clock_cycle_log;
+	private final EventLog event_log = new EventLog();
+	private PrintStream console = System.out;
+	private ISAType isa_type = ArchCfg.isa_type;
+	private boolean use_forwarding = ArchCfg.use_forwarding;
+	private boolean use_load_stall_bubble = ArchCfg.use_load_stall_bubble;
+
+	/**
+	 * Creates a context that is independent of all other contexts.
+	 */
+	public SimulationContext()
+	{
+		this(new Statistics(), new DLXTrapHandler(), new PrintHandler(), new ClockCycleLog());
+	}
+
+	private SimulationContext(Statistics stat, DLXTrapHandler trap_handler, PrintHandler print_handler, ClockCycleLog clock_cycle_log)
+	{
+		this.stat = stat;
+		this.trap_handler = trap_handler;
+		this.print_handler = print_handler;
+		this.clock_cycle_log = clock_cycle_log;
+	}
+
+	/**
+	 * @return The context used by the GUI and by simulators that are created without a context.
+	 */
+	public static SimulationContext getDefault()
+	{
+		return default_context;
+	}
+
+	public boolean isDefault()
+	{
+		return this == default_context;
+	}
+
+	/**
+	 * Sets the ISA and the forwarding configuration of this context from the
+	 * simulator configuration.
+	 */
+	public void registerArchitectureConfig(Properties config)
+	{
+		isa_type = ArchCfg.stringToISAType(config.getProperty("isa_type"));
+		use_forwarding = ArchCfg.getUseForwardingCfg(isa_type, config);
+		use_load_stall_bubble = ArchCfg.getUseLoadStallBubble(isa_type, config);
+
+		if(isDefault())
+		{
+			// the GUI reads the configuration from ArchCfg
+			ArchCfg.registerArchitectureConfig(config);
+		}
+	}
+
+	public ISAType getIsaType()
+	{
+		return isa_type;
+	}
+
+	public boolean getUseForwarding()
+	{
+		return use_forwarding;
+	}
+
+	public boolean getUseLoadStallBubble()
+	{
+		return use_load_stall_bubble;
+	}
+
+	public Statistics getStatistics()
+	{
+		return stat;
+	}
+
+	public DLXTrapHandler getTrapHandler()
+	{
+		return trap_handler;
+	}
+
+	public PrintHandler getPrintHandler()
+	{
+		return print_handler;
+	}
+
+	public ClockCycleLog getClockCycleLog()
+	{
+		return clock_cycle_log;
+	}
+
+	public EventLog getEventLog()
+	{
+		return event_log;
+	}
+
+	/**
+	 * @return The stream for the messages of the simulator and the output of the simulated program.
+	 */
+	public PrintStream getConsole()
+	{
+		return console;
+	}
+
+	public void setConsole(PrintStream console)
+	{
+		this.console = console;
+		trap_handler.setConsole(console);
+	}
+
+	/**
+	 * Discards all messages of the simulator and the output of the simulated
+	 * program, e.g. if many simulations run concurrently.
+	 */
+	public void discardConsole()
+	{
+		setConsole(new PrintStream(new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+			}
+		}));
+	}
+}
@@ -24,6 +24,8 @@ package openDLX;
 import java.util.Queue;
 
 import openDLX.datatypes.*;
+import openDLX.exception.TraceException;
+import openDLX.trace.TraceWriter;
 import openDLX.util.Statistics;
 
 import org.apache.log4j.Logger;
@@ -31,13 +33,19 @@ import org.apache.log4j.Logger;
 public class WriteBack
 {
 	private static Logger logger = Logger.getLogger("WRITEBACK");
-	private Statistics stat = Statistics.getInstance();
+	private SimulationContext context;
+	private Statistics stat;
 	private RegisterSet reg_set;
 	private Queue<MemoryWritebackData> memory_writeback_latch;
+	private PipelineLatch<WriteBackData> writeback_latch;
+	private final WritebackOutputData wod = new WritebackOutputData(null, false);
+	private TraceWriter trace_writer = null;
 
-	public WriteBack(RegisterSet reg_set)
+	public WriteBack(RegisterSet reg_set, SimulationContext context)
 	{
 		this.reg_set = reg_set;
+		this.context = context;
+		stat = context.getStatistics();
 	}
 
 	public void setInputLatch(Queue<MemoryWritebackData> memoryWritebackLatch)
@@ -45,34 +53,50 @@ public class WriteBack
 		memory_writeback_latch = memoryWritebackLatch;
 	}
 
-	public WritebackOutputData doCycle()
+	public void setOutputLatch(PipelineLatch<WriteBackData> writebackLatch)
+	{
+		writeback_latch = writebackLatch;
+	}
+
+	/**
+	 * @param traceWriter Receives every retired instruction, or null to disable tracing.
+	 */
+	public void setTraceWriter(TraceWriter traceWriter)
+	{
+		trace_writer = traceWriter;
+	}
+
+	/**
+	 * Checks if the instruction finishes the simulation.
+	 * @return true for a MIPS BREAK or a DLX TRAP 0.
+	 */
+	boolean checkBreak(Instruction inst, int alu_outLO)
 	{
-		MemoryWritebackData mwd = memory_writeback_latch.element();
-		uint32[] alu_out = mwd.getAluOut();
-		uint32 alu_outLO = alu_out[0];
-		uint32 alu_outHI = alu_out[1];
-		uint32 ld_result = mwd.getLdResult();
-		Instruction inst = mwd.getInst();
-		uint32 pc = mwd.getPc();
-		boolean jump = mwd.getJump();
 		boolean caught_break = false;
 
-		if((ArchCfg.isa_type == ISAType.MIPS) && (inst.getOpNormal() == OpcodeNORMAL.SPECIAL) && (inst.getOpSpecial() == OpcodeSPECIAL.BREAK))
+		if((context.getIsaType() == ISAType.MIPS) && (inst.getOpNormal() == OpcodeNORMAL.SPECIAL) && (inst.getOpSpecial() == OpcodeSPECIAL.BREAK))
 		{
 			logger.info("Caught BREAK instruction - finishing simulation.");
 			caught_break = true;
 		}
-		if((ArchCfg.isa_type == ISAType.DLX) && (inst.getOpNormal() == OpcodeNORMAL.SPECIAL) && (inst.getOpSpecial() == OpcodeSPECIAL.TRAP) && (alu_outLO.getValue() == PipelineConstants.DLX_TRAP_STOP))
+		if((context.getIsaType() == ISAType.DLX) && (inst.getOpNormal() == OpcodeNORMAL.SPECIAL) && (inst.getOpSpecial() == OpcodeSPECIAL.TRAP) && (alu_outLO == PipelineConstants.DLX_TRAP_STOP))
 		{
 			logger.info("Caught TRAP 0 - finishing simulation.");
 			caught_break = true;
 		}
+		return caught_break;
+	}
 
+	/**
+	 * Writes the results of an instruction into the register set.
+	 * @return true if a register was written.
+	 */
+	boolean writeResults(Instruction inst, int pc, int alu_outLO, int alu_outHI, int ld_result, boolean jump)
+	{
 		boolean regWrite = false;
-		uint8 regWriteSelect = new uint8(0);
-		uint32 regWriteValue = new uint32(0);
+		int regWriteSelect = 0;
+		int regWriteValue = 0;
 
-		logger.info("PC: " + pc.getValueAsHexString());
 		if (inst.getLoad())
 		{
 			// write load result into the register
@@ -81,7 +105,7 @@ public class WriteBack
 		else if(inst.getBranchAndLink())
 		{
 			// write return address into the return address register (RA, reg 31)
-			regWriteValue = new uint32(pc.getValue() + 8);
+			regWriteValue = pc + 8;
 		}
 		else
 		{
@@ -96,26 +120,29 @@ public class WriteBack
 			if((!inst.getBranchAndLink()) || (inst.getBranchAndLink() && jump))
 			{
 				regWrite = true;
-				regWriteSelect = inst.getRd();
+				regWriteSelect = inst.getRd().getValue();
 			}
 		}
 		else if (inst.getWriteRt())
 		{
 			// write the register RD (only for non branches)
 			regWrite = true;
-			regWriteSelect = inst.getRt();
+			regWriteSelect = inst.getRt().getValue();
 		}
 
 		if (regWrite)
 		{
-			if(regWriteSelect.getValue() != 0)
+			if(regWriteSelect != 0)
 			{
-				logger.debug("writing: " + regWriteValue.getValueAsHexString() + " to register " + regWriteSelect.getValue() + "/" + ArchCfg.getRegisterDescription(regWriteSelect.getValue()));
+				if(logger.isDebugEnabled())
+				{
+					logger.debug("writing: " + uint32.toHexString(regWriteValue) + " to register " + regWriteSelect + "/" + ArchCfg.getRegisterDescription(regWriteSelect));
+				}
 				reg_set.write(regWriteSelect, regWriteValue);
 			}
-			else
+			else if(logger.isInfoEnabled())
 			{
-				logger.info("suppressing writing of register 0/" + ArchCfg.getRegisterDescription(0) + " with value: " + regWriteValue.getValueAsHexString());
+				logger.info("suppressing writing of register 0/" + ArchCfg.getRegisterDescription(0) + " with value: " + uint32.toHexString(regWriteValue));
 			}
 		}
 
@@ -124,32 +151,68 @@ public class WriteBack
 			regWrite = true;
 			if (inst.getWriteLO())
 			{
-				logger.debug("writing: " + alu_outLO.getValueAsHexString() + " to register " + SpecialRegisters.LO);
-				reg_set.write_SP(SpecialRegisters.LO, alu_outLO);
+				if(logger.isDebugEnabled())
+				{
+					logger.debug("writing: " + uint32.toHexString(alu_outLO) + " to register " + SpecialRegisters.LO);
+				}
+				reg_set.writeSpecial(SpecialRegisters.LO, alu_outLO);
 			}
 
 			if (inst.getWriteHI())
 			{
-				logger.debug("writing: " + alu_outHI.getValueAsHexString() + " to register " + SpecialRegisters.HI);
-				reg_set.write_SP(SpecialRegisters.HI, alu_outHI);
+				if(logger.isDebugEnabled())
+				{
+					logger.debug("writing: " + uint32.toHexString(alu_outHI) + " to register " + SpecialRegisters.HI);
+				}
+				reg_set.writeSpecial(SpecialRegisters.HI, alu_outHI);
 			}
 		}
+		return regWrite;
+	}
+
+	public WritebackOutputData doCycle() throws TraceException
+	{
+		MemoryWritebackData mwd = memory_writeback_latch.element();
+		int alu_outLO = mwd.getAluOutLO();
+		int alu_outHI = mwd.getAluOutHI();
+		int ld_result = mwd.getLdResultValue();
+		Instruction inst = mwd.getInst();
+		int pc = mwd.getPcValue();
+		boolean jump = mwd.getJump();
+		boolean caught_break = checkBreak(inst, alu_outLO);
+
+		if(logger.isInfoEnabled())
+		{
+			logger.info("PC: " + uint32.toHexString(pc));
+		}
+		boolean regWrite = writeResults(inst, pc, alu_outLO, alu_outHI, ld_result, jump);
 
 		if (regWrite)
 		{
 			reg_set.printContent();
 		}
 		
+		// bubbles and flushed instructions carry the bubble instruction word,
+		// flushed instructions are not decoded and thus no NOP
+		boolean bubble = (inst.getInstr().getValue() == PipelineConstants.PIPELINE_BUBBLE_INSTR.getValue());
+
 		// count all instructions that are no NOP
 		// TODO: This only works, because the write back currently cannot be stalled
-		if(inst.getOpNormal() != OpcodeNORMAL.NOP)
+		if((inst.getOpNormal() != OpcodeNORMAL.NOP) && !bubble)
 		{
 			stat.countInstruction();
 		}
 		
-		WriteBackData wbd = new WriteBackData(inst, pc, alu_out, ld_result);
+		if((trace_writer != null) && !bubble)
+		{
+			trace_writer.record(pc, inst, alu_outLO, jump);
+		}
+
+		WriteBackData wbd = writeback_latch.next();
+		wbd.set(inst, pc, alu_outLO, alu_outHI, ld_result);
+		wod.set(wbd, caught_break);
 		
-		return new WritebackOutputData(wbd, caught_break);
+		return wod;
 
 	}
 
@@ -58,4 +58,11 @@ public interface BranchPredictor
 	 * Resets the branch predictor to its initial state
 	 */
 	public void reset();
+	
+	/**
+	 * Sets the internal state of the predictor, used to restore a checkpoint
+	 * @param state The state previously returned by getState()
+	 * @throws BranchPredictionException 
+	 */
+	public void setState(BranchPredictorState state) throws BranchPredictionException;
 }
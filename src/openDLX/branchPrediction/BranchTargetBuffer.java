@@ -21,6 +21,10 @@
  ******************************************************************************/
 package openDLX.branchPrediction;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 import openDLX.datatypes.BranchPredictorState;
 import openDLX.datatypes.BranchPredictorType;
@@ -278,4 +282,52 @@ public class BranchTargetBuffer
 		return new uint32(branch_targets[getIndexForBranchPc(branch_pc)]);
 	}
 	
+	/**
+	 * Describes the organization of the branch target buffer, a saved state can only be restored into a branch target buffer with the same organization.
+	 * @return The size, the predictor type, and the overwrite behavior of the branch target buffer
+	 */
+	public String getOrganization()
+	{
+		return btb_size + " " + predictor_type + " " + reset_predictor_on_overwrite;
+	}
+	
+	/**
+	 * Writes all entries of the branch target buffer including the predictor states for a checkpoint.
+	 * @param out The checkpoint stream
+	 * @throws IOException
+	 */
+	public void saveState(DataOutput out) throws IOException
+	{
+		for(int i = 0; i < btb_size; i++)
+		{
+			out.writeBoolean(branch_entry_valid[i]);
+			out.writeInt(branch_addresses[i].getValue());
+			out.writeInt(branch_targets[i].getValue());
+			out.writeByte(branch_predictors[i].getState().ordinal());
+		}
+	}
+	
+	/**
+	 * Restores all entries of the branch target buffer that were written by saveState() of a branch target buffer with the same organization.
+	 * @param in The checkpoint stream
+	 * @throws IOException
+	 * @throws BranchPredictionException
+	 */
+	public void restoreState(DataInput in) throws IOException, BranchPredictionException
+	{
+		BranchPredictorState states[] = BranchPredictorState.values();
+		for(int i = 0; i < btb_size; i++)
+		{
+			branch_entry_valid[i] = in.readBoolean();
+			branch_addresses[i].setValue(in.readInt());
+			branch_targets[i].setValue(in.readInt());
+			int state = in.readByte();
+			if((state < 0) || (state >= states.length))
+			{
+				throw new BranchPredictionException("Invalid state of branch predictor: " + state);
+			}
+			branch_predictors[i].setState(states[state]);
+		}
+	}
+	
 }
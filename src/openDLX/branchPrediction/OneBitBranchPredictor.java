@@ -65,6 +65,15 @@ public class OneBitBranchPredictor implements BranchPredictor
 		current_state = initial_state;
 	}
 
+	public void setState(BranchPredictorState state) throws BranchPredictionException
+	{
+		if((state != BranchPredictorState.PREDICT_TAKEN) && (state != BranchPredictorState.PREDICT_NOT_TAKEN))
+		{
+			throw new BranchPredictionException("Invalid state of branch predictor: " + state);
+		}
+		current_state = state;
+	}
+
 	public void updateState(boolean jumpTaken)
 	{
 		if(jumpTaken)
@@ -63,4 +63,9 @@ public class StaticBranchPredictor implements BranchPredictor
 	{
 		// do nothing - this is a static predictor
 	}
+
+	public void setState(BranchPredictorState state)
+	{
+		// do nothing - this is a static predictor
+	}
 }
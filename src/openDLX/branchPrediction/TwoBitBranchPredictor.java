@@ -68,6 +68,15 @@ public abstract class TwoBitBranchPredictor implements BranchPredictor
 		current_state = initial_state;
 	}
 	
+	public void setState(BranchPredictorState state) throws BranchPredictionException
+	{
+		if((state != BranchPredictorState.PREDICT_STRONGLY_NOT_TAKEN) && (state != BranchPredictorState.PREDICT_WEAKLY_NOT_TAKEN) && (state != BranchPredictorState.PREDICT_STRONGLY_TAKEN) && (state != BranchPredictorState.PREDICT_WEAKLY_TAKEN))
+		{
+			throw new BranchPredictionException("Invalid state of branch predictor: " + state);
+		}
+		current_state = state;
+	}
+	
 	public String toString()
 	{
 		return new String(this.getClass().getSimpleName() + " c: " + current_state + " i: " + initial_state);
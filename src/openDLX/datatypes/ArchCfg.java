@@ -84,8 +84,8 @@ public class ArchCfg
     public static void registerArchitectureConfig(Properties config)
     {
         ArchCfg.isa_type = stringToISAType(config.getProperty("isa_type"));
-        ArchCfg.use_forwarding = getUseForwardingCfg(config);
-        ArchCfg.use_load_stall_bubble = getUseLoadStallBubble(config);
+        ArchCfg.use_forwarding = getUseForwardingCfg(ArchCfg.isa_type, config);
+        ArchCfg.use_load_stall_bubble = getUseLoadStallBubble(ArchCfg.isa_type, config);
     }
 
     public static ISAType stringToISAType(String s)
@@ -102,13 +102,13 @@ public class ArchCfg
         return ISAType.UNKNOWN_ISA;
     }
 
-    private static boolean getUseForwardingCfg(Properties config)
+    public static boolean getUseForwardingCfg(ISAType isa_type, Properties config)
     {
-        if (ArchCfg.isa_type == ISAType.MIPS)
+        if (isa_type == ISAType.MIPS)
         {
             return true;
         }
-        else if (ArchCfg.isa_type == ISAType.DLX)
+        else if (isa_type == ISAType.DLX)
         {
             if ((((config.getProperty("use_forwarding")).toLowerCase()).compareTo("true") == 0)
                     || ((config.getProperty("use_forwarding")).compareTo("1") == 0))
@@ -124,13 +124,13 @@ public class ArchCfg
         return true;
     }
 
-    private static boolean getUseLoadStallBubble(Properties config)
+    public static boolean getUseLoadStallBubble(ISAType isa_type, Properties config)
     {
-        if (ArchCfg.isa_type == ISAType.MIPS)
+        if (isa_type == ISAType.MIPS)
         {
             return true;
         }
-        else if (ArchCfg.isa_type == ISAType.DLX)
+        else if (isa_type == ISAType.DLX)
         {
             if ((((config.getProperty("use_load_stall_bubble")).toLowerCase()).compareTo("true") == 0)
                     || ((config.getProperty("use_load_stall_bubble")).compareTo("1") == 0))
@@ -25,14 +25,23 @@ public class BranchPredictionModuleExecuteData
 {
 
 	private boolean do_speculative_jump;
-	private uint32 branch_tgt;
-	private uint32 branch_pc;
+	private int branch_tgt;
+	private int branch_pc;
 	
-	public BranchPredictionModuleExecuteData(boolean doSpeculativeJump, uint32 branchPc, uint32 branchTgt)
+	public BranchPredictionModuleExecuteData()
+	{
+	}
+
+	public BranchPredictionModuleExecuteData(boolean doSpeculativeJump, int branchPc, int branchTgt)
+	{
+		set(doSpeculativeJump, branchPc, branchTgt);
+	}
+
+	public void set(boolean doSpeculativeJump, int branchPc, int branchTgt)
 	{
 		do_speculative_jump = doSpeculativeJump;
-		branch_tgt = new uint32(branchTgt);
-		branch_pc = new uint32(branchPc);
+		branch_tgt = branchTgt;
+		branch_pc = branchPc;
 	}
 
 	public boolean getDoSpeculativeJump()
@@ -41,11 +50,21 @@ public class BranchPredictionModuleExecuteData
 	}
 
 	public uint32 getBranchTgt()
+	{
+		return new uint32(branch_tgt);
+	}
+
+	public int getBranchTgtValue()
 	{
 		return branch_tgt;
 	}
-	
+
 	public uint32 getPc()
+	{
+		return new uint32(branch_pc);
+	}
+
+	public int getPcValue()
 	{
 		return branch_pc;
 	}
@@ -25,14 +25,23 @@ public class BranchPredictionModuleFetchData
 {
 
 	private boolean do_speculative_jump;
-	private uint32 branch_tgt;
-	private uint32 pc;
+	private int branch_tgt;
+	private int pc;
 	
-	public BranchPredictionModuleFetchData(boolean doSpeculativeJump,  uint32 Pc, uint32 branchTgt)
+	public BranchPredictionModuleFetchData()
+	{
+	}
+
+	public BranchPredictionModuleFetchData(boolean doSpeculativeJump,  int Pc, int branchTgt)
+	{
+		set(doSpeculativeJump, Pc, branchTgt);
+	}
+
+	public void set(boolean doSpeculativeJump,  int Pc, int branchTgt)
 	{
 		this.pc = Pc;
 		do_speculative_jump = doSpeculativeJump;
-		branch_tgt = new uint32(branchTgt);
+		branch_tgt = branchTgt;
 	}
 
 	public boolean getDoSpeculativeJump()
@@ -41,11 +50,21 @@ public class BranchPredictionModuleFetchData
 	}
 
 	public uint32 getBranchTgt()
+	{
+		return new uint32(branch_tgt);
+	}
+
+	public int getBranchTgtValue()
 	{
 		return branch_tgt;
 	}
 
 	public uint32 getPc()
+	{
+		return new uint32(pc);
+	}
+
+	public int getPcValue()
 	{
 		return pc;
 	}
@@ -31,6 +31,12 @@ public class BranchPredictionModuleOutputData
 		this.bpmfd = bpmfd;
 		this.bpmed = bpmed;
 	}
+
+	public void set(BranchPredictionModuleFetchData bpmfd, BranchPredictionModuleExecuteData bpmed)
+	{
+		this.bpmfd = bpmfd;
+		this.bpmed = bpmed;
+	}
 	
 	public BranchPredictionModuleFetchData getBpmfd()
 	{
@@ -27,14 +27,23 @@ public class DecodeExecuteData
 {
 
 	private Instruction inst;
-	private uint32 pc;
-	private uint32 alu_in_a;
-	private uint32 alu_in_b;
-	private uint32 branch_ctrl_in_a;
-	private uint32 branch_ctrl_in_b;
-	private uint32 store_value;
+	private int pc;
+	private int alu_in_a;
+	private int alu_in_b;
+	private int branch_ctrl_in_a;
+	private int branch_ctrl_in_b;
+	private int store_value;
 
-	public DecodeExecuteData(Instruction inst, uint32 pc, uint32 alu_in_a, uint32 alu_in_b, uint32 branch_ctrl_in_a, uint32 branch_ctrl_in_b, uint32 store_value)
+	public DecodeExecuteData()
+	{
+	}
+
+	public DecodeExecuteData(Instruction inst, int pc, int alu_in_a, int alu_in_b, int branch_ctrl_in_a, int branch_ctrl_in_b, int store_value)
+	{
+		set(inst, pc, alu_in_a, alu_in_b, branch_ctrl_in_a, branch_ctrl_in_b, store_value);
+	}
+
+	public void set(Instruction inst, int pc, int alu_in_a, int alu_in_b, int branch_ctrl_in_a, int branch_ctrl_in_b, int store_value)
 	{
 		this.inst = inst;
 		this.pc = pc;
@@ -45,37 +54,80 @@ public class DecodeExecuteData
 		this.store_value = store_value;
 	}
 
+	/**
+	 * Stores the operands after data forwarding, such that they are kept
+	 * when the execute stage is stalled.
+	 */
+	public void setForwardedOperands(int alu_in_a, int alu_in_b, int branch_ctrl_in_a, int branch_ctrl_in_b, int store_value)
+	{
+		this.alu_in_a = alu_in_a;
+		this.alu_in_b = alu_in_b;
+		this.branch_ctrl_in_a = branch_ctrl_in_a;
+		this.branch_ctrl_in_b = branch_ctrl_in_b;
+		this.store_value = store_value;
+	}
+
 	public Instruction getInst()
 	{
 		return inst;
 	}
 
 	public uint32 getPc()
+	{
+		return new uint32(pc);
+	}
+
+	public int getPcValue()
 	{
 		return pc;
 	}
 	
 	public uint32 getAluInA()
+	{
+		return new uint32(alu_in_a);
+	}
+
+	public int getAluInAValue()
 	{
 		return alu_in_a;
 	}
 
 	public uint32 getAluInB()
+	{
+		return new uint32(alu_in_b);
+	}
+
+	public int getAluInBValue()
 	{
 		return alu_in_b;
 	}
 
 	public uint32 getBranchCtrlInA()
+	{
+		return new uint32(branch_ctrl_in_a);
+	}
+
+	public int getBranchCtrlInAValue()
 	{
 		return branch_ctrl_in_a;
 	}
 
 	public uint32 getBranchCtrlInB()
+	{
+		return new uint32(branch_ctrl_in_b);
+	}
+
+	public int getBranchCtrlInBValue()
 	{
 		return branch_ctrl_in_b;
 	}
 
 	public uint32 getStoreValue()
+	{
+		return new uint32(store_value);
+	}
+
+	public int getStoreValueValue()
 	{
 		return store_value;
 	}
@@ -83,9 +135,9 @@ public class DecodeExecuteData
 	public void flush()
 	{
 		inst = new Instruction(PipelineConstants.PIPELINE_BUBBLE_INSTR);
-		pc = PipelineConstants.PIPELINE_BUBBLE_ADDR;
-		alu_in_a = new uint32(0);
-		alu_in_b = new uint32(0);
-		store_value = new uint32(0);
+		pc = PipelineConstants.PIPELINE_BUBBLE_ADDR.getValue();
+		alu_in_a = 0;
+		alu_in_b = 0;
+		store_value = 0;
 	}
 }
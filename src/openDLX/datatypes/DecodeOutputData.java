@@ -33,6 +33,11 @@ public class DecodeOutputData
 		this.ded = ded;
 	}
 
+	public void setDed(DecodeExecuteData ded)
+	{
+		this.ded = ded;
+	}
+
 	public DecodeExecuteData getDed()
 	{
 		return ded;
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.datatypes;
+
+/**
+ * The kinds of events that are recorded in the EventLog. Every event carries
+ * the same primitive fields, the type names the pipeline stage or cache that
+ * raised it and which of the fields are meaningful.
+ */
+public enum EventType
+{
+	FETCH_SET_PC("IF", "set pc", true, false, false),
+	FETCH_INCREASE_PC("IF", "increased pc", true, false, false),
+	FETCH_SPECULATIVE_JUMP("IF", "speculative jump to addr", true, true, false),
+	FETCH_MISPREDICTED_BRANCH("IF", "mispredicted branch, continue at addr", true, true, false),
+	FETCH_LIKELY_NOT_TAKEN("IF", "likely branch not taken, flushing delay slot", true, false, false),
+	FETCH_INSTRUCTION("IF", "fetched instruction", true, false, true),
+	FLUSH_DECODE("ID", "flushed instruction", true, false, true),
+	FLUSH_EXECUTE("EX", "flushed instruction", true, false, true),
+	LOAD_STALL("EX", "stalled IF, ID, and EX on load dependency", true, false, false),
+	ICACHE_READ_HIT("ICACHE", "read hit", false, true, true),
+	ICACHE_READ_MISS("ICACHE", "read miss", false, true, true),
+	DCACHE_READ_HIT("DCACHE", "read hit", false, true, true),
+	DCACHE_READ_MISS("DCACHE", "read miss", false, true, true),
+	DCACHE_WRITE_HIT("DCACHE", "write hit", false, true, true),
+	DCACHE_WRITE_MISS("DCACHE", "write miss", false, true, true);
+
+	private final String stage;
+	private final String description;
+	private final boolean has_pc;
+	private final boolean has_addr;
+	private final boolean has_value;
+
+	private EventType(String stage, String description, boolean has_pc, boolean has_addr, boolean has_value)
+	{
+		this.stage = stage;
+		this.description = description;
+		this.has_pc = has_pc;
+		this.has_addr = has_addr;
+		this.has_value = has_value;
+	}
+
+	public String getStage()
+	{
+		return stage;
+	}
+
+	public String getDescription()
+	{
+		return description;
+	}
+
+	public boolean hasPc()
+	{
+		return has_pc;
+	}
+
+	public boolean hasAddr()
+	{
+		return has_addr;
+	}
+
+	public boolean hasValue()
+	{
+		return has_value;
+	}
+}
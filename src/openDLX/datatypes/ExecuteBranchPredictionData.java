@@ -24,11 +24,20 @@ package openDLX.datatypes;
 public class ExecuteBranchPredictionData
 {
 	private Instruction inst;
-	private uint32 branch_pc;
-	private uint32 branch_tgt;
+	private int branch_pc;
+	private int branch_tgt;
 	private boolean jump_taken;
 
-	public ExecuteBranchPredictionData(Instruction inst, uint32 branchPc, uint32 branchTgt, boolean jumpTaken)
+	public ExecuteBranchPredictionData()
+	{
+	}
+
+	public ExecuteBranchPredictionData(Instruction inst, int branchPc, int branchTgt, boolean jumpTaken)
+	{
+		set(inst, branchPc, branchTgt, jumpTaken);
+	}
+
+	public void set(Instruction inst, int branchPc, int branchTgt, boolean jumpTaken)
 	{
 		this.inst = inst;
 		this.branch_pc = branchPc;
@@ -42,11 +51,21 @@ public class ExecuteBranchPredictionData
 	}
 
 	public uint32 getBranchPc()
+	{
+		return new uint32(branch_pc);
+	}
+
+	public int getBranchPcValue()
 	{
 		return branch_pc;
 	}
 
 	public uint32 getBranchTgt()
+	{
+		return new uint32(branch_tgt);
+	}
+
+	public int getBranchTgtValue()
 	{
 		return branch_tgt;
 	}
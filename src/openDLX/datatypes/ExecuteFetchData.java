@@ -26,12 +26,21 @@ public class ExecuteFetchData
 {
 
 	private Instruction inst;
-	private uint32 pc;
-	private uint32 new_pc;
+	private int pc;
+	private int new_pc;
 	private boolean jump;
 	private boolean mispredicted_branch;
 
-	public ExecuteFetchData(Instruction inst, uint32 pc, uint32 new_pc, boolean jump, boolean mispredictedBranch)
+	public ExecuteFetchData()
+	{
+	}
+
+	public ExecuteFetchData(Instruction inst, int pc, int new_pc, boolean jump, boolean mispredictedBranch)
+	{
+		set(inst, pc, new_pc, jump, mispredictedBranch);
+	}
+
+	public void set(Instruction inst, int pc, int new_pc, boolean jump, boolean mispredictedBranch)
 	{
 		this.inst = inst;
 		this.pc = pc;
@@ -41,11 +50,21 @@ public class ExecuteFetchData
 	}
 
 	public uint32 getNewPc()
+	{
+		return new uint32(new_pc);
+	}
+
+	public int getNewPcValue()
 	{
 		return new_pc;
 	}
 
 	public uint32 getPc()
+	{
+		return new uint32(pc);
+	}
+
+	public int getPcValue()
 	{
 		return pc;
 	}
@@ -68,7 +87,7 @@ public class ExecuteFetchData
 	public void flush()
 	{
 		inst = new Instruction(new uint32(0));
-		new_pc = new uint32(0);
+		new_pc = 0;
 		jump = false;
 		mispredicted_branch = false;
 	}
@@ -39,6 +39,13 @@ public class ExecuteOutputData
 		this.stall = stall;
 	}
 
+	public void set(ExecuteMemoryData emd, ExecuteFetchData efd, ExecuteBranchPredictionData ebd)
+	{
+		this.emd = emd;
+		this.efd = efd;
+		this.ebd = ebd;
+	}
+
 	public ExecuteMemoryData getEmd()
 	{
 		return emd;
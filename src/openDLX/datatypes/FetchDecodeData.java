@@ -25,28 +25,60 @@ import openDLX.PipelineConstants;
 
 public class FetchDecodeData
 {
-	private uint32 instr;
-	private uint32 pc;
+	private int instr;
+	private int pc;
+	// the decode stage identifies flushed instructions by the bubble instance
+	private boolean bubble;
 
-	public FetchDecodeData(uint32 instr, uint32 pc)
+	public FetchDecodeData()
+	{
+	}
+
+	public FetchDecodeData(int instr, int pc)
+	{
+		set(instr, pc);
+	}
+
+	public void set(int instr, int pc)
 	{
 		this.instr = instr;
 		this.pc = pc;
+		bubble = false;
 	}
 
 	public uint32 getInstr()
+	{
+		if(bubble)
+		{
+			return PipelineConstants.PIPELINE_BUBBLE_INSTR;
+		}
+		return new uint32(instr);
+	}
+
+	public int getInstrValue()
 	{
 		return instr;
 	}
 
 	public uint32 getPc()
+	{
+		return new uint32(pc);
+	}
+
+	public int getPcValue()
 	{
 		return pc;
 	}
 
+	public boolean isBubble()
+	{
+		return bubble;
+	}
+
 	public void flush()
 	{
-		instr = PipelineConstants.PIPELINE_BUBBLE_INSTR;
-		pc = PipelineConstants.PIPELINE_BUBBLE_ADDR;
+		instr = PipelineConstants.PIPELINE_BUBBLE_INSTR.getValue();
+		pc = PipelineConstants.PIPELINE_BUBBLE_ADDR.getValue();
+		bubble = true;
 	}
 }
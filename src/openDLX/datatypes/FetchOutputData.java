@@ -32,6 +32,11 @@ public class FetchOutputData
 		this.flush = flush;
 	}
 
+	public void setFdd(FetchDecodeData fdd)
+	{
+		this.fdd = fdd;
+	}
+
 	public FetchDecodeData getFdd()
 	{
 		return fdd;
@@ -22,6 +22,7 @@
 package openDLX.datatypes;
 
 
+import openDLX.ALUOperation;
 import openDLX.PipelineConstants;
 import openDLX.exception.PipelineDataTypeException;
 
@@ -61,6 +62,8 @@ public class Instruction
 	private boolean branch_likely;
 	private boolean branch_and_link;
 	private ALUFunction alu_func;
+	// handler of alu_func, selected at decode time
+	private ALUOperation alu_op;
 	private ALUPort alu_port_a;
 	private ALUPort alu_port_b;
 	private BranchCondition branch_cond;
@@ -93,6 +96,7 @@ public class Instruction
 		op_regimm = OpcodeREGIMM.UNKNOWN;
 		
 		alu_func = ALUFunction.NOP;
+		alu_op = ALUOperation.forFunction(alu_func);
 		alu_port_a = ALUPort.ZERO;
 		alu_port_b = ALUPort.ZERO;
 		
@@ -402,12 +406,18 @@ public class Instruction
 	public void setALUFunction(ALUFunction fnct)
 	{
 		alu_func = fnct;
+		alu_op = ALUOperation.forFunction(fnct);
 	}
 	
 	public ALUFunction getALUFunction()
 	{
 		return alu_func;
 	}
+	
+	public ALUOperation getALUOperation()
+	{
+		return alu_op;
+	}
 
 	public uint8 getRs()
 	{
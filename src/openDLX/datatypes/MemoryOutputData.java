@@ -31,6 +31,11 @@ public class MemoryOutputData
 		this.mwd = mwd;
 	}
 
+	public void setMwd(MemoryWritebackData mwd)
+	{
+		this.mwd = mwd;
+	}
+
 	public MemoryWritebackData getMwd()
 	{
 		return mwd;
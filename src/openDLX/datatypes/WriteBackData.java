@@ -24,17 +24,29 @@ package openDLX.datatypes;
 public class WriteBackData
 {
 	private Instruction inst;
-	private uint32 pc;
-	private uint32[] alu_out;
-	private uint32 ld_result;
+	private int pc;
+	private int alu_out_lo;
+	private int alu_out_hi;
+	private int ld_result;
 	
 
-	public WriteBackData(Instruction inst, uint32 pc, uint32[] alu_out,
-			uint32 ld_result)
+	public WriteBackData()
+	{
+	}
+
+	public WriteBackData(Instruction inst, int pc, int alu_out_lo, int alu_out_hi,
+			int ld_result)
+	{
+		set(inst, pc, alu_out_lo, alu_out_hi, ld_result);
+	}
+
+	public void set(Instruction inst, int pc, int alu_out_lo, int alu_out_hi,
+			int ld_result)
 	{
 		this.inst = inst;
 		this.pc = pc;
-		this.alu_out = alu_out;
+		this.alu_out_lo = alu_out_lo;
+		this.alu_out_hi = alu_out_hi;
 		this.ld_result = ld_result;
 	}
 
@@ -46,6 +58,11 @@ public class WriteBackData
 
 
 	public uint32 getPc()
+	{
+		return new uint32(pc);
+	}
+
+	public int getPcValue()
 	{
 		return pc;
 	}
@@ -53,11 +70,29 @@ public class WriteBackData
 
 	public uint32[] getAluOut()
 	{
+		uint32[] alu_out = new uint32[2];
+		alu_out[0] = new uint32(alu_out_lo);
+		alu_out[1] = new uint32(alu_out_hi);
 		return alu_out;
 	}
 
+	public int getAluOutLO()
+	{
+		return alu_out_lo;
+	}
+
+	public int getAluOutHI()
+	{
+		return alu_out_hi;
+	}
+
 
 	public uint32 getLdResult()
+	{
+		return new uint32(ld_result);
+	}
+
+	public int getLdResultValue()
 	{
 		return ld_result;
 	}
@@ -65,9 +100,9 @@ public class WriteBackData
 	public void flush()
 	{
 		inst = new Instruction(new uint32(0));
-		pc = new uint32(0);
-		alu_out[0] = new uint32(0);
-		alu_out[1] = new uint32(0);
-		ld_result = new uint32(0);
+		pc = 0;
+		alu_out_lo = 0;
+		alu_out_hi = 0;
+		ld_result = 0;
 	}
 }
@@ -33,6 +33,12 @@ public class WritebackOutputData
 		this.caught_break = caught_break;
 	}
 
+	public void set(WriteBackData wbd, boolean caught_break)
+	{
+		this.wbd = wbd; 
+		this.caught_break = caught_break;
+	}
+
 	public WriteBackData getWbd()
 	{
 		return wbd;
@@ -60,6 +60,15 @@ public class uint32 extends BasicNumber
     }
 
     public String getValueAsHexString()
+    {
+        return toHexString(value);
+    }
+
+    /**
+     * Formats a primitive 32bit value the same way as getValueAsHexString(),
+     * i.e. with "0x" prefix and 8 digits.
+     */
+    public static String toHexString(int value)
     {
         String s = Integer.toHexString(value);
         int diff = 8 - s.length();
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.dbt;
+
+import openDLX.datatypes.Instruction;
+import openDLX.exception.PipelineException;
+
+/**
+ * Operations a translated block delegates to the functional executor. They
+ * keep the bookkeeping of the executor (executed instructions, recorded
+ * events) and all memory accesses on the same code path as for instructions
+ * that are not translated.
+ */
+public interface BlockRuntime
+{
+	/**
+	 * Called before an instruction of a block is executed.
+	 * @param pc The address of the instruction.
+	 */
+	void fetch(int pc);
+
+	/**
+	 * Performs the data memory access of a load instruction.
+	 * @return The loaded value.
+	 */
+	int load(Instruction inst, int pc, int addr) throws PipelineException;
+
+	/**
+	 * Performs the data memory access of a store instruction.
+	 * @return true if the store overwrote translated code, the block has to be left.
+	 */
+	boolean store(Instruction inst, int pc, int addr, int value) throws PipelineException;
+
+	/**
+	 * Executes an instruction that is not translated into bytecode, it must
+	 * not be a branch.
+	 * @return true if the instruction overwrote translated code, the block has to be left.
+	 */
+	boolean execute(Instruction inst, int pc) throws PipelineException;
+
+	/**
+	 * Executes a branch instruction.
+	 * @return The address of the instruction executed after the branch delay slot.
+	 */
+	int branch(Instruction inst, int pc) throws PipelineException;
+
+	/**
+	 * @return true if the branch executed last was a likely branch that was not taken, then its delay slot is not executed.
+	 */
+	boolean isDelaySlotNullified();
+}
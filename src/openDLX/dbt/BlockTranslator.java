@@ -0,0 +1,519 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.dbt;
+
+import java.lang.reflect.InvocationTargetException;
+
+import openDLX.datatypes.ALUFunction;
+import openDLX.datatypes.ALUPort;
+import openDLX.datatypes.ImmExtend;
+import openDLX.datatypes.Instruction;
+import openDLX.datatypes.OpcodeNORMAL;
+import openDLX.datatypes.OpcodeSPECIAL;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Translates blocks of decoded instructions into JVM classes, such that the
+ * JIT compiler of the JVM compiles frequently executed guest code into
+ * native code. The generated code works directly on the general purpose
+ * register array of the register set.
+ * 
+ * The register operands and ALU operations of the decoded instructions are
+ * translated into bytecode, if the ALU computes them without side effects.
+ * Loads and stores compute their address in bytecode and access the memory
+ * through the BlockRuntime. All other instructions, e.g. multiplications
+ * and divisions that write HI and LO, and the branches are executed by the
+ * BlockRuntime, too.
+ * 
+ * Instructions that may stop the simulation (break, traps and system calls)
+ * are not translated, they end a block.
+ */
+public class BlockTranslator
+{
+	private static Logger logger = Logger.getLogger("FASTFORWARD");
+
+	// maximum number of instructions of a block, bounds the size of the generated method
+	public static final int MAX_BLOCK_LENGTH = 256;
+
+	private static final String BLOCK_CLASS = "openDLX/dbt/TranslatedBlock";
+	private static final String ALU_OPERATION_CLASS = "openDLX/ALUOperation";
+	private static final String RUNTIME_CLASS = "openDLX/dbt/BlockRuntime";
+	private static final String INSTRUCTION = "LopenDLX/datatypes/Instruction;";
+
+	// local variables of the execute method
+	private static final int LOCAL_THIS = 0;
+	private static final int LOCAL_RUNTIME = 1;
+	private static final int LOCAL_REGISTERS = 2;
+	private static final int LOCAL_INSTS = 3;
+	private static final int LOCAL_NEXT_PC = 4;
+	private static final int MAX_LOCALS = 5;
+	private static final int MAX_STACK = 8;
+
+	private final BlockClassLoader loader = new BlockClassLoader();
+	private int translated_blocks = 0;
+
+	/**
+	 * @return true if the instruction can be part of a translated block.
+	 */
+	public static boolean isTranslatable(Instruction inst)
+	{
+		if(inst.getOpNormal() == OpcodeNORMAL.SPECIAL)
+		{
+			OpcodeSPECIAL op = inst.getOpSpecial();
+			if((op == OpcodeSPECIAL.BREAK) || (op == OpcodeSPECIAL.TRAP) || (op == OpcodeSPECIAL.SYSCALL))
+			{
+				return false;
+			}
+		}
+		switch(inst.getALUFunction())
+		{
+		case TRAP:
+		case SYSCALL:
+		case TEQ:
+		case TGE:
+		case TGEU:
+		case TLT:
+		case TLTU:
+		case TNE:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Generates and loads the class of a block.
+	 * @param entry The address of the first instruction.
+	 * @param insts The instructions at consecutive addresses, only the last
+	 * but one instruction may be a branch, then the last is its delay slot.
+	 * All instructions have to be translatable.
+	 * @return The translated block.
+	 */
+	public TranslatedBlock translate(int entry, Instruction[] insts)
+	{
+		String name = "openDLX/dbt/Block_" + Integer.toHexString(entry) + "_" + translated_blocks++;
+		ClassFileWriter cw = new ClassFileWriter(name, BLOCK_CLASS);
+
+		ClassFileWriter.Code init = new ClassFileWriter.Code(cw);
+		init.var(ClassFileWriter.Code.ALOAD, LOCAL_THIS);
+		init.ref(ClassFileWriter.Code.INVOKESPECIAL, cw.methodRef(BLOCK_CLASS, "<init>", "()V"));
+		init.op(ClassFileWriter.Code.RETURN);
+		cw.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", 1, 1, init);
+
+		cw.addMethod(ClassFileWriter.ACC_PUBLIC, "execute", "(L" + RUNTIME_CLASS + ";[I)I", MAX_STACK, MAX_LOCALS, generateExecute(cw, entry, insts));
+
+		TranslatedBlock block;
+		try
+		{
+			Class<?> block_class = loader.define(name.replace('/', '.'), cw.toByteArray());
+			block = (TranslatedBlock)block_class.getDeclaredConstructor().newInstance();
+		}
+		catch(InvocationTargetException e)
+		{
+			throw new IllegalStateException("Cannot instantiate translated block " + name, e.getCause());
+		}
+		catch(ReflectiveOperationException e)
+		{
+			throw new IllegalStateException("Cannot instantiate translated block " + name, e);
+		}
+		block.init(entry, insts);
+
+		if(logger.isDebugEnabled())
+		{
+			logger.debug("Translated block at " + Integer.toHexString(entry) + " with " + insts.length + " instructions");
+		}
+		return block;
+	}
+
+	/**
+	 * @return The number of blocks translated so far.
+	 */
+	public int getTranslatedBlocks()
+	{
+		return translated_blocks;
+	}
+
+	private ClassFileWriter.Code generateExecute(ClassFileWriter cw, int entry, Instruction[] insts)
+	{
+		ClassFileWriter.Code code = new ClassFileWriter.Code(cw);
+		code.var(ClassFileWriter.Code.ALOAD, LOCAL_THIS);
+		code.ref(ClassFileWriter.Code.GETFIELD, cw.fieldRef(BLOCK_CLASS, "insts", "[" + INSTRUCTION));
+		code.var(ClassFileWriter.Code.ASTORE, LOCAL_INSTS);
+
+		int pc = entry;
+		for(int i = 0; i < insts.length; i++, pc += 4)
+		{
+			Instruction inst = insts[i];
+			// the last instruction has no successor in the block, the delay slot is left behind its branch
+			boolean last = (i == insts.length - 1);
+
+			if(inst.getBranch())
+			{
+				generateFetch(cw, code, pc);
+				generateRuntimeCall(cw, code, i, pc);
+				code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "branch", "(" + INSTRUCTION + "I)I"), 2);
+				code.var(ClassFileWriter.Code.ISTORE, LOCAL_NEXT_PC);
+				if(inst.getBranchLikely())
+				{
+					code.var(ClassFileWriter.Code.ALOAD, LOCAL_RUNTIME);
+					code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "isDelaySlotNullified", "()Z"), 0);
+					int not_nullified = code.jump(ClassFileWriter.Code.IFEQ);
+					code.var(ClassFileWriter.Code.ILOAD, LOCAL_NEXT_PC);
+					code.op(ClassFileWriter.Code.IRETURN);
+					code.bindJump(not_nullified);
+				}
+				continue;
+			}
+
+			generateFetch(cw, code, pc);
+			if(inst.getLoad() && isSimpleAddress(inst))
+			{
+				generateLoad(cw, code, i, pc, inst);
+			}
+			else if(inst.getStore() && isSimpleAddress(inst))
+			{
+				generateRuntimeCall(cw, code, i, pc);
+				generateALUOperation(code, inst, ALUFunction.ADD);
+				generateRegisterRead(code, inst.getRt().getValue());
+				code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "store", "(" + INSTRUCTION + "III)Z"), 4);
+				generateCodeModifiedExit(code, last, pc);
+			}
+			else if(isSimpleALUOperation(inst))
+			{
+				int rd = getDestination(inst);
+				if(rd != 0)
+				{
+					code.var(ClassFileWriter.Code.ALOAD, LOCAL_REGISTERS);
+					code.pushInt(rd);
+					generateALUOperation(code, inst, inst.getALUFunction());
+					code.op(ClassFileWriter.Code.IASTORE);
+				}
+			}
+			else
+			{
+				generateRuntimeCall(cw, code, i, pc);
+				code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "execute", "(" + INSTRUCTION + "I)Z"), 2);
+				generateCodeModifiedExit(code, last, pc);
+			}
+		}
+
+		if(insts[Math.max(insts.length - 2, 0)].getBranch())
+		{
+			code.var(ClassFileWriter.Code.ILOAD, LOCAL_NEXT_PC);
+		}
+		else
+		{
+			code.pushInt(pc);
+		}
+		code.op(ClassFileWriter.Code.IRETURN);
+		return code;
+	}
+
+	private void generateFetch(ClassFileWriter cw, ClassFileWriter.Code code, int pc)
+	{
+		code.var(ClassFileWriter.Code.ALOAD, LOCAL_RUNTIME);
+		code.pushInt(pc);
+		code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "fetch", "(I)V"), 1);
+	}
+
+	/**
+	 * Pushes the runtime, the instruction i, and its address.
+	 */
+	private void generateRuntimeCall(ClassFileWriter cw, ClassFileWriter.Code code, int i, int pc)
+	{
+		code.var(ClassFileWriter.Code.ALOAD, LOCAL_RUNTIME);
+		code.var(ClassFileWriter.Code.ALOAD, LOCAL_INSTS);
+		code.pushInt(i);
+		code.op(ClassFileWriter.Code.AALOAD);
+		code.pushInt(pc);
+	}
+
+	/**
+	 * Leaves the block if the result of the runtime call is true, unless the
+	 * instruction is the last of the block anyway.
+	 */
+	private void generateCodeModifiedExit(ClassFileWriter.Code code, boolean last, int pc)
+	{
+		if(last)
+		{
+			code.op(ClassFileWriter.Code.POP);
+		}
+		else
+		{
+			int not_modified = code.jump(ClassFileWriter.Code.IFEQ);
+			code.pushInt(pc + 4);
+			code.op(ClassFileWriter.Code.IRETURN);
+			code.bindJump(not_modified);
+		}
+	}
+
+	private void generateLoad(ClassFileWriter cw, ClassFileWriter.Code code, int i, int pc, Instruction inst)
+	{
+		int rd = getDestination(inst);
+		if(rd != 0)
+		{
+			code.var(ClassFileWriter.Code.ALOAD, LOCAL_REGISTERS);
+			code.pushInt(rd);
+		}
+		generateRuntimeCall(cw, code, i, pc);
+		generateALUOperation(code, inst, ALUFunction.ADD);
+		code.invokeInterface(cw.interfaceMethodRef(RUNTIME_CLASS, "load", "(" + INSTRUCTION + "II)I"), 3);
+		code.op((rd != 0) ? ClassFileWriter.Code.IASTORE : ClassFileWriter.Code.POP);
+	}
+
+	/**
+	 * @return The register written by the instruction as in WriteBack.writeResults(), or 0.
+	 */
+	private static int getDestination(Instruction inst)
+	{
+		if(inst.getWriteRd())
+		{
+			return inst.getRd().getValue();
+		}
+		else if(inst.getWriteRt())
+		{
+			return inst.getRt().getValue();
+		}
+		return 0;
+	}
+
+	private static boolean isSimplePortA(Instruction inst)
+	{
+		switch(inst.getALUPortA())
+		{
+		case RS:
+		case RT:
+		case ZERO:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isSimplePortB(Instruction inst)
+	{
+		switch(inst.getALUPortB())
+		{
+		case RT:
+		case SA:
+		case ZERO:
+			return true;
+		case IMM:
+			return (inst.getImmExtend() == ImmExtend.ZERO) || (inst.getImmExtend() == ImmExtend.SIGN);
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isSimpleAddress(Instruction inst)
+	{
+		ALUFunction f = inst.getALUFunction();
+		return ((f == ALUFunction.ADD) || (f == ALUFunction.ADDU)) && isSimplePortA(inst) && isSimplePortB(inst);
+	}
+
+	/**
+	 * @return true if the instruction only writes the ALU result into a general purpose register.
+	 */
+	private static boolean isSimpleALUOperation(Instruction inst)
+	{
+		if(inst.getLoad() || inst.getStore() || inst.getBranch() || inst.getBranchAndLink() || inst.getWriteHI() || inst.getWriteLO())
+		{
+			return false;
+		}
+		if(!isSimplePortA(inst) || !isSimplePortB(inst))
+		{
+			return false;
+		}
+		switch(inst.getALUFunction())
+		{
+		case ADD:
+		case ADDU:
+		case SUB:
+		case SUBU:
+		case AND:
+		case OR:
+		case XOR:
+		case NOR:
+		case LUI:
+		case NOP:
+		case SLL:
+		case SRL:
+		case SRA:
+		case SLLV:
+		case SRLV:
+		case SRAV:
+		case SEQ:
+		case SEQU:
+		case SNE:
+		case SNEU:
+		case SGE:
+		case SGEU:
+		case SGT:
+		case SGTU:
+		case SLE:
+		case SLEU:
+		case SLT:
+		case SLTU:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void generateRegisterRead(ClassFileWriter.Code code, int reg)
+	{
+		if(reg == 0)
+		{
+			// register 0 is never written
+			code.pushInt(0);
+		}
+		else
+		{
+			code.var(ClassFileWriter.Code.ALOAD, LOCAL_REGISTERS);
+			code.pushInt(reg);
+			code.op(ClassFileWriter.Code.IALOAD);
+		}
+	}
+
+	/**
+	 * Pushes the result of the ALU for the ports of the instruction as
+	 * determined by Decode.readALUPortA() and Decode.readALUPortB().
+	 */
+	private void generateALUOperation(ClassFileWriter.Code code, Instruction inst, ALUFunction function)
+	{
+		switch(inst.getALUPortA())
+		{
+		case RS:
+			generateRegisterRead(code, inst.getRs().getValue());
+			break;
+		case RT:
+			generateRegisterRead(code, inst.getRt().getValue());
+			break;
+		default:
+			code.pushInt(0);
+			break;
+		}
+
+		switch(inst.getALUPortB())
+		{
+		case RT:
+			generateRegisterRead(code, inst.getRt().getValue());
+			break;
+		case IMM:
+			if(inst.getImmExtend() == ImmExtend.ZERO)
+			{
+				code.pushInt((inst.getOffset().getValue()) & 0xFFFF);
+			}
+			else
+			{
+				code.pushInt(inst.getOffset().getValue());
+			}
+			break;
+		case SA:
+			code.pushInt(inst.getSa().getValue());
+			break;
+		default:
+			code.pushInt(0);
+			break;
+		}
+
+		// the shift instructions of the JVM use the lower 5 bit of the shift amount as the ALU
+		switch(function)
+		{
+		case ADD:
+		case ADDU:
+			code.op(ClassFileWriter.Code.IADD);
+			break;
+		case SUB:
+		case SUBU:
+			code.op(ClassFileWriter.Code.ISUB);
+			break;
+		case AND:
+			code.op(ClassFileWriter.Code.IAND);
+			break;
+		case OR:
+			code.op(ClassFileWriter.Code.IOR);
+			break;
+		case XOR:
+			code.op(ClassFileWriter.Code.IXOR);
+			break;
+		case NOR:
+			code.op(ClassFileWriter.Code.IOR);
+			code.pushInt(-1);
+			code.op(ClassFileWriter.Code.IXOR);
+			break;
+		case LUI:
+			code.op(ClassFileWriter.Code.SWAP);
+			code.op(ClassFileWriter.Code.POP);
+			code.pushInt(16);
+			code.op(ClassFileWriter.Code.ISHL);
+			break;
+		case NOP:
+			code.op(ClassFileWriter.Code.POP2);
+			code.pushInt(0);
+			break;
+		case SLL:
+			code.op(ClassFileWriter.Code.ISHL);
+			break;
+		case SRL:
+			code.op(ClassFileWriter.Code.IUSHR);
+			break;
+		case SRA:
+			code.op(ClassFileWriter.Code.ISHR);
+			break;
+		case SLLV:
+			code.op(ClassFileWriter.Code.SWAP);
+			code.op(ClassFileWriter.Code.ISHL);
+			break;
+		case SRLV:
+			code.op(ClassFileWriter.Code.SWAP);
+			code.op(ClassFileWriter.Code.IUSHR);
+			break;
+		case SRAV:
+			code.op(ClassFileWriter.Code.SWAP);
+			code.op(ClassFileWriter.Code.ISHR);
+			break;
+		default:
+			// the set instructions
+			code.ref(ClassFileWriter.Code.INVOKESTATIC, code.getWriter().methodRef(ALU_OPERATION_CLASS, function.name().toLowerCase(), "(II)I"));
+			break;
+		}
+	}
+
+	/**
+	 * Defines the generated classes, they are unloaded together with the
+	 * translator.
+	 */
+	private static class BlockClassLoader extends ClassLoader
+	{
+		BlockClassLoader()
+		{
+			super(TranslatedBlock.class.getClassLoader());
+		}
+
+		Class<?> define(String name, byte[] class_file)
+		{
+			return defineClass(name, class_file, 0, class_file.length);
+		}
+	}
+}
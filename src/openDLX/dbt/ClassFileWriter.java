@@ -0,0 +1,432 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.dbt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Minimal writer of class files with public methods, as needed by the
+ * BlockTranslator. The class files have version 50 (Java 6), thus the
+ * bytecode is verified by type inference and no stack map frames have to
+ * be generated.
+ */
+class ClassFileWriter
+{
+	private static final int CLASS_VERSION = 50;
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	private static final byte CONSTANT_UTF8 = 1;
+	private static final byte CONSTANT_INTEGER = 3;
+	private static final byte CONSTANT_CLASS = 7;
+	private static final byte CONSTANT_FIELDREF = 9;
+	private static final byte CONSTANT_METHODREF = 10;
+	private static final byte CONSTANT_INTERFACE_METHODREF = 11;
+	private static final byte CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream pool_bytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(pool_bytes);
+	private final HashMap<String,Integer> pool_index = new HashMap<String,Integer>();
+	private int pool_count = 1;
+
+	private final ByteArrayOutputStream method_bytes = new ByteArrayOutputStream();
+	private final DataOutputStream methods = new DataOutputStream(method_bytes);
+	private int method_count = 0;
+
+	private final int this_class;
+	private final int super_class;
+
+	/**
+	 * @param name The internal name of the class, e.g. "openDLX/dbt/Block".
+	 * @param super_name The internal name of the super class.
+	 */
+	ClassFileWriter(String name, String super_name)
+	{
+		this_class = classRef(name);
+		super_class = classRef(super_name);
+	}
+
+	private int lookup(String key)
+	{
+		Integer idx = pool_index.get(key);
+		return (idx == null) ? 0 : idx;
+	}
+
+	private int add(String key)
+	{
+		int idx = pool_count++;
+		pool_index.put(key, idx);
+		return idx;
+	}
+
+	int utf8(String s)
+	{
+		String key = "U" + s;
+		int idx = lookup(key);
+		if(idx == 0)
+		{
+			try
+			{
+				idx = add(key);
+				pool.writeByte(CONSTANT_UTF8);
+				pool.writeUTF(s);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		return idx;
+	}
+
+	int integer(int value)
+	{
+		String key = "I" + value;
+		int idx = lookup(key);
+		if(idx == 0)
+		{
+			try
+			{
+				idx = add(key);
+				pool.writeByte(CONSTANT_INTEGER);
+				pool.writeInt(value);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		return idx;
+	}
+
+	int classRef(String name)
+	{
+		String key = "C" + name;
+		int idx = lookup(key);
+		if(idx == 0)
+		{
+			int name_idx = utf8(name);
+			try
+			{
+				idx = add(key);
+				pool.writeByte(CONSTANT_CLASS);
+				pool.writeShort(name_idx);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		return idx;
+	}
+
+	private int nameAndType(String name, String descriptor)
+	{
+		String key = "N" + name + " " + descriptor;
+		int idx = lookup(key);
+		if(idx == 0)
+		{
+			int name_idx = utf8(name);
+			int descriptor_idx = utf8(descriptor);
+			try
+			{
+				idx = add(key);
+				pool.writeByte(CONSTANT_NAME_AND_TYPE);
+				pool.writeShort(name_idx);
+				pool.writeShort(descriptor_idx);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		return idx;
+	}
+
+	private int memberRef(byte tag, String owner, String name, String descriptor)
+	{
+		String key = "M" + tag + owner + "." + name + " " + descriptor;
+		int idx = lookup(key);
+		if(idx == 0)
+		{
+			int class_idx = classRef(owner);
+			int nat_idx = nameAndType(name, descriptor);
+			try
+			{
+				idx = add(key);
+				pool.writeByte(tag);
+				pool.writeShort(class_idx);
+				pool.writeShort(nat_idx);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		return idx;
+	}
+
+	int fieldRef(String owner, String name, String descriptor)
+	{
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	int methodRef(String owner, String name, String descriptor)
+	{
+		return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	int interfaceMethodRef(String owner, String name, String descriptor)
+	{
+		return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+	}
+
+	/**
+	 * Adds a method without exception handlers.
+	 * @param code The bytecode of the method.
+	 */
+	void addMethod(int access, String name, String descriptor, int max_stack, int max_locals, Code code)
+	{
+		try
+		{
+			methods.writeShort(access);
+			methods.writeShort(utf8(name));
+			methods.writeShort(utf8(descriptor));
+			methods.writeShort(1);
+			// Code attribute
+			methods.writeShort(utf8("Code"));
+			methods.writeInt(12 + code.size());
+			methods.writeShort(max_stack);
+			methods.writeShort(max_locals);
+			methods.writeInt(code.size());
+			code.writeTo(methods);
+			// no exception table and attributes
+			methods.writeShort(0);
+			methods.writeShort(0);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		method_count++;
+	}
+
+	byte[] toByteArray()
+	{
+		ByteArrayOutputStream class_bytes = new ByteArrayOutputStream(pool_bytes.size() + method_bytes.size() + 32);
+		DataOutputStream out = new DataOutputStream(class_bytes);
+		try
+		{
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			out.writeShort(pool_count);
+			pool_bytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(this_class);
+			out.writeShort(super_class);
+			// no interfaces and fields
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(method_count);
+			method_bytes.writeTo(out);
+			// no attributes
+			out.writeShort(0);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return class_bytes.toByteArray();
+	}
+
+	/**
+	 * Bytecode of a method. Only the instructions used by the generated
+	 * blocks are provided.
+	 */
+	static class Code
+	{
+		static final int ICONST_0 = 0x03;
+		static final int ILOAD = 0x15;
+		static final int ALOAD = 0x19;
+		static final int IALOAD = 0x2e;
+		static final int AALOAD = 0x32;
+		static final int ISTORE = 0x36;
+		static final int ASTORE = 0x3a;
+		static final int IASTORE = 0x4f;
+		static final int POP = 0x57;
+		static final int POP2 = 0x58;
+		static final int SWAP = 0x5f;
+		static final int IADD = 0x60;
+		static final int ISUB = 0x64;
+		static final int ISHL = 0x78;
+		static final int ISHR = 0x7a;
+		static final int IUSHR = 0x7c;
+		static final int IAND = 0x7e;
+		static final int IOR = 0x80;
+		static final int IXOR = 0x82;
+		static final int IFEQ = 0x99;
+		static final int IRETURN = 0xac;
+		static final int RETURN = 0xb1;
+		static final int GETFIELD = 0xb4;
+		static final int INVOKESPECIAL = 0xb7;
+		static final int INVOKESTATIC = 0xb8;
+		static final int INVOKEINTERFACE = 0xb9;
+
+		private static final int BIPUSH = 0x10;
+		private static final int SIPUSH = 0x11;
+		private static final int LDC = 0x12;
+		private static final int LDC_W = 0x13;
+
+		private final ClassFileWriter cw;
+		private byte[] code = new byte[256];
+		private int size = 0;
+
+		Code(ClassFileWriter cw)
+		{
+			this.cw = cw;
+		}
+
+		ClassFileWriter getWriter()
+		{
+			return cw;
+		}
+
+		int size()
+		{
+			return size;
+		}
+
+		void writeTo(DataOutputStream out) throws IOException
+		{
+			out.write(code, 0, size);
+		}
+
+		private void put(int b)
+		{
+			if(size == code.length)
+			{
+				byte[] grown = new byte[code.length * 2];
+				System.arraycopy(code, 0, grown, 0, size);
+				code = grown;
+			}
+			code[size++] = (byte)b;
+		}
+
+		private void putShort(int s)
+		{
+			put(s >> 8);
+			put(s);
+		}
+
+		void op(int opcode)
+		{
+			put(opcode);
+		}
+
+		/**
+		 * Instructions with a local variable index.
+		 */
+		void var(int opcode, int index)
+		{
+			put(opcode);
+			put(index);
+		}
+
+		/**
+		 * Instructions with a constant pool index.
+		 */
+		void ref(int opcode, int index)
+		{
+			put(opcode);
+			putShort(index);
+		}
+
+		void invokeInterface(int index, int arg_words)
+		{
+			put(INVOKEINTERFACE);
+			putShort(index);
+			// the receiver is counted, too
+			put(arg_words + 1);
+			put(0);
+		}
+
+		void pushInt(int value)
+		{
+			if((value >= -1) && (value <= 5))
+			{
+				put(ICONST_0 + value);
+			}
+			else if((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE))
+			{
+				put(BIPUSH);
+				put(value);
+			}
+			else if((value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE))
+			{
+				put(SIPUSH);
+				putShort(value);
+			}
+			else
+			{
+				int idx = cw.integer(value);
+				if(idx <= 0xFF)
+				{
+					put(LDC);
+					put(idx);
+				}
+				else
+				{
+					put(LDC_W);
+					putShort(idx);
+				}
+			}
+		}
+
+		/**
+		 * Emits a conditional jump whose target is set by bindJump().
+		 * @return The position of the jump.
+		 */
+		int jump(int opcode)
+		{
+			int pos = size;
+			put(opcode);
+			putShort(0);
+			return pos;
+		}
+
+		/**
+		 * Lets the jump at pos continue at the current position.
+		 */
+		void bindJump(int pos)
+		{
+			int offset = size - pos;
+			code[pos + 1] = (byte)(offset >> 8);
+			code[pos + 2] = (byte)offset;
+		}
+	}
+}
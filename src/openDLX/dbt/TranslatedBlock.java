@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.dbt;
+
+import openDLX.datatypes.Instruction;
+import openDLX.exception.PipelineException;
+
+/**
+ * Base class of the classes generated by the BlockTranslator. A block is a
+ * sequence of instructions at consecutive addresses, that is either left at
+ * its end or by the branch that ends it, after the branch delay slot.
+ */
+public abstract class TranslatedBlock
+{
+	// the instructions of the block, for operations delegated to the BlockRuntime
+	protected Instruction[] insts;
+	private int entry;
+
+	void init(int entry, Instruction[] insts)
+	{
+		this.entry = entry;
+		this.insts = insts;
+	}
+
+	/**
+	 * @return The address of the first instruction.
+	 */
+	public int getEntry()
+	{
+		return entry;
+	}
+
+	/**
+	 * @return The maximum number of instructions executed by the block.
+	 */
+	public int getLength()
+	{
+		return insts.length;
+	}
+
+	/**
+	 * @return true if addr is the address of an instruction of the block, except the first.
+	 */
+	public boolean containsAfterEntry(int addr)
+	{
+		return (addr > entry) && (addr < entry + 4 * insts.length);
+	}
+
+	/**
+	 * Executes the block on the general purpose registers.
+	 * @param rt The executor the memory accesses and untranslated instructions are delegated to.
+	 * @param r The general purpose registers.
+	 * @return The address of the next instruction.
+	 */
+	public abstract int execute(BlockRuntime rt, int[] r) throws PipelineException;
+}
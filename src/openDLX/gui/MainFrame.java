@@ -189,6 +189,11 @@ public class MainFrame extends JFrame implements ActionListener, ItemListener
 
     public void setOpenDLXSim(OpenDLXSimulator openDLXSim)
     {
+        if ((this.openDLXSim != null) && (this.openDLXSim != openDLXSim))
+        {
+            // the replaced simulator is not used anymore
+            this.openDLXSim.closeMetrics();
+        }
         this.openDLXSim = openDLXSim;
         pexHandler.setSimulator(openDLXSim);
     }
@@ -48,6 +48,8 @@ public class CommandCreateOpenDLXSim implements Command
         {
             //create new openDLX simulator
             openDLXSim = new OpenDLXSimulator(configFile);
+            // the clock cycle frame shows the pipeline occupancy
+            openDLXSim.getContext().getClockCycleLog().setEnabled(true);
             //state executing means openDLX is loaded
             mf.setOpenDLXSimState(OpenDLXSimState.EXECUTING);
             // assign new openDLX to MainFrame
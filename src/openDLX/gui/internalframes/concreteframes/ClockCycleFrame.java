@@ -26,7 +26,6 @@ import java.awt.Dimension;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
@@ -49,6 +48,7 @@ import openDLX.util.ClockCycleLog;
 public final class ClockCycleFrame extends OpenDLXSimInternalFrame implements GUI_CONST
 {
 
+    private static final String[] STAGE_NAMES = { FETCH, DECODE, EXECUTE, MEMORY, WRITEBACK };
     private final OpenDLXSimulator openDLXSim;
     //frame text
     private final String addrHeaderText = "Address";
@@ -194,11 +194,12 @@ public final class ClockCycleFrame extends OpenDLXSimInternalFrame implements GU
         model.setRowCount(0);
         DLXAssembler asm = new DLXAssembler();
 
-        int i = 0;
-        for (uint32 addr : ClockCycleLog.code)
+        ClockCycleLog log = openDLXSim.getContext().getClockCycleLog();
+        for (int i = 0; i < log.size(); ++i)
         {
             try
             {
+                uint32 addr = new uint32(log.getPc(i, ClockCycleLog.FETCH));
                 uint32 inst = openDLXSim.getPipeline().getInstructionMemory().read_u32(addr);
                 String instStr = asm.Instr2Str(inst.getValue());
                 addrModel.addRow(new String[] { addr.getValueAsHexString() });
@@ -206,22 +207,27 @@ public final class ClockCycleFrame extends OpenDLXSimInternalFrame implements GU
                 model.addColumn(i);
                 model.addRow(new String[] { "" });
 
-                final HashMap<uint32, String> h = ClockCycleLog.log.get(i);
-                for (uint32 checkAddr : h.keySet())
+                // a PC in several stages is shown in the latest stage
+                final ArrayList<Integer> shown = new ArrayList<>();
+                for (int stage = ClockCycleLog.STAGES - 1; stage >= 0; --stage)
                 {
-                    final ArrayList<uint32> forbidden = new ArrayList<>();
+                    final int checkAddr = log.getPc(i, stage);
+                    if (shown.contains(checkAddr))
+                    {
+                        continue;
+                    }
+                    shown.add(checkAddr);
+                    final String checkAddrStr = uint32.toHexString(checkAddr);
                     for (int k = addrModel.getRowCount() - 1; k >= 0; --k)
                     {
-                        if (addrModel.getValueAt(k, 0).equals(checkAddr.getValueAsHexString())
-                                && !forbidden.contains(checkAddr)
+                        if (addrModel.getValueAt(k, 0).equals(checkAddrStr)
                                 && !instStr.contains("bubble"))
                         {
-                            model.setValueAt(h.get(checkAddr), k, i);
-                            forbidden.add(checkAddr);
+                            model.setValueAt(STAGE_NAMES[stage], k, i);
+                            break;
                         }
                     }
                 }
-                ++i;
             }
             catch (MemoryException e)
             {
@@ -49,6 +49,7 @@ import openDLX.gui.internalframes.factories.InternalFrameFactory;
 import openDLX.gui.internalframes.factories.tableFactories.MemoryTableFactory;
 import openDLX.gui.internalframes.util.TableSizeCalculator;
 import openDLX.gui.internalframes.util.ValueInput;
+import openDLX.memory.MainMemory;
 
 @SuppressWarnings("serial")
 public final class MemoryFrame extends OpenDLXSimInternalFrame implements ActionListener, KeyListener, FocusListener
@@ -63,6 +64,10 @@ public final class MemoryFrame extends OpenDLXSimInternalFrame implements Action
     private JLabel rowLabel;
     private JLabel addrLabel;
     private MainFrame mf;
+    // the memory and its write tracking epoch the table shows, only words written since then are read again
+    private MainMemory shownMemory;
+    private int shownEpoch;
+    private boolean shownAsHex;
 
     public MemoryFrame(String name, MainFrame mf)
     {
@@ -79,12 +84,19 @@ public final class MemoryFrame extends OpenDLXSimInternalFrame implements Action
         if (model.getColumnCount() > 0)
         {
             String startAddrString = model.getValueAt(0, 0).toString();
+            int firstAddr = Integer.parseInt(startAddrString.substring(2), 16);
+            MainMemory memory = MainFrame.getInstance().getOpenDLXSim().getPipeline().getMainMemory();
+            // a reloaded program or a changed number format requires to read all words
+            boolean all = (memory != shownMemory) || (Preference.displayMemoryAsHex() != shownAsHex);
 
             try
             {
                 for (int i = 0; i < model.getRowCount(); ++i)
                 {
-                    final uint32 uint_val = MainFrame.getInstance().getOpenDLXSim().getPipeline().getMainMemory().read_u32(new uint32(Integer.parseInt(startAddrString.substring(2), 16) + i * 4));
+                    int addr = firstAddr + i * 4;
+                    if (!all && !memory.isModified(addr, shownEpoch))
+                        continue;
+                    final uint32 uint_val = memory.read_u32(new uint32(addr));
                     final Object value;
                     if (Preference.displayMemoryAsHex())
                         value = uint_val.getValueAsHexString();
@@ -92,6 +104,9 @@ public final class MemoryFrame extends OpenDLXSimInternalFrame implements Action
                         value = uint_val.getValue();
                     model.setValueAt(value, i, 1);
                 }
+                shownMemory = memory;
+                shownEpoch = memory.newEpoch();
+                shownAsHex = Preference.displayMemoryAsHex();
             }
             catch (MemoryException e)
             {
@@ -105,7 +120,11 @@ public final class MemoryFrame extends OpenDLXSimInternalFrame implements Action
     {
         super.initialize();
         setLayout(new BorderLayout());
-        memoryTable = new MemoryTableFactory(rows, startAddr).createTable();
+        MemoryTableFactory factory = new MemoryTableFactory(rows, startAddr);
+        memoryTable = factory.createTable();
+        shownMemory = MainFrame.getInstance().getOpenDLXSim().getPipeline().getMainMemory();
+        shownEpoch = factory.getEpoch();
+        shownAsHex = Preference.displayMemoryAsHex();
         JScrollPane scrollpane = new JScrollPane(memoryTable);
         scrollpane.setFocusable(false);
         memoryTable.setFillsViewportHeight(true);
@@ -36,6 +36,7 @@ import openDLX.gui.Preference;
 import openDLX.gui.command.userLevel.CommandChangeMemory;
 import openDLX.gui.internalframes.renderer.ChangeableFrameTableCellRenderer;
 import openDLX.gui.internalframes.util.NotSelectableTableModel;
+import openDLX.memory.MainMemory;
 
 public class MemoryTableFactory extends TableFactory
 {
@@ -43,6 +44,7 @@ public class MemoryTableFactory extends TableFactory
     private int rows;
     private int startAddr;
     private OpenDLXSimulator openDLXSim;
+    private int epoch;
 
     public MemoryTableFactory(int rows, int startAddr)
     {
@@ -62,17 +64,20 @@ public class MemoryTableFactory extends TableFactory
 
         try
         {
+            MainMemory memory = openDLXSim.getPipeline().getMainMemory();
             for (int i = 0; i < rows; ++i)
             {
                 final Object secondItem;
                 if (Preference.displayMemoryAsHex())
-                    secondItem = openDLXSim.getPipeline().getMainMemory().read_u32(new uint32(startAddr + i * 4), false);
+                    secondItem = memory.read_u32(new uint32(startAddr + i * 4), false);
                 else
-                    secondItem = openDLXSim.getPipeline().getMainMemory().read_u32(new uint32(startAddr + i * 4), false).getValue();
+                    secondItem = memory.read_u32(new uint32(startAddr + i * 4), false).getValue();
 
                 model.addRow(new Object[]
                         { new uint32(startAddr + i * 4), secondItem });
             }
+            // later updates only read the words written after the table was filled
+            epoch = memory.newEpoch();
         }
         catch (MemoryException e)
         {
@@ -104,4 +109,13 @@ public class MemoryTableFactory extends TableFactory
         return table;
     }
 
+    /**
+     * @return The write tracking epoch of the main memory, that was started
+     * after the table was filled.
+     */
+    public int getEpoch()
+    {
+        return epoch;
+    }
+
 }
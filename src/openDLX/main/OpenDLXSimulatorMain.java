@@ -59,6 +59,33 @@ public class OpenDLXSimulatorMain
     			}
     			main_cmd(cmd_args);
     		}
+    		else if (args[0].compareTo("-s") == 0)
+    		{
+    			String[] sweep_args = new String[args.length-1];
+    			for(int i = 0; i < args.length-1; i++)
+    			{
+    				sweep_args[i] = args[i+1];
+    			}
+    			SweepRunner.main_sweep(sweep_args);
+    		}
+    		else if (args[0].compareTo("-server") == 0)
+    		{
+    			String[] server_args = new String[args.length-1];
+    			for(int i = 0; i < args.length-1; i++)
+    			{
+    				server_args[i] = args[i+1];
+    			}
+    			SimulationServer.main_server(server_args);
+    		}
+    		else if (args[0].compareTo("-submit") == 0)
+    		{
+    			String[] submit_args = new String[args.length-1];
+    			for(int i = 0; i < args.length-1; i++)
+    			{
+    				submit_args[i] = args[i+1];
+    			}
+    			SimulationServer.main_submit(submit_args);
+    		}
     		else if (args[0].compareTo("-g") == 0)
     		{
     			main_gui();
@@ -92,6 +119,17 @@ public class OpenDLXSimulatorMain
     	System.out.println("|   java -jar openDLX.jar [-g]                 |");
     	System.out.println("| For non interactive version:                 |");
     	System.out.println("|   java -jar openDLX.jar -c config_file.cfg   |");
+    	System.out.println("| For a parallel parameter sweep:              |");
+    	System.out.println("|   java -jar openDLX.jar -s config_file.cfg   |");
+    	System.out.println("|     [-o out] [-f csv|json] [-t threads]      |");
+    	System.out.println("|     [-r trace_file (replay instead of sim.)] |");
+    	System.out.println("|     key=v1,v2,.. key=from:to:[*]step ..      |");
+    	System.out.println("| For a local simulation server:               |");
+    	System.out.println("|   java -jar openDLX.jar -server [-p port]    |");
+    	System.out.println("|     [-t threads]                             |");
+    	System.out.println("| To submit jobs to the server:                |");
+    	System.out.println("|   java -jar openDLX.jar -submit [-p port]    |");
+    	System.out.println("|     config_file.cfg|- .. [key=value ..]      |");
     	System.out.println("| This help message:                           |");
     	System.out.println("|   java -jar openDLX.jar -h                   |");
       	System.out.println("| About & license information:                 |");
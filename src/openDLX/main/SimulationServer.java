@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import openDLX.OpenDLXSimulator;
+import openDLX.SimulationContext;
+import openDLX.datatypes.SpecialRegisters;
+import openDLX.datatypes.uint32;
+import openDLX.datatypes.uint8;
+import openDLX.exception.PipelineException;
+import openDLX.util.Statistics;
+
+/**
+ * Simulates jobs that are submitted over a local TCP connection, such that
+ * many short simulations share one warmed up JVM instead of paying the JVM
+ * start for every run.
+ *
+ * A job is a configuration in the properties format, terminated by a line
+ * that only holds a ".". If the job contains the key "config", the
+ * configuration file it names is loaded first and the other keys of the job
+ * override it. A client sends any number of jobs and then shuts down its
+ * output. The jobs are simulated on a bounded pool of worker threads, every
+ * job by its own simulator with its own SimulationContext, and one line of
+ * JSON per job is sent back in the order of the jobs, holding the
+ * statistics and the register contents.
+ *
+ * The server only accepts connections from the local host.
+ */
+public class SimulationServer
+{
+    public static final int DEFAULT_PORT = 4711;
+    static final String END_OF_JOB = ".";
+    static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private final int port;
+    private final ExecutorService workers;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final AtomicInteger next_job = new AtomicInteger();
+
+    public SimulationServer(int port, int threads)
+    {
+        this.port = port;
+        workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Accepts connections until the process is terminated.
+     *
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public void run() throws IOException
+    {
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        try
+        {
+            while (true)
+            {
+                final Socket socket = server.accept();
+                connections.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        serve(socket);
+                    }
+                });
+            }
+        }
+        finally
+        {
+            server.close();
+            connections.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try
+        {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), CHARSET));
+            List<Future<String>> results = new ArrayList<>();
+
+            // the jobs run while the following jobs are read
+            StringBuilder job = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                if (line.equals(END_OF_JOB))
+                {
+                    results.add(submit(job.toString()));
+                    job.setLength(0);
+                }
+                else
+                {
+                    job.append(line).append('\n');
+                }
+            }
+            if (job.toString().trim().length() > 0)
+            {
+                results.add(submit(job.toString()));
+            }
+
+            for (Future<String> result : results)
+            {
+                try
+                {
+                    out.println(result.get());
+                }
+                catch (ExecutionException e)
+                {
+                    // simulate() reports errors in its result line
+                    e.getCause().printStackTrace();
+                }
+                out.flush();
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Connection failed: " + e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // the connection is gone anyway
+            }
+        }
+    }
+
+    private Future<String> submit(final String job)
+    {
+        final int index = next_job.getAndIncrement();
+        return workers.submit(new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                return simulate(index, job);
+            }
+        });
+    }
+
+    private static String simulate(int index, String job)
+    {
+        SimulationContext context = new SimulationContext();
+        context.discardConsole();
+        OpenDLXSimulator sim = null;
+        String error = "";
+
+        try
+        {
+            Properties job_config = new Properties();
+            job_config.load(new StringReader(job));
+            Properties config = new Properties();
+            if (job_config.containsKey("config"))
+            {
+                String cfg_file = job_config.getProperty("config");
+                if (!new File(cfg_file).isFile())
+                {
+                    throw new IOException("Cannot find configuration " + cfg_file);
+                }
+                config.putAll(OpenDLXSimulator.loadConfig(cfg_file));
+                job_config.remove("config");
+            }
+            config.putAll(job_config);
+            // concurrent jobs must not write to the same files
+            if (!config.containsKey("print_file"))
+            {
+                config.setProperty("print_file", "printf.out");
+            }
+            SweepRunner.separateOutputFiles(config, index);
+
+            sim = new OpenDLXSimulator(config, context);
+            while (!sim.isFinished())
+            {
+                sim.step();
+            }
+        }
+        catch (IOException e)
+        {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        catch (PipelineException e)
+        {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        catch (RuntimeException e)
+        {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        return jsonLine(index, context.getStatistics(), sim, error);
+    }
+
+    private static String jsonLine(int index, Statistics stat, OpenDLXSimulator sim, String error)
+    {
+        StringBuilder sb = new StringBuilder("{\"job\":").append(index);
+        String[] results = SweepRunner.resultValues(stat, error);
+        for (int r = 0; r < SweepRunner.RESULT_COLUMNS.length; r++)
+        {
+            String column = SweepRunner.RESULT_COLUMNS[r];
+            if (column.equals("error"))
+            {
+                continue;
+            }
+            sb.append(',').append(SweepRunner.jsonString(column)).append(':').append(results[r].isEmpty() ? "null" : results[r]);
+        }
+        sb.append(",\"fetches\":").append(stat.getFetches());
+        sb.append(",\"memory_reads\":").append(stat.getMemory_reads());
+        sb.append(",\"memory_writes\":").append(stat.getMemory_writes());
+        sb.append(",\"jumps_taken\":").append(stat.getJumps_taken());
+        sb.append(",\"jumps_not_taken\":").append(stat.getJumps_nottaken());
+
+        if (sim != null)
+        {
+            sb.append(",\"registers\":[");
+            for (int r = 0; r < 32; r++)
+            {
+                if (r > 0)
+                {
+                    sb.append(',');
+                }
+                sb.append('"').append(sim.getPipeline().getRegisterSet().read(new uint8(r)).getValueAsHexString()).append('"');
+            }
+            sb.append(']');
+            sb.append(",\"lo\":\"").append(sim.getPipeline().getRegisterSet().read_SP(SpecialRegisters.LO).getValueAsHexString()).append('"');
+            sb.append(",\"hi\":\"").append(sim.getPipeline().getRegisterSet().read_SP(SpecialRegisters.HI).getValueAsHexString()).append('"');
+            sb.append(",\"pc\":\"").append(uint32.toHexString(sim.getPipeline().getFetchStage().getPcValue())).append('"');
+        }
+        sb.append(",\"error\":").append(error.isEmpty() ? "null" : SweepRunner.jsonString(error));
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Sends the jobs to a running server and prints the result lines.
+     *
+     * @param port The port of the server on the local host.
+     * @param jobs The jobs in the properties format.
+     * @return true if all jobs were simulated without error.
+     * @throws IOException if the server cannot be reached.
+     */
+    public static boolean submit(int port, List<String> jobs) throws IOException
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        boolean success = true;
+        try
+        {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), CHARSET));
+            for (String job : jobs)
+            {
+                out.print(job);
+                out.println(END_OF_JOB);
+            }
+            out.flush();
+            socket.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                System.out.println(line);
+                success &= line.endsWith("\"error\":null}");
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+        return success;
+    }
+
+    /**
+     * Command line entry: [-p port] [-t threads]
+     */
+    static void main_server(String[] args)
+    {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                if (args[i].equals("-p") && i + 1 < args.length)
+                {
+                    port = Integer.parseInt(args[++i]);
+                }
+                else if (args[i].equals("-t") && i + 1 < args.length)
+                {
+                    threads = Integer.parseInt(args[++i]);
+                }
+                else
+                {
+                    OpenDLXSimulatorMain.usage();
+                    System.exit(1);
+                }
+            }
+
+            System.err.println("Simulation server listening on port " + port + " with " + threads + " threads.");
+            new SimulationServer(port, threads).run();
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("Invalid number: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot run the simulation server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Command line entry: [-p port] config_file.cfg... [key=value...]
+     * The key=value pairs override the configuration of every job, a
+     * configuration file "-" reads a job from the standard input.
+     */
+    static void main_submit(String[] args)
+    {
+        int port = DEFAULT_PORT;
+        List<String> cfg_files = new ArrayList<>();
+        StringBuilder overrides = new StringBuilder();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-p") && i + 1 < args.length)
+            {
+                port = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].indexOf('=') > 0)
+            {
+                overrides.append(args[i]).append('\n');
+            }
+            else
+            {
+                cfg_files.add(args[i]);
+            }
+        }
+        if (cfg_files.isEmpty())
+        {
+            OpenDLXSimulatorMain.usage();
+            System.exit(1);
+        }
+
+        try
+        {
+            List<String> jobs = new ArrayList<>();
+            for (String cfg_file : cfg_files)
+            {
+                StringBuilder job = new StringBuilder();
+                if (cfg_file.equals("-"))
+                {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+                    String line;
+                    while ((line = in.readLine()) != null && !line.equals(END_OF_JOB))
+                    {
+                        job.append(line).append('\n');
+                    }
+                }
+                else
+                {
+                    // the server may run in another working directory
+                    job.append("config=").append(new File(cfg_file).getAbsolutePath().replace("\\", "\\\\")).append('\n');
+                }
+                jobs.add(job.append(overrides).toString());
+            }
+            System.exit(submit(port, jobs) ? 0 : 2);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Cannot submit to the simulation server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.main;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+import openDLX.OpenDLXSimulator;
+import openDLX.SimulationContext;
+import openDLX.exception.PipelineException;
+import openDLX.trace.TraceReplay;
+import openDLX.util.Statistics;
+
+/**
+ * Runs the cross product of configuration parameter ranges on top of a base
+ * configuration. Every point of the design space is simulated by its own
+ * simulator with its own SimulationContext, the points are distributed on a
+ * work stealing pool and one line of results is written per finished point.
+ *
+ * A range is given as key=v1,v2,... or key=from:to:step, where a step
+ * starting with '*' multiplies instead of adds, e.g. btb_size=4:64:*2.
+ *
+ * If a trace is given, the points replay it on their caches and branch
+ * predictors with a TraceReplay instead of simulating the pipeline.
+ */
+public class SweepRunner
+{
+    static final String[] RESULT_COLUMNS = { "cycles", "instructions", "cpi",
+            "icache_hits", "icache_misses", "dcache_hits", "dcache_misses",
+            "btb_hits", "btb_misses", "jumps_correctly_predicted", "jumps_mispredicted", "error" };
+
+    // configuration keys of the files a simulator writes
+    private static final String[] OUTPUT_FILE_KEYS = { "print_file", "checkpoint_save", "trace_file",
+            "clock_cycle_log_spill" };
+
+    private final Properties base_config;
+    private final List<String> keys = new ArrayList<>();
+    private final List<List<String>> values = new ArrayList<>();
+    private boolean json = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private PrintStream out = System.out;
+    private String replay_trace = null;
+
+    public SweepRunner(Properties base_config)
+    {
+        this.base_config = base_config;
+    }
+
+    /**
+     * Adds a parameter range to the design space.
+     *
+     * @param range The range in the form key=v1,v2,... or key=from:to:[*]step.
+     * @throws IllegalArgumentException if the range cannot be parsed.
+     */
+    public void addRange(String range)
+    {
+        int eq = range.indexOf('=');
+        if (eq <= 0 || eq == range.length() - 1)
+        {
+            throw new IllegalArgumentException("Invalid parameter range: " + range);
+        }
+        String key = range.substring(0, eq).trim();
+        String spec = range.substring(eq + 1).trim();
+        List<String> range_values = new ArrayList<>();
+
+        String[] bounds = spec.split(":");
+        if (bounds.length == 3)
+        {
+            long from = Long.decode(bounds[0].trim());
+            long to = Long.decode(bounds[1].trim());
+            boolean multiply = bounds[2].trim().startsWith("*");
+            long step = Long.decode(multiply ? bounds[2].trim().substring(1) : bounds[2].trim());
+            if ((multiply && (step < 2 || from < 1)) || (!multiply && step < 1))
+            {
+                throw new IllegalArgumentException("Invalid step in parameter range: " + range);
+            }
+            for (long v = from; v <= to; v = multiply ? v * step : v + step)
+            {
+                range_values.add(Long.toString(v));
+            }
+        }
+        else if (bounds.length == 1)
+        {
+            for (String v : spec.split(","))
+            {
+                range_values.add(v.trim());
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Invalid parameter range: " + range);
+        }
+
+        if (range_values.isEmpty())
+        {
+            throw new IllegalArgumentException("Empty parameter range: " + range);
+        }
+        keys.add(key);
+        values.add(range_values);
+    }
+
+    public void setJson(boolean json)
+    {
+        this.json = json;
+    }
+
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    public void setOutput(PrintStream out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * @param trace_file The trace that is replayed for every point, or null to simulate the pipeline.
+     */
+    public void setReplayTrace(String trace_file)
+    {
+        replay_trace = trace_file;
+    }
+
+    /**
+     * @return The number of points of the design space.
+     */
+    public int getPointCount()
+    {
+        int count = 1;
+        for (List<String> v : values)
+        {
+            count *= v.size();
+        }
+        return count;
+    }
+
+    /**
+     * Simulates all points and writes the results in the order the points
+     * finish, every line carries the index of its point.
+     *
+     * @throws InterruptedException
+     */
+    public void run() throws InterruptedException
+    {
+        int points = getPointCount();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        CompletionService<String> results = new ExecutorCompletionService<>(pool);
+
+        for (int i = 0; i < points; i++)
+        {
+            final int index = i;
+            results.submit(new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return simulatePoint(index);
+                }
+            });
+        }
+
+        if (!json)
+        {
+            out.println(csvHeader());
+        }
+
+        try
+        {
+            for (int i = 0; i < points; i++)
+            {
+                try
+                {
+                    out.println(results.take().get());
+                }
+                catch (ExecutionException e)
+                {
+                    // simulatePoint reports errors in its result line
+                    e.getCause().printStackTrace();
+                }
+                out.flush();
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    private String[] pointValues(int index)
+    {
+        String[] point = new String[keys.size()];
+        for (int k = keys.size() - 1; k >= 0; k--)
+        {
+            List<String> v = values.get(k);
+            point[k] = v.get(index % v.size());
+            index /= v.size();
+        }
+        return point;
+    }
+
+    private String simulatePoint(int index)
+    {
+        String[] point = pointValues(index);
+        Properties config = new Properties();
+        config.putAll(base_config);
+        for (int k = 0; k < keys.size(); k++)
+        {
+            config.setProperty(keys.get(k), point[k]);
+        }
+        // concurrent points must not write to the same files
+        separateOutputFiles(config, index);
+
+        SimulationContext context = new SimulationContext();
+        context.discardConsole();
+        String error = "";
+
+        try
+        {
+            if (replay_trace != null)
+            {
+                new TraceReplay(config, context).replay(replay_trace);
+            }
+            else
+            {
+                OpenDLXSimulator sim = new OpenDLXSimulator(config, context);
+                while (!sim.isFinished())
+                {
+                    sim.step();
+                }
+            }
+        }
+        catch (PipelineException e)
+        {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        catch (RuntimeException e)
+        {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        return json ? jsonLine(index, point, context.getStatistics(), error)
+                : csvLine(index, point, context.getStatistics(), error);
+    }
+
+    static String[] resultValues(Statistics stat, String error)
+    {
+        String cpi = (stat.getInstructions() > 0 && stat.getCycles() > 0) ?
+                String.format(Locale.ROOT, "%.4f", ((double) stat.getCycles()) / stat.getInstructions()) : "";
+        return new String[] { Integer.toString(stat.getCycles()), Integer.toString(stat.getInstructions()), cpi,
+                Integer.toString(stat.getIcache_hits()), Integer.toString(stat.getIcache_misses()),
+                Integer.toString(stat.getDcache_hits()), Integer.toString(stat.getDcache_misses()),
+                Integer.toString(stat.getBtb_hits()), Integer.toString(stat.getBtb_misses()),
+                Integer.toString(stat.getJumps_correctly_predicted()), Integer.toString(stat.getJumps_mispredicted()),
+                error };
+    }
+
+    /**
+     * Appends "." and the given index to every output file of the
+     * configuration, so that simulators that run concurrently do not write
+     * to the same files.
+     */
+    static void separateOutputFiles(Properties config, int index)
+    {
+        for (String file_key : OUTPUT_FILE_KEYS)
+        {
+            if (config.containsKey(file_key))
+            {
+                config.setProperty(file_key, config.getProperty(file_key) + "." + index);
+            }
+        }
+    }
+
+    private String csvHeader()
+    {
+        StringBuilder sb = new StringBuilder("point");
+        for (String key : keys)
+        {
+            sb.append(',').append(csvField(key));
+        }
+        for (String column : RESULT_COLUMNS)
+        {
+            sb.append(',').append(column);
+        }
+        return sb.toString();
+    }
+
+    private String csvLine(int index, String[] point, Statistics stat, String error)
+    {
+        StringBuilder sb = new StringBuilder(Integer.toString(index));
+        for (String v : point)
+        {
+            sb.append(',').append(csvField(v));
+        }
+        for (String v : resultValues(stat, error))
+        {
+            sb.append(',').append(csvField(v));
+        }
+        return sb.toString();
+    }
+
+    private String jsonLine(int index, String[] point, Statistics stat, String error)
+    {
+        StringBuilder sb = new StringBuilder("{\"point\":").append(index).append(",\"parameters\":{");
+        for (int k = 0; k < keys.size(); k++)
+        {
+            if (k > 0)
+            {
+                sb.append(',');
+            }
+            sb.append(jsonString(keys.get(k))).append(':').append(jsonString(point[k]));
+        }
+        sb.append('}');
+        String[] results = resultValues(stat, error);
+        for (int r = 0; r < RESULT_COLUMNS.length; r++)
+        {
+            sb.append(',').append(jsonString(RESULT_COLUMNS[r])).append(':');
+            if (RESULT_COLUMNS[r].equals("error"))
+            {
+                sb.append(results[r].isEmpty() ? "null" : jsonString(results[r]));
+            }
+            else
+            {
+                sb.append(results[r].isEmpty() ? "null" : results[r]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String csvField(String s)
+    {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+        {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    static String jsonString(String s)
+    {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray())
+        {
+            switch (c)
+            {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                if (c < 0x20)
+                {
+                    sb.append(String.format("\\u%04x", (int) c));
+                }
+                else
+                {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Command line entry: base_config.cfg [-o out_file] [-f csv|json]
+     * [-t threads] [-r trace_file] range...
+     */
+    static void main_sweep(String[] args)
+    {
+        if (args.length < 2)
+        {
+            OpenDLXSimulatorMain.usage();
+            System.exit(1);
+        }
+
+        SweepRunner sweep = new SweepRunner(OpenDLXSimulator.loadConfig(args[0]));
+        PrintStream out = System.out;
+
+        try
+        {
+            for (int i = 1; i < args.length; i++)
+            {
+                if (args[i].equals("-o") && i + 1 < args.length)
+                {
+                    out = new PrintStream(args[++i]);
+                }
+                else if (args[i].equals("-f") && i + 1 < args.length)
+                {
+                    String format = args[++i];
+                    if (!format.equalsIgnoreCase("csv") && !format.equalsIgnoreCase("json"))
+                    {
+                        throw new IllegalArgumentException("Invalid output format: " + format + " (use csv or json)");
+                    }
+                    sweep.setJson(format.equalsIgnoreCase("json"));
+                }
+                else if (args[i].equals("-t") && i + 1 < args.length)
+                {
+                    sweep.setThreads(Integer.parseInt(args[++i]));
+                }
+                else if (args[i].equals("-r") && i + 1 < args.length)
+                {
+                    sweep.setReplayTrace(args[++i]);
+                }
+                else
+                {
+                    sweep.addRange(args[i]);
+                }
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            System.err.println("Cannot open output file: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        sweep.setOutput(out);
+        System.err.println("Simulating " + sweep.getPointCount() + " configurations.");
+        try
+        {
+            sweep.run();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+}
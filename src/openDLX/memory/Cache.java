@@ -21,12 +21,17 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 
 import openDLX.PipelineConstants;
 import openDLX.datatypes.CacheReplacementPolicy;
 import openDLX.datatypes.CacheType;
 import openDLX.datatypes.DCacheWritePolicy;
+import openDLX.datatypes.EventType;
 import openDLX.datatypes.RequestType;
 import openDLX.datatypes.uint32;
 import openDLX.datatypes.uint8;
@@ -35,17 +40,18 @@ import openDLX.exception.MemoryException;
 import openDLX.exception.PipelineDataTypeException;
 import openDLX.util.CacheAddressCalculator;
 import openDLX.util.CalculationHelper;
+import openDLX.util.EventLog;
 import openDLX.util.Statistics;
 
 public abstract class Cache implements MemoryInterface {
 
 	private Logger logger; 
 	
-	protected Statistics stat = Statistics.getInstance();
+	protected Statistics stat;
 	
 	protected CacheType cache_type;
 	
-	protected MainMemory mem;
+	protected MemoryInterface mem;
 	/// Size of the cache line in bytes 
 	protected int line_size;
 	protected int words_per_line;
@@ -62,8 +68,25 @@ public abstract class Cache implements MemoryInterface {
 	protected int index_size;
 	
 	protected CacheLine cache_memory[][];
+	// tag and valid and dirty bit of the line of each way and index, at index * associativity + way
+	protected int tags[];
+	protected long valid_bits[];
+	protected long dirty_bits[];
+	
+	protected int tag_mask;
+	protected int index_mask;
+	protected int offset_mask;
+	
+	// the line address and way of the last probe
+	private boolean probe_cached = false;
+	private int probe_line_addr;
+	private int probe_way;
+
+	private EventLog events = new EventLog();
+	private EventType read_hit_event;
+	private EventType read_miss_event;
 	
-	public Cache(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public Cache(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
 		if(type != CacheType.DCACHE)
 		{
@@ -75,12 +98,13 @@ public abstract class Cache implements MemoryInterface {
 		this.line_no = line_no;
 		this.associativity = associativity;
 		this.mem = mem;
+		this.stat = stat;
 		this.write_policy = write_policy;
 		
 		initialize();
 	}
 	
-	public Cache(CacheType type, int line_size, int line_no, int associativity, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public Cache(CacheType type, int line_size, int line_no, int associativity, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
 		if(type != CacheType.ICACHE)
 		{
@@ -92,6 +116,7 @@ public abstract class Cache implements MemoryInterface {
 		this.line_no = line_no;
 		this.associativity = associativity;
 		this.mem = mem;
+		this.stat = stat;
 		// ICACHE has no write policy
 		this.write_policy = DCacheWritePolicy.UNKNOWN;
 		
@@ -103,10 +128,14 @@ public abstract class Cache implements MemoryInterface {
 		if(cache_type == CacheType.ICACHE)
 		{
 			logger = Logger.getLogger("ICache");
+			read_hit_event = EventType.ICACHE_READ_HIT;
+			read_miss_event = EventType.ICACHE_READ_MISS;
 		}
 		else if(cache_type == CacheType.DCACHE)
 		{
 			logger = Logger.getLogger("DCache");
+			read_hit_event = EventType.DCACHE_READ_HIT;
+			read_miss_event = EventType.DCACHE_READ_MISS;
 		}
 		else
 		{
@@ -161,10 +190,18 @@ public abstract class Cache implements MemoryInterface {
 		{
 			for(int i = 0; i < this.lines_per_set; i++)
 			{
-				cache_memory[j][i] = new CacheLine(this.line_size, this.tag_size);
+				cache_memory[j][i] = new CacheLine(this.line_size);
 			}
 		}
 		
+		tags = new int[line_no];
+		valid_bits = new long[(line_no + 63) / 64];
+		dirty_bits = new long[(line_no + 63) / 64];
+		
+		offset_mask = CalculationHelper.generateBitStringOfOnes(block_offset_size);
+		index_mask = CalculationHelper.generateBitStringOfOnes(index_size);
+		tag_mask = ~(CalculationHelper.generateBitStringOfOnes(index_size + block_offset_size));
+		
 		logger.info("Initialized " + cache_type + " with " + associativity + " ways, " + line_no + " lines, " + lines_per_set + " lines per set, " + words_per_line + " words per line, " + tag_size + " bits for tag, " + index_size + " bits for index, and " + block_offset_size + " bits for block offset. Cache is of type: " + this.getClass());
 	}
 
@@ -181,18 +218,24 @@ public abstract class Cache implements MemoryInterface {
 		
 		if(log_output)
 		{
-			logger.debug("Read u32 from addr: " + addr.getValueAsHexString());
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("Read u32 from addr: " + addr.getValueAsHexString());
+			}
 		}
 		
-		if(isHit(addr))
+		int way = probe(addr.getValue());
+		if(way >= 0)
 		{
 			int index = getIndex(addr);
-			int way = getCacheWayForHit(addr);
 			value.setValue(cache_memory[way][index].getWord(getBlockOffset(addr)));
 			
+			if(events.isEnabled())
+			{
+				events.record(read_hit_event, 0, addr.getValue(), value.getValue());
+			}
 			if(log_output)
 			{
-				logger.debug("Hit in way " + way + " in cache line " + index + " for address " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString());
 				dumpCacheLine(index);
 			}
 			
@@ -205,24 +248,25 @@ public abstract class Cache implements MemoryInterface {
 		{
 			int cache_line_address = getCacheLineAddr(addr);
 			
-			byte line[] = new byte[line_size];
-			
-			for(int i = 0; i < line_size; i++)
-			{
-				line[i] = mem.read_u8(new uint32(cache_line_address + i)).getValue();
-			}
+			byte line[] = readLine(cache_line_address);
 			
-			value.setValue(mem.read_u32(addr));
 			int index = getIndex(addr);
-			int way = getCacheWayForReplacement(addr);
+			way = getCacheWayForReplacement(addr);
 			
-			logger.debug("Accessing way: " + way + " index: " + index);
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("Accessing way: " + way + " index: " + index);
+			}
 			
-			cache_memory[way][index].setLine(getTagFromAddress(addr), line);
+			fill(way, index, addr.getValue(), line);
+			value.setValue(cache_memory[way][index].getWord(getBlockOffset(addr)));
 			
+			if(events.isEnabled())
+			{
+				events.record(read_miss_event, 0, addr.getValue(), value.getValue());
+			}
 			if(log_output)
 			{
-				logger.debug("Miss in cache for address " + addr.getValueAsHexString() + " replaced cache line " + index + " in way " + way + " loaded value: " + value.getValueAsHexString());
 				dumpCacheLine(index);
 			}
 
@@ -245,18 +289,24 @@ public abstract class Cache implements MemoryInterface {
 		
 		if(log_output)
 		{
-			logger.debug("Read u8 from addr: " + addr.getValueAsHexString());
+			if(logger.isDebugEnabled())
+			{
+				logger.debug("Read u8 from addr: " + addr.getValueAsHexString());
+			}
 		}
 		
-		if(isHit(addr))
+		int way = probe(addr.getValue());
+		if(way >= 0)
 		{
 			int index = getIndex(addr);
-			int way = getCacheWayForHit(addr);
 			value.setValue(cache_memory[way][index].getByte(getBlockOffset(addr)));
 			
+			if(events.isEnabled())
+			{
+				events.record(read_hit_event, 0, addr.getValue(), (value.getValue() & 0xff));
+			}
 			if(log_output)
 			{
-				logger.debug("Hit in way " + way + " in cache line " + index + " for address " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString() + " (read byte " + (getBlockOffset(addr)&0x3) + " from word " + cache_memory[way][index].getWord(getBlockOffset(addr)&(~0x3)) + ")");
 				dumpCacheLine(index);
 			}
 			
@@ -266,21 +316,19 @@ public abstract class Cache implements MemoryInterface {
 		{
 			int cache_line_address = getCacheLineAddr(addr);
 			
-			byte line[] = new byte[line_size];
-			
-			for(int i = 0; i < line_size; i++)
-			{
-				line[i] = mem.read_u8(new uint32(cache_line_address + i)).getValue();
-			}
+			byte line[] = readLine(cache_line_address);
 			
-			value.setValue(mem.read_u8(addr));
 			int index = getIndex(addr);
-			int way = getCacheWayForReplacement(addr);
-			cache_memory[way][index].setLine(getTagFromAddress(addr), line);
+			way = getCacheWayForReplacement(addr);
+			fill(way, index, addr.getValue(), line);
+			value.setValue(cache_memory[way][index].getByte(getBlockOffset(addr)));
 			
+			if(events.isEnabled())
+			{
+				events.record(read_miss_event, 0, addr.getValue(), (value.getValue() & 0xff));
+			}
 			if(log_output)
 			{
-				logger.debug("Miss in cache for address " + addr.getValueAsHexString() + " replaced cache line " + index + " in way " + way + " loaded value: " + value.getValueAsHexString() + " (read byte " + (getBlockOffset(addr)&0x3) + " from word " + cache_memory[way][index].getWord(getBlockOffset(addr)&(~0x3)) + ")");
 				dumpCacheLine(index);
 			}
 			
@@ -309,19 +357,24 @@ public abstract class Cache implements MemoryInterface {
 			throw new CacheException("Write u32 to unaligned addr: " + addr.getValueAsHexString());
 		}
 		
-		logger.debug("Write u32 to addr: " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString());
+		if(logger.isDebugEnabled())
+		{
+			logger.debug("Write u32 to addr: " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString());
+		}
 		
 		
-		if(isHit(addr))
+		int way = probe(addr.getValue());
+		if(way >= 0)
 		{
 			int index = getIndex(addr);
-			int way = getCacheWayForHit(addr);
-			uint32 old_value = cache_memory[way][index].getWord(getBlockOffset(addr));
 			
 			cache_memory[way][index].setWord(getBlockOffset(addr), value);
 			
 			
-			logger.debug("Hit in way " + way + " in cache line " + index + " for address " + addr.getValueAsHexString() + " old value: " + old_value.getValueAsHexString() + " new value: " + cache_memory[way][index].getWord(getBlockOffset(addr)));
+			if(events.isEnabled())
+			{
+				events.record(EventType.DCACHE_WRITE_HIT, 0, addr.getValue(), value.getValue());
+			}
 			dumpCacheLine(index);
 			
 			updateReplacementCountersOnAccess(way, index);
@@ -330,26 +383,22 @@ public abstract class Cache implements MemoryInterface {
 		else
 		{
 			int cache_line_address = getCacheLineAddr(addr);
-			uint32 old_value = new uint32();
 			
-			byte line[] = new byte[line_size];
+			byte line[] = readLine(cache_line_address);
 			
-			for(int i = 0; i < line_size; i++)
-			{
-				line[i] = mem.read_u8(new uint32(cache_line_address + i)).getValue();
-			}
-			
-			old_value.setValue(mem.read_u32(addr));
 			int index = getIndex(addr);
-			int way = getCacheWayForReplacement(addr);
+			way = getCacheWayForReplacement(addr);
 
 			// load cache line from memory
-			cache_memory[way][index].setLine(getTagFromAddress(addr), line);
+			fill(way, index, addr.getValue(), line);
 			
 			// write word into cache
 			cache_memory[way][index].setWord(getBlockOffset(addr), value);
 			
-			logger.debug("Miss in cache for address " + addr.getValueAsHexString() + " replaced cache line " + index + " in way " + way + " old_value: " + old_value.getValueAsHexString() + " new value: " + cache_memory[way][index].getWord(getBlockOffset(addr)));
+			if(events.isEnabled())
+			{
+				events.record(EventType.DCACHE_WRITE_MISS, 0, addr.getValue(), value.getValue());
+			}
 			dumpCacheLine(index);
 
 			updateReplacementCountersOnMiss(way, index);
@@ -381,19 +430,24 @@ public abstract class Cache implements MemoryInterface {
 		}
 	
 		
-		logger.debug("Write u8 to addr: " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString());
+		if(logger.isDebugEnabled())
+		{
+			logger.debug("Write u8 to addr: " + addr.getValueAsHexString() + " value: " + value.getValueAsHexString());
+		}
 		
 		
-		if(isHit(addr))
+		int way = probe(addr.getValue());
+		if(way >= 0)
 		{
 			int index = getIndex(addr);
-			int way = getCacheWayForHit(addr);
-			uint8 old_value = cache_memory[way][index].getByte(getBlockOffset(addr));
 			
 			cache_memory[way][index].setByte(getBlockOffset(addr), value);
 			
 			
-			logger.debug("Hit in way " + way + " in cache line " + index + " for address " + addr.getValueAsHexString() + " old value: " + old_value.getValueAsHexString() + " new value: " + cache_memory[way][index].getByte(getBlockOffset(addr)) + " (written byte " + (getBlockOffset(addr)&0x3) + " of word " + cache_memory[way][index].getWord(getBlockOffset(addr)&(~0x3)) + ")");
+			if(events.isEnabled())
+			{
+				events.record(EventType.DCACHE_WRITE_HIT, 0, addr.getValue(), (value.getValue() & 0xff));
+			}
 			dumpCacheLine(index);
 			
 			updateReplacementCountersOnAccess(way, index);
@@ -402,26 +456,22 @@ public abstract class Cache implements MemoryInterface {
 		else
 		{
 			int cache_line_address = getCacheLineAddr(addr);
-			uint32 old_value = new uint32();
-			
-			byte line[] = new byte[line_size];
 			
-			for(int i = 0; i < line_size; i++)
-			{
-				line[i] = mem.read_u8(new uint32(cache_line_address + i)).getValue();
-			}
+			byte line[] = readLine(cache_line_address);
 			
-			old_value.setValue(mem.read_u32(addr));
 			int index = getIndex(addr);
-			int way = getCacheWayForReplacement(addr);
+			way = getCacheWayForReplacement(addr);
 
 			// load cache line from memory
-			cache_memory[way][index].setLine(getTagFromAddress(addr), line);
+			fill(way, index, addr.getValue(), line);
 			
 			// write word into cache
 			cache_memory[way][index].setByte(getBlockOffset(addr), value);
 			
-			logger.debug("Miss in cache for address " + addr.getValueAsHexString() + " replaced cache line " + index + " in way " + way + " old_value: " + old_value.getValueAsHexString() + " new value: " + cache_memory[way][index].getByte(getBlockOffset(addr)) + " (written byte " + (getBlockOffset(addr)&0x3) + " of word " + cache_memory[way][index].getWord(getBlockOffset(addr)&(~0x3)) + ")");
+			if(events.isEnabled())
+			{
+				events.record(EventType.DCACHE_WRITE_MISS, 0, addr.getValue(), (value.getValue() & 0xff));
+			}
 			dumpCacheLine(index);
 
 			updateReplacementCountersOnMiss(way, index);
@@ -435,34 +485,116 @@ public abstract class Cache implements MemoryInterface {
 		
 	}
 	
-	protected uint32 getTagFromAddress(uint32 addr)
+	/**
+	 * Reads a block through the cache, line by line, e.g. for the line fill
+	 * of a cache of the upper level. Missing lines are loaded as for
+	 * read_u32().
+	 */
+	public void readBlock(int addr, byte[] dst, int off, int len) throws MemoryException
+	{
+		while(len > 0)
+		{
+			uint32 line_addr = new uint32(addr);
+			int block_offset = getBlockOffset(line_addr);
+			int chunk = Math.min(len, line_size - block_offset);
+			int index = getIndex(line_addr);
+			
+			int way = probe(addr);
+			if(way >= 0)
+			{
+				cache_memory[way][index].getBytes(block_offset, dst, off, chunk);
+				updateReplacementCountersOnAccess(way, index);
+				stat.countCacheHit(cache_type);
+			}
+			else
+			{
+				byte line[] = readLine(getCacheLineAddr(line_addr));
+				way = getCacheWayForReplacement(line_addr);
+				fill(way, index, addr, line);
+				System.arraycopy(line, block_offset, dst, off, chunk);
+				updateReplacementCountersOnMiss(way, index);
+				stat.countCacheMiss(cache_type);
+			}
+			
+			addr += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	/**
+	 * Writes a block through the cache. Cached lines are updated, lines that
+	 * are not cached are not allocated, and the block is written to the next
+	 * memory level.
+	 */
+	public void writeBlock(int addr, byte[] src, int off, int len) throws MemoryException
 	{
-		int mask = ~(CalculationHelper.generateBitStringOfOnes(index_size + block_offset_size));
+		if(cache_type != CacheType.DCACHE)
+		{
+			throw new CacheException("Method writeBlock() only supports data caches, but cache type is: " + cache_type); 
+		}
 		
-		int tag = addr.getValue() & mask;
+		if(write_policy != DCacheWritePolicy.WRITE_THROUGH)
+		{
+			throw new CacheException("Currently only write through caches are supported, but cache write policy is: " + write_policy);
+		}
+		
+		int block_addr = addr;
+		int block_off = off;
+		int block_len = len;
+		while(len > 0)
+		{
+			uint32 line_addr = new uint32(addr);
+			int block_offset = getBlockOffset(line_addr);
+			int chunk = Math.min(len, line_size - block_offset);
+			
+			int way = probe(addr);
+			if(way >= 0)
+			{
+				int index = getIndex(line_addr);
+				cache_memory[way][index].setBytes(block_offset, src, off, chunk);
+				updateReplacementCountersOnAccess(way, index);
+			}
+			
+			addr += chunk;
+			off += chunk;
+			len -= chunk;
+		}
 		
-		return new uint32(tag);
+		mem.writeBlock(block_addr, src, block_off, block_len);
 	}
 	
 	protected int getIndex(uint32 addr)
 	{
-		int mask = (CalculationHelper.generateBitStringOfOnes(index_size));
-		
-		logger.debug("idx: " + Integer.toHexString(CalculationHelper.generateBitStringOfOnes(index_size)) + " index mask: 0x"  + Integer.toHexString(mask) + " value: " + addr.getValueAsHexString() + " result: 0x" + Integer.toHexString((addr.getValue()>> block_offset_size) & mask));
+		if(logger.isDebugEnabled())
+		{
+			logger.debug("idx: " + Integer.toHexString(index_mask) + " index mask: 0x"  + Integer.toHexString(index_mask) + " value: " + addr.getValueAsHexString() + " result: 0x" + Integer.toHexString((addr.getValue()>> block_offset_size) & index_mask));
+		}
 		
-		int index = (addr.getValue()>> (block_offset_size)) & mask;
+		int index = (addr.getValue()>> (block_offset_size)) & index_mask;
 		
 		return index;
 	}
 	
 	protected int getBlockOffset(uint32 addr)
 	{
-		return addr.getValue() & (CalculationHelper.generateBitStringOfOnes(block_offset_size));
+		return addr.getValue() & offset_mask;
 	}
 	
 	protected int getCacheLineAddr(uint32 addr)
 	{
-		return addr.getValue() & ~(CalculationHelper.generateBitStringOfOnes(block_offset_size));
+		return addr.getValue() & ~offset_mask;
+	}
+	
+	/**
+	 * Reads the cache line at the given line address from the next memory
+	 * level as one block.
+	 */
+	private byte[] readLine(int cache_line_address) throws MemoryException
+	{
+		byte line[] = new byte[line_size];
+		mem.readBlock(cache_line_address, line, 0, line_size);
+		return line;
 	}
 	
 	
@@ -479,7 +611,7 @@ public abstract class Cache implements MemoryInterface {
 				throw new CacheException("Unsupported request type for instruction cache: " + type);
 			}
 
-			if(isHit(addr))
+			if(probe(addr.getValue()) >= 0)
 			{
 				latency = 0;
 			}
@@ -498,7 +630,7 @@ public abstract class Cache implements MemoryInterface {
 
 			if(type == RequestType.DATA_RD)
 			{
-				if(isHit(addr))
+				if(probe(addr.getValue()) >= 0)
 				{
 					latency = 0;
 				}
@@ -533,62 +665,160 @@ public abstract class Cache implements MemoryInterface {
 	}
 	
 	
-	public boolean isHit(uint32 addr) throws CacheException
+	public boolean isHit(uint32 addr)
 	{
-		uint32 tag = getTagFromAddress(addr);
-		int index = getIndex(addr);
-		boolean hit = false;
-		
-		logger.debug("Accessing index: " + index);
+		return probe(addr.getValue()) >= 0;
+	}
+
+	/**
+	 * Looks up the address in its set. The result is kept until a line is
+	 * replaced, thus the access following the delay query of a request does
+	 * not search again.
+	 * @return The way that holds the address, or -1 on a miss.
+	 */
+	protected int probe(int addr)
+	{
+		int line_addr = addr & ~offset_mask;
+		if(probe_cached && (line_addr == probe_line_addr))
+		{
+			return probe_way;
+		}
 		
+		int tag = addr & tag_mask;
+		int first = ((addr >>> block_offset_size) & index_mask) * associativity;
+		int way = -1;
 		for(int i = 0; i < associativity; i++)
 		{
-			if(cache_memory[i][index].compareTag(tag))
+			int line = first + i;
+			if((tags[line] == tag) && ((valid_bits[line >>> 6] & (1L << line)) != 0))
 			{
-				if(hit != false)
-				{
-					throw new CacheException("Error: multiple hits for " + addr.getValueAsHexString() + " in cache.");
-				}
-				hit = true;
+				way = i;
+				break;
 			}
 		}
 		
-		return hit;
+		probe_line_addr = line_addr;
+		probe_way = way;
+		probe_cached = true;
+		return way;
 	}
 
-	protected int getCacheWayForHit(uint32 addr) throws CacheException
+	/**
+	 * Replaces the line of the way and index by the line of the address.
+	 */
+	private void fill(int way, int index, int addr, byte line[])
 	{
-		uint32 tag = getTagFromAddress(addr);
-		int index = getIndex(addr);
-		int hit_way = associativity;
+		cache_memory[way][index].setLine(line);
 		
+		int l = index * associativity + way;
+		tags[l] = addr & tag_mask;
+		valid_bits[l >>> 6] |= 1L << l;
+		dirty_bits[l >>> 6] &= ~(1L << l);
+		
+		probe_line_addr = addr & ~offset_mask;
+		probe_way = way;
+		probe_cached = true;
+	}
+
+	private boolean isValid(int way, int index)
+	{
+		int l = index * associativity + way;
+		return (valid_bits[l >>> 6] & (1L << l)) != 0;
+	}
+
+	private boolean isDirty(int way, int index)
+	{
+		int l = index * associativity + way;
+		return (dirty_bits[l >>> 6] & (1L << l)) != 0;
+	}
+	
+	protected void dumpCacheLine(int index)
+	{
+		if(!logger.isDebugEnabled())
+		{
+			return;
+		}
+		logger.debug("Dumping cache content for index: 0x" + Integer.toHexString(index));
 		for(int i = 0; i < associativity; i++)
 		{
-			if(cache_memory[i][index].compareTag(tag))
+			logger.debug("Way: " + i + " " + uint32.toHexString(tags[index * associativity + i]) + " " + cache_memory[i][index].dumpLine() + "valid: " + isValid(i, index) + " dirty: " + isDirty(i, index));
+		}
+	}
+	
+	/**
+	 * Sets the log that receives the hit and miss events of this cache.
+	 */
+	public void setEventLog(EventLog events)
+	{
+		this.events = events;
+	}
+
+	/**
+	 * Describes the organization of the cache, a saved cache state can only
+	 * be restored into a cache with the same organization.
+	 * @return The replacement policy, the write policy, and the geometry of the cache.
+	 */
+	public String getOrganization()
+	{
+		return getClass().getSimpleName() + " " + write_policy + " " + associativity + "x" + lines_per_set + "x" + line_size;
+	}
+	
+	/**
+	 * Writes the cache lines and the replacement state for a checkpoint.
+	 */
+	public void saveState(DataOutput out) throws IOException
+	{
+		for(int j = 0; j < associativity; j++)
+		{
+			for(int i = 0; i < lines_per_set; i++)
 			{
-				if(hit_way != associativity)
-				{
-					throw new CacheException("Error: multiple hits for " + addr.getValueAsHexString() + " in cache.");
-				}
-				hit_way = i;
+				out.writeBoolean(isValid(j, i));
+				out.writeBoolean(isDirty(j, i));
+				out.writeInt(tags[i * associativity + j]);
+				cache_memory[j][i].saveState(out);
 			}
 		}
-		
-		return hit_way;
+		saveReplacementState(out);
 	}
 	
-	protected void dumpCacheLine(int index)
+	/**
+	 * Restores the cache lines and the replacement state of a checkpoint,
+	 * written by a cache of the same organization.
+	 */
+	public void restoreState(DataInput in) throws IOException
 	{
-		logger.debug("Dumping cache content for index: 0x" + Integer.toHexString(index));
-		for(int i = 0; i < associativity; i++)
+		for(int j = 0; j < associativity; j++)
+		{
+			for(int i = 0; i < lines_per_set; i++)
+			{
+				int l = i * associativity + j;
+				setBit(valid_bits, l, in.readBoolean());
+				setBit(dirty_bits, l, in.readBoolean());
+				tags[l] = in.readInt();
+				cache_memory[j][i].restoreState(in);
+			}
+		}
+		probe_cached = false;
+		restoreReplacementState(in);
+	}
+	
+	private static void setBit(long bits[], int bit, boolean value)
+	{
+		if(value)
+		{
+			bits[bit >>> 6] |= 1L << bit;
+		}
+		else
 		{
-			logger.debug("Way: " + i + " " + cache_memory[i][index].dumpLine());
+			bits[bit >>> 6] &= ~(1L << bit);
 		}
 	}
 	
 	protected abstract int getCacheWayForReplacement(uint32 addr) throws CacheException;
 	protected abstract void updateReplacementCountersOnAccess(int way, int index);
 	protected abstract void updateReplacementCountersOnMiss(int way, int index);
+	protected abstract void saveReplacementState(DataOutput out) throws IOException;
+	protected abstract void restoreReplacementState(DataInput in) throws IOException;
 
 	public static CacheReplacementPolicy getCacheReplacementPolicyFromString(String rpol) 
 	{
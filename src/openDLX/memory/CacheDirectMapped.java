@@ -21,24 +21,28 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+
 import openDLX.datatypes.CacheType;
 import openDLX.datatypes.DCacheWritePolicy;
 import openDLX.datatypes.uint32;
 import openDLX.exception.CacheException;
 import openDLX.exception.PipelineDataTypeException;
+import openDLX.util.Statistics;
 
 public class CacheDirectMapped extends Cache 
 {
 
 	
-	public CacheDirectMapped(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheDirectMapped(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, write_policy, mem);
+		super(type, line_size, line_no, associativity, write_policy, mem, stat);
 	}
 	
-	public CacheDirectMapped(CacheType type, int line_size, int line_no, int associativity, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheDirectMapped(CacheType type, int line_size, int line_no, int associativity, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, mem);
+		super(type, line_size, line_no, associativity, mem, stat);
 	}
 
 	protected int getCacheWayForReplacement(uint32 addr) 
@@ -56,4 +60,14 @@ public class CacheDirectMapped extends Cache
 		// nothing to do
 	}
 
+	protected void saveReplacementState(DataOutput out) 
+	{
+		// nothing to do
+	}
+
+	protected void restoreReplacementState(DataInput in) 
+	{
+		// nothing to do
+	}
+
 }
@@ -21,26 +21,31 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import openDLX.datatypes.CacheType;
 import openDLX.datatypes.DCacheWritePolicy;
 import openDLX.datatypes.uint32;
 import openDLX.exception.CacheException;
 import openDLX.exception.PipelineDataTypeException;
+import openDLX.util.Statistics;
 
 public class CacheFIFO extends Cache 
 {
 	private int fifo_way_counter[];
 
-	public CacheFIFO(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheFIFO(CacheType type, int line_size, int line_no, int associativity, DCacheWritePolicy write_policy, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, write_policy, mem);
+		super(type, line_size, line_no, associativity, write_policy, mem, stat);
 		
 		initializeRPolCounters();
 	}
 
-	public CacheFIFO(CacheType type, int line_size, int line_no, int associativity, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheFIFO(CacheType type, int line_size, int line_no, int associativity, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, mem);
+		super(type, line_size, line_no, associativity, mem, stat);
 		
 		initializeRPolCounters();
 	}
@@ -68,4 +73,20 @@ public class CacheFIFO extends Cache
 		fifo_way_counter[index] = fifo_way_counter[index] % associativity;
 	}
 
+	protected void saveReplacementState(DataOutput out) throws IOException 
+	{
+		for(int i = 0; i < lines_per_set; i++)
+		{
+			out.writeInt(fifo_way_counter[i]);
+		}
+	}
+
+	protected void restoreReplacementState(DataInput in) throws IOException 
+	{
+		for(int i = 0; i < lines_per_set; i++)
+		{
+			fifo_way_counter[i] = in.readInt();
+		}
+	}
+
 }
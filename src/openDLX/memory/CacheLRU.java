@@ -21,27 +21,32 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import openDLX.datatypes.CacheType;
 import openDLX.datatypes.DCacheWritePolicy;
 import openDLX.datatypes.uint32;
 import openDLX.exception.CacheException;
 import openDLX.exception.PipelineDataTypeException;
+import openDLX.util.Statistics;
 
 public class CacheLRU extends Cache {
 	
 	private int lru_replacement_counters[][];
 
 
-	public CacheLRU(CacheType type, int line_size, int line_no,	int associativity, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheLRU(CacheType type, int line_size, int line_no,	int associativity, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, mem);
+		super(type, line_size, line_no, associativity, mem, stat);
 		
 		initializeRPolCounters();
 	}
 	
-	public CacheLRU(CacheType type, int line_size, int line_no,	int associativity, DCacheWritePolicy write_policy, MainMemory mem) throws CacheException, PipelineDataTypeException 
+	public CacheLRU(CacheType type, int line_size, int line_no,	int associativity, DCacheWritePolicy write_policy, MemoryInterface mem, Statistics stat) throws CacheException, PipelineDataTypeException 
 	{
-		super(type, line_size, line_no, associativity, write_policy, mem);
+		super(type, line_size, line_no, associativity, write_policy, mem, stat);
 		
 		initializeRPolCounters();
 	}
@@ -83,6 +88,9 @@ public class CacheLRU extends Cache {
 
 	protected void updateReplacementCountersOnAccess(int way, int index) 
 	{
+		// only the ways that were used more recently than the accessed way age,
+		// this keeps the counters a strict LRU order (invalid ways stay at associativity)
+		int accessed_counter = lru_replacement_counters[way][index];
 		for(int i = 0; i < associativity; i++)
 		{
 			if(i == way)
@@ -91,7 +99,7 @@ public class CacheLRU extends Cache {
 			}
 			else
 			{
-				if(lru_replacement_counters[i][index] < associativity-1)
+				if(lru_replacement_counters[i][index] < accessed_counter)
 				{
 					lru_replacement_counters[i][index]++;
 				}
@@ -105,4 +113,26 @@ public class CacheLRU extends Cache {
 		updateReplacementCountersOnAccess(way, index);
 	}
 
+	protected void saveReplacementState(DataOutput out) throws IOException 
+	{
+		for(int j = 0; j < associativity; j++)
+		{
+			for(int i = 0; i < lines_per_set; i++)
+			{
+				out.writeInt(lru_replacement_counters[j][i]);
+			}
+		}
+	}
+
+	protected void restoreReplacementState(DataInput in) throws IOException 
+	{
+		for(int j = 0; j < associativity; j++)
+		{
+			for(int i = 0; i < lines_per_set; i++)
+			{
+				lru_replacement_counters[j][i] = in.readInt();
+			}
+		}
+	}
+
 }
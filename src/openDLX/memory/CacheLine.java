@@ -21,20 +21,25 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import openDLX.PipelineConstants;
 import openDLX.datatypes.uint32;
 import openDLX.datatypes.uint8;
 import openDLX.exception.CacheException;
 
+/**
+ * The data of a cache line. The tag, valid and dirty state of the lines are
+ * kept by the Cache in arrays, such that a lookup does not touch the lines.
+ */
 public class CacheLine {
 
-	private uint32 tag;
 	private byte line[];
 	private int bytes_per_line;
-	private boolean dirty;
-	private boolean valid;
 	
-	public CacheLine(int line_size, int tag_size) throws CacheException
+	public CacheLine(int line_size) throws CacheException
 	{
 		if(line_size % PipelineConstants.WORD_SIZE != 0)
 		{
@@ -42,29 +47,11 @@ public class CacheLine {
 		}
 		
 		bytes_per_line = line_size;
-		tag = new uint32(0);
 		line = new byte[line_size];
-		
-		for(int i = 0; i < line_size; i++)
-		{
-			line[i] = 0;
-		}
-		
-		dirty = false;
-		valid = false;
 	}	
 	
-	public boolean compareTag(uint32 tag)
-	{
-		return (this.tag.getValue() == tag.getValue());
-	}
-	
 	public uint32 getWord(int block_offset) throws CacheException
 	{
-		if(!valid)
-		{
-			throw new CacheException("Cannot read from cache line, it is not valid. tag: " + tag.getValueAsHexString());
-		}
 		if(block_offset % PipelineConstants.WORD_SIZE != 0)
 		{
 			throw new CacheException("Block offset of readWord() has to be a multiple of the word size (" + PipelineConstants.WORD_SIZE + "), but it is set to " + block_offset);
@@ -79,10 +66,6 @@ public class CacheLine {
 	
 	public void setWord(int block_offset, uint32 value) throws CacheException 
 	{
-		if(!valid)
-		{
-			throw new CacheException("Cannot write to cache line, it is not valid. tag: " + tag.getValueAsHexString());
-		}
 		if(block_offset % PipelineConstants.WORD_SIZE != 0)
 		{
 			throw new CacheException("Block offset of setWord() has to be a multiple of the word size (" + PipelineConstants.WORD_SIZE + "), but it is set to " + block_offset);
@@ -101,10 +84,6 @@ public class CacheLine {
 	
 	public uint8 getByte(int block_offset) throws CacheException
 	{
-		if(!valid)
-		{
-			throw new CacheException("Cannot read from cache line, it is not valid. tag: " + tag.getValueAsHexString());
-		}
 		if(block_offset >= bytes_per_line)
 		{
 			throw new CacheException("Block offset out of range: " + block_offset + "/" + bytes_per_line);
@@ -115,10 +94,6 @@ public class CacheLine {
 	
 	public void setByte(int block_offset, uint8 value) throws CacheException
 	{
-		if(!valid)
-		{
-			throw new CacheException("Cannot write to cache line, it is not valid. tag: " + tag.getValueAsHexString());
-		}
 		if(block_offset >= bytes_per_line)
 		{
 			throw new CacheException("Block offset out of range: " + block_offset + "/" + bytes_per_line);
@@ -128,37 +103,44 @@ public class CacheLine {
 		
 	}
 	
-	public void setLine(uint32 tag, byte line[])
+	/**
+	 * Copies len bytes of the line starting at block_offset into dst.
+	 */
+	public void getBytes(int block_offset, byte dst[], int off, int len)
 	{
-		this.tag.setValue(tag);
-		
-		for(int i = 0; i < bytes_per_line; i++)
-		{
-			this.line[i] = line[i];
-		}
-		
-		valid = true;
+		System.arraycopy(line, block_offset, dst, off, len);
 	}
-	
-	public void setDirty(boolean dirty)
+
+	/**
+	 * Overwrites len bytes of the line starting at block_offset with src.
+	 */
+	public void setBytes(int block_offset, byte src[], int off, int len)
 	{
-		this.dirty = dirty;
+		System.arraycopy(src, off, line, block_offset, len);
 	}
-	
-	public boolean isDirty()
+
+	public void setLine(byte line[])
+	{
+		System.arraycopy(line, 0, this.line, 0, bytes_per_line);
+	}
+
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.write(line);
+	}
+
+	public void restoreState(DataInput in) throws IOException
 	{
-		return dirty;
+		in.readFully(line);
 	}
 
 	public String dumpLine() 
 	{
-		String s;
-		s = tag.getValueAsHexString() + " ";
+		String s = "";
 		for(int i = 0; i < bytes_per_line; i++)
 		{
 			s += "0x" + Integer.toHexString(line[i]) + " "; 
 		}
-		s += "valid: " + valid + " dirty: " + dirty;
 		return s;
 	}
 
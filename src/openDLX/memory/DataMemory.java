@@ -41,10 +41,22 @@ public class DataMemory
 {
 	private MemoryInterface mem;
 	
-	private Statistics stat = Statistics.getInstance();
+	private Statistics stat;
+
+	private StackDistanceProfiler profiler = null;
 	
-	public DataMemory(MainMemory mem, Properties config) throws MemoryException, PipelineDataTypeException
+	/**
+	 * Creates a data memory without cache, that directly accesses the main memory.
+	 */
+	public DataMemory(MainMemory mem)
+	{
+		this.mem = mem;
+	}
+
+	public DataMemory(MainMemory mem, Properties config, Statistics stat) throws MemoryException, PipelineDataTypeException
 	{
+		this.stat = stat;
+		profiler = StackDistanceProfiler.createFromConfig(CacheType.DCACHE, config);
 
 		boolean useDcache;
 
@@ -96,7 +108,7 @@ public class DataMemory
 
 			if(associativity == 1)
 			{
-				this.mem = new CacheDirectMapped(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem);
+				this.mem = new CacheDirectMapped(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem, stat);
 				if((rpol != CacheReplacementPolicy.DIRECT_MAPPED) && (rpol != CacheReplacementPolicy.UNKNOWN))
 				{
 					throw new CacheException("Wrong replacement policy for cache with associativity of 1. Replacement policy: " + rpol);
@@ -108,10 +120,10 @@ public class DataMemory
 				switch(rpol)
 				{
 				case FIFO:
-					this.mem = new CacheFIFO(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem);
+					this.mem = new CacheFIFO(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem, stat);
 					break;
 				case LRU:
-					this.mem = new CacheLRU(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem);
+					this.mem = new CacheLRU(CacheType.DCACHE, lineSize, lineNo, associativity, wpol, mem, stat);
 					break;
 				default:
 					throw new CacheException("Unknown cache replacement policy: " + rpol);
@@ -128,28 +140,68 @@ public class DataMemory
 
 	public uint8 read_u8(uint32 addr, boolean log_output) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		return mem.read_u8(addr, log_output);
 	}
 
 	public uint32 read_u32(uint32 addr, boolean log_output) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		return mem.read_u32(addr, log_output);
 	}
 
 	public void write_u8(uint32 addr, uint32 value) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		mem.write_u8(addr, value);
 	}
 
 	public void write_u32(uint32 addr, uint32 value) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		mem.write_u32(addr, value);
 	}
 
 	public void write_u8(uint32 addr, uint8 value) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		mem.write_u8(addr, value);
 	}
+
+	/**
+	 * @return The stack distance analysis of the data accesses, or null if it is not enabled.
+	 */
+	public StackDistanceProfiler getStackDistanceProfiler()
+	{
+		return profiler;
+	}
+
+	/**
+	 * @return The cache in front of the main memory, or null if no cache is used.
+	 */
+	public Cache getCache()
+	{
+		if(mem instanceof Cache)
+		{
+			return (Cache) mem;
+		}
+		return null;
+	}
 	
 	
 }
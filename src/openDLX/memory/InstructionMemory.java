@@ -40,11 +40,15 @@ public class InstructionMemory
 {
 	private MemoryInterface mem;	
 	
-	private Statistics stat = Statistics.getInstance();
+	private Statistics stat;
+
+	private StackDistanceProfiler profiler = null;
 
 	
-	public InstructionMemory(MainMemory mem, Properties config) throws MemoryException, PipelineDataTypeException
+	public InstructionMemory(MainMemory mem, Properties config, Statistics stat) throws MemoryException, PipelineDataTypeException
 	{
+		this.stat = stat;
+		profiler = StackDistanceProfiler.createFromConfig(CacheType.ICACHE, config);
 		boolean useIcache;
 		
 		if(Integer.decode(config.getProperty("icache_use"))==0)
@@ -89,7 +93,7 @@ public class InstructionMemory
 
 			if(associativity == 1)
 			{
-				this.mem = new CacheDirectMapped(CacheType.ICACHE, lineSize, lineNo, associativity, mem);
+				this.mem = new CacheDirectMapped(CacheType.ICACHE, lineSize, lineNo, associativity, mem, stat);
 				if((rpol != CacheReplacementPolicy.DIRECT_MAPPED) && (rpol != CacheReplacementPolicy.UNKNOWN))
 				{
 					throw new CacheException("Wrong replacement policy for cache with associativity of 1. Replacement policy: " + rpol);
@@ -102,10 +106,10 @@ public class InstructionMemory
 				switch(rpol)
 				{
 				case FIFO:
-					this.mem = new CacheFIFO(CacheType.ICACHE, lineSize, lineNo, associativity, mem);
+					this.mem = new CacheFIFO(CacheType.ICACHE, lineSize, lineNo, associativity, mem, stat);
 					break;
 				case LRU:
-					this.mem = new CacheLRU(CacheType.ICACHE, lineSize, lineNo, associativity, mem);
+					this.mem = new CacheLRU(CacheType.ICACHE, lineSize, lineNo, associativity, mem, stat);
 					break;
 				default:
 					throw new CacheException("Unknown cache replacement policy: " + rpol);
@@ -122,6 +126,30 @@ public class InstructionMemory
 	
 	public uint32 read_u32(uint32 addr) throws MemoryException
 	{
+		if(profiler != null)
+		{
+			profiler.access(addr.getValue());
+		}
 		return mem.read_u32(addr);
 	}
+
+	/**
+	 * @return The stack distance analysis of the fetches, or null if it is not enabled.
+	 */
+	public StackDistanceProfiler getStackDistanceProfiler()
+	{
+		return profiler;
+	}
+
+	/**
+	 * @return The cache in front of the main memory, or null if no cache is used.
+	 */
+	public Cache getCache()
+	{
+		if(mem instanceof Cache)
+		{
+			return (Cache) mem;
+		}
+		return null;
+	}
 }
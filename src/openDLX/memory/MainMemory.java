@@ -21,9 +21,13 @@
  ******************************************************************************/
 package openDLX.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.log4j.Logger;
 
@@ -45,20 +49,12 @@ public class MainMemory implements MemoryInterface
         try
         {
             FileInputStream fileinputstream = new FileInputStream(raw_file);
+            FileChannel channel = fileinputstream.getChannel();
 
-            int raw_file_size = fileinputstream.available();
-
-            byte bytearray[] = new byte[raw_file_size];
-
-            fileinputstream.read(bytearray);
-
-            int i;
-            // write memory code dump into memory, with base address and start
-            // offset
-            for (i = 0; i < raw_file_size; i++)
-            {
-                memory.writeByte(raw_file_code_start_address + i, bytearray[i]);
-            }
+            // map the memory code dump, its pages are copied into the memory
+            // when they are accessed first, the mapping outlives the channel
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            memory.loadImage(image, raw_file_code_start_address);
 
             fileinputstream.close();
         }
@@ -74,6 +70,21 @@ public class MainMemory implements MemoryInterface
         }
     }
 
+    private MainMemory(PagedMemory memory, short memory_latency)
+    {
+        this.memory = memory;
+        this.memory_latency = memory_latency;
+    }
+
+    /**
+     * Creates a copy of the memory, that shares the unmodified pages with
+     * this memory (see PagedMemory.fork()).
+     */
+    public MainMemory fork()
+    {
+        return new MainMemory(memory.fork(), memory_latency);
+    }
+
     public uint8 read_u8(uint32 address, boolean log_output) throws MemoryException
     {
         if (log_output)
@@ -96,7 +107,7 @@ public class MainMemory implements MemoryInterface
             throw new MemoryException("Read u32 from unaligned addr: " + address.getValueAsHexString());
         }
 
-        uint32 value = new uint32((memory.readByte(address.getValue()) & 0xFF) + ((memory.readByte(address.getValue() + 1) & 0xFF) << 8) + ((memory.readByte(address.getValue() + 2) & 0xFF) << 16) + ((memory.readByte(address.getValue() + 3) & 0xFF) << 24));
+        uint32 value = new uint32(memory.readWord(address.getValue()));
         if (log_output)
         {
             //logger.trace("Read u32 from addr: " + address.getHex());
@@ -129,7 +140,7 @@ public class MainMemory implements MemoryInterface
             throw new MemoryException("Read u16 from unaligned addr: " + address.getValueAsHexString());
         }
 
-        uint16 value = new uint16((memory.readByte(address.getValue()) & 0xFF) + ((memory.readByte(address.getValue() + 1) & 0xFF) << 8));
+        uint16 value = new uint16(memory.readHalf(address.getValue()));
         if(log_output)
         {
             dumpMemory(new uint32(address.getValue() - 4), new uint32(address.getValue() + 4));
@@ -150,16 +161,19 @@ public class MainMemory implements MemoryInterface
             throw new MemoryException("Write u32 to unaligned addr: " + address.getValueAsHexString());
         }
 
-        logger.debug("Write u32 to addr: " + address.getValueAsHexString() + " value: " + value.getValueAsHexString());
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Write u32 to addr: " + address.getValueAsHexString() + " value: " + value.getValueAsHexString());
+        }
 
-        memory.writeByte(address.getValue(), (byte) (value.getValue() & 0xFF));
-        memory.writeByte(address.getValue() + 1, (byte) ((value.getValue() >> 8) & 0xFF));
-        memory.writeByte(address.getValue() + 2, (byte) ((value.getValue() >> 16) & 0xFF));
-        memory.writeByte(address.getValue() + 3, (byte) ((value.getValue() >> 24) & 0xFF));
+        memory.writeWord(address.getValue(), value.getValue());
 
-        logger.debug("Written: " + value.getValueAsHexString() + " -> " + memory.readByteAsString(address.getValue() + 3) + " " + memory.readByteAsString(address.getValue() + 2) + " "
-                + memory.readByteAsString(address.getValue() + 1) + " " + memory.readByteAsString(address.getValue() + 0));
-        dumpMemory(new uint32(address.getValue() - 4), new uint32(address.getValue() + 4));
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Written: " + value.getValueAsHexString() + " -> " + memory.readByteAsString(address.getValue() + 3) + " " + memory.readByteAsString(address.getValue() + 2) + " "
+                    + memory.readByteAsString(address.getValue() + 1) + " " + memory.readByteAsString(address.getValue() + 0));
+            dumpMemory(new uint32(address.getValue() - 4), new uint32(address.getValue() + 4));
+        }
     }
 
 
@@ -170,16 +184,85 @@ public class MainMemory implements MemoryInterface
 
     public void write_u8(uint32 address, uint8 value) throws MemoryException
     {
-        logger.debug("Write u8 to addr: " + address.getValueAsHexString() + " value: " + value.getValueAsHexString());
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Write u8 to addr: " + address.getValueAsHexString() + " value: " + value.getValueAsHexString());
+        }
 
         memory.writeByte(address.getValue(), value.getValue());
 
-        logger.debug("Written: " + value.getValueAsHexString() + " -> " + memory.readByteAsString(address.getValue()));
-        dumpMemory(new uint32(address.getValue() - 4), new uint32(address.getValue() + 4));
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Written: " + value.getValueAsHexString() + " -> " + memory.readByteAsString(address.getValue()));
+            dumpMemory(new uint32(address.getValue() - 4), new uint32(address.getValue() + 4));
+        }
+    }
+
+    /**
+     * Reads an aligned word without wrapping the address and the value,
+     * used for cache line fills and by the trap handler.
+     */
+    public int readWord(int address) throws MemoryException
+    {
+        if((address&0x3) != 0)
+        {
+            logger.error("Read u32 from unaligned addr: " + uint32.toHexString(address));
+            throw new MemoryException("Read u32 from unaligned addr: " + uint32.toHexString(address));
+        }
+        return memory.readWord(address);
+    }
+
+    public byte readByte(int address) throws MemoryException
+    {
+        return memory.readByte(address);
+    }
+
+    public void readBlock(int address, byte[] dst, int off, int len) throws MemoryException
+    {
+        memory.readBlock(address, dst, off, len);
+    }
+
+    public void writeBlock(int address, byte[] src, int off, int len) throws MemoryException
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Write block of " + len + " bytes to addr: " + uint32.toHexString(address));
+        }
+
+        memory.writeBlock(address, src, off, len);
+    }
+
+    /**
+     * Starts a new epoch of write tracking, see PagedMemory.newEpoch().
+     */
+    public int newEpoch()
+    {
+        return memory.newEpoch();
+    }
+
+    /**
+     * @return True if the word at the address may have been written since the epoch.
+     */
+    public boolean isModified(int address, int since_epoch)
+    {
+        return memory.isModified(address, since_epoch);
+    }
+
+    /**
+     * @return The start addresses of the pages written since the epoch.
+     */
+    public int[] getModifiedPages(int since_epoch)
+    {
+        return memory.getModifiedPages(since_epoch);
     }
 
     public void dumpMemory(uint32 start, uint32 end) throws MemoryException
     {
+        if (!logger.isDebugEnabled())
+        {
+            return;
+        }
+
         uint32 start_aligned = new uint32(start.getValue() & 0xFFFFFFE0);
 
         logger.debug("             | 0          4          8          c          10         14         18         1c         |");
@@ -226,4 +309,20 @@ public class MainMemory implements MemoryInterface
         return memory_latency;
     }
 
+    /**
+     * Writes the allocated pages of the memory for a checkpoint.
+     */
+    public void saveState(DataOutput out) throws IOException, MemoryException
+    {
+        memory.saveState(out);
+    }
+
+    /**
+     * Replaces the memory content by the pages of a checkpoint.
+     */
+    public void restoreState(DataInput in) throws IOException, MemoryException
+    {
+        memory.restoreState(in);
+    }
+
 }
@@ -42,4 +42,15 @@ public interface MemoryInterface {
 
 	void write_u8(uint32 addr, uint8 value) throws MemoryException;
 
+	/**
+	 * Reads len bytes starting at addr into dst at offset off, e.g. to
+	 * fill a cache line.
+	 */
+	void readBlock(int addr, byte[] dst, int off, int len) throws MemoryException;
+
+	/**
+	 * Writes len bytes of src starting at offset off to the memory at addr.
+	 */
+	void writeBlock(int addr, byte[] src, int off, int len) throws MemoryException;
+
 }
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.memory;
+
+import java.text.DecimalFormat;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import openDLX.datatypes.CacheType;
+import openDLX.exception.CacheException;
+
+/**
+ * Computes the LRU stack distances of the cache line references of one run
+ * (Mattson et al.), such that the hits and misses of every LRU cache with the
+ * given line size, a power of two number of lines up to max_lines and a
+ * power of two associativity are known after a single simulation.
+ *
+ * For every number of sets one LRU stack per set is maintained, a reference
+ * found at depth d of its stack hits in all caches of that set count with
+ * more than d ways. Direct mapped caches are the caches with one way, FIFO
+ * replacement is not covered.
+ */
+public class StackDistanceProfiler
+{
+	private static Logger logger = Logger.getLogger("openDLX");
+
+	private final CacheType cache_type;
+	private final int line_size;
+	private final int block_offset_size;
+	private final int max_lines;
+
+	/// stacks[k][set] holds the line addresses of the set for 2^k sets, most recently used first
+	private final int stacks[][][];
+	private final int stack_fill[][];
+	/// distances[k][d] counts the references found at depth d for 2^k sets
+	private final long distances[][];
+	/// References that are not in their stack, i.e. cold misses or deeper than max_lines / 2^k
+	private final long beyond[];
+	private long references;
+
+	public StackDistanceProfiler(CacheType cache_type, int line_size, int max_lines) throws CacheException
+	{
+		if(Integer.bitCount(line_size) != 1)
+		{
+			throw new CacheException("The line size of the stack distance analysis has to be a power of two, but it is: " + line_size);
+		}
+		if(Integer.bitCount(max_lines) != 1)
+		{
+			throw new CacheException("The maximum number of lines of the stack distance analysis has to be a power of two, but it is: " + max_lines);
+		}
+
+		this.cache_type = cache_type;
+		this.line_size = line_size;
+		this.block_offset_size = Integer.numberOfTrailingZeros(line_size);
+		this.max_lines = max_lines;
+
+		int set_counts = Integer.numberOfTrailingZeros(max_lines) + 1;
+		stacks = new int[set_counts][][];
+		stack_fill = new int[set_counts][];
+		distances = new long[set_counts][];
+		beyond = new long[set_counts];
+		for(int k = 0; k < set_counts; k++)
+		{
+			int sets = 1 << k;
+			int depth = max_lines >> k;
+			stacks[k] = new int[sets][depth];
+			stack_fill[k] = new int[sets];
+			distances[k] = new long[depth];
+		}
+	}
+
+	/**
+	 * Creates the profiler if "icache_stack_distance" or "dcache_stack_distance"
+	 * is set to 1. The line size is given by "[id]cache_stack_distance_line_size"
+	 * (default: the line size of the cache or 8) and the largest analysed cache
+	 * by "[id]cache_stack_distance_max_lines" (default 256).
+	 *
+	 * @return The profiler or null if the analysis is not enabled.
+	 */
+	public static StackDistanceProfiler createFromConfig(CacheType cache_type, Properties config) throws CacheException
+	{
+		String prefix = (cache_type == CacheType.ICACHE) ? "icache" : "dcache";
+
+		if(config.getProperty(prefix + "_stack_distance") == null || Integer.decode(config.getProperty(prefix + "_stack_distance")) == 0)
+		{
+			return null;
+		}
+
+		int line_size = 8;
+		if(config.getProperty(prefix + "_stack_distance_line_size") != null)
+		{
+			line_size = Integer.decode(config.getProperty(prefix + "_stack_distance_line_size"));
+		}
+		else if(config.getProperty(prefix + "_line_size") != null)
+		{
+			line_size = Integer.decode(config.getProperty(prefix + "_line_size"));
+		}
+
+		int max_lines = 256;
+		if(config.getProperty(prefix + "_stack_distance_max_lines") != null)
+		{
+			max_lines = Integer.decode(config.getProperty(prefix + "_stack_distance_max_lines"));
+		}
+
+		return new StackDistanceProfiler(cache_type, line_size, max_lines);
+	}
+
+	/**
+	 * Records a reference to the cache line containing addr.
+	 */
+	public void access(int addr)
+	{
+		int line = addr >>> block_offset_size;
+		references++;
+
+		for(int k = 0; k < stacks.length; k++)
+		{
+			int set = line & ((1 << k) - 1);
+			int stack[] = stacks[k][set];
+			int fill = stack_fill[k][set];
+
+			int d = 0;
+			while(d < fill && stack[d] != line)
+			{
+				d++;
+			}
+
+			if(d < fill)
+			{
+				distances[k][d]++;
+			}
+			else
+			{
+				beyond[k]++;
+				if(fill < stack.length)
+				{
+					stack_fill[k][set] = fill + 1;
+				}
+				else
+				{
+					// the least recently used line drops out of the stack
+					d = fill - 1;
+				}
+			}
+
+			// move the line to the top of the stack
+			System.arraycopy(stack, 0, stack, 1, d);
+			stack[0] = line;
+		}
+	}
+
+	public long getReferences()
+	{
+		return references;
+	}
+
+	/**
+	 * @param line_no Number of cache lines, a power of two not larger than max_lines.
+	 * @param associativity Number of ways, a power of two not larger than line_no.
+	 * @return Number of hits of the LRU cache with the given geometry.
+	 */
+	public long getHits(int line_no, int associativity)
+	{
+		int k = Integer.numberOfTrailingZeros(line_no / associativity);
+		long hits = 0;
+		for(int d = 0; d < associativity; d++)
+		{
+			hits += distances[k][d];
+		}
+		return hits;
+	}
+
+	public long getMisses(int line_no, int associativity)
+	{
+		return references - getHits(line_no, associativity);
+	}
+
+	public String toString()
+	{
+		DecimalFormat f = new DecimalFormat("##0.00");
+		String report = "-------- " + cache_type + " STACK DISTANCE ANALYSIS (line size: " + line_size + ", references: " + references + ") --------\n";
+		report += "Hit rates of LRU caches by number of lines and associativity:\n";
+		for(int line_no = 1; line_no <= max_lines; line_no <<= 1)
+		{
+			report += "lines: " + line_no + " (" + (line_no * line_size) + " bytes):";
+			for(int associativity = 1; associativity <= line_no; associativity <<= 1)
+			{
+				double rate = (references > 0) ? ((double) getHits(line_no, associativity)) / references * 100 : 0;
+				report += " " + ((associativity == line_no) ? "full" : associativity + "-way") + ": " + f.format(rate) + "%";
+			}
+			report += "\n";
+		}
+		return report;
+	}
+
+	public void printReport()
+	{
+		String[] lines = toString().split("\n");
+		for(int i = 0; i < lines.length; i++)
+		{
+			logger.info(lines[i]);
+		}
+	}
+}
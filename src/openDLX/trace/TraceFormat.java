@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.trace;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the binary execution traces.
+ *
+ * A trace starts with MAGIC (int), VERSION (short) and the flags (byte),
+ * followed by blocks of records. Every block is preceded by its raw and its
+ * stored length (int each), the stored bytes are deflated if FLAG_DEFLATE is
+ * set. A block with a raw length of 0 ends the trace and is followed by the
+ * number of records (long). All values are big endian.
+ *
+ * A record describes one retired instruction and starts with a header byte
+ * of REC_* bits, followed by the optional fields in this order:
+ * - REC_PC: the PC as zigzag varint delta to the PC of the previous record + 4
+ * - REC_WORD: the instruction word (int), omitted if the word was recorded
+ *   for the same PC before and is still in the table of WORD_TABLE_SIZE entries
+ * - REC_MEM: the zigzag encoded delta of the effective address to the
+ *   previous effective address, shifted left by 3 and or-ed with the
+ *   MemoryWidth ordinal, as unsigned varint
+ * - REC_BRANCH: the branch target as zigzag varint delta to the PC, also
+ *   for not taken branches, since the branch target buffer keeps it
+ */
+public class TraceFormat
+{
+	public static final int MAGIC = 0x4F444C54;
+	public static final short VERSION = 1;
+
+	public static final byte FLAG_DEFLATE = 0x1;
+
+	public static final int REC_PC = 0x01;
+	public static final int REC_WORD = 0x02;
+	public static final int REC_MEM = 0x04;
+	public static final int REC_STORE = 0x08;
+	public static final int REC_BRANCH = 0x10;
+	public static final int REC_TAKEN = 0x20;
+
+	public static final int WORD_TABLE_SIZE = 4096;
+	public static final int BLOCK_SIZE = 1 << 20;
+	/// upper bound of the encoded size of one record
+	public static final int MAX_RECORD_SIZE = 1 + 5 + 4 + 6 + 5;
+
+	static int wordTableIndex(int pc)
+	{
+		return (pc >>> 2) & (WORD_TABLE_SIZE - 1);
+	}
+
+	/**
+	 * Zigzag encoding keeps small negative deltas short.
+	 */
+	static long zigzag(int value)
+	{
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	static int unzigzag(long value)
+	{
+		int v = (int) value;
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	static void putVarint(ByteBuffer buf, int value)
+	{
+		putUnsignedVarlong(buf, zigzag(value));
+	}
+
+	static int getVarint(ByteBuffer buf)
+	{
+		return unzigzag(getUnsignedVarlong(buf));
+	}
+
+	static void putUnsignedVarlong(ByteBuffer buf, long v)
+	{
+		while((v & ~0x7fL) != 0)
+		{
+			buf.put((byte) ((v & 0x7f) | 0x80));
+			v >>>= 7;
+		}
+		buf.put((byte) v);
+	}
+
+	static long getUnsignedVarlong(ByteBuffer buf)
+	{
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = buf.get();
+			v |= ((long) (b & 0x7f)) << shift;
+			shift += 7;
+		}
+		while((b & 0x80) != 0);
+		return v;
+	}
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.trace;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import openDLX.datatypes.MemoryWidth;
+import openDLX.exception.TraceException;
+
+/**
+ * Reads the records of a trace written by the TraceWriter.
+ */
+public class TraceReader
+{
+	private static final MemoryWidth WIDTHS[] = MemoryWidth.values();
+
+	private final String file_name;
+	private final FileChannel channel;
+	private final boolean compressed;
+	private final Inflater inflater;
+	private final ByteBuffer block_header = ByteBuffer.allocate(8);
+	private ByteBuffer stored = ByteBuffer.allocate(0);
+	private ByteBuffer block = ByteBuffer.allocate(0);
+
+	private final int word_table_pc[] = new int[TraceFormat.WORD_TABLE_SIZE];
+	private final int word_table_word[] = new int[TraceFormat.WORD_TABLE_SIZE];
+	private int last_pc = -4;
+	private int last_addr = 0;
+	private long records = 0;
+	private long record_count = -1;
+
+	public TraceReader(String file_name) throws TraceException
+	{
+		this.file_name = file_name;
+		try
+		{
+			channel = new FileInputStream(file_name).getChannel();
+			ByteBuffer header = ByteBuffer.allocate(7);
+			read(header);
+			if(header.getInt() != TraceFormat.MAGIC)
+			{
+				throw new TraceException("File " + file_name + " is no trace.");
+			}
+			short version = header.getShort();
+			if(version != TraceFormat.VERSION)
+			{
+				throw new TraceException("Unsupported version " + version + " of trace " + file_name);
+			}
+			compressed = (header.get() & TraceFormat.FLAG_DEFLATE) != 0;
+		}
+		catch(IOException e)
+		{
+			throw new TraceException("Cannot read trace file " + file_name + ": " + e.getMessage());
+		}
+		inflater = compressed ? new Inflater() : null;
+		for(int i = 0; i < TraceFormat.WORD_TABLE_SIZE; i++)
+		{
+			word_table_pc[i] = -1;
+		}
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @param rec Receives the record.
+	 * @return false at the end of the trace.
+	 * @throws TraceException if the trace is corrupt.
+	 */
+	public boolean next(TraceRecord rec) throws TraceException
+	{
+		if(!block.hasRemaining() && !readBlock())
+		{
+			return false;
+		}
+
+		try
+		{
+			int header = block.get() & 0xff;
+			int pc = last_pc + 4;
+			if((header & TraceFormat.REC_PC) != 0)
+			{
+				pc += TraceFormat.getVarint(block);
+			}
+
+			int slot = TraceFormat.wordTableIndex(pc);
+			if((header & TraceFormat.REC_WORD) != 0)
+			{
+				word_table_pc[slot] = pc;
+				word_table_word[slot] = block.getInt();
+			}
+			else if(word_table_pc[slot] != pc)
+			{
+				throw new TraceException("Missing instruction word for PC " + Integer.toHexString(pc) + " in trace " + file_name);
+			}
+
+			boolean mem = (header & TraceFormat.REC_MEM) != 0;
+			MemoryWidth width = null;
+			if(mem)
+			{
+				long v = TraceFormat.getUnsignedVarlong(block);
+				width = WIDTHS[(int) (v & 0x7)];
+				last_addr += TraceFormat.unzigzag(v >>> 3);
+			}
+
+			boolean branch = (header & TraceFormat.REC_BRANCH) != 0;
+			int target = 0;
+			if(branch)
+			{
+				target = pc + TraceFormat.getVarint(block);
+			}
+
+			rec.set(pc, word_table_word[slot], mem, (header & TraceFormat.REC_STORE) != 0, width, mem ? last_addr : 0,
+					branch, (header & TraceFormat.REC_TAKEN) != 0, target);
+			last_pc = pc;
+		}
+		catch(BufferUnderflowException e)
+		{
+			throw new TraceException("Truncated record in trace " + file_name);
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			throw new TraceException("Invalid memory width in trace " + file_name);
+		}
+		records++;
+		return true;
+	}
+
+	/**
+	 * @return The number of records stored in the trailer, or -1 if the end of the trace was not yet reached.
+	 */
+	public long getRecordCount()
+	{
+		return record_count;
+	}
+
+	public void close()
+	{
+		try
+		{
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			// nothing to do, the trace was only read
+		}
+		if(inflater != null)
+		{
+			inflater.end();
+		}
+	}
+
+	private boolean readBlock() throws TraceException
+	{
+		if(record_count >= 0)
+		{
+			return false;
+		}
+
+		try
+		{
+			block_header.clear();
+			read(block_header);
+			int raw_length = block_header.getInt();
+			int stored_length = block_header.getInt();
+
+			if(raw_length == 0)
+			{
+				ByteBuffer end = ByteBuffer.allocate(8);
+				read(end);
+				record_count = end.getLong();
+				if(record_count != records)
+				{
+					throw new TraceException("Trace " + file_name + " holds " + records + " records, but " + record_count + " were written.");
+				}
+				return false;
+			}
+			if(raw_length < 0 || stored_length < 0 || raw_length > TraceFormat.BLOCK_SIZE)
+			{
+				throw new TraceException("Corrupt block in trace " + file_name);
+			}
+
+			if(block.capacity() < raw_length)
+			{
+				block = ByteBuffer.allocate(raw_length);
+			}
+			block.clear();
+
+			if(compressed)
+			{
+				if(stored.capacity() < stored_length)
+				{
+					stored = ByteBuffer.allocate(stored_length);
+				}
+				stored.clear();
+				stored.limit(stored_length);
+				read(stored);
+				inflater.reset();
+				inflater.setInput(stored.array(), 0, stored_length);
+				if(inflater.inflate(block.array(), 0, raw_length) != raw_length)
+				{
+					throw new TraceException("Corrupt compressed block in trace " + file_name);
+				}
+			}
+			else
+			{
+				block.limit(raw_length);
+				read(block);
+			}
+			block.position(0);
+			block.limit(raw_length);
+		}
+		catch(IOException e)
+		{
+			throw new TraceException("Cannot read trace file " + file_name + ": " + e.getMessage());
+		}
+		catch(DataFormatException e)
+		{
+			throw new TraceException("Corrupt compressed block in trace " + file_name + ": " + e.getMessage());
+		}
+		return true;
+	}
+
+	/**
+	 * Fills the buffer from its position to its limit and flips it.
+	 */
+	private void read(ByteBuffer buf) throws IOException, TraceException
+	{
+		while(buf.hasRemaining())
+		{
+			if(channel.read(buf) < 0)
+			{
+				throw new TraceException("Unexpected end of trace " + file_name);
+			}
+		}
+		buf.flip();
+	}
+}
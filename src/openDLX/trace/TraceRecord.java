@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.trace;
+
+import openDLX.datatypes.MemoryWidth;
+
+/**
+ * One retired instruction of a trace, reused by the TraceReader for every record.
+ */
+public class TraceRecord
+{
+	private int pc;
+	private int word;
+	private boolean mem;
+	private boolean store;
+	private MemoryWidth width;
+	private int addr;
+	private boolean branch;
+	private boolean taken;
+	private int target;
+
+	void set(int pc, int word, boolean mem, boolean store, MemoryWidth width, int addr, boolean branch, boolean taken, int target)
+	{
+		this.pc = pc;
+		this.word = word;
+		this.mem = mem;
+		this.store = store;
+		this.width = width;
+		this.addr = addr;
+		this.branch = branch;
+		this.taken = taken;
+		this.target = target;
+	}
+
+	public int getPc()
+	{
+		return pc;
+	}
+
+	public int getWord()
+	{
+		return word;
+	}
+
+	/**
+	 * @return true for loads and stores.
+	 */
+	public boolean getMem()
+	{
+		return mem;
+	}
+
+	public boolean getStore()
+	{
+		return store;
+	}
+
+	public MemoryWidth getMemoryWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return The effective address of loads and stores.
+	 */
+	public int getAddr()
+	{
+		return addr;
+	}
+
+	public boolean getBranch()
+	{
+		return branch;
+	}
+
+	public boolean getTaken()
+	{
+		return taken;
+	}
+
+	/**
+	 * @return The target of branches, whether they are taken or not.
+	 */
+	public int getTarget()
+	{
+		return target;
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.trace;
+
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import openDLX.BranchPredictionModule;
+import openDLX.Decode;
+import openDLX.Memory;
+import openDLX.OpenDLXSimulator;
+import openDLX.SimulationContext;
+import openDLX.datatypes.Instruction;
+import openDLX.datatypes.OpcodeNORMAL;
+import openDLX.datatypes.uint32;
+import openDLX.exception.PipelineException;
+import openDLX.exception.TraceException;
+import openDLX.memory.DataMemory;
+import openDLX.memory.InstructionMemory;
+import openDLX.memory.MainMemory;
+import openDLX.util.Statistics;
+
+/**
+ * Replays a trace on the memory hierarchy and the branch prediction of a
+ * configuration without simulating the pipeline. Every record is fetched
+ * from the instruction memory, its load or store is performed by a Memory
+ * stage and its branch is resolved by a BranchPredictionModule, such that
+ * the data cache, branch target buffer and prediction numbers of the
+ * statistics equal those of a pipeline run with the same configuration.
+ *
+ * The trace only holds the retired instructions, so instruction cache
+ * accesses of fetches that were flushed in the pipeline are not replayed
+ * and cycles are not counted.
+ */
+public class TraceReplay
+{
+	private static Logger logger = Logger.getLogger("TRACE");
+
+	private final Statistics stat;
+	private final InstructionMemory imem;
+	private final Memory memory_stage;
+	private final BranchPredictionModule branch_prediction_module;
+	private final Decode decode;
+	private final HashMap<Integer, Instruction> decoded = new HashMap<>();
+
+	/**
+	 * @param config The configuration of the memory hierarchy and the branch predictor, it is extended by the default parameters.
+	 * @param context Receives the statistics of the replay.
+	 * @throws PipelineException
+	 */
+	public TraceReplay(Properties config, SimulationContext context) throws PipelineException
+	{
+		OpenDLXSimulator.setDefaultConfigParameters(config);
+		context.registerArchitectureConfig(config);
+
+		stat = context.getStatistics();
+		stat.setConfig(config);
+
+		// the program is loaded, since the caches fill their lines from the main memory
+		MainMemory mem = new MainMemory(config.getProperty("file"), Long.decode(config.getProperty("code_start_addr")).intValue(), (short) Long.decode(config.getProperty("memory_latency")).intValue());
+		imem = new InstructionMemory(mem, config, stat);
+		DataMemory dmem = new DataMemory(mem, config, stat);
+		memory_stage = new Memory(dmem, context);
+		branch_prediction_module = new BranchPredictionModule(config, context);
+		decode = new Decode(null, context);
+	}
+
+	/**
+	 * Replays all records of the trace.
+	 *
+	 * @param trace_file The trace written by the TraceWriter.
+	 * @return The number of replayed records.
+	 * @throws PipelineException
+	 */
+	public long replay(String trace_file) throws PipelineException
+	{
+		TraceReader reader = new TraceReader(trace_file);
+		TraceRecord rec = new TraceRecord();
+		long records = 0;
+
+		try
+		{
+			while(reader.next(rec))
+			{
+				replayRecord(rec);
+				records++;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		logger.info("Replayed " + records + " records of trace " + trace_file);
+		return records;
+	}
+
+	private void replayRecord(TraceRecord rec) throws PipelineException
+	{
+		uint32 pc = new uint32(rec.getPc());
+
+		// fetch as done by the fetch stage
+		imem.read_u32(pc);
+		stat.countFetch();
+
+		Instruction inst = decoded.get(rec.getWord());
+		if(inst == null)
+		{
+			inst = decode.decodeInstr(new uint32(rec.getWord()));
+			decoded.put(rec.getWord(), inst);
+		}
+		if((inst.getLoad() || inst.getStore()) != rec.getMem())
+		{
+			throw new TraceException("Trace record at " + pc.getValueAsHexString() + " does not match its instruction word");
+		}
+
+		if(rec.getBranch())
+		{
+			// branch statistics as counted by the execute stage
+			if(rec.getTaken())
+			{
+				stat.countJumpTaken();
+			}
+			else
+			{
+				stat.countJumpNotTaken();
+			}
+			if(inst.getBranchLikely())
+			{
+				stat.countJumpLikely();
+			}
+			if(inst.getBranchAndLink())
+			{
+				stat.countJumpLink();
+			}
+			branch_prediction_module.resolveBranch(pc, new uint32(rec.getTarget()), rec.getTaken());
+		}
+
+		if(rec.getMem())
+		{
+			// the stored values are unknown, but they do not change hits and misses
+			memory_stage.access(inst, rec.getPc(), rec.getAddr(), 0);
+		}
+
+		if(inst.getOpNormal() != OpcodeNORMAL.NOP)
+		{
+			stat.countInstruction();
+		}
+	}
+}
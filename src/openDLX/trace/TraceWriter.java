@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.trace;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.Logger;
+
+import openDLX.datatypes.Instruction;
+import openDLX.exception.TraceException;
+
+/**
+ * Records the retired instructions into a compact binary trace, see
+ * TraceFormat for the layout. Records are collected in blocks of
+ * TraceFormat.BLOCK_SIZE bytes that are optionally deflated and written
+ * through a FileChannel.
+ */
+public class TraceWriter
+{
+	private static Logger logger = Logger.getLogger("TRACE");
+
+	private final String file_name;
+	private final FileChannel channel;
+	private final ByteBuffer block = ByteBuffer.allocate(TraceFormat.BLOCK_SIZE);
+	private final ByteBuffer block_header = ByteBuffer.allocate(8);
+	private final Deflater deflater;
+	private final byte deflated[];
+
+	private final int word_table_pc[] = new int[TraceFormat.WORD_TABLE_SIZE];
+	private final int word_table_word[] = new int[TraceFormat.WORD_TABLE_SIZE];
+	private int last_pc;
+	private int last_addr = 0;
+	private long records = 0;
+	private long bytes_written = 0;
+
+	public TraceWriter(String file_name, boolean compress) throws TraceException
+	{
+		this.file_name = file_name;
+		if(compress)
+		{
+			deflater = new Deflater(Deflater.BEST_SPEED);
+			deflated = new byte[TraceFormat.BLOCK_SIZE + TraceFormat.BLOCK_SIZE / 8 + 64];
+		}
+		else
+		{
+			deflater = null;
+			deflated = null;
+		}
+
+		// no PC is word aligned to 0xffffffff, so the table starts empty
+		for(int i = 0; i < TraceFormat.WORD_TABLE_SIZE; i++)
+		{
+			word_table_pc[i] = -1;
+		}
+		// the first record has no PC delta if the program starts at 0
+		last_pc = -4;
+
+		try
+		{
+			channel = new FileOutputStream(file_name).getChannel();
+			ByteBuffer header = ByteBuffer.allocate(7);
+			header.putInt(TraceFormat.MAGIC);
+			header.putShort(TraceFormat.VERSION);
+			header.put(compress ? TraceFormat.FLAG_DEFLATE : 0);
+			header.flip();
+			write(header);
+		}
+		catch(IOException e)
+		{
+			throw new TraceException("Cannot create trace file " + file_name + ": " + e.getMessage());
+		}
+		logger.info("Writing " + (compress ? "compressed " : "") + "trace to " + file_name);
+	}
+
+	/**
+	 * Records a retired instruction.
+	 *
+	 * @param pc The address of the instruction.
+	 * @param inst The decoded instruction.
+	 * @param alu_outLO The effective address of loads and stores or the target of branches.
+	 * @param jump true if the branch was taken.
+	 * @throws TraceException
+	 */
+	public void record(int pc, Instruction inst, int alu_outLO, boolean jump) throws TraceException
+	{
+		if(block.remaining() < TraceFormat.MAX_RECORD_SIZE)
+		{
+			flushBlock();
+		}
+
+		int word = inst.getInstr().getValue();
+		int header = 0;
+		int slot = TraceFormat.wordTableIndex(pc);
+
+		if(pc != last_pc + 4)
+		{
+			header |= TraceFormat.REC_PC;
+		}
+		if((word_table_pc[slot] != pc) || (word_table_word[slot] != word))
+		{
+			header |= TraceFormat.REC_WORD;
+			word_table_pc[slot] = pc;
+			word_table_word[slot] = word;
+		}
+		if(inst.getLoad() || inst.getStore())
+		{
+			header |= TraceFormat.REC_MEM;
+			if(inst.getStore())
+			{
+				header |= TraceFormat.REC_STORE;
+			}
+		}
+		if(inst.getBranch())
+		{
+			header |= TraceFormat.REC_BRANCH;
+			if(jump)
+			{
+				header |= TraceFormat.REC_TAKEN;
+			}
+		}
+
+		block.put((byte) header);
+		if((header & TraceFormat.REC_PC) != 0)
+		{
+			TraceFormat.putVarint(block, pc - (last_pc + 4));
+		}
+		if((header & TraceFormat.REC_WORD) != 0)
+		{
+			block.putInt(word);
+		}
+		if((header & TraceFormat.REC_MEM) != 0)
+		{
+			TraceFormat.putUnsignedVarlong(block, (TraceFormat.zigzag(alu_outLO - last_addr) << 3) | inst.getMemoryWidth().ordinal());
+			last_addr = alu_outLO;
+		}
+		if((header & TraceFormat.REC_BRANCH) != 0)
+		{
+			TraceFormat.putVarint(block, alu_outLO - pc);
+		}
+
+		last_pc = pc;
+		records++;
+	}
+
+	/**
+	 * Writes the last block and the end marker and closes the file.
+	 */
+	public void close() throws TraceException
+	{
+		flushBlock();
+		try
+		{
+			ByteBuffer end = ByteBuffer.allocate(16);
+			end.putInt(0);
+			end.putInt(0);
+			end.putLong(records);
+			end.flip();
+			write(end);
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			throw new TraceException("Cannot write trace file " + file_name + ": " + e.getMessage());
+		}
+		finally
+		{
+			if(deflater != null)
+			{
+				deflater.end();
+			}
+		}
+		logger.info("Wrote " + records + " records with " + bytes_written + " bytes to trace " + file_name);
+	}
+
+	public long getRecords()
+	{
+		return records;
+	}
+
+	public long getBytesWritten()
+	{
+		return bytes_written;
+	}
+
+	private void flushBlock() throws TraceException
+	{
+		int raw_length = block.position();
+		if(raw_length == 0)
+		{
+			return;
+		}
+
+		try
+		{
+			block_header.clear();
+			block_header.putInt(raw_length);
+			if(deflater != null)
+			{
+				deflater.reset();
+				deflater.setInput(block.array(), 0, raw_length);
+				deflater.finish();
+				int stored_length = 0;
+				while(!deflater.finished())
+				{
+					stored_length += deflater.deflate(deflated, stored_length, deflated.length - stored_length);
+				}
+				block_header.putInt(stored_length);
+				block_header.flip();
+				write(block_header);
+				write(ByteBuffer.wrap(deflated, 0, stored_length));
+			}
+			else
+			{
+				block_header.putInt(raw_length);
+				block_header.flip();
+				write(block_header);
+				block.flip();
+				write(block);
+			}
+		}
+		catch(IOException e)
+		{
+			throw new TraceException("Cannot write trace file " + file_name + ": " + e.getMessage());
+		}
+		block.clear();
+	}
+
+	private void write(ByteBuffer buf) throws IOException
+	{
+		while(buf.hasRemaining())
+		{
+			bytes_written += channel.write(buf);
+		}
+	}
+}
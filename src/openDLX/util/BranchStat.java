@@ -21,6 +21,9 @@
  ******************************************************************************/
 package openDLX.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import openDLX.datatypes.uint32;
@@ -36,6 +39,11 @@ public class BranchStat
 	private int correctly_predicted;
 	private int mispredicted;
 	
+	private BranchStat()
+	{
+		branch_tgts = new ArrayList<uint32>();
+	}
+	
 	public BranchStat(uint32 branchAddr, int btbIdx, uint32 branchTgt, boolean branching, boolean correctPrediction)
 	{
 		branch_addr = new uint32(branchAddr);
@@ -89,6 +97,40 @@ public class BranchStat
 		return branch_addr;
 	}
 	
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.writeInt(branch_addr.getValue());
+		out.writeInt(btb_idx);
+		out.writeInt(branch_tgts.size());
+		for(uint32 tgt : branch_tgts)
+		{
+			out.writeInt(tgt.getValue());
+		}
+		out.writeInt(accesses);
+		out.writeInt(taken);
+		out.writeInt(not_taken);
+		out.writeInt(correctly_predicted);
+		out.writeInt(mispredicted);
+	}
+	
+	public static BranchStat restoreState(DataInput in) throws IOException
+	{
+		BranchStat bs = new BranchStat();
+		bs.branch_addr = new uint32(in.readInt());
+		bs.btb_idx = in.readInt();
+		int tgts = in.readInt();
+		for(int i = 0; i < tgts; i++)
+		{
+			bs.branch_tgts.add(new uint32(in.readInt()));
+		}
+		bs.accesses = in.readInt();
+		bs.taken = in.readInt();
+		bs.not_taken = in.readInt();
+		bs.correctly_predicted = in.readInt();
+		bs.mispredicted = in.readInt();
+		return bs;
+	}
+	
 	public String toString()
 	{
 		DecimalFormat f = new DecimalFormat("###.##");
@@ -21,13 +21,197 @@
  ******************************************************************************/
 package openDLX.util;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
-import openDLX.datatypes.uint32;
+import org.apache.log4j.Logger;
 
+/**
+ * Bounded history of the pipeline occupancy. For every cycle the PCs of the
+ * instructions in the five pipeline stages are kept in one int column per
+ * stage. The columns form a ring buffer of a fixed window of cycles, older
+ * cycles are dropped or, if a spill file is set, appended to that file as
+ * five big endian ints per cycle.
+ *
+ * The log is disabled by default, such that headless runs do not record.
+ */
 public class ClockCycleLog
 {
-    public static ArrayList<HashMap<uint32, String>> log = new ArrayList<>();
-    public static ArrayList<uint32> code = new ArrayList<>();
+    public static final int FETCH = 0;
+    public static final int DECODE = 1;
+    public static final int EXECUTE = 2;
+    public static final int MEMORY = 3;
+    public static final int WRITEBACK = 4;
+    public static final int STAGES = 5;
+
+    public static final int DEFAULT_WINDOW = 10000;
+
+    private static Logger logger = Logger.getLogger("openDLX");
+
+    private boolean enabled = false;
+    private int window = DEFAULT_WINDOW;
+    private int[][] pcs = new int[STAGES][0];
+    /// ring buffer position of the oldest retained cycle
+    private int head = 0;
+    private int size = 0;
+    /// number of cycles that were dropped or spilled
+    private long dropped = 0;
+    private String spill_file = null;
+    private DataOutputStream spill = null;
+
+    /**
+     * Sets up the log for a new simulation and clears it.
+     *
+     * @param enabled true if cycles are recorded.
+     * @param window Number of retained cycles.
+     * @param spill_file File receiving the cycles that leave the window, or null to drop them.
+     */
+    public void configure(boolean enabled, int window, String spill_file)
+    {
+        if (window <= 0)
+        {
+            throw new IllegalArgumentException("The window of the clock cycle log has to be positive, but it is: " + window);
+        }
+        close();
+        this.enabled = enabled;
+        this.window = window;
+        this.spill_file = spill_file;
+        clear();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Logs one clock cycle.
+     */
+    public void add(int fetch_pc, int decode_pc, int execute_pc, int memory_pc, int writeback_pc)
+    {
+        if (pcs[0].length != window)
+        {
+            pcs = new int[STAGES][window];
+        }
+
+        int pos;
+        if (size < window)
+        {
+            pos = (head + size) % window;
+            size++;
+        }
+        else
+        {
+            // the oldest cycle leaves the window
+            pos = head;
+            spillCycle(pos);
+            head = (head + 1) % window;
+            dropped++;
+        }
+
+        pcs[FETCH][pos] = fetch_pc;
+        pcs[DECODE][pos] = decode_pc;
+        pcs[EXECUTE][pos] = execute_pc;
+        pcs[MEMORY][pos] = memory_pc;
+        pcs[WRITEBACK][pos] = writeback_pc;
+    }
+
+    /**
+     * @return Number of retained cycles.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return The cycle number of the oldest retained cycle.
+     */
+    public long getFirstCycle()
+    {
+        return dropped;
+    }
+
+    /**
+     * @param index Index of the retained cycle, 0 is the oldest.
+     * @param stage One of FETCH, DECODE, EXECUTE, MEMORY, WRITEBACK.
+     * @return The PC of the instruction in the stage.
+     */
+    public int getPc(int index, int stage)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Cycle " + index + " is not in the clock cycle log of " + size + " cycles");
+        }
+        return pcs[stage][(head + index) % window];
+    }
+
+    public void clear()
+    {
+        head = 0;
+        size = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Appends the retained cycles to the spill file, such that it holds all
+     * cycles, and closes it. The retained cycles stay readable.
+     */
+    public void close()
+    {
+        if (spill_file != null)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                spillCycle((head + i) % window);
+            }
+        }
+        if (spill != null)
+        {
+            try
+            {
+                spill.close();
+            }
+            catch (IOException e)
+            {
+                logger.error("Cannot write clock cycle log " + spill_file + ": " + e.getMessage());
+            }
+            spill = null;
+        }
+        // do not append to the closed file again
+        spill_file = null;
+    }
+
+    private void spillCycle(int pos)
+    {
+        if (spill_file == null)
+        {
+            return;
+        }
+
+        try
+        {
+            if (spill == null)
+            {
+                spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spill_file), 1 << 16));
+            }
+            for (int stage = 0; stage < STAGES; stage++)
+            {
+                spill.writeInt(pcs[stage][pos]);
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error("Cannot write clock cycle log " + spill_file + ", spilling stopped: " + e.getMessage());
+            spill_file = null;
+            spill = null;
+        }
+    }
 }
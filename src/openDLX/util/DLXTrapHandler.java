@@ -21,6 +21,8 @@
  ******************************************************************************/
 package openDLX.util;
 
+import java.io.PrintStream;
+
 import openDLX.PipelineConstants;
 import openDLX.memory.MainMemory;
 import openDLX.datatypes.*;
@@ -45,8 +47,9 @@ public class DLXTrapHandler {
 	private Input input = null;
 	
 	private MainMemory mem=null;
+	private PrintStream console = System.out;
 	
-	private DLXTrapHandler()
+	public DLXTrapHandler()
 	{
 	}
 	
@@ -88,8 +91,8 @@ public class DLXTrapHandler {
 	{
 		String user_input = null;
 //		uint32 unknown = new uint32(parameter);
-		uint32 write_addr = mem.read_u32(new uint32(parameter+4));
-		int input_length = mem.read_u32(new uint32(parameter+8)).getValue();
+		uint32 write_addr = new uint32(mem.readWord(parameter+4));
+		int input_length = mem.readWord(parameter+8);
 		uint32 return_value = new uint32(-1);
 		
 		if((oInput != null) && (input != null))
@@ -100,7 +103,7 @@ public class DLXTrapHandler {
 		
 		if(user_input != null)
 		{
-			System.out.println("Input: " + user_input);
+			console.println("Input: " + user_input);
 			logger.info("Input: " + user_input + " @" + write_addr.getValueAsHexString());
 			
 			byte[] raw = user_input.getBytes();
@@ -125,7 +128,7 @@ public class DLXTrapHandler {
 
 	public void printf(int parameter) throws MemoryException, DLXTrapException 
 	{
-		uint32 format_addr = mem.read_u32(new uint32(parameter));
+		uint32 format_addr = new uint32(mem.readWord(parameter));
 		String format_string = new String("");
 		uint32 parameter_list_pointer = new uint32(parameter + 4);
 		
@@ -143,7 +146,7 @@ public class DLXTrapHandler {
 		{
 //			logger.debug("Read addr: " + format_addr.getHex() + " char: " + (char)mem.read_u8(format_addr).getValue() + "("+ mem.read_u8(format_addr).getHex() +")");
 			
-			read_char = (char)(mem.read_u8(format_addr).getValue());
+			read_char = (char)mem.readByte(format_addr.getValue());
 			String read_s = String.valueOf(read_char);
 			format_string += read_s;
 			
@@ -172,14 +175,14 @@ public class DLXTrapHandler {
 				switch(format_string.charAt(format_descr_pos+1))
 				{
 				case FORMAT_INTEGER:
-					print_string += mem.read_u32(parameter_list_pointer).getValue();
+					print_string += mem.readWord(parameter_list_pointer.getValue());
 					// set pointer to next addr in the parameter list
 					parameter_list_pointer.setValue(parameter_list_pointer.getValue()+4);
 					// skip two characters: the "%" and the format descriptor
 					format_descr_pos+=2;
 					break;
 				case FORMAT_HEX:
-					print_string += mem.read_u32(parameter_list_pointer).getValueAsHexString();
+					print_string += uint32.toHexString(mem.readWord(parameter_list_pointer.getValue()));
 					// set pointer to next addr in the parameter list
 					parameter_list_pointer.setValue(parameter_list_pointer.getValue()+4);
 					// skip two characters: the "%" and the format descriptor
@@ -199,7 +202,7 @@ public class DLXTrapHandler {
 			format_string_index = format_descr_pos;
 		}
 		
-		System.out.println(print_string);
+		console.println(print_string);
 		logger.info("Printf out: " + print_string);
 		
 		if (oOutput != null) 
@@ -217,4 +220,12 @@ public class DLXTrapHandler {
 		mem = mainMem;
 	}
 
+	/**
+	 * Sets the stream that receives the output of printf traps.
+	 */
+	public void setConsole(PrintStream console)
+	{
+		this.console = console;
+	}
+
 }
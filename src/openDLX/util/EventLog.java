@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.util;
+
+import openDLX.datatypes.EventType;
+import openDLX.datatypes.uint32;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records typed simulation events (e.g. PC updates, cache hits and misses,
+ * pipeline flushes) as fixed size records of primitive fields. The records
+ * are kept in columns of a ring buffer with a power of two capacity, the
+ * oldest records are overwritten when the buffer is full.
+ * 
+ * Recording does not build any strings. The records are rendered as text
+ * only when they are read, i.e. when they leave the buffer or the buffer is
+ * flushed, and only if the logger "EVENTS" is enabled for DEBUG.
+ * 
+ * The log is disabled by default, the event sources check isEnabled()
+ * before calling record(), such that a disabled log costs one branch.
+ */
+public class EventLog
+{
+	public static final int DEFAULT_CAPACITY = 65536;
+
+	private static Logger logger = Logger.getLogger("EVENTS");
+
+	private static final EventType[] TYPES = EventType.values();
+
+	private boolean enabled = false;
+	private boolean to_logger = false;
+	private int mask = 0;
+	private int cycle = 0;
+	private byte[] types = new byte[0];
+	private int[] cycles = new int[0];
+	private int[] pcs = new int[0];
+	private int[] addrs = new int[0];
+	private int[] values = new int[0];
+	/// number of records ever recorded
+	private long count = 0;
+	/// number of records that were rendered to the logger
+	private long rendered = 0;
+
+	/**
+	 * Sets up the log for a new simulation and clears it.
+	 * 
+	 * @param enabled true if events are recorded.
+	 * @param capacity Number of retained records, rounded up to a power of two.
+	 * @param to_logger true if the records are rendered to the logger "EVENTS" before they are overwritten and on flush().
+	 */
+	public void configure(boolean enabled, int capacity, boolean to_logger)
+	{
+		if(capacity <= 0)
+		{
+			throw new IllegalArgumentException("The capacity of the event log has to be positive, but it is: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity)
+		{
+			size <<= 1;
+		}
+		this.enabled = enabled;
+		this.to_logger = to_logger && logger.isDebugEnabled();
+		if(enabled && (types.length != size))
+		{
+			types = new byte[size];
+			cycles = new int[size];
+			pcs = new int[size];
+			addrs = new int[size];
+			values = new int[size];
+		}
+		mask = size - 1;
+		clear();
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Sets the clock cycle that is stored with the following records.
+	 */
+	public void setCycle(int cycle)
+	{
+		this.cycle = cycle;
+	}
+
+	/**
+	 * Records one event. The caller has to check isEnabled() before.
+	 * 
+	 * @param type The kind of the event.
+	 * @param pc The PC of the instruction that raised the event.
+	 * @param addr The memory address or jump target of the event.
+	 * @param value The instruction word or data value of the event.
+	 */
+	public void record(EventType type, int pc, int addr, int value)
+	{
+		if((count - rendered) > mask)
+		{
+			// the oldest record is overwritten
+			if(to_logger)
+			{
+				render(rendered);
+			}
+			rendered++;
+		}
+		int pos = (int)count & mask;
+		types[pos] = (byte)type.ordinal();
+		cycles[pos] = cycle;
+		pcs[pos] = pc;
+		addrs[pos] = addr;
+		values[pos] = value;
+		count++;
+	}
+
+	/**
+	 * @return Number of retained records.
+	 */
+	public int size()
+	{
+		return (int)Math.min(count, (long)mask + 1);
+	}
+
+	/**
+	 * @return Number of records since the log was configured or cleared.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	public EventType getType(int index)
+	{
+		return TYPES[types[position(index)]];
+	}
+
+	public int getCycle(int index)
+	{
+		return cycles[position(index)];
+	}
+
+	public int getPc(int index)
+	{
+		return pcs[position(index)];
+	}
+
+	public int getAddr(int index)
+	{
+		return addrs[position(index)];
+	}
+
+	public int getValue(int index)
+	{
+		return values[position(index)];
+	}
+
+	/**
+	 * @param index Index of the retained record, 0 is the oldest.
+	 * @return The record as text.
+	 */
+	public String format(int index)
+	{
+		return formatRecord(position(index));
+	}
+
+	private int position(int index)
+	{
+		if(index < 0 || index >= size())
+		{
+			throw new IndexOutOfBoundsException("Record " + index + " is not in the event log of " + size() + " records");
+		}
+		return (int)(count - size() + index) & mask;
+	}
+
+	private String formatRecord(int pos)
+	{
+		EventType type = TYPES[types[pos]];
+		StringBuilder sb = new StringBuilder(64);
+		sb.append("cycle ").append(cycles[pos]).append(' ').append(type.getStage()).append(": ").append(type.getDescription());
+		if(type.hasPc())
+		{
+			sb.append(" pc: ").append(uint32.toHexString(pcs[pos]));
+		}
+		if(type.hasAddr())
+		{
+			sb.append(" addr: ").append(uint32.toHexString(addrs[pos]));
+		}
+		if(type.hasValue())
+		{
+			sb.append(" value: ").append(uint32.toHexString(values[pos]));
+		}
+		return sb.toString();
+	}
+
+	private void render(long record)
+	{
+		logger.debug(formatRecord((int)record & mask));
+	}
+
+	/**
+	 * Renders the records that were not rendered yet to the logger "EVENTS",
+	 * if the log was configured to do so. The records stay readable.
+	 */
+	public void flush()
+	{
+		if(to_logger)
+		{
+			while(rendered < count)
+			{
+				render(rendered);
+				rendered++;
+			}
+		}
+	}
+
+	public void clear()
+	{
+		count = 0;
+		rendered = 0;
+		cycle = 0;
+	}
+}
@@ -21,12 +21,25 @@
  ******************************************************************************/
 package openDLX.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import openDLX.exception.MemoryException;
 
 public class Page
 {
 	private byte[] page_memory;
 	public static final int page_size = 16384; // has to be the power of two!!
+	// number of memories sharing the page, forked memories may run in different threads
+	private final AtomicInteger references = new AtomicInteger(1);
+	// epoch of the last write to the page (see PagedMemory.newEpoch()), -1 if it was never written
+	private int write_epoch = -1;
+	// one bit per word written in write_epoch, allocated by the first write
+	private long[] written_words;
 	
 	public Page() throws MemoryException
 	{
@@ -36,11 +49,114 @@ public class Page
 			throw new MemoryException("Page size has to be a power of two, but it is: " + page_size);
 		}
 		
+		// new arrays are zero initialized
 		page_memory = new byte[page_size];
-		for(int i = 0; i<page_size; i++)
+	}
+
+	private Page(byte[] page_memory)
+	{
+		this.page_memory = page_memory;
+	}
+
+	/**
+	 * Adds a memory that uses the page, the page must not be written
+	 * afterwards, unless it is not shared anymore.
+	 */
+	public Page share()
+	{
+		references.incrementAndGet();
+		return this;
+	}
+
+	/**
+	 * Removes a memory that used the page.
+	 */
+	public void release()
+	{
+		references.decrementAndGet();
+	}
+
+	public boolean isShared()
+	{
+		return references.get() > 1;
+	}
+
+	/**
+	 * Returns a private copy of a shared page for a memory that writes to
+	 * it, and releases the shared page.
+	 */
+	public Page copyOnWrite()
+	{
+		Page copy = new Page(page_memory.clone());
+		copy.write_epoch = write_epoch;
+		if(written_words != null)
 		{
-			page_memory[i] = 0;
+			copy.written_words = written_words.clone();
 		}
+		// release only after copying, such that the other users keep the page read-only until then
+		release();
+		return copy;
+	}
+
+	/**
+	 * Marks the word at the address as written in the given epoch, the marks
+	 * of an older epoch are discarded.
+	 */
+	public void markWritten(int address, int epoch)
+	{
+		if(write_epoch != epoch)
+		{
+			if(written_words == null)
+			{
+				written_words = new long[page_size / 4 / 64];
+			}
+			else
+			{
+				Arrays.fill(written_words, 0);
+			}
+			write_epoch = epoch;
+		}
+		int word = address >>> 2;
+		written_words[word >>> 6] |= 1L << word;
+	}
+
+	/**
+	 * Marks the words overlapped by length bytes starting at the address as
+	 * written in the given epoch.
+	 */
+	public void markWritten(int address, int length, int epoch)
+	{
+		for(int word = address & ~0x3; word < address + length; word += 4)
+		{
+			markWritten(word, epoch);
+		}
+	}
+
+	/**
+	 * @return True if the page was written in the given epoch or later.
+	 */
+	public boolean isWrittenSince(int epoch)
+	{
+		return write_epoch >= epoch;
+	}
+
+	/**
+	 * @return True if the word at the address may have been written in the
+	 * given epoch or later. Since only the words written in the latest epoch
+	 * are known, this is exact only if epoch is the epoch of the last write.
+	 */
+	public boolean isWordWrittenSince(int address, int epoch)
+	{
+		if(write_epoch < epoch)
+		{
+			return false;
+		}
+		if(write_epoch > epoch)
+		{
+			return true;
+		}
+		int word = address >>> 2;
+		return (written_words[word >>> 6] & (1L << word)) != 0;
 	}
 
 	public void writeByte(int address, byte data)
@@ -53,4 +169,76 @@ public class Page
 		return page_memory[address];
 	}
 
+	/**
+	 * Reads a little endian half word, the address has to be half word aligned.
+	 */
+	public short readHalf(int address)
+	{
+		return (short)((page_memory[address] & 0xFF) | (page_memory[address + 1] << 8));
+	}
+
+	/**
+	 * Reads a little endian word, the address has to be word aligned.
+	 */
+	public int readWord(int address)
+	{
+		return (page_memory[address] & 0xFF) | ((page_memory[address + 1] & 0xFF) << 8)
+				| ((page_memory[address + 2] & 0xFF) << 16) | (page_memory[address + 3] << 24);
+	}
+
+	/**
+	 * Copies length bytes starting at the address into dst at offset off.
+	 */
+	public void readBlock(int address, byte[] dst, int off, int length)
+	{
+		System.arraycopy(page_memory, address, dst, off, length);
+	}
+
+	/**
+	 * Copies length bytes of src starting at offset off into the page.
+	 */
+	public void writeBlock(int address, byte[] src, int off, int length)
+	{
+		System.arraycopy(src, off, page_memory, address, length);
+	}
+
+	public void writeHalf(int address, short data)
+	{
+		page_memory[address] = (byte)data;
+		page_memory[address + 1] = (byte)(data >> 8);
+	}
+
+	public void writeWord(int address, int data)
+	{
+		page_memory[address] = (byte)data;
+		page_memory[address + 1] = (byte)(data >> 8);
+		page_memory[address + 2] = (byte)(data >> 16);
+		page_memory[address + 3] = (byte)(data >> 24);
+	}
+
+	/**
+	 * Copies length bytes from the current position of data into the page,
+	 * starting at the given address.
+	 */
+	public void load(int address, ByteBuffer data, int length)
+	{
+		data.get(page_memory, address, length);
+	}
+
+	/**
+	 * Writes the content of the page as one block.
+	 */
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.write(page_memory);
+	}
+
+	/**
+	 * Overwrites the content of the page with a block written by saveState().
+	 */
+	public void restoreState(DataInput in) throws IOException
+	{
+		in.readFully(page_memory);
+	}
+
 }
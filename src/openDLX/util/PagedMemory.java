@@ -21,6 +21,11 @@
  ******************************************************************************/
 package openDLX.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import openDLX.datatypes.uint32;
 import openDLX.exception.MemoryException;
 
@@ -32,6 +37,19 @@ public class PagedMemory
 	private Page[] pages;
 	private int page_addr_bits;
 	private int page_count;
+	// the page of the last access, consecutive accesses mostly hit the same page
+	private int last_page_number = -1;
+	private Page last_page;
+	// true if the last page is not shared with a forked memory, such that it can be written
+	private boolean last_page_writable;
+	// the writes are tracked per epoch, see newEpoch()
+	private int epoch = 0;
+	// epoch in which the complete content was replaced by restoreState()
+	private int reset_epoch = -1;
+	// program image, its pages are copied from it when they are touched first
+	private ByteBuffer image;
+	private long image_start;
+	private long image_end;
 	
 	public PagedMemory()
 	{
@@ -50,24 +68,11 @@ public class PagedMemory
 	
 	public void writeByte(int address, byte data) throws MemoryException
 	{
-		// determine the page by the upper 18 bit
-		int page_number = address >>> (32-page_addr_bits);
-		
-		//logger.trace("Accessing page: " + page_number + " 0x" + Integer.toHexString(page_number));
-		if(page_number >= page_count)
-		{
-			throw new MemoryException("Page number out of bounds: " + page_number + "/" + page_count);
-		}
-		
-		// allocate page if not already allocated
-		if(pages[page_number] == null)
-		{
-			pages[page_number] = new Page();
-		}
-		
 		// determine the lower 13 bit for addressing within the 16k pages
 		// and write data to page
-		pages[page_number].writeByte((address&(Page.page_size-1)), data);
+		Page page = getPage(address, false);
+		page.writeByte((address&(Page.page_size-1)), data);
+		page.markWritten((address&(Page.page_size-1)), epoch);
 	}
 	
 	public byte readByte(uint32 address) throws MemoryException
@@ -77,25 +82,282 @@ public class PagedMemory
 	
 	public byte readByte(int address) throws MemoryException
 	{
-		// determine the page by the upper 18 bit
+		// determine the lower 13 bit for addressing within the 16k pages
+		// and read data from page
+		return getPage(address, true).readByte((address&(Page.page_size-1)));
+	}
+	
+	/**
+	 * Reads an aligned little endian half word, with a single page lookup.
+	 */
+	public short readHalf(int address) throws MemoryException
+	{
+		return getPage(address, true).readHalf(address & (Page.page_size-1));
+	}
+
+	/**
+	 * Reads an aligned little endian word, with a single page lookup.
+	 */
+	public int readWord(int address) throws MemoryException
+	{
+		return getPage(address, true).readWord(address & (Page.page_size-1));
+	}
+
+	public void writeHalf(int address, short data) throws MemoryException
+	{
+		Page page = getPage(address, false);
+		page.writeHalf(address & (Page.page_size-1), data);
+		page.markWritten(address & (Page.page_size-1), epoch);
+	}
+
+	public void writeWord(int address, int data) throws MemoryException
+	{
+		Page page = getPage(address, false);
+		page.writeWord(address & (Page.page_size-1), data);
+		page.markWritten(address & (Page.page_size-1), epoch);
+	}
+
+	/**
+	 * Reads len bytes starting at the address into dst at offset off, with
+	 * one copy per page touched.
+	 */
+	public void readBlock(int address, byte[] dst, int off, int len) throws MemoryException
+	{
+		while(len > 0)
+		{
+			int page_offset = address & (Page.page_size-1);
+			int chunk = Math.min(len, Page.page_size - page_offset);
+			getPage(address, true).readBlock(page_offset, dst, off, chunk);
+			address += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	/**
+	 * Writes len bytes of src starting at offset off to the address, with
+	 * one copy per page touched.
+	 */
+	public void writeBlock(int address, byte[] src, int off, int len) throws MemoryException
+	{
+		while(len > 0)
+		{
+			int page_offset = address & (Page.page_size-1);
+			int chunk = Math.min(len, Page.page_size - page_offset);
+			Page page = getPage(address, false);
+			page.writeBlock(page_offset, src, off, chunk);
+			page.markWritten(page_offset, chunk, epoch);
+			address += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	/**
+	 * Starts a new epoch of write tracking. A consumer that keeps a view of
+	 * the memory (e.g. the GUI or a memory diff) remembers the returned
+	 * epoch after updating its view, and later only updates the words for
+	 * which isModified() returns true for that epoch.
+	 * @return The new epoch.
+	 */
+	public int newEpoch()
+	{
+		return ++epoch;
+	}
+
+	/**
+	 * @return True if the word containing the address may have been written
+	 * since the epoch was started. The result is exact for the latest epoch,
+	 * for older epochs every word of a page written since then is reported.
+	 */
+	public boolean isModified(int address, int since_epoch)
+	{
+		if(since_epoch <= reset_epoch)
+		{
+			return true;
+		}
+		Page page = pages[address >>> (32-page_addr_bits)];
+		return (page != null) && page.isWordWrittenSince(address & (Page.page_size-1), since_epoch);
+	}
+
+	/**
+	 * @return The start addresses of the pages written since the epoch was
+	 * started, e.g. for incremental snapshots.
+	 */
+	public int[] getModifiedPages(int since_epoch)
+	{
+		boolean all = (since_epoch <= reset_epoch);
+		// count first, the page table is much larger than the set of written pages
+		int count = 0;
+		for(int i = 0; i < page_count; i++)
+		{
+			if(isPageModified(i, since_epoch, all))
+			{
+				count++;
+			}
+		}
+		int[] modified = new int[count];
+		count = 0;
+		for(int i = 0; i < page_count; i++)
+		{
+			if(isPageModified(i, since_epoch, all))
+			{
+				modified[count++] = i * Page.page_size;
+			}
+		}
+		return modified;
+	}
+
+	private boolean isPageModified(int page_number, int since_epoch, boolean all)
+	{
+		return (pages[page_number] != null) && (all || pages[page_number].isWrittenSince(since_epoch));
+	}
+
+	/**
+	 * Returns the page of the address and allocates it if necessary. The
+	 * page number is taken from the upper bits of the address, so it is
+	 * always within the page table and needs no bounds check.
+	 * @param read Warn about reading from an unallocated page. Otherwise the
+	 * page is written, so a page shared with a forked memory is copied.
+	 */
+	private Page getPage(int address, boolean read) throws MemoryException
+	{
 		int page_number = address >>> (32-page_addr_bits);
-		
-		//logger.trace("Accessing page: " + page_number + " 0x" + Integer.toHexString(page_number));
-		if(page_number >= page_count)
+		if((page_number == last_page_number) && (read || last_page_writable))
 		{
-			throw new MemoryException("Page number out of bounds: " + page_number + "/" + page_count);
+			return last_page;
 		}
-		
-		// allocate page if not already allocated
-		if(pages[page_number] == null)
+
+		Page page = pages[page_number];
+		if(page == null)
 		{
-			logger.warn("Reading from unallocated page!");
-			pages[page_number] = new Page();
+			if(read && !isImagePage(page_number))
+			{
+				logger.warn("Reading from unallocated page!");
+			}
+			page = allocatePage(page_number);
+		}
+		else if(!read && page.isShared())
+		{
+			page = page.copyOnWrite();
+			pages[page_number] = page;
+		}
+		last_page_number = page_number;
+		last_page = page;
+		last_page_writable = !page.isShared();
+		return page;
+	}
+	
+	/**
+	 * Places a program image at the given address. The pages covered by the
+	 * image are not copied here, but when they are accessed first, so
+	 * untouched parts of the image occupy no memory. The image (usually a
+	 * mapped file) must not be modified afterwards.
+	 */
+	public void loadImage(ByteBuffer image, int address) throws MemoryException
+	{
+		this.image = image;
+		image_start = address & 0xFFFFFFFFL;
+		image_end = image_start + image.remaining();
+		if(image_end > (1L << 32))
+		{
+			throw new MemoryException("Image of " + image.remaining() + " bytes exceeds the address space at: " + uint32.toHexString(address));
+		}
+
+		// pages that are already allocated are overwritten right away
+		for(int page_number = firstImagePage(); page_number <= lastImagePage(); page_number++)
+		{
+			if(pages[page_number] != null)
+			{
+				copyFromImage(page_number, getPage(page_number * Page.page_size, false));
+			}
+		}
+	}
+
+	/**
+	 * Creates a copy of the memory that shares all pages with this memory.
+	 * A shared page is copied by the memory that writes it first, so the
+	 * fork costs no page copies until the memories diverge. The memory must
+	 * not be accessed concurrently while it is forked, but the fork and
+	 * this memory can be used by different threads afterwards.
+	 */
+	public PagedMemory fork()
+	{
+		PagedMemory fork = new PagedMemory();
+		for(int i = 0; i < page_count; i++)
+		{
+			if(pages[i] != null)
+			{
+				fork.pages[i] = pages[i].share();
+			}
+		}
+		fork.image = image;
+		fork.image_start = image_start;
+		fork.image_end = image_end;
+		fork.epoch = epoch;
+		fork.reset_epoch = reset_epoch;
+
+		// the last page is shared now as well
+		last_page_writable = false;
+		return fork;
+	}
+
+	private boolean isImagePage(int page_number)
+	{
+		return (image != null) && (page_number >= firstImagePage()) && (page_number <= lastImagePage());
+	}
+
+	private int firstImagePage()
+	{
+		return (int)(image_start / Page.page_size);
+	}
+
+	private int lastImagePage()
+	{
+		return (int)((image_end - 1) / Page.page_size);
+	}
+
+	private Page allocatePage(int page_number) throws MemoryException
+	{
+		Page page = new Page();
+		if(isImagePage(page_number))
+		{
+			copyFromImage(page_number, page);
+		}
+		pages[page_number] = page;
+		return page;
+	}
+
+	/**
+	 * Copies the part of the image that overlaps the page into it.
+	 */
+	private void copyFromImage(int page_number, Page page)
+	{
+		long page_start = (long)page_number * Page.page_size;
+		long start = Math.max(page_start, image_start);
+		long end = Math.min(page_start + Page.page_size, image_end);
+
+		ByteBuffer data = image.duplicate();
+		data.position(data.position() + (int)(start - image_start));
+		page.load((int)(start - page_start), data, (int)(end - start));
+	}
+
+	/**
+	 * Copies all pages of the image that were not touched yet.
+	 */
+	private void allocateImagePages() throws MemoryException
+	{
+		if(image == null)
+		{
+			return;
+		}
+		for(int page_number = firstImagePage(); page_number <= lastImagePage(); page_number++)
+		{
+			if(pages[page_number] == null)
+			{
+				allocatePage(page_number);
+			}
 		}
-		
-		// determine the lower 13 bit for addressing within the 16k pages
-		// and write data to page
-		return pages[page_number].readByte((address&(Page.page_size-1)));
 	}
 	
 	public String readByteAsString(uint32 address) throws MemoryException
@@ -141,6 +403,11 @@ public class PagedMemory
 		// check if page was not allocated
 		if(pages[page_number] == null)
 		{
+			if(isImagePage(page_number))
+			{
+				return getPage(address, true).readByte((address&(Page.page_size-1)));
+			}
+
 			// do not allocate page here, since only a memory dump is created
 			// show non allocated pages in a memory dump with values of 0x0
 			return 0;
@@ -154,4 +421,66 @@ public class PagedMemory
 	}
 	
 
+	/**
+	 * Writes all allocated pages, unallocated pages are skipped. The pages of
+	 * the program image are written as well, such that a checkpoint does not
+	 * depend on the image file.
+	 */
+	public void saveState(DataOutput out) throws IOException, MemoryException
+	{
+		allocateImagePages();
+
+		int allocated = 0;
+		for(int i = 0; i < page_count; i++)
+		{
+			if(pages[i] != null)
+			{
+				allocated++;
+			}
+		}
+
+		out.writeInt(allocated);
+		for(int i = 0; i < page_count; i++)
+		{
+			if(pages[i] != null)
+			{
+				out.writeInt(i);
+				pages[i].saveState(out);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the complete memory content by the pages written by saveState().
+	 * The program image is dropped, since its pages are part of the state.
+	 */
+	public void restoreState(DataInput in) throws IOException, MemoryException
+	{
+		for(int i = 0; i < page_count; i++)
+		{
+			if(pages[i] != null)
+			{
+				// forks that share the page do not need to copy it anymore
+				pages[i].release();
+			}
+		}
+		pages = new Page[page_count];
+		last_page_number = -1;
+		last_page = null;
+		image = null;
+		reset_epoch = epoch;
+
+		int allocated = in.readInt();
+		for(int i = 0; i < allocated; i++)
+		{
+			int page_number = in.readInt();
+			if((page_number < 0) || (page_number >= page_count))
+			{
+				throw new MemoryException("Page number out of bounds: " + page_number + "/" + page_count);
+			}
+			pages[page_number] = new Page();
+			pages[page_number].restoreState(in);
+		}
+	}
+
 }
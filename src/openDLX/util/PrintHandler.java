@@ -33,7 +33,7 @@ public class PrintHandler
 	private FileOutputStream printf = null;
 	private String filename;
 	
-	private PrintHandler()
+	public PrintHandler()
 	{
 	}
 	
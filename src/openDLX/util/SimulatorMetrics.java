@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Throughput metrics and run control of one simulator, registered as MBean
+ * "openDLX:type=SimulatorMetrics,id=[n],name=[program]" such that long runs
+ * can be watched and paused, resumed, or stopped with jconsole or another
+ * JMX client.
+ * 
+ * The simulator thread is the only writer of the counters of Statistics,
+ * thus they are not read by the JMX threads. Instead the simulator copies
+ * them every PUBLISH_INTERVAL cycles into volatile fields by publish() and
+ * polls the requests of pause() and stop() by checkControl().
+ */
+public class SimulatorMetrics implements SimulatorMetricsMBean
+{
+	public static final int PUBLISH_INTERVAL = 1024;
+	public static final int PUBLISH_INTERVAL_MASK = PUBLISH_INTERVAL - 1;
+
+	private static Logger logger = Logger.getLogger("openDLX");
+	private static final AtomicInteger next_id = new AtomicInteger();
+
+	private final long max_cycles;
+	private final long start_time = System.nanoTime();
+	private volatile long cycles = 0;
+	private volatile long instructions = 0;
+	/// time of the last publish(), the rates refer to it
+	private volatile long publish_time = start_time;
+	/// total time the simulation was paused
+	private volatile long paused_time = 0;
+	private volatile boolean paused = false;
+	private volatile boolean stop_requested = false;
+	private volatile boolean finished = false;
+	private ObjectName name = null;
+
+	public SimulatorMetrics(long max_cycles)
+	{
+		this.max_cycles = max_cycles;
+	}
+
+	/**
+	 * Registers the metrics at the platform MBean server. Errors are logged,
+	 * since the simulation does not depend on the metrics.
+	 * 
+	 * @param program Name of the simulated program.
+	 */
+	public void register(String program)
+	{
+		try
+		{
+			ObjectName object_name = new ObjectName("openDLX:type=SimulatorMetrics,id=" + next_id.getAndIncrement() + ",name=" + ObjectName.quote(program));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, object_name);
+			name = object_name;
+		}
+		catch (JMException e)
+		{
+			logger.warn("Cannot register simulator metrics: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Marks the simulation as finished and removes the metrics from the
+	 * MBean server.
+	 */
+	public void unregister()
+	{
+		finished = true;
+		paused = false;
+		if(name != null)
+		{
+			try
+			{
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if(server.isRegistered(name))
+				{
+					server.unregisterMBean(name);
+				}
+			}
+			catch (JMException e)
+			{
+				logger.warn("Cannot unregister simulator metrics: " + e.getMessage());
+			}
+			name = null;
+		}
+	}
+
+	/**
+	 * Publishes the counters of the simulator thread.
+	 */
+	public void publish(Statistics stat)
+	{
+		cycles = stat.getCycles();
+		instructions = stat.getInstructions();
+		publish_time = System.nanoTime();
+	}
+
+	/**
+	 * Blocks the simulator thread while the simulation is paused.
+	 * 
+	 * @return true if the simulation shall be stopped.
+	 */
+	public boolean checkControl()
+	{
+		if(paused)
+		{
+			long pause_start = System.nanoTime();
+			synchronized(this)
+			{
+				while(paused && !stop_requested)
+				{
+					try
+					{
+						wait();
+					}
+					catch (InterruptedException e)
+					{
+						// the simulation cannot be paused any longer
+						Thread.currentThread().interrupt();
+						paused = false;
+					}
+				}
+			}
+			long pause_end = System.nanoTime();
+			paused_time += pause_end - pause_start;
+			// no cycles were simulated while paused
+			publish_time = pause_end;
+		}
+		return stop_requested;
+	}
+
+	@Override
+	public long getCycles()
+	{
+		return cycles;
+	}
+
+	@Override
+	public long getInstructions()
+	{
+		return instructions;
+	}
+
+	@Override
+	public long getMaxCycles()
+	{
+		return max_cycles;
+	}
+
+	@Override
+	public double getElapsedSeconds()
+	{
+		return (publish_time - start_time - paused_time) / 1e9;
+	}
+
+	@Override
+	public double getCyclesPerSecond()
+	{
+		double elapsed = getElapsedSeconds();
+		return (elapsed > 0) ? (cycles / elapsed) : 0;
+	}
+
+	@Override
+	public double getInstructionsPerSecond()
+	{
+		double elapsed = getElapsedSeconds();
+		return (elapsed > 0) ? (instructions / elapsed) : 0;
+	}
+
+	@Override
+	public double getIPC()
+	{
+		long c = cycles;
+		return (c > 0) ? ((double)instructions / c) : 0;
+	}
+
+	@Override
+	public double getEstimatedSecondsRemaining()
+	{
+		double rate = getCyclesPerSecond();
+		if(finished || (rate <= 0))
+		{
+			return 0;
+		}
+		return Math.max(0, max_cycles - cycles) / rate;
+	}
+
+	@Override
+	public long getHeapUsed()
+	{
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public long getHeapMax()
+	{
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+	}
+
+	@Override
+	public boolean isPaused()
+	{
+		return paused;
+	}
+
+	@Override
+	public boolean isFinished()
+	{
+		return finished;
+	}
+
+	@Override
+	public void pause()
+	{
+		if(!finished)
+		{
+			paused = true;
+		}
+	}
+
+	@Override
+	public synchronized void resume()
+	{
+		paused = false;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized void stop()
+	{
+		stop_requested = true;
+		notifyAll();
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.util;
+
+/**
+ * Management interface of a running simulator, see SimulatorMetrics.
+ */
+public interface SimulatorMetricsMBean
+{
+	/// Simulated clock cycles
+	public long getCycles();
+	/// Retired instructions
+	public long getInstructions();
+	/// Maximum number of cycles of the simulation (configuration key "cycles")
+	public long getMaxCycles();
+	/// Seconds the simulation was running, without the time it was paused
+	public double getElapsedSeconds();
+	public double getCyclesPerSecond();
+	public double getInstructionsPerSecond();
+	/// Instructions per cycle
+	public double getIPC();
+	/// Estimated seconds until the maximum number of cycles is reached
+	public double getEstimatedSecondsRemaining();
+	public long getHeapUsed();
+	public long getHeapMax();
+	public boolean isPaused();
+	public boolean isFinished();
+
+	/**
+	 * Pauses the simulation before the next cycle.
+	 */
+	public void pause();
+
+	/**
+	 * Continues a paused simulation.
+	 */
+	public void resume();
+
+	/**
+	 * Stops the simulation as if it was stopped by the user.
+	 */
+	public void stop();
+}
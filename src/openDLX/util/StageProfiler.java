@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * openDLX - A DLX/MIPS processor simulator.
+ * Copyright (C) 2013 The openDLX project, University of Augsburg, Germany
+ * Project URL: <https://sourceforge.net/projects/opendlx>
+ * Development branch: <https://github.com/smetzlaff/openDLX>
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program, see <LICENSE>. If not, see
+ * <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package openDLX.util;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+
+/**
+ * Accumulates the host time and the allocated bytes of the pipeline stages,
+ * the branch prediction module, and the latch handling of simulated cycles.
+ * 
+ * Only every sample_interval-th cycle is measured, the totals are
+ * extrapolated to all cycles. The allocated bytes are read from the thread
+ * MXBean of the JVM, if it supports allocation counting, otherwise only the
+ * time is reported.
+ */
+public class StageProfiler
+{
+	public static final int FETCH = 0;
+	public static final int DECODE = 1;
+	public static final int EXECUTE = 2;
+	public static final int BRANCH_PREDICTION = 3;
+	public static final int MEMORY = 4;
+	public static final int WRITEBACK = 5;
+	public static final int LATCHES = 6;
+	public static final int SEGMENTS = 7;
+
+	public static final int DEFAULT_SAMPLE_INTERVAL = 256;
+
+	private static final String[] SEGMENT_NAMES = { "Fetch", "Decode", "Execute", "BranchPrediction", "Memory", "WriteBack", "Latches" };
+
+	private final int sample_interval;
+	private int countdown = 1;
+	private long cycles = 0;
+	private long sampled_cycles = 0;
+	private final long[] nanos = new long[SEGMENTS];
+	private final long[] bytes = new long[SEGMENTS];
+	private long last_time;
+	private long last_bytes;
+	private long thread_id;
+	/// null if the JVM does not count the allocated bytes per thread
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * @param sample_interval Every sample_interval-th cycle is measured.
+	 */
+	public StageProfiler(int sample_interval)
+	{
+		if(sample_interval <= 0)
+		{
+			throw new IllegalArgumentException("The sample interval of the stage profiler has to be positive, but it is: " + sample_interval);
+		}
+		this.sample_interval = sample_interval;
+
+		com.sun.management.ThreadMXBean allocation_counter = null;
+		if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+		{
+			allocation_counter = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+			if(allocation_counter.isThreadAllocatedMemorySupported())
+			{
+				allocation_counter.setThreadAllocatedMemoryEnabled(true);
+			}
+			else
+			{
+				allocation_counter = null;
+			}
+		}
+		threads = allocation_counter;
+	}
+
+	/**
+	 * Starts a cycle.
+	 * 
+	 * @return true if the cycle is measured, then mark() has to be called after every segment.
+	 */
+	public boolean beginCycle()
+	{
+		cycles++;
+		if(--countdown > 0)
+		{
+			return false;
+		}
+		countdown = sample_interval;
+		sampled_cycles++;
+		// the simulator may be stepped by different threads, e.g. by the GUI
+		thread_id = Thread.currentThread().getId();
+		last_bytes = allocatedBytes();
+		last_time = System.nanoTime();
+		return true;
+	}
+
+	/**
+	 * Accounts the time and the allocations since the last mark to the segment.
+	 */
+	public void mark(int segment)
+	{
+		long time = System.nanoTime();
+		long allocated = allocatedBytes();
+		nanos[segment] += time - last_time;
+		bytes[segment] += allocated - last_bytes;
+		last_bytes = allocated;
+		// do not account the reading of the allocation counter
+		last_time = System.nanoTime();
+	}
+
+	private long allocatedBytes()
+	{
+		return (threads != null) ? threads.getThreadAllocatedBytes(thread_id) : 0;
+	}
+
+	public long getSampledCycles()
+	{
+		return sampled_cycles;
+	}
+
+	/**
+	 * @return The estimated host nanoseconds the segment took in all cycles.
+	 */
+	public long getNanos(int segment)
+	{
+		return (sampled_cycles > 0) ? (long)((double)nanos[segment] * cycles / sampled_cycles) : 0;
+	}
+
+	/**
+	 * @return The estimated bytes the segment allocated in all cycles.
+	 */
+	public long getBytes(int segment)
+	{
+		return (sampled_cycles > 0) ? (long)((double)bytes[segment] * cycles / sampled_cycles) : 0;
+	}
+
+	public String toString()
+	{
+		DecimalFormat f = new DecimalFormat("###.##");
+		String report = "Stage profile (" + cycles + " cycles, " + sampled_cycles + " sampled, every " + sample_interval + ". cycle):\n";
+		if(sampled_cycles == 0)
+		{
+			return report;
+		}
+
+		long total_nanos = 0;
+		for(int i = 0; i < SEGMENTS; i++)
+		{
+			total_nanos += nanos[i];
+		}
+		for(int i = 0; i < SEGMENTS; i++)
+		{
+			report += SEGMENT_NAMES[i] + ": " + f.format((double)nanos[i] / sampled_cycles) + " ns/cycle";
+			if(total_nanos > 0)
+			{
+				report += " (" + f.format((double)nanos[i] / total_nanos * 100) + "%)";
+			}
+			if(threads != null)
+			{
+				report += " " + f.format((double)bytes[i] / sampled_cycles) + " bytes/cycle";
+			}
+			report += " estimated total: " + f.format(getNanos(i) / 1e6) + " ms";
+			if(threads != null)
+			{
+				report += " " + getBytes(i) + " bytes";
+			}
+			report += "\n";
+		}
+		return report;
+	}
+}
@@ -21,6 +21,9 @@
  ******************************************************************************/
 package openDLX.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,8 +53,12 @@ public class Statistics
 	private static final Statistics instance = new Statistics();
 	
 	private int cycles;
+	private int memory_stall_cycles;
+	private int skipped_cycles;
 	private int instructions;
 	private int fetches;
+	private int decode_cache_hits;
+	private int decode_cache_misses;
 	private int jumps_taken;
 	private int jumps_nottaken;
 	private int jumps_likely;
@@ -98,15 +105,17 @@ public class Statistics
 	private Map<uint32,BranchStat>branches_map;
 
 	private Properties config;
+
+	private StageProfiler stage_profiler = null;
 	
-	private Statistics()
+	public Statistics()
 	{
 		config = null;
 		setBranches_map(new HashMap<uint32,BranchStat>());
 	}
 	
 	/*
-	 * obtain a reference to the object anywhere using:
+	 * obtain a reference to the statistics of the default simulation context using:
 	 * Statistics stat = Statistics.getInstance();
 	 */
 	public static Statistics getInstance()
@@ -114,10 +123,34 @@ public class Statistics
 		return instance;
 	}
 	
+	/**
+	 * Sets the profiler of the pipeline stages whose report is included in
+	 * the statistics, or null if the stages are not profiled.
+	 */
+	public void setStageProfiler(StageProfiler stage_profiler)
+	{
+		this.stage_profiler = stage_profiler;
+	}
+
+	public StageProfiler getStageProfiler()
+	{
+		return stage_profiler;
+	}
+
 	public int getCycles()
 	{
 		return cycles;
 	}
+
+	public int getMemory_stall_cycles()
+	{
+		return memory_stall_cycles;
+	}
+
+	public int getSkipped_cycles()
+	{
+		return skipped_cycles;
+	}
 	public int getInstructions()
 	{
 		return instructions;
@@ -126,6 +159,14 @@ public class Statistics
 	{
 		return fetches;
 	}
+	public int getDecode_cache_hits()
+	{
+		return decode_cache_hits;
+	}
+	public int getDecode_cache_misses()
+	{
+		return decode_cache_misses;
+	}
 	public int getJumps_taken()
 	{
 		return jumps_taken;
@@ -216,6 +257,46 @@ public class Statistics
 		return store_forward_from_ex;
 	}
 
+	public int getIcache_accesses()
+	{
+		return icache_accesses;
+	}
+
+	public int getIcache_hits()
+	{
+		return icache_hits;
+	}
+
+	public int getIcache_misses()
+	{
+		return icache_misses;
+	}
+
+	public int getIcache_words_loaded()
+	{
+		return icache_words_loaded;
+	}
+
+	public int getDcache_accesses()
+	{
+		return dcache_accesses;
+	}
+
+	public int getDcache_hits()
+	{
+		return dcache_hits;
+	}
+
+	public int getDcache_misses()
+	{
+		return dcache_misses;
+	}
+
+	public int getDcache_words_loaded()
+	{
+		return dcache_words_loaded;
+	}
+
 	/* 
 	 * Implement count functions.
 	 */
@@ -223,6 +304,22 @@ public class Statistics
 	{
 		cycles++;
 	}
+
+	public void countMemoryStallCycle()
+	{
+		memory_stall_cycles++;
+	}
+
+	/**
+	 * Counts cycles the whole pipeline waited for memory and that were
+	 * skipped instead of being simulated one by one.
+	 */
+	public void countSkippedCycles(int skipped)
+	{
+		cycles += skipped;
+		memory_stall_cycles += skipped;
+		skipped_cycles += skipped;
+	}
 	
 	public void countInstruction()
 	{
@@ -234,6 +331,16 @@ public class Statistics
 		fetches++;
 	}
 	
+	public void countDecodeCacheHit()
+	{
+		decode_cache_hits++;
+	}
+	
+	public void countDecodeCacheMiss()
+	{
+		decode_cache_misses++;
+	}
+	
 	public void countJumpTaken()
 	{
 		jumps_taken++;
@@ -435,8 +542,13 @@ public class Statistics
 		DecimalFormat f = new DecimalFormat("###.##");
 		stats += "-------- SIMULATION STATISTICS --------\n";
 		stats += "Cycles: " + getCycles() + "\n";
+		if(memory_stall_cycles > 0)
+		{
+			stats += "Memory stall cycles: " + memory_stall_cycles + " (skipped: " + skipped_cycles + ")\n";
+		}
 		stats += "Executed instructions: " + getInstructions() + "\n";
 		stats += "Performed fetches: " + getFetches() + "\n";
+		stats += "Decode cache: hits: " + getDecode_cache_hits() + " misses: " + getDecode_cache_misses() + "\n";
 		if(icache || dcache)
 		{
 			stats += "Cache statistics:\n";
@@ -476,6 +588,10 @@ public class Statistics
 		stats += "BCRTL forwarded values: " + (getBcrtl_forward_from_ex() + getBcrtl_forward_from_mem() + getBcrtl_forward_from_wb()) + " (from execute: " + getBcrtl_forward_from_ex() + ", memory stage: " + getBcrtl_forward_from_mem() + ", write back: " + getBcrtl_forward_from_wb() + ")\n";
 		stats += "STORE forwarded values: " + (getStore_forward_from_ex() + getStore_forward_from_mem() + getStore_forward_from_wb()) + " (from execute: " + getStore_forward_from_ex() + ", memory stage: " + getStore_forward_from_mem() + ", write back: " + getStore_forward_from_wb() + ")\n";
 		stats += "Total forwarded values: " + (getForward_from_ex() + getForward_from_mem() + getForward_from_wb()) + " (from execute: " + getForward_from_ex() + ", memory stage: " + getForward_from_mem() + ", write back: " + getForward_from_wb() + ")\n";
+		if(stage_profiler != null)
+		{
+			stats += stage_profiler.toString();
+		}
 		stats += "-------- SIMULATION STATISTICS --------\n";
 		
 		return stats;
@@ -669,11 +785,147 @@ public class Statistics
 		this.branches_map = branches_map;
 	}
 
+	/**
+	 * Writes all event counters and the per branch statistics for a
+	 * checkpoint, the configuration of caches and branch prediction is
+	 * not written.
+	 */
+	public void saveState(DataOutput out) throws IOException
+	{
+		int counters[] = {cycles, instructions, fetches, decode_cache_hits, decode_cache_misses,
+				jumps_taken, jumps_nottaken, jumps_likely, jumps_link, jumps_correctly_predicted, jumps_mispredicted,
+				memory_reads, memory_writes,
+				alu_forward_from_wb, alu_forward_from_mem, alu_forward_from_ex,
+				bcrtl_forward_from_wb, bcrtl_forward_from_mem, bcrtl_forward_from_ex,
+				store_forward_from_wb, store_forward_from_mem, store_forward_from_ex,
+				btb_hits, btb_misses,
+				icache_accesses, icache_hits, icache_misses, icache_words_loaded,
+				dcache_accesses, dcache_hits, dcache_misses, dcache_words_loaded,
+				memory_stall_cycles, skipped_cycles};
+		out.writeInt(counters.length);
+		for(int counter : counters)
+		{
+			out.writeInt(counter);
+		}
+		out.writeInt(branches_map.size());
+		for(BranchStat bs : branches_map.values())
+		{
+			bs.saveState(out);
+		}
+	}
+
+	/**
+	 * Restores the event counters and the per branch statistics written by
+	 * saveState().
+	 */
+	public void restoreState(DataInput in) throws IOException
+	{
+		int counters[] = new int[in.readInt()];
+		for(int i = 0; i < counters.length; i++)
+		{
+			counters[i] = in.readInt();
+		}
+		if(counters.length != 34)
+		{
+			throw new IOException("Unexpected number of statistics counters: " + counters.length);
+		}
+		int i = 0;
+		cycles = counters[i++];
+		instructions = counters[i++];
+		fetches = counters[i++];
+		decode_cache_hits = counters[i++];
+		decode_cache_misses = counters[i++];
+		jumps_taken = counters[i++];
+		jumps_nottaken = counters[i++];
+		jumps_likely = counters[i++];
+		jumps_link = counters[i++];
+		jumps_correctly_predicted = counters[i++];
+		jumps_mispredicted = counters[i++];
+		memory_reads = counters[i++];
+		memory_writes = counters[i++];
+		alu_forward_from_wb = counters[i++];
+		alu_forward_from_mem = counters[i++];
+		alu_forward_from_ex = counters[i++];
+		bcrtl_forward_from_wb = counters[i++];
+		bcrtl_forward_from_mem = counters[i++];
+		bcrtl_forward_from_ex = counters[i++];
+		store_forward_from_wb = counters[i++];
+		store_forward_from_mem = counters[i++];
+		store_forward_from_ex = counters[i++];
+		btb_hits = counters[i++];
+		btb_misses = counters[i++];
+		icache_accesses = counters[i++];
+		icache_hits = counters[i++];
+		icache_misses = counters[i++];
+		icache_words_loaded = counters[i++];
+		dcache_accesses = counters[i++];
+		dcache_hits = counters[i++];
+		dcache_misses = counters[i++];
+		dcache_words_loaded = counters[i++];
+		memory_stall_cycles = counters[i++];
+		skipped_cycles = counters[i++];
+
+		int branches = in.readInt();
+		setBranches_map(new HashMap<uint32,BranchStat>());
+		for(int j = 0; j < branches; j++)
+		{
+			BranchStat bs = BranchStat.restoreState(in);
+			branches_map.put(new uint32(bs.getBranchAddr()), bs);
+		}
+	}
+
+	/**
+	 * Resets all event counters, but keeps the configuration of caches and
+	 * branch prediction, e.g. to only count the detailed part of a simulation.
+	 */
+	public void resetCounters()
+	{
+		cycles = 0;
+		memory_stall_cycles = 0;
+		skipped_cycles = 0;
+		instructions = 0;
+		fetches = 0;
+		decode_cache_hits = 0;
+		decode_cache_misses = 0;
+		jumps_taken = 0;
+		jumps_nottaken = 0;
+		jumps_likely = 0;
+		jumps_link = 0;
+		jumps_correctly_predicted = 0;
+		jumps_mispredicted = 0;
+		memory_reads = 0;
+		memory_writes = 0;
+		alu_forward_from_wb = 0;
+		alu_forward_from_mem = 0;
+		alu_forward_from_ex = 0;
+		bcrtl_forward_from_wb = 0;
+		bcrtl_forward_from_mem = 0;
+		bcrtl_forward_from_ex = 0;
+		store_forward_from_wb = 0;
+		store_forward_from_mem = 0;
+		store_forward_from_ex = 0;
+		btb_hits = 0;
+		btb_misses = 0;
+		icache_accesses = 0;
+		icache_hits = 0;
+		icache_misses = 0;
+		icache_words_loaded = 0;
+		dcache_accesses = 0;
+		dcache_hits = 0;
+		dcache_misses = 0;
+		dcache_words_loaded = 0;
+		setBranches_map(new HashMap<uint32,BranchStat>());
+	}
+
 	public void reset() 
 	{
 		cycles = 0;
+		memory_stall_cycles = 0;
+		skipped_cycles = 0;
 		instructions = 0;
 		fetches = 0;
+		decode_cache_hits = 0;
+		decode_cache_misses = 0;
 		jumps_taken = 0;
 		jumps_nottaken = 0;
 		jumps_likely = 0;